@@ -0,0 +1,96 @@
+#!/usr/bin/env bash
+#
+# Compares startup time and resident memory of the packaged variants of the application
+# under the same smoke workload. Build the variants first:
+#
+#   ./mvnw -Pnative native:compile   -> target/book-rental           (needs GraalVM)
+#   ./mvnw -Pcds package             -> target/cds/book-rental.jar   (+ application.jsa)
+#   ./mvnw package                   -> target/book-rental-*.jar
+#
+# Variants whose artifacts are missing are skipped. Usage:
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Extra JVM options for the JVM variants can be passed in JAVA_OPTS.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-3}
+PORT=${PORT:-18080}
+BASE="http://localhost:$PORT/api"
+JAVA_OPTS=${JAVA_OPTS:-}
+
+now_ms() {
+    date +%s%3N
+}
+
+smoke_workload() {
+    curl -sf -XPOST "$BASE/authors" -H 'Content-Type: application/json' -d '{"name":"Benchmark Author"}' >/dev/null
+    for i in 1 2 3 4 5; do
+        curl -sf -XPOST "$BASE/books" -H 'Content-Type: application/json' \
+            -d "{\"title\":\"Book $i\",\"isbn\":\"isbn-$i\",\"publicationYear\":2001,\"authorId\":1}" >/dev/null
+    done
+    for i in 1 2 3; do
+        curl -sf -XPOST "$BASE/books/$i/rent?renterName=renter$i" >/dev/null
+    done
+    curl -sf -XPOST "$BASE/books/1/return" >/dev/null
+    curl -sf "$BASE/books" >/dev/null
+    curl -sf "$BASE/books/availableForRent" >/dev/null
+    curl -sf "$BASE/rentals" >/dev/null
+    curl -sf "$BASE/books/overdue" >/dev/null
+}
+
+# Prints "<ready ms> <workload ms> <rss kB> <peak rss kB>" for one run of the given command.
+measure() {
+    local dir=$1
+    shift
+    local start ready done pid
+    start=$(now_ms)
+    (cd "$dir" && exec "$@" --server.port="$PORT" >/dev/null 2>&1) &
+    pid=$!
+    until curl -s -o /dev/null "$BASE/authors"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "process exited before becoming ready: $*" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    ready=$(now_ms)
+    smoke_workload
+    done=$(now_ms)
+    local rss peak
+    rss=$(awk '/^VmRSS/ {print $2}' "/proc/$pid/status")
+    peak=$(awk '/^VmHWM/ {print $2}' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$((ready - start)) $((done - ready)) $rss $peak"
+}
+
+report() {
+    local name=$1
+    shift
+    local results=""
+    for _ in $(seq "$RUNS"); do
+        results+="$(measure "$@")"$'\n'
+    done
+    printf '%s' "$results" | awk -v name="$name" '
+        { ready += $1; work += $2; rss += $3; peak += $4; n++ }
+        END { printf "%-8s %12d %12d %10.1f %10.1f\n", name, ready / n, work / n, rss / n / 1024, peak / n / 1024 }'
+}
+
+JAR=$(ls target/book-rental-*.jar 2>/dev/null | head -n 1 || true)
+
+printf '%-8s %12s %12s %10s %10s\n' variant "ready (ms)" "smoke (ms)" "RSS (MB)" "peak (MB)"
+if [[ -n "$JAR" ]]; then
+    # shellcheck disable=SC2086
+    report jvm . java $JAVA_OPTS -jar "$JAR"
+fi
+if [[ -f target/cds/application.jsa ]]; then
+    # shellcheck disable=SC2086
+    report cds target/cds java $JAVA_OPTS -XX:SharedArchiveFile=application.jsa -jar book-rental.jar
+fi
+if [[ -x target/book-rental ]]; then
+    report native . target/book-rental
+fi
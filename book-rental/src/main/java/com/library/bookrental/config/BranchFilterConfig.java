@@ -0,0 +1,42 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.models.Book;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+/**
+ * Turns on the Hibernate branch filter for every entity manager opened while a branch is
+ * bound, so JPQL, criteria and derived queries on authors, books and rentals only see that
+ * branch without each query saying so. Loads by id and JDBC statements are not filtered
+ * and check the branch themselves.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BranchFilterConfig {
+
+    @Bean
+    public static BeanPostProcessor branchFilterInitializer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean factoryBean) {
+                    factoryBean.setEntityManagerInitializer(BranchFilterConfig::enableBranchFilter);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static void enableBranchFilter(EntityManager entityManager) {
+        Long branchId = BranchContextFilter.currentBranchId();
+        if (branchId != null) {
+            entityManager.unwrap(Session.class)
+                    .enableFilter(Book.BRANCH_FILTER)
+                    .setParameter(Book.BRANCH_PARAMETER, branchId);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.library.bookrental.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read/write split, enabled with {@code bookrental.datasource.replica.enabled=true}.
+ * The primary pool is built from the regular {@code spring.datasource.*} settings and the
+ * replica pool from {@code bookrental.datasource.replica.*}.
+ * <p>
+ * Open-in-view keeps one entity manager for a whole request, and by default its connection
+ * is held until the request ends, so a write after a read-only transaction would run on the
+ * replica connection. Connections are therefore released after every transaction, and each
+ * transaction is routed afresh.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bookrental.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("bookrental.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${bookrental.datasource.replica.url}") String url,
+                                              @Value("${bookrental.datasource.replica.username:}") String username,
+                                              @Value("${bookrental.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(@Value("${bookrental.datasource.replica.max-lag-ms:1000}") long maxLagMillis) {
+        return new ReadYourWritesTracker(maxLagMillis);
+    }
+
+    /**
+     * The lazy proxy defers fetching a physical connection until the first statement, by
+     * which point the transaction's read-only flag is known to the router.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 ReadYourWritesTracker readYourWritesTracker) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(readYourWritesTracker);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.Route.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
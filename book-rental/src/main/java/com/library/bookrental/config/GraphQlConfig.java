@@ -0,0 +1,74 @@
+package com.library.bookrental.config;
+
+import graphql.GraphQLError;
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+
+/**
+ * Limits on GraphQL queries, checked before a query runs: how deeply fields may be nested
+ * and how many values a query may ask for at most.
+ */
+@Configuration
+public class GraphQlConfig {
+
+    @Bean
+    public MaxQueryDepthInstrumentation maxQueryDepthInstrumentation(
+            @Value("${bookrental.graphql.max-depth:6}") int maxDepth) {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation(
+            @Value("${bookrental.graphql.max-complexity:20000}") int maxComplexity,
+            @Value("${bookrental.graphql.nested-list-size:10}") int nestedListSize) {
+        return new MaxQueryComplexityInstrumentation(maxComplexity, complexityCalculator(nestedListSize));
+    }
+
+    /**
+     * Reports invalid arguments, such as a page size out of range, as bad requests rather
+     * than internal errors.
+     */
+    @Bean
+    public DataFetcherExceptionResolverAdapter badRequestExceptionResolver() {
+        return new DataFetcherExceptionResolverAdapter() {
+            @Override
+            protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+                if (!(ex instanceof IllegalArgumentException)) {
+                    return null;
+                }
+                return GraphQLError.newError()
+                        .errorType(ErrorType.BAD_REQUEST)
+                        .message(ex.getMessage())
+                        .path(env.getExecutionStepInfo().getPath())
+                        .location(env.getField().getSourceLocation())
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Counts one per field, with a list field counting its selection once per element: the
+     * {@code first} argument where the field has one, else an estimate of the list's size.
+     */
+    static FieldComplexityCalculator complexityCalculator(int nestedListSize) {
+        return (environment, childComplexity) -> {
+            GraphQLType type = GraphQLTypeUtil.unwrapNonNull(environment.getFieldDefinition().getType());
+            if (!(type instanceof GraphQLList)) {
+                return 1 + childComplexity;
+            }
+            Object first = environment.getArguments().get("first");
+            int size = first instanceof Integer value ? Math.max(1, value) : nestedListSize;
+            return 1 + size * Math.max(1, childComplexity);
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.AuthorView;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.BookPageDTO;
+import com.library.bookrental.dto.BookSearchCriteria;
+import com.library.bookrental.dto.BookView;
+import com.library.bookrental.dto.HoldDTO;
+import com.library.bookrental.dto.LateFeeView;
+import com.library.bookrental.dto.RentalDTO;
+import com.library.bookrental.dto.RentalView;
+import com.library.bookrental.dto.RentedBooks;
+import com.library.bookrental.tracing.HibernateFlushSpanListener;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Reflection and proxy hints for the native image that Spring's AOT processing cannot work
+ * out by itself. Entities are covered by the JPA AOT support, and Lombok needs nothing since
+ * its accessors are ordinary compiled methods; what remains are types that are only reached
+ * by name, through untyped responses or by GraphQL field names.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+@RegisterReflectionForBinding({AuthorDTO.class, BookDTO.class, BookPageDTO.class, BookSearchCriteria.class,
+        HoldDTO.class, RentalDTO.class, AuthorView.class, BookView.class, RentalView.class, RentedBooks.class,
+        LateFeeView.class})
+public class NativeHintsConfig {
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // ObservedDataSource hands out JDK proxies for the JDBC objects it observes.
+            hints.proxies()
+                    .registerJdkProxy(Connection.class)
+                    .registerJdkProxy(Statement.class)
+                    .registerJdkProxy(PreparedStatement.class)
+                    .registerJdkProxy(CallableStatement.class)
+                    .registerJdkProxy(ResultSet.class);
+            // Instantiated by Hibernate from hibernate.session.events.auto.
+            hints.reflection().registerType(HibernateFlushSpanListener.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            // Created by JPQL constructor expressions.
+            hints.reflection().registerType(BookView.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(AuthorView.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(RentalView.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            // Second-level cache regions, read by the JCache provider from hibernate.javax.cache.uri.
+            hints.resources().registerPattern("ehcache.xml");
+        }
+    }
+}
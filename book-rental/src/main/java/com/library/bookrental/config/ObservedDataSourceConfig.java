@@ -0,0 +1,40 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.tracing.ObservedDataSource;
+import com.library.bookrental.tracing.StatementListener;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Wraps the application's {@code dataSource} bean in an {@link ObservedDataSource} when at
+ * least one {@link StatementListener} is configured. With the replica routing enabled the
+ * wrapped bean is the routing proxy, so statements are observed once whichever pool serves
+ * them.
+ */
+@Configuration
+public class ObservedDataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor observedDataSourcePostProcessor(ListableBeanFactory beanFactory,
+                                                                    ObjectProvider<StatementListener> listeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")
+                        && beanFactory.getBeanNamesForType(StatementListener.class, true, false).length > 0) {
+                    SingletonSupplier<List<StatementListener>> resolved =
+                            SingletonSupplier.of(() -> listeners.orderedStream().toList());
+                    return new ObservedDataSource(dataSource, resolved);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.filters.ClientContextFilter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which clients wrote within the replica lag window.
+ */
+public class ReadYourWritesTracker {
+
+    private static final int EVICTION_THRESHOLD = 10_000;
+
+    private final long maxLagNanos;
+    private final Map<String, Long> lastWriteByClient = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long maxLagMillis) {
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+    }
+
+    public void recordWrite() {
+        recordWrite(ClientContextFilter.currentClientId());
+    }
+
+    public void recordWrite(String clientId) {
+        if (clientId == null || maxLagNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (lastWriteByClient.size() >= EVICTION_THRESHOLD) {
+            lastWriteByClient.values().removeIf(writtenAt -> now - writtenAt > maxLagNanos);
+        }
+        lastWriteByClient.put(clientId, now);
+    }
+
+    public boolean mustReadFromPrimary() {
+        String clientId = ClientContextFilter.currentClientId();
+        if (clientId == null) {
+            return false;
+        }
+        Long writtenAt = lastWriteByClient.get(clientId);
+        return writtenAt != null && System.nanoTime() - writtenAt <= maxLagNanos;
+    }
+}
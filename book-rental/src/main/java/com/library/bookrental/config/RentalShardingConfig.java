@@ -0,0 +1,59 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.repositories.HashRentalShardStrategy;
+import com.library.bookrental.repositories.RangeRentalShardStrategy;
+import com.library.bookrental.repositories.RentalShardStrategy;
+import com.library.bookrental.repositories.RentalShards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rental storage sharded by book id, enabled with {@code bookrental.sharding.enabled=true}.
+ * The shard pools are deliberately not exposed as {@code DataSource} beans, so the
+ * catalog keeps using the regular primary DataSource.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bookrental.sharding.enabled", havingValue = "true")
+public class RentalShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public RentalShards rentalShards(@Value("${bookrental.sharding.urls}") List<String> urls,
+                                     @Value("${bookrental.sharding.username:}") String username,
+                                     @Value("${bookrental.sharding.password:}") String password,
+                                     @Value("${bookrental.sharding.strategy:hash}") String strategyName,
+                                     @Value("${bookrental.sharding.range-upper-bounds:}") long[] rangeUpperBounds,
+                                     @Value("${bookrental.sharding.pool-size:10}") int poolSize,
+                                     @Value("${bookrental.sharding.id-block-size:100}") int idBlockSize,
+                                     DataSourceProperties dataSourceProperties) {
+        RentalShardStrategy strategy = switch (strategyName) {
+            case "hash" -> new HashRentalShardStrategy(urls.size());
+            case "range" -> new RangeRentalShardStrategy(rangeUpperBounds);
+            default -> throw new IllegalArgumentException("Unknown rental shard strategy: " + strategyName);
+        };
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(urls.get(i));
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setPoolName("rental-shard-" + i);
+            dataSources.add(dataSource);
+        }
+        // Id blocks come from the primary database, but not from the primary pool: the callers
+        // already hold a primary connection, and a full pool would leave them waiting on each other.
+        HikariDataSource idDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        idDataSource.setMaximumPoolSize(1);
+        idDataSource.setPoolName("rental-id-blocks");
+        return new RentalShards(dataSources, strategy, idDataSource, idBlockSize);
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.bookrental.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and everything else to
+ * the primary. Clients that wrote recently keep reading from the primary until the
+ * configured replica lag has passed, so they always see their own writes.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReplicaRoutingDataSource(ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWritesTracker.recordWrite();
+            return Route.PRIMARY;
+        }
+        return readYourWritesTracker.mustReadFromPrimary() ? Route.PRIMARY : Route.REPLICA;
+    }
+}
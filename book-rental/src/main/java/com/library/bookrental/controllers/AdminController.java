@@ -0,0 +1,679 @@
+package com.library.bookrental.controllers;
+
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.filters.IdempotencyFilter;
+import com.library.bookrental.filters.RateLimitFilter;
+import com.library.bookrental.services.BookService;
+import com.library.bookrental.services.EntityCacheService;
+import com.library.bookrental.services.LateFeeService;
+import com.library.bookrental.services.OutboxDispatcher;
+import com.library.bookrental.services.RecommendationService;
+import com.library.bookrental.services.RentalIntervalService;
+import com.library.bookrental.services.RentalDueDateScheduler;
+import com.library.bookrental.services.RentalShardRebalancer;
+import com.library.bookrental.services.SnapshotService;
+import com.library.bookrental.tracing.InMemorySpanExporter;
+import com.library.bookrental.tracing.QueryStatistics;
+import com.library.bookrental.tracing.Span;
+import com.library.bookrental.tracing.Tracer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@Slf4j
+@Tag(name = "Administration", description = "Operational endpoints for monitoring the service")
+public class AdminController {
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private BranchContextFilter branchContextFilter;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private RentalDueDateScheduler rentalDueDateScheduler;
+
+    @Autowired
+    private RentalShardRebalancer rentalShardRebalancer;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RentalIntervalService rentalIntervalService;
+
+    @Autowired
+    private LateFeeService lateFeeService;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private ObjectProvider<InMemorySpanExporter> inMemorySpanExporter;
+
+    @Autowired
+    private ObjectProvider<QueryStatistics> queryStatistics;
+
+    @Operation(
+            summary = "Get rate limiting metrics",
+            description = "Retrieve counters for admitted and rejected requests on the protected endpoints.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimitMetrics() {
+        log.info("Request received to get rate limiting metrics.");
+        return new ResponseEntity<>(rateLimitFilter.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get per-branch request metrics",
+            description = "Retrieve the number of requests, server errors and mean latency for each library branch.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/branches")
+    public ResponseEntity<Map<String, Object>> getBranchMetrics() {
+        log.info("Request received to get per-branch request metrics.");
+        return new ResponseEntity<>(branchContextFilter.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get read coalescing metrics",
+            description = "Retrieve how many catalog listing queries were executed and how many callers shared an in-flight query.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Long>> getCoalescingMetrics() {
+        log.info("Request received to get read coalescing metrics.");
+        return new ResponseEntity<>(bookService.getCoalescingMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get rent and return outcomes",
+            description = "Retrieve how many rent and return requests ended in each outcome, with the CPU time the process "
+                    + "has used so far, so a load run can work out the CPU spent per request.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/rental-outcomes")
+    public ResponseEntity<Map<String, Long>> getRentalOutcomeMetrics() {
+        log.info("Request received to get rent and return outcomes.");
+        Map<String, Long> metrics = new LinkedHashMap<>(bookService.getRentalOutcomeMetrics());
+        long cpuMillis = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                ? os.getProcessCpuTime() / 1_000_000 : -1L;
+        metrics.put("processCpuMillis", cpuMillis);
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get entity cache metrics",
+            description = "Retrieve hits, misses, puts and the hit ratio of each Hibernate second-level and query cache region.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/entity-cache")
+    public ResponseEntity<Map<String, Object>> getEntityCacheMetrics() {
+        log.info("Request received to get entity cache metrics.");
+        return new ResponseEntity<>(entityCacheService.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get due-date scheduler metrics",
+            description = "Retrieve the number of rentals with pending due-date timers and how many timers have fired.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/scheduler")
+    public ResponseEntity<Map<String, Long>> getSchedulerMetrics() {
+        log.info("Request received to get due-date scheduler metrics.");
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("pendingRentals", (long) rentalDueDateScheduler.getPendingRentals());
+        metrics.put("overdueFired", rentalDueDateScheduler.getOverdueFired());
+        metrics.put("remindersFired", rentalDueDateScheduler.getRemindersFired());
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get rental shard sizes",
+            description = "Retrieve the number of rentals stored on each rental shard.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Rental sharding is not enabled."
+                    )
+            }
+    )
+    @GetMapping("/shards")
+    public ResponseEntity<?> getShardSizes() {
+        try {
+            log.info("Request received to get rental shard sizes.");
+            return new ResponseEntity<>(rentalShardRebalancer.getShardSizes(), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(
+            summary = "Rebalance rental shards",
+            description = "Move rentals onto the shard the configured strategy assigns to their book.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Rebalance finished, returns rows moved per source shard.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Rental sharding is not enabled."
+                    )
+            }
+    )
+    @PostMapping("/shards/rebalance")
+    public ResponseEntity<?> rebalanceShards() {
+        try {
+            log.info("Request received to rebalance rental shards.");
+            return new ResponseEntity<>(rentalShardRebalancer.rebalance(), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(
+            summary = "Get catalog snapshot status",
+            description = "Retrieve the snapshot location and the statistics of the last dump and restore.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> getSnapshotStatus() {
+        log.info("Request received to get catalog snapshot status.");
+        return new ResponseEntity<>(snapshotService.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Write a catalog snapshot",
+            description = "Dump authors, books and rentals into the configured binary snapshot file without blocking writes.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Snapshot written, returns row counts, size and duration.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "The snapshot file could not be written."
+                    )
+            }
+    )
+    @PostMapping("/snapshot")
+    public ResponseEntity<?> dumpSnapshot() {
+        try {
+            log.info("Request received to write a catalog snapshot.");
+            return new ResponseEntity<>(snapshotService.dump(), HttpStatus.OK);
+        } catch (UncheckedIOException e) {
+            log.error("An error occurred while writing the catalog snapshot: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(
+            summary = "Get idempotency key metrics",
+            description = "Retrieve how many keyed requests were executed, replayed or rejected, and how many keys are stored.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/idempotency")
+    public ResponseEntity<Map<String, Object>> getIdempotencyMetrics() {
+        log.info("Request received to get idempotency key metrics.");
+        return new ResponseEntity<>(idempotencyFilter.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get outbox dispatcher metrics",
+            description = "Retrieve delivery throughput, lag, backlog and failure counters of the notification outbox.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/outbox")
+    public ResponseEntity<Map<String, Object>> getOutboxMetrics() {
+        log.info("Request received to get outbox dispatcher metrics.");
+        return new ResponseEntity<>(outboxDispatcher.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get recommendation index status",
+            description = "Retrieve the size and memory footprint of the co-rental index and the statistics of its last rebuild.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/recommendations")
+    public ResponseEntity<Map<String, Object>> getRecommendationMetrics() {
+        log.info("Request received to get recommendation index status.");
+        return new ResponseEntity<>(recommendationService.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Rebuild the recommendation index",
+            description = "Recount co-rentals from the whole rental history on all cores and replace the in-memory index.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Index rebuilt",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "A rebuild is already running."
+                    )
+            }
+    )
+    @PostMapping("/recommendations/rebuild")
+    public ResponseEntity<?> rebuildRecommendations() throws InterruptedException {
+        try {
+            log.info("Request received to rebuild the recommendation index.");
+            return new ResponseEntity<>(recommendationService.rebuild(), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            log.warn(e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(
+            summary = "Get rental interval index status",
+            description = "Retrieve the size and memory footprint of the in-memory index of rental periods, and how many "
+                    + "open and recently returned rentals are held beside it.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/rental-intervals")
+    public ResponseEntity<Map<String, Object>> getRentalIntervalMetrics() {
+        log.info("Request received to get rental interval index status.");
+        return new ResponseEntity<>(rentalIntervalService.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Rebuild the rental interval index",
+            description = "Reread every rental period from the rental history and replace the in-memory index.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Index rebuilt",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "A rebuild is already running."
+                    )
+            }
+    )
+    @PostMapping("/rental-intervals/rebuild")
+    public ResponseEntity<?> rebuildRentalIntervals() {
+        try {
+            log.info("Request received to rebuild the rental interval index.");
+            return new ResponseEntity<>(rentalIntervalService.rebuild(), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            log.warn(e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(
+            summary = "Get late-fee run status",
+            description = "Retrieve the fee schedule and the progress of the current or last late-fee run.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/late-fees")
+    public ResponseEntity<Map<String, Object>> getLateFeeMetrics() {
+        log.info("Request received to get late-fee run status.");
+        return new ResponseEntity<>(lateFeeService.getMetrics(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Run the late-fee computation",
+            description = "Compute late fees as of the given day (today by default) on all cores. A run that was "
+                    + "interrupted continues from its checkpoints unless restart is set.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Run finished",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "A run is already running."
+                    )
+            }
+    )
+    @PostMapping("/late-fees/run")
+    public ResponseEntity<?> runLateFees(@RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+                                         @RequestParam(defaultValue = "false") boolean restart)
+            throws InterruptedException {
+        try {
+            log.info("Request received to run the late-fee computation.");
+            return new ResponseEntity<>(lateFeeService.run(asOf != null ? asOf : LocalDate.now(), restart),
+                    HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            log.warn(e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(
+            summary = "List recent traces",
+            description = "Retrieve the root spans of the most recent traced requests, newest first. Requires the in-memory span exporter.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = List.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Tracing is disabled or spans are not kept in memory."
+                    )
+            }
+    )
+    @GetMapping("/traces")
+    public ResponseEntity<?> getRecentTraces(@RequestParam(defaultValue = "20") int limit) {
+        log.info("Request received to list recent traces.");
+        InMemorySpanExporter exporter = inMemorySpanExporter.getIfAvailable();
+        if (!tracer.isEnabled() || exporter == null) {
+            return new ResponseEntity<>("Tracing with the in-memory exporter is not enabled.", HttpStatus.CONFLICT);
+        }
+        List<Map<String, Object>> roots = exporter.getRecentRoots(limit).stream().map(Span::toMap).toList();
+        return new ResponseEntity<>(roots, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get a trace",
+            description = "Retrieve all spans of one trace, in the order they finished.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = List.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "No spans of this trace are in memory."
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Tracing is disabled or spans are not kept in memory."
+                    )
+            }
+    )
+    @GetMapping("/traces/{traceId}")
+    public ResponseEntity<?> getTrace(@PathVariable String traceId) {
+        log.info("Request received to get trace {}.", traceId);
+        InMemorySpanExporter exporter = inMemorySpanExporter.getIfAvailable();
+        if (!tracer.isEnabled() || exporter == null) {
+            return new ResponseEntity<>("Tracing with the in-memory exporter is not enabled.", HttpStatus.CONFLICT);
+        }
+        List<Map<String, Object>> spans = exporter.getTrace(traceId).stream().map(Span::toMap).toList();
+        if (spans.isEmpty()) {
+            return new ResponseEntity<>("Trace not found: " + traceId, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(spans, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get the slowest query shapes",
+            description = "Retrieve executed SQL statement shapes ordered by max, total or mean latency, or by count.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Unknown ordering."
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Query statistics are disabled."
+                    )
+            }
+    )
+    @GetMapping("/queries")
+    public ResponseEntity<?> getTopQueries(@RequestParam(defaultValue = "10") int limit,
+                                           @RequestParam(defaultValue = "max") String orderBy) {
+        log.info("Request received to get the top {} query shapes by {}.", limit, orderBy);
+        QueryStatistics statistics = queryStatistics.getIfAvailable();
+        if (statistics == null) {
+            return new ResponseEntity<>("Query statistics are not enabled.", HttpStatus.CONFLICT);
+        }
+        try {
+            Map<String, Object> result = new LinkedHashMap<>(statistics.getSummary());
+            result.put("top", statistics.getTopShapes(limit, orderBy));
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Operation(
+            summary = "Get N+1 query findings",
+            description = "Retrieve the most recent requests that executed one statement shape more often than the threshold.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = List.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Query statistics are disabled."
+                    )
+            }
+    )
+    @GetMapping("/queries/n-plus-one")
+    public ResponseEntity<?> getNPlusOneFindings() {
+        log.info("Request received to get N+1 query findings.");
+        QueryStatistics statistics = queryStatistics.getIfAvailable();
+        if (statistics == null) {
+            return new ResponseEntity<>("Query statistics are not enabled.", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(statistics.getNPlusOneFindings(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Reset query statistics",
+            description = "Clear the collected statement shapes and N+1 findings.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Statistics cleared."
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Query statistics are disabled."
+                    )
+            }
+    )
+    @DeleteMapping("/queries")
+    public ResponseEntity<?> resetQueryStatistics() {
+        log.info("Request received to reset query statistics.");
+        QueryStatistics statistics = queryStatistics.getIfAvailable();
+        if (statistics == null) {
+            return new ResponseEntity<>("Query statistics are not enabled.", HttpStatus.CONFLICT);
+        }
+        statistics.reset();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
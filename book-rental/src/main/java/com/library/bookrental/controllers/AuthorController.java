@@ -1,8 +1,8 @@
 package com.library.bookrental.controllers;
 
 import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.AuthorView;
 import com.library.bookrental.services.AuthorService;
-import com.library.bookrental.exceptions.AuthorNotFoundException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -42,10 +42,10 @@ public class AuthorController {
             }
     )
     @GetMapping
-    public ResponseEntity<List<AuthorDTO>> getAllAuthors() {
+    public ResponseEntity<List<AuthorView>> getAllAuthors() {
         log.info("Request received to get all authors.");
-        List<AuthorDTO> authors = authorService.getAllAuthors();
-        log.info("Returning all authors: {}", authors);
+        List<AuthorView> authors = authorService.getAllAuthors();
+        log.info("Returning {} authors.", authors.size());
         return new ResponseEntity<>(authors, HttpStatus.OK);
     }
 
@@ -78,6 +78,35 @@ public class AuthorController {
         return new ResponseEntity<>(addedAuthor, HttpStatus.CREATED);
     }
 
+    @Operation(
+            summary = "Add or update authors in bulk",
+            description = "Create or update many authors at once, matching existing authors by name.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthorDTO.class)
+                    ),
+                    description = "JSON array with author details."
+            ),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Authors upserted successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    @PostMapping("/bulk")
+    public ResponseEntity<Map<String, Integer>> upsertAuthors(@RequestBody List<AuthorDTO> authorDTOs) {
+        log.info("Request received to upsert {} authors.", authorDTOs.size());
+        Map<String, Integer> result = authorService.upsertAuthors(authorDTOs);
+        log.info("Authors upserted: {}", result);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Update an author",
             description = "Update an existing author by ID.",
@@ -112,25 +141,19 @@ public class AuthorController {
     )
     @PutMapping("/{id}")
     public ResponseEntity<AuthorDTO> updateAuthor(@PathVariable Long id, @RequestBody AuthorDTO authorDTO) {
-        try {
-            log.info("Request received to update author with ID {}: {}", id, authorDTO);
-            AuthorDTO updatedAuthor = authorService.updateAuthor(id, authorDTO);
-            log.info("Author updated: {}", updatedAuthor);
-            return new ResponseEntity<>(updatedAuthor, HttpStatus.OK);
-        } catch (AuthorNotFoundException e) {
-            log.error("Author not found while updating author: {}", e.getMessage());
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            log.error("An error occurred while updating the author.", e);
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        log.info("Request received to update author with ID {}: {}", id, authorDTO);
+        AuthorDTO updatedAuthor = authorService.updateAuthor(id, authorDTO);
+        log.info("Author updated: {}", updatedAuthor);
+        return new ResponseEntity<>(updatedAuthor, HttpStatus.OK);
     }
 
     @Operation(
             summary = "Delete an author",
-            description = "Delete an existing author by ID.",
+            description = "Delete an existing author by ID, together with their books. Authors whose books have "
+                    + "rental history are only deleted when purgeRentalHistory is set, which deletes that history too.",
             parameters = {
-                    @Parameter(name = "id", description = "Author ID", required = true)
+                    @Parameter(name = "id", description = "Author ID", required = true),
+                    @Parameter(name = "purgeRentalHistory", description = "Also delete the rental history of the author's books")
             },
             responses = {
                     @ApiResponse(
@@ -144,22 +167,23 @@ public class AuthorController {
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = Map.class)
                             )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Author has books that are currently rented, or that have rental history.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
                     )
             }
     )
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteAuthor(@PathVariable Long id) {
-        try {
-            log.info("Request received to delete author with ID: {}", id);
-            authorService.deleteAuthor(id);
-            log.info("Author deleted with ID: {}", id);
-            return new ResponseEntity<>("Author deleted successfully.", HttpStatus.OK);
-        } catch (AuthorNotFoundException e) {
-            log.warn("Author not found with id: {}", id);
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            log.error("An error occurred while deleting the author.", e);
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public ResponseEntity<String> deleteAuthor(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "false") boolean purgeRentalHistory) {
+        log.info("Request received to delete author with ID: {}", id);
+        authorService.deleteAuthor(id, purgeRentalHistory);
+        log.info("Author deleted with ID: {}", id);
+        return new ResponseEntity<>("Author deleted successfully.", HttpStatus.OK);
     }
 }
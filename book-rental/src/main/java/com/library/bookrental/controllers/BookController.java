@@ -1,9 +1,20 @@
 package com.library.bookrental.controllers;
 
+import com.library.bookrental.dto.BookAvailability;
+import com.library.bookrental.dto.BookColumns;
 import com.library.bookrental.dto.BookDTO;
-import com.library.bookrental.exceptions.AuthorNotFoundException;
-import com.library.bookrental.exceptions.BookNotFoundException;
+import com.library.bookrental.dto.BookPageDTO;
+import com.library.bookrental.dto.BookRecommendation;
+import com.library.bookrental.dto.BookSearchCriteria;
+import com.library.bookrental.dto.BookView;
+import com.library.bookrental.dto.HoldDTO;
+import com.library.bookrental.dto.RentedBooks;
+import com.library.bookrental.services.BookHold;
+import com.library.bookrental.services.BookHoldService;
 import com.library.bookrental.services.BookService;
+import com.library.bookrental.services.RecommendationService;
+import com.library.bookrental.services.RentalIntervalService;
+import com.library.bookrental.services.RentalOutcome;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,12 +23,18 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/books")
@@ -28,6 +45,18 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookHoldService bookHoldService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RentalIntervalService rentalIntervalService;
+
+    @Value("${bookrental.holds.max-wait-seconds:60}")
+    private long maxHoldWaitSeconds;
+
     @Operation(
             summary = "Get all books",
             description = "Retrieves a list of all books available in the library.",
@@ -51,10 +80,10 @@ public class BookController {
             }
     )
     @GetMapping
-    public ResponseEntity<List<BookDTO>> getAllBooks() {
+    public ResponseEntity<List<BookView>> getAllBooks() {
         log.info("Request received to get all books.");
-        List<BookDTO> books = bookService.getAllBooks();
-        log.info("Returning all books: {}", books);
+        List<BookView> books = bookService.getAllBooks();
+        log.info("Returning {} books.", books.size());
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
@@ -86,18 +115,10 @@ public class BookController {
     )
     @PostMapping
     public ResponseEntity<String> addBook(@RequestBody BookDTO bookDTO) {
-        try {
-            log.info("Request received to add book: {}", bookDTO);
-            bookService.addBook(bookDTO);
-            log.info("Book added: {}", bookDTO);
-            return new ResponseEntity<>("Book added successfully.", HttpStatus.CREATED);
-        } catch (AuthorNotFoundException e) {
-            log.error("Author not found while adding book: {}", e.getMessage());
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            log.error("An error occurred while adding the book.", e);
-            return new ResponseEntity<>("An error occurred while adding the book.", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        log.info("Request received to add book: {}", bookDTO);
+        bookService.addBook(bookDTO);
+        log.info("Book added: {}", bookDTO);
+        return new ResponseEntity<>("Book added successfully.", HttpStatus.CREATED);
     }
 
     @Operation(
@@ -132,18 +153,10 @@ public class BookController {
     )
     @PutMapping("/{id}")
     public ResponseEntity<BookDTO> updateBook(@PathVariable Long id, @RequestBody BookDTO bookDTO) {
-        try {
-            log.info("Request received to update book with ID {}: {}", id, bookDTO);
-            BookDTO updatedBook = bookService.updateBook(id, bookDTO);
-            log.info("Book updated: {}", updatedBook);
-            return new ResponseEntity<>(updatedBook, HttpStatus.OK);
-        } catch (AuthorNotFoundException e) {
-            log.error("Author not found while updating book: {}", e.getMessage());
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            log.error("An error occurred while updating the book.", e);
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        log.info("Request received to update book with ID {}: {}", id, bookDTO);
+        BookDTO updatedBook = bookService.updateBook(id, bookDTO);
+        log.info("Book updated: {}", updatedBook);
+        return new ResponseEntity<>(updatedBook, HttpStatus.OK);
     }
 
     @Operation(
@@ -174,18 +187,10 @@ public class BookController {
     )
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteBook(@PathVariable Long id) {
-        try {
-            log.info("Request received to delete book with ID: {}", id);
-            bookService.deleteBook(id);
-            log.info("Book deleted with ID: {}", id);
-            return new ResponseEntity<>("Book deleted successfully.", HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            log.warn("Book not found with id: {}", id);
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            log.error("An error occurred while deleting the book.", e);
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        log.info("Request received to delete book with ID: {}", id);
+        bookService.deleteBook(id);
+        log.info("Book deleted with ID: {}", id);
+        return new ResponseEntity<>("Book deleted successfully.", HttpStatus.OK);
     }
 
     @Operation(
@@ -214,10 +219,10 @@ public class BookController {
             }
     )
     @GetMapping("/byAuthor/{authorId}")
-    public ResponseEntity<List<BookDTO>> getBooksByAuthor(@PathVariable Long authorId) {
+    public ResponseEntity<List<BookView>> getBooksByAuthor(@PathVariable Long authorId) {
         log.info("Request received to get books by author with ID: {}", authorId);
-        List<BookDTO> books = bookService.getBooksByAuthor(authorId);
-        log.info("Returning books by author with ID {}: {}", authorId, books);
+        List<BookView> books = bookService.getBooksByAuthor(authorId);
+        log.info("Returning {} books by author with ID {}.", books.size(), authorId);
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
@@ -244,13 +249,75 @@ public class BookController {
             }
     )
     @GetMapping("/availableForRent")
-    public ResponseEntity<List<BookDTO>> getBooksAvailableForRent() {
+    public ResponseEntity<List<BookView>> getBooksAvailableForRent() {
         log.info("Request received to get books available for rent.");
-        List<BookDTO> books = bookService.getBooksAvailableForRent();
-        log.info("Returning books available for rent: {}", books);
+        List<BookView> books = bookService.getBooksAvailableForRent();
+        log.info("Returning {} books available for rent.", books.size());
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Search books",
+            description = "Filter books by author, availability, publication year range and title prefix, sorted by "
+                    + "title, publicationYear or bookId. Results are paged with the opaque nextCursor of the previous page.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Page of matching books retrieved successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = BookPageDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid sort field or cursor.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/search")
+    public ResponseEntity<?> searchBooks(BookSearchCriteria criteria) {
+        try {
+            log.info("Request received to search books: {}", criteria);
+            BookPageDTO page = bookService.searchBooks(criteria);
+            log.info("Returning {} books for search.", page.getItems().size());
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid book search: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Operation(
+            summary = "Get books in columnar form",
+            description = "Returns up to limit books with an id greater than afterId as parallel arrays, one per field, "
+                    + "which is far more compact than a list of objects for bulk consumers. Pass nextAfterId of the "
+                    + "previous page as afterId to continue; it is null on the last page.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Page of books retrieved successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = BookColumns.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/columns")
+    public ResponseEntity<BookColumns> getBookColumns(
+            @Parameter(description = "Only books with a greater id are returned.") @RequestParam(defaultValue = "0") long afterId,
+            @Parameter(description = "Maximum number of books in the page.") @RequestParam(defaultValue = "10000") int limit) {
+        log.info("Request received to get book columns after ID {} (limit {}).", afterId, limit);
+        BookColumns columns = bookService.getBookColumns(afterId, limit);
+        log.info("Returning {} books in columnar form.", columns.size());
+        return new ResponseEntity<>(columns, HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Get books currently rented",
             description = "Retrieves a list of books currently rented.",
@@ -274,13 +341,75 @@ public class BookController {
             }
     )
     @GetMapping("/currentlyRented")
-    public ResponseEntity<List<BookDTO>> getBooksCurrentlyRented() {
+    public ResponseEntity<List<BookView>> getBooksCurrentlyRented() {
         log.info("Request received to get books currently rented.");
-        List<BookDTO> books = bookService.getBooksCurrentlyRented();
-        log.info("Returning books currently rented: {}", books);
+        List<BookView> books = bookService.getBooksCurrentlyRented();
+        log.info("Returning {} books currently rented.", books.size());
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Get books rented during a period",
+            description = "Books that were out on at least one day between from and to, both inclusive, in ascending id "
+                    + "order. Served from an in-memory index of rental periods rather than the rentals table.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Rented books retrieved successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = RentedBooks.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "from is after to.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/rentedBetween")
+    public ResponseEntity<?> getBooksRentedBetween(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            log.info("Request received to get books rented between {} and {}.", from, to);
+            RentedBooks books = rentalIntervalService.getBooksRented(from, to);
+            log.info("Returning {} books rented between {} and {}.", books.bookIds().length, from, to);
+            return new ResponseEntity<>(books, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid rental period: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Operation(
+            summary = "Check whether a book was rented on a day",
+            description = "Whether the book was out on the given day, including the day it was returned. Served from an "
+                    + "in-memory index of rental periods, so unknown books are reported as not rented.",
+            parameters = {
+                    @Parameter(name = "bookId", description = "Book ID", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Availability retrieved successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = BookAvailability.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{bookId}/rentedOn")
+    public ResponseEntity<BookAvailability> isBookRentedOn(@PathVariable long bookId,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        boolean rented = rentalIntervalService.isRented(bookId, date);
+        return new ResponseEntity<>(new BookAvailability(bookId, date, rented), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Rent a book",
             description = "Rent a specific book by providing the book ID and the renter's name.",
@@ -292,6 +421,22 @@ public class BookController {
                             responseCode = "200",
                             description = "Book rented successfully."
                     ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Not Found - Book not found.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Conflict - The book is already rented or reserved for a holder.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal Server Error - Unable to rent the book.",
@@ -304,13 +449,7 @@ public class BookController {
     )
     @PostMapping("/{bookId}/rent")
     public ResponseEntity<?> rentBook(@PathVariable Long bookId, @RequestParam String renterName) {
-        try {
-            bookService.rentBook(bookId, renterName);
-            return ResponseEntity.ok("Book rented successfully.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error renting the book: " + e.getMessage());
-        }
+        return toResponse(bookService.rentBook(bookId, renterName), bookId);
     }
 
     @Operation(
@@ -324,6 +463,22 @@ public class BookController {
                             responseCode = "200",
                             description = "Book returned successfully."
                     ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Not Found - Book not found.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Conflict - The book is not rented.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal Server Error - Unable to return the book.",
@@ -336,13 +491,18 @@ public class BookController {
     )
     @PostMapping("/{bookId}/return")
     public ResponseEntity<?> returnBook(@PathVariable Long bookId) {
-        try {
-            bookService.returnBook(bookId);
-            return ResponseEntity.ok("Book returned successfully.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error returning the book: " + e.getMessage());
-        }
+        return toResponse(bookService.returnBook(bookId), bookId);
+    }
+
+    private static ResponseEntity<String> toResponse(RentalOutcome outcome, Long bookId) {
+        return switch (outcome) {
+            case RENTED -> ResponseEntity.ok("Book rented successfully.");
+            case RETURNED -> ResponseEntity.ok("Book returned successfully.");
+            case BOOK_NOT_FOUND -> new ResponseEntity<>("Book not found with ID: " + bookId, HttpStatus.NOT_FOUND);
+            case ALREADY_RENTED -> new ResponseEntity<>("Book is already rented.", HttpStatus.CONFLICT);
+            case NOT_RENTED -> new ResponseEntity<>("No active rental found for book with ID: " + bookId,
+                    HttpStatus.CONFLICT);
+        };
     }
 
     @Operation(
@@ -374,4 +534,170 @@ public class BookController {
         }
     }
 
+    @Operation(
+            summary = "Get books rented together",
+            description = "Books of the same branch that renters of this book also rented, most frequent first. Served "
+                    + "from an in-memory index, so unknown books, books of other branches and books without co-rentals "
+                    + "simply return an empty list.",
+            parameters = {
+                    @Parameter(name = "bookId", description = "Book ID", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Recommendations retrieved successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = List.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{bookId}/recommendations")
+    public ResponseEntity<List<BookRecommendation>> getRecommendations(@PathVariable long bookId,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        return new ResponseEntity<>(recommendationService.getRecommendations(bookId, limit), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Place a hold on a book",
+            description = "Join the hold queue of a rented book. The book is handed to holders in order as it is returned.",
+            parameters = {
+                    @Parameter(name = "bookId", description = "Book ID", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Hold placed successfully.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = HoldDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Book not found.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Book is available, rent it instead.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "501",
+                            description = "Holds are not available in cluster mode.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    )
+            }
+    )
+    @PostMapping("/{bookId}/holds")
+    public ResponseEntity<?> placeHold(@PathVariable Long bookId, @RequestParam String renterName) {
+        log.info("Request received to place hold on book {} for {}.", bookId, renterName);
+        if (!bookHoldService.isEnabled()) {
+            return new ResponseEntity<>("Holds are not available in cluster mode.", HttpStatus.NOT_IMPLEMENTED);
+        }
+        Optional<BookHold> hold = bookHoldService.placeHold(bookId, renterName);
+        if (hold.isEmpty()) {
+            return new ResponseEntity<>("Book is available, rent it instead.", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(new HoldDTO(hold.get()), HttpStatus.CREATED);
+    }
+
+    @Operation(
+            summary = "Wait for a hold",
+            description = "Long-poll until the hold is fulfilled or cancelled, or the timeout elapses, instead of retrying the rent call.",
+            parameters = {
+                    @Parameter(name = "bookId", description = "Book ID", required = true),
+                    @Parameter(name = "holdId", description = "Hold ID", required = true),
+                    @Parameter(name = "timeoutSeconds", description = "Maximum time to wait, 0 to answer at once")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Hold fulfilled, the book is rented to the holder.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = HoldDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Still waiting, poll again.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = HoldDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Hold not found or cancelled."
+                    )
+            }
+    )
+    @GetMapping("/{bookId}/holds/{holdId}")
+    public DeferredResult<ResponseEntity<HoldDTO>> awaitHold(@PathVariable Long bookId, @PathVariable Long holdId,
+                                                             @RequestParam(defaultValue = "30") long timeoutSeconds) {
+        Optional<BookHold> hold = bookHoldService.findHold(bookId, holdId);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(Math.min(timeoutSeconds, maxHoldWaitSeconds));
+        if (hold.isEmpty() || timeoutMillis <= 0) {
+            // A DeferredResult without a positive timeout would wait forever, so a zero wait
+            // answers with the hold as it is now.
+            DeferredResult<ResponseEntity<HoldDTO>> result = new DeferredResult<>();
+            result.setResult(hold.map(this::holdResponse).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND)));
+            return result;
+        }
+        DeferredResult<ResponseEntity<HoldDTO>> result = new DeferredResult<>(timeoutMillis);
+        result.onTimeout(() -> result.setResult(new ResponseEntity<>(new HoldDTO(hold.get()), HttpStatus.ACCEPTED)));
+        hold.get().getFulfilment().thenAccept(settled -> result.setResult(holdResponse(settled)));
+        return result;
+    }
+
+    @Operation(
+            summary = "Cancel a hold",
+            description = "Leave the hold queue of a book.",
+            parameters = {
+                    @Parameter(name = "bookId", description = "Book ID", required = true),
+                    @Parameter(name = "holdId", description = "Hold ID", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Hold cancelled successfully."
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Hold not found or already fulfilled."
+                    )
+            }
+    )
+    @DeleteMapping("/{bookId}/holds/{holdId}")
+    public ResponseEntity<String> cancelHold(@PathVariable Long bookId, @PathVariable Long holdId) {
+        log.info("Request received to cancel hold {} on book {}.", holdId, bookId);
+        if (bookHoldService.cancelHold(bookId, holdId)) {
+            return new ResponseEntity<>("Hold cancelled successfully.", HttpStatus.OK);
+        }
+        return new ResponseEntity<>("Hold not found or already fulfilled.", HttpStatus.NOT_FOUND);
+    }
+
+    private ResponseEntity<HoldDTO> holdResponse(BookHold hold) {
+        return switch (hold.getStatus()) {
+            case FULFILLED -> {
+                bookHoldService.acknowledge(hold);
+                yield new ResponseEntity<>(new HoldDTO(hold), HttpStatus.OK);
+            }
+            case CANCELLED -> new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            case WAITING, CLAIMED -> new ResponseEntity<>(new HoldDTO(hold), HttpStatus.ACCEPTED);
+        };
+    }
+
 }
@@ -0,0 +1,39 @@
+package com.library.bookrental.controllers;
+
+import com.library.bookrental.exceptions.AuthorInUseException;
+import com.library.bookrental.exceptions.DomainException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns the domain exceptions that leave a controller into responses: a missing author,
+ * book or rental is a 404 and an author whose books are rented is a 409. They are expected
+ * outcomes, so they are logged as one line without a stack trace. A write rejected by a
+ * constraint, such as a second author of the same name in a branch, is a 409 as well.
+ */
+@RestControllerAdvice
+@Slf4j
+public class DomainExceptionHandler {
+
+    @ExceptionHandler(AuthorInUseException.class)
+    public ResponseEntity<String> handleConflict(AuthorInUseException e) {
+        log.warn("Request conflicts with the current state: {}", e.getMessage());
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleConstraintViolation(DataIntegrityViolationException e) {
+        log.warn("Write rejected by a constraint: {}", e.getMostSpecificCause().getMessage());
+        return new ResponseEntity<>("Request conflicts with existing data.", HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<String> handleNotFound(DomainException e) {
+        log.warn("Requested entity not found: {}", e.getMessage());
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,74 @@
+package com.library.bookrental.controllers;
+
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.services.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/export")
+@Slf4j
+@Tag(name = "Export", description = "Endpoints for bulk export of the catalog and rental history")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Operation(
+            summary = "Export a dataset as CSV",
+            description = "Stream the authors, books or rentals of the caller's branch as CSV without loading them "
+                    + "into memory.",
+            parameters = {
+                    @Parameter(name = "dataset", description = "authors, books or rentals", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "CSV stream",
+                            content = @Content(mediaType = "text/csv")
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Unknown dataset.",
+                            content = @Content(
+                                    mediaType = "text/plain",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{dataset}.csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@PathVariable String dataset) {
+        if (!ExportService.DATASETS.contains(dataset)) {
+            byte[] message = ("Unknown dataset: " + dataset).getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(message));
+        }
+        log.info("Request received to export {}.", dataset);
+        Long branchId = BranchContextFilter.currentBranchId();
+        StreamingResponseBody body = out -> exportService.export(dataset, branchId, Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + dataset + ".csv\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,131 @@
+package com.library.bookrental.controllers;
+
+import com.library.bookrental.dto.AuthorView;
+import com.library.bookrental.dto.BookView;
+import com.library.bookrental.dto.RentalView;
+import com.library.bookrental.services.AuthorService;
+import com.library.bookrental.services.BookService;
+import com.library.bookrental.services.RentalService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL queries over the same services as the REST API. Nested fields are
+ * {@link BatchMapping batch mappings}: the parents of one level are collected by a
+ * DataLoader and their children are read with a single IN query.
+ */
+@Controller
+public class GraphQlController {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Value("${bookrental.graphql.max-page-size:1000}")
+    private int maxPageSize;
+
+    @QueryMapping
+    public List<BookView> books(@Argument int first, @Argument long after) {
+        return bookService.getBooksAfter(after, pageSize(first));
+    }
+
+    @QueryMapping
+    public BookView book(@Argument long bookId) {
+        return bookService.getBooksByIds(List.of(bookId)).stream().findFirst().orElse(null);
+    }
+
+    @QueryMapping
+    public List<AuthorView> authors(@Argument int first, @Argument long after) {
+        return authorService.getAuthorsAfter(after, pageSize(first));
+    }
+
+    @QueryMapping
+    public AuthorView author(@Argument long authorId) {
+        return authorService.getAuthorsByIds(List.of(authorId)).stream().findFirst().orElse(null);
+    }
+
+    @QueryMapping
+    public List<RentalView> rentals(@Argument int first, @Argument long after) {
+        return rentalService.getRentalsAfter(after, pageSize(first));
+    }
+
+    @BatchMapping(typeName = "Book", field = "author")
+    public Map<BookView, AuthorView> authorOfBook(List<BookView> books) {
+        Set<Long> authorIds = books.stream().map(BookView::authorId).filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Map<Long, AuthorView> authors = authorService.getAuthorsByIds(authorIds).stream()
+                .collect(Collectors.toMap(AuthorView::authorId, Function.identity()));
+        Map<BookView, AuthorView> result = new HashMap<>();
+        for (BookView book : books) {
+            AuthorView author = book.authorId() == null ? null : authors.get(book.authorId());
+            if (author != null) {
+                result.put(book, author);
+            }
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Book", field = "rentals")
+    public Map<BookView, List<RentalView>> rentalsOfBook(List<BookView> books) {
+        Set<Long> bookIds = books.stream().map(BookView::bookId).collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, List<RentalView>> rentals = rentalService.getRentalsByBookIds(bookIds).stream()
+                .collect(Collectors.groupingBy(RentalView::bookId));
+        Map<BookView, List<RentalView>> result = new HashMap<>();
+        for (BookView book : books) {
+            result.put(book, rentals.getOrDefault(book.bookId(), new ArrayList<>()));
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Author", field = "books")
+    public Map<AuthorView, List<BookView>> booksOfAuthor(List<AuthorView> authors) {
+        Set<Long> authorIds = authors.stream().map(AuthorView::authorId).collect(Collectors.toSet());
+        Map<Long, List<BookView>> books = bookService.getBooksByAuthorIds(authorIds).stream()
+                .collect(Collectors.groupingBy(BookView::authorId));
+        Map<AuthorView, List<BookView>> result = new HashMap<>();
+        for (AuthorView author : authors) {
+            result.put(author, books.getOrDefault(author.authorId(), new ArrayList<>()));
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Rental", field = "book")
+    public Map<RentalView, BookView> bookOfRental(List<RentalView> rentals) {
+        Set<Long> bookIds = rentals.stream().map(RentalView::bookId).collect(Collectors.toSet());
+        Map<Long, BookView> books = bookService.getBooksByIds(bookIds).stream()
+                .collect(Collectors.toMap(BookView::bookId, Function.identity()));
+        Map<RentalView, BookView> result = new HashMap<>();
+        for (RentalView rental : rentals) {
+            BookView book = books.get(rental.bookId());
+            if (book != null) {
+                result.put(rental, book);
+            }
+        }
+        return result;
+    }
+
+    private int pageSize(int first) {
+        if (first < 1 || first > maxPageSize) {
+            throw new IllegalArgumentException("first must be between 1 and " + maxPageSize + ".");
+        }
+        return first;
+    }
+}
@@ -1,6 +1,8 @@
 package com.library.bookrental.controllers;
 
+import com.library.bookrental.dto.LateFeeView;
 import com.library.bookrental.dto.RentalDTO;
+import com.library.bookrental.services.LateFeeService;
 import com.library.bookrental.services.RentalService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/rentals")
@@ -26,6 +29,9 @@ public class RentalController {
     @Autowired
     private RentalService rentalService;
 
+    @Autowired
+    private LateFeeService lateFeeService;
+
     @Operation(
             summary = "Get all rentals",
             description = "Retrieve all rentals.",
@@ -42,15 +48,10 @@ public class RentalController {
     )
     @GetMapping
     public ResponseEntity<List<RentalDTO>> getAllRentals() {
-        try {
-            log.info("Request received to get all rentals.");
-            List<RentalDTO> rentals = rentalService.getAllRentals();
-            log.info("Returning all rentals: {}", rentals);
-            return new ResponseEntity<>(rentals, HttpStatus.OK);
-        } catch (Exception e) {
-            log.error("An error occurred while fetching all rentals.", e);
-            throw e;
-        }
+        log.info("Request received to get all rentals.");
+        List<RentalDTO> rentals = rentalService.getAllRentals();
+        log.info("Returning all rentals: {}", rentals);
+        return new ResponseEntity<>(rentals, HttpStatus.OK);
     }
 
     @Operation(
@@ -84,15 +85,10 @@ public class RentalController {
     )
     @PostMapping
     public ResponseEntity<RentalDTO> rentBook(@RequestBody RentalDTO rentalDTO) {
-        try {
-            log.info("Request received to rent book: {}", rentalDTO);
-            RentalDTO rentedBook = rentalService.rentBook(rentalDTO);
-            log.info("Book rented: {}", rentedBook);
-            return new ResponseEntity<>(rentedBook, HttpStatus.CREATED);
-        } catch (Exception e) {
-            log.error("An error occurred while renting the book.", e);
-            throw e;
-        }
+        log.info("Request received to rent book: {}", rentalDTO);
+        RentalDTO rentedBook = rentalService.rentBook(rentalDTO);
+        log.info("Book rented: {}", rentedBook);
+        return new ResponseEntity<>(rentedBook, HttpStatus.CREATED);
     }
 
     @Operation(
@@ -115,21 +111,54 @@ public class RentalController {
                             description = "Not Found - Rental ID not found.",
                             content = @Content(
                                     mediaType = "application/json",
-                                    schema = @Schema(implementation = Map.class)
+                                    schema = @Schema(implementation = String.class)
                             )
                     )
             }
     )
     @PutMapping("/{rentalId}/return")
-    public ResponseEntity<RentalDTO> returnBook(@PathVariable Long rentalId) {
-        try {
-            log.info("Request received to return book with rental ID: {}", rentalId);
-            RentalDTO returnedBook = rentalService.returnBook(rentalId);
-            log.info("Book returned: {}", returnedBook);
-            return new ResponseEntity<>(returnedBook, HttpStatus.OK);
-        } catch (Exception e) {
-            log.error("An error occurred while returning the book.", e);
-            throw e;
+    public ResponseEntity<?> returnBook(@PathVariable Long rentalId) {
+        log.info("Request received to return book with rental ID: {}", rentalId);
+        Optional<RentalDTO> returnedBook = rentalService.returnBook(rentalId);
+        if (returnedBook.isEmpty()) {
+            return new ResponseEntity<>("Rental not found with ID: " + rentalId, HttpStatus.NOT_FOUND);
+        }
+        log.info("Book returned: {}", returnedBook.get());
+        return new ResponseEntity<>(returnedBook.get(), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Get the late fee of a rental",
+            description = "The fee computed for the rental by the last nightly fee run, with the number of days it was late.",
+            parameters = {
+                    @Parameter(name = "rentalId", description = "Rental ID", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Late fee retrieved successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = LateFeeView.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Not Found - No late fee was computed for the rental.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = String.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{rentalId}/fee")
+    public ResponseEntity<?> getLateFee(@PathVariable long rentalId) {
+        log.info("Request received to get the late fee of rental ID: {}", rentalId);
+        Optional<LateFeeView> fee = lateFeeService.getFee(rentalId);
+        if (fee.isEmpty()) {
+            return new ResponseEntity<>("No late fee found for rental ID: " + rentalId, HttpStatus.NOT_FOUND);
         }
+        return new ResponseEntity<>(fee.get(), HttpStatus.OK);
     }
 }
@@ -0,0 +1,7 @@
+package com.library.bookrental.dto;
+
+/**
+ * Read-only author row for listings. Serialises to the same JSON as {@link AuthorDTO}.
+ */
+public record AuthorView(long authorId, String name, String biography) {
+}
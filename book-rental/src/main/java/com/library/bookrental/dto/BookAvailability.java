@@ -0,0 +1,9 @@
+package com.library.bookrental.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Whether a book was out on a given day.
+ */
+public record BookAvailability(long bookId, LocalDate date, boolean rented) {
+}
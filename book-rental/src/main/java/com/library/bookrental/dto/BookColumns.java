@@ -0,0 +1,11 @@
+package com.library.bookrental.dto;
+
+/**
+ * A page of books in columnar form: one array per field instead of one object per row,
+ * with primitive arrays for ids, years and flags. Books without an author have an
+ * {@code authorId} of 0. {@code nextAfterId} is the id to continue from, or {@code null}
+ * on the last page.
+ */
+public record BookColumns(int size, long[] bookId, String[] title, String[] isbn, int[] publicationYear,
+                          long[] authorId, boolean[] available, Long nextAfterId) {
+}
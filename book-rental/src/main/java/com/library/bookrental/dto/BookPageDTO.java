@@ -0,0 +1,15 @@
+package com.library.bookrental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookPageDTO {
+    private List<BookDTO> items;
+    private String nextCursor;
+}
@@ -0,0 +1,8 @@
+package com.library.bookrental.dto;
+
+/**
+ * A book that renters of another book also rented, with how often the two were rented
+ * close together by the same renter.
+ */
+public record BookRecommendation(long bookId, int coRentals) {
+}
@@ -0,0 +1,18 @@
+package com.library.bookrental.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BookSearchCriteria {
+    private Long authorId;
+    private Boolean available;
+    private Integer minYear;
+    private Integer maxYear;
+    private String titlePrefix;
+    private String sort = "title";
+    private String direction = "asc";
+    private int limit = 50;
+    private String cursor;
+}
@@ -0,0 +1,8 @@
+package com.library.bookrental.dto;
+
+/**
+ * Read-only book row for listings, selected straight from the database without loading
+ * {@code Book} entities. Serialises to the same JSON as {@link BookDTO}.
+ */
+public record BookView(long bookId, String title, String isbn, int publicationYear, Long authorId, boolean available) {
+}
@@ -0,0 +1,23 @@
+package com.library.bookrental.dto;
+
+import com.library.bookrental.services.BookHold;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class HoldDTO {
+    private Long holdId;
+    private Long bookId;
+    private String renterName;
+    private String status;
+    private Long rentalId;
+
+    public HoldDTO(BookHold hold) {
+        this.holdId = hold.getHoldId();
+        this.bookId = hold.getBookId();
+        this.renterName = hold.getRenterName();
+        this.status = hold.getStatus().name();
+        this.rentalId = hold.getRentalId();
+    }
+}
@@ -0,0 +1,13 @@
+package com.library.bookrental.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Late fee of a rental as computed by the last fee run that saw it late. {@code returnDate}
+ * is {@code null} while the book is still out, in which case the fee keeps growing until
+ * it is returned or reaches the cap of its schedule.
+ */
+public record LateFeeView(long rentalId, long bookId, LocalDate dueDate, LocalDate returnDate, int daysLate,
+                          BigDecimal amount, LocalDate computedFor) {
+}
@@ -14,6 +14,7 @@ public class RentalDTO {
     private Book book;
     private String renterName;
     private LocalDate rentalDate;
+    private LocalDate dueDate;
     private LocalDate returnDate;
     private boolean overdue;
 
@@ -22,6 +23,7 @@ public class RentalDTO {
         this.book = rental.getBook();
         this.renterName = rental.getRenterName();
         this.rentalDate = rental.getRentalDate();
+        this.dueDate = rental.getDueDate();
         this.returnDate = rental.getReturnDate();
         this.overdue = rental.isOverdue();
     }
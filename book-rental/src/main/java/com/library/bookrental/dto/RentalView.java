@@ -0,0 +1,10 @@
+package com.library.bookrental.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only rental row that refers to its book by id instead of embedding it.
+ */
+public record RentalView(long rentalId, long bookId, String renterName, LocalDate rentalDate, LocalDate dueDate,
+                         LocalDate returnDate, boolean overdue) {
+}
@@ -0,0 +1,11 @@
+package com.library.bookrental.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Books that were out on at least one day between {@code from} and {@code to}, both
+ * inclusive, in ascending id order. {@code truncated} is set when more books matched than
+ * were returned.
+ */
+public record RentedBooks(LocalDate from, LocalDate to, long[] bookIds, boolean truncated) {
+}
@@ -0,0 +1,10 @@
+package com.library.bookrental.exceptions;
+
+public class AuthorInUseException extends DomainException{
+    public AuthorInUseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+    public AuthorInUseException(String message){
+        super(message);
+    }
+}
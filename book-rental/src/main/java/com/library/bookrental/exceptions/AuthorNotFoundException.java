@@ -1,6 +1,6 @@
 package com.library.bookrental.exceptions;
 
-public class AuthorNotFoundException extends RuntimeException{
+public class AuthorNotFoundException extends DomainException{
     public AuthorNotFoundException(String message, Throwable cause) {
         super(message, cause);
     }
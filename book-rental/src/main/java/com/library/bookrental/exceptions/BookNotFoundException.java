@@ -1,6 +1,6 @@
 package com.library.bookrental.exceptions;
 
-public class BookNotFoundException extends RuntimeException{
+public class BookNotFoundException extends DomainException{
     public BookNotFoundException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,16 @@
+package com.library.bookrental.exceptions;
+
+/**
+ * Base of the expected business failures, such as a missing book or an author still in use.
+ * They are reported to the caller as a status and a message, never as a stack trace, so
+ * they are created without filling one in: on contended endpoints capturing the stack was
+ * most of the cost of a failed request.
+ */
+public abstract class DomainException extends RuntimeException{
+    protected DomainException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+    protected DomainException(String message){
+        super(message, null, false, false);
+    }
+}
@@ -1,6 +1,6 @@
 package com.library.bookrental.exceptions;
 
-public class RentalNotFoundException extends RuntimeException{
+public class RentalNotFoundException extends DomainException{
     public RentalNotFoundException(String message, Throwable cause) {
         super(message, cause);
     }
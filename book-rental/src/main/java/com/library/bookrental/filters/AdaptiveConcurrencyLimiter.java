@@ -0,0 +1,53 @@
+package com.library.bookrental.filters;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit for the protected endpoints. The limit grows by one while
+ * requests finish under the latency target and the connection pool has no waiters,
+ * and is cut multiplicatively as soon as either signal shows pressure.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000L;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long latencyNanos, boolean poolUnderPressure) {
+        inFlight.decrementAndGet();
+        int current = limit;
+        // Races between concurrent releases only lose a single adjustment step, which is harmless.
+        if (poolUnderPressure || latencyNanos > targetLatencyNanos) {
+            limit = Math.max(minLimit, (int) (current * BACKOFF_RATIO));
+        } else if (current < maxLimit) {
+            limit = current + 1;
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
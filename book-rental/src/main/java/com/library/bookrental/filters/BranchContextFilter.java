@@ -0,0 +1,145 @@
+package com.library.bookrental.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Binds the library branch a request works on, taken from the {@code X-Branch-Id} header
+ * or the default branch, and counts requests per branch. Catalog and rental queries are
+ * limited to the bound branch; code running outside a request, such as the schedulers,
+ * has no branch and sees every branch.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class BranchContextFilter extends OncePerRequestFilter {
+
+    public static final String BRANCH_ID_HEADER = "X-Branch-Id";
+
+    /**
+     * Branch of rows created without a bound branch, and of all rows that predate branches.
+     */
+    public static final long DEFAULT_BRANCH_ID = 1;
+
+    private static final ThreadLocal<Long> CURRENT_BRANCH = new ThreadLocal<>();
+
+    private static final String OTHER_BRANCHES = "other";
+
+    @Value("${bookrental.branches.max-tracked:1000}")
+    private int maxTrackedBranches;
+
+    private final Map<String, BranchMetrics> metricsByBranch = new ConcurrentHashMap<>();
+
+    /**
+     * The branch bound to this thread, or {@code null} outside a request.
+     */
+    public static Long currentBranchId() {
+        return CURRENT_BRANCH.get();
+    }
+
+    public static long currentBranchIdOrDefault() {
+        Long branchId = CURRENT_BRANCH.get();
+        return branchId != null ? branchId : DEFAULT_BRANCH_ID;
+    }
+
+    /**
+     * Whether a row of the given branch may be seen by the current thread. Loads by id do
+     * not pass through the Hibernate branch filter, so callers check them with this.
+     */
+    public static boolean isVisible(Long branchId) {
+        Long current = CURRENT_BRANCH.get();
+        return current == null || current.equals(branchId);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Long branchId = resolveBranchId(request);
+        if (branchId == null) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType("text/plain");
+            response.getWriter().write(BRANCH_ID_HEADER + " must be a positive number.");
+            return;
+        }
+        long start = System.nanoTime();
+        CURRENT_BRANCH.set(branchId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CURRENT_BRANCH.remove();
+            metricsFor(branchId).record(System.nanoTime() - start, response.getStatus() >= 500);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metricsByBranch.forEach((branch, branchMetrics) -> metrics.put(branch, branchMetrics.snapshot()));
+        return metrics;
+    }
+
+    private static Long resolveBranchId(HttpServletRequest request) {
+        String header = request.getHeader(BRANCH_ID_HEADER);
+        if (header == null || header.isBlank()) {
+            return DEFAULT_BRANCH_ID;
+        }
+        try {
+            long branchId = Long.parseLong(header.trim());
+            return branchId > 0 ? branchId : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Branches beyond the tracked maximum share one entry, so that a flood of made-up
+     * branch ids cannot grow the map or push out the branches already tracked.
+     */
+    private BranchMetrics metricsFor(long branchId) {
+        String key = Long.toString(branchId);
+        BranchMetrics branchMetrics = metricsByBranch.get(key);
+        if (branchMetrics != null) {
+            return branchMetrics;
+        }
+        if (metricsByBranch.size() >= maxTrackedBranches) {
+            key = OTHER_BRANCHES;
+        }
+        return metricsByBranch.computeIfAbsent(key, k -> new BranchMetrics());
+    }
+
+    private static class BranchMetrics {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        void record(long nanos, boolean serverError) {
+            requests.increment();
+            totalNanos.add(nanos);
+            if (serverError) {
+                serverErrors.increment();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long count = requests.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("requests", count);
+            snapshot.put("serverErrors", serverErrors.sum());
+            snapshot.put("meanMillis", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+            return snapshot;
+        }
+    }
+}
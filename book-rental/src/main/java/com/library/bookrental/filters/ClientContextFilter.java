@@ -0,0 +1,45 @@
+package com.library.bookrental.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Makes the calling client's identity available to code further down the request,
+ * e.g. for rate limiting and read-your-writes routing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ClientContextFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private static final ThreadLocal<String> CURRENT_CLIENT = new ThreadLocal<>();
+
+    public static String currentClientId() {
+        return CURRENT_CLIENT.get();
+    }
+
+    public static String resolveClientId(HttpServletRequest request) {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        return clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CURRENT_CLIENT.set(resolveClientId(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CURRENT_CLIENT.remove();
+        }
+    }
+}
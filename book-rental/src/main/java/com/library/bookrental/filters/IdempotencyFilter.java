@@ -0,0 +1,172 @@
+package com.library.bookrental.filters;
+
+import com.library.bookrental.services.IdempotencyStore;
+import com.library.bookrental.services.IdempotentResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes POST, PUT and PATCH requests that carry an {@code Idempotency-Key} header safe to
+ * retry. The first request with a key runs as usual and its response is recorded; a retry
+ * with the same key and the same method, path and body gets the recorded response back,
+ * marked with {@code Idempotent-Replayed: true}, without the write running again.
+ * <p>
+ * Keys are scoped to the calling client. A key reused for a different request is rejected
+ * with 422, and a retry that arrives while the first request is still running gets 409.
+ * Server errors and rejections by the rate limiter are not recorded, so those can be
+ * retried. Runs before the rate limiter, so replays do not use up the client's permits.
+ */
+@Component
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE + 4)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Value("${bookrental.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookrental.idempotency.max-key-length:255}")
+    private int maxKeyLength;
+
+    @Autowired
+    private IdempotencyStore store;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder notRecorded = new LongAdder();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        String method = request.getMethod();
+        return !("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > maxKeyLength) {
+            reject(response, HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be between 1 and " + maxKeyLength + " characters.");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String key = ClientContextFilter.resolveClientId(request) + '|' + idempotencyKey;
+        String fingerprint = fingerprint(cachedRequest);
+
+        IdempotentResponse.Entry existing = store.claim(key, fingerprint);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                mismatched.increment();
+                reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different request.");
+            } else if (existing.response() == null) {
+                inProgress.increment();
+                response.setHeader("Retry-After", "1");
+                reject(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress.");
+            } else {
+                replayed.increment();
+                replay(response, existing.response());
+            }
+            return;
+        }
+
+        executed.increment();
+        ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        boolean recorded = false;
+        try {
+            filterChain.doFilter(cachedRequest, cachedResponse);
+            int status = cachedResponse.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                store.complete(key, fingerprint, new IdempotentResponse(status, cachedResponse.getContentType(),
+                        cachedResponse.getContentAsByteArray()));
+                recorded = true;
+            }
+        } finally {
+            if (!recorded) {
+                notRecorded.increment();
+                store.release(key);
+            }
+            cachedResponse.copyBodyToResponse();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("executed", executed.sum());
+        metrics.put("replayed", replayed.sum());
+        metrics.put("rejectedInProgress", inProgress.sum());
+        metrics.put("rejectedMismatch", mismatched.sum());
+        metrics.put("notRecorded", notRecorded.sum());
+        metrics.put("storedKeys", store.size());
+        return metrics;
+    }
+
+    private void replay(HttpServletResponse response, IdempotentResponse recorded) throws IOException {
+        log.debug("Replaying recorded response with status {}", recorded.status());
+        response.setStatus(recorded.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (recorded.contentType() != null) {
+            response.setContentType(recorded.contentType());
+        }
+        if (recorded.body() != null) {
+            response.setContentLength(recorded.body().length);
+            response.getOutputStream().write(recorded.body());
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain");
+        response.getWriter().write(message);
+    }
+
+    /**
+     * SHA-256 of the method, path, query string and body, so that a key cannot be replayed
+     * for a request it was not issued for.
+     */
+    static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(request.getBody());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.library.bookrental.filters;
+
+import com.library.bookrental.tracing.QueryStatistics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Groups the statements of each request so that {@link QueryStatistics} can spot N+1
+ * query patterns per endpoint.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class QueryAuditFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ObjectProvider<QueryStatistics> queryStatisticsProvider;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return queryStatisticsProvider.getIfAvailable() == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStatistics queryStatistics = queryStatisticsProvider.getObject();
+        queryStatistics.beginRequest(request.getMethod() + " " + RateLimitFilter.normalizePath(request.getRequestURI()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            queryStatistics.endRequest();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.library.bookrental.filters;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Protects the write endpoints (and the overdue sweep, which rewrites the rentals table)
+ * with a per-client, per-endpoint token bucket and a shared adaptive concurrency limit.
+ * Over-eager clients get 429, overload of the database pool is shed with 503.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Value("${bookrental.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookrental.rate-limit.permits-per-second:20}")
+    private double permitsPerSecond;
+
+    @Value("${bookrental.rate-limit.burst:40}")
+    private int burst;
+
+    @Value("${bookrental.rate-limit.max-tracked-buckets:100000}")
+    private int maxTrackedBuckets;
+
+    @Value("${bookrental.rate-limit.protected-get-paths:/api/books/overdue}")
+    private List<String> protectedGetPaths;
+
+    /** POST endpoints that only read, such as the GraphQL API, which has no mutations. */
+    @Value("${bookrental.rate-limit.read-only-post-paths:/graphql}")
+    private List<String> readOnlyPostPaths;
+
+    @Value("${bookrental.rate-limit.pool-waiters-threshold:2}")
+    private int poolWaitersThreshold;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rejectedByEndpoint = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedRateLimit = new LongAdder();
+    private final LongAdder rejectedConcurrency = new LongAdder();
+    private final LongAdder rejectedPoolSaturation = new LongAdder();
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile HikariPoolMXBean poolMXBean;
+
+    public RateLimitFilter(@Value("${bookrental.rate-limit.concurrency.initial:20}") int initialLimit,
+                           @Value("${bookrental.rate-limit.concurrency.min:2}") int minLimit,
+                           @Value("${bookrental.rate-limit.concurrency.max:200}") int maxLimit,
+                           @Value("${bookrental.rate-limit.concurrency.target-latency-ms:250}") long targetLatencyMillis) {
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, targetLatencyMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return !protectedGetPaths.contains(request.getRequestURI());
+        }
+        return "POST".equals(method) && readOnlyPostPaths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String endpoint = request.getMethod() + " " + normalizePath(request.getRequestURI());
+        long now = System.nanoTime();
+
+        TokenBucket bucket = bucketFor(ClientContextFilter.resolveClientId(request) + '|' + endpoint, now);
+        if (!bucket.tryAcquire(now)) {
+            rejectedRateLimit.increment();
+            reject(response, endpoint, HttpStatus.TOO_MANY_REQUESTS, bucket.nanosUntilNextPermit(now));
+            return;
+        }
+
+        if (isPoolUnderPressure()) {
+            rejectedPoolSaturation.increment();
+            reject(response, endpoint, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            rejectedConcurrency.increment();
+            reject(response, endpoint, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        allowed.increment();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - start, isPoolUnderPressure());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("allowed", allowed.sum());
+        metrics.put("rejectedRateLimit", rejectedRateLimit.sum());
+        metrics.put("rejectedConcurrency", rejectedConcurrency.sum());
+        metrics.put("rejectedPoolSaturation", rejectedPoolSaturation.sum());
+        metrics.put("concurrencyLimit", concurrencyLimiter.getLimit());
+        metrics.put("inFlight", concurrencyLimiter.getInFlight());
+        metrics.put("trackedBuckets", buckets.size());
+        Map<String, Long> byEndpoint = new LinkedHashMap<>();
+        rejectedByEndpoint.forEach((endpoint, count) -> byEndpoint.put(endpoint, count.sum()));
+        metrics.put("rejectedByEndpoint", byEndpoint);
+        return metrics;
+    }
+
+    private TokenBucket bucketFor(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxTrackedBuckets) {
+            buckets.values().removeIf(b -> b.isIdle(now));
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(permitsPerSecond, burst, now));
+    }
+
+    private boolean isPoolUnderPressure() {
+        HikariPoolMXBean pool = poolMXBean;
+        if (pool == null) {
+            pool = lookupPoolMXBean();
+            if (pool == null) {
+                return false;
+            }
+            poolMXBean = pool;
+        }
+        return pool.getThreadsAwaitingConnection() > poolWaitersThreshold;
+    }
+
+    private HikariPoolMXBean lookupPoolMXBean() {
+        HikariDataSource pool = primaryPool(dataSource);
+        return pool != null ? pool.getHikariPoolMXBean() : null;
+    }
+
+    /**
+     * Finds the primary Hikari pool behind the application's data source. Writes always go
+     * to the primary, so that is the pool to watch. Wrappers are walked explicitly rather
+     * than through {@link DataSource#unwrap}, which a routing data source would resolve to
+     * whichever pool the calling thread happens to be routed to.
+     */
+    static HikariDataSource primaryPool(DataSource dataSource) {
+        DataSource current = dataSource;
+        while (current != null && !(current instanceof HikariDataSource)) {
+            if (current instanceof DelegatingDataSource delegating) {
+                current = delegating.getTargetDataSource();
+            } else if (current instanceof AbstractRoutingDataSource routing) {
+                // The routing default is the primary, see DataSourceRoutingConfig.
+                current = routing.getResolvedDefaultDataSource();
+            } else {
+                try {
+                    return current.isWrapperFor(HikariDataSource.class) ? current.unwrap(HikariDataSource.class) : null;
+                } catch (SQLException e) {
+                    return null;
+                }
+            }
+        }
+        return (HikariDataSource) current;
+    }
+
+    private void reject(HttpServletResponse response, String endpoint, HttpStatus status, long retryAfterNanos)
+            throws IOException {
+        rejectedByEndpoint.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos));
+        log.debug("Rejected {} with status {}", endpoint, status.value());
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain");
+        response.getWriter().write(status == HttpStatus.TOO_MANY_REQUESTS
+                ? "Too many requests, please retry later."
+                : "Service is busy, please retry later.");
+    }
+
+    /**
+     * Collapses numeric path segments so that every book shares the endpoint's bucket key.
+     */
+    static String normalizePath(String path) {
+        StringBuilder normalized = new StringBuilder(path.length());
+        int segmentStart = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > segmentStart && isNumeric(path, segmentStart, i)) {
+                    normalized.append("{id}");
+                } else {
+                    normalized.append(path, segmentStart, i);
+                }
+                if (i < path.length()) {
+                    normalized.append('/');
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isNumeric(String path, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isDigit(path.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
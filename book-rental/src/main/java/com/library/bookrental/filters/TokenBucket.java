@@ -0,0 +1,45 @@
+package com.library.bookrental.filters;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm (GCRA).
+ * The whole bucket state is a single "theoretical arrival time", so acquiring
+ * a token is one CAS on the happy path.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(burst - 1, 0);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = Math.max(tat, nowNanos);
+            if (start - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A bucket that has fully refilled behaves exactly like a new one and can be evicted.
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+
+    public long nanosUntilNextPermit(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() - burstToleranceNanos - nowNanos);
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.bookrental.filters;
+
+import com.library.bookrental.tracing.Span;
+import com.library.bookrental.tracing.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Starts the root span of each traced request, continuing the caller's trace when a W3C
+ * {@code traceparent} header is present, and returns the trace context in the response.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_PARENT_HEADER = "traceparent";
+
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !tracer.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String route = RateLimitFilter.normalizePath(request.getRequestURI());
+        Span span = tracer.startRootSpan(request.getMethod() + " " + route, request.getHeader(TRACE_PARENT_HEADER));
+        if (span == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        span.setAttribute("http.method", request.getMethod());
+        span.setAttribute("http.route", route);
+        span.setAttribute("http.target", request.getRequestURI());
+        span.setAttribute("client.id", ClientContextFilter.currentClientId());
+        response.setHeader(TRACE_PARENT_HEADER, span.toTraceParent());
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.setAttribute("http.status_code", response.getStatus());
+            span.end();
+        }
+    }
+}
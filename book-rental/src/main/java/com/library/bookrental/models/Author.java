@@ -1,15 +1,23 @@
 package com.library.bookrental.models;
 
+import com.library.bookrental.filters.BranchContextFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Filter;
 
 @Entity
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "authors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "authors")
+@Filter(name = Book.BRANCH_FILTER)
+@Table(name = "authors", uniqueConstraints = @UniqueConstraint(name = "uk_authors_branch_name",
+        columnNames = {"branch_id", "name"}))
 public class Author {
 
     @Id
@@ -23,4 +31,14 @@ public class Author {
     @Column(name = "biography")
     private String biography;
 
-}
\ No newline at end of file
+    @Column(name = "branch_id", updatable = false, columnDefinition = "bigint default 1 not null")
+    private Long branchId;
+
+    @PrePersist
+    void assignBranch() {
+        if (branchId == null) {
+            branchId = BranchContextFilter.currentBranchIdOrDefault();
+        }
+    }
+
+}
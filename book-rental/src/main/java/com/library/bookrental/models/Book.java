@@ -1,24 +1,50 @@
 package com.library.bookrental.models;
 
+import com.library.bookrental.filters.BranchContextFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Filter;
 
 @Entity
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "books")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
+@Filter(name = Book.BRANCH_FILTER)
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_branch_book", columnList = "branch_id, book_id"),
+        @Index(name = "idx_books_branch_author_available_year",
+                columnList = "branch_id, author_id, available, publication_year"),
+        @Index(name = "idx_books_branch_available_year", columnList = "branch_id, available, publication_year"),
+        @Index(name = "idx_books_branch_year_book", columnList = "branch_id, publication_year, book_id"),
+        @Index(name = "idx_books_branch_title_book", columnList = "branch_id, title, book_id")
+})
 public class Book {
 
+    /**
+     * Limits queries on authors, books and rentals to one branch. Defined in this package's
+     * {@code package-info} and enabled for every entity manager opened while a branch is
+     * bound, see {@code BranchFilterConfig}.
+     */
+    public static final String BRANCH_FILTER = "branch";
+    public static final String BRANCH_PARAMETER = "branchId";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "book_id")
     private Long bookId;
 
-    @Column(name = "title")
-    private String title;
+    /**
+     * Never null, an untitled book has an empty title, so that searches can seek on
+     * (title, book id) without a separate case for missing titles.
+     */
+    @Column(name = "title", nullable = false, columnDefinition = "varchar(255) default '' not null")
+    private String title = "";
 
     @Column(name = "isbn")
     private String isbn;
@@ -33,4 +59,18 @@ public class Book {
     @Column(name = "available")
     private boolean available = true;
 
+    @Column(name = "branch_id", updatable = false, columnDefinition = "bigint default 1 not null")
+    private Long branchId;
+
+    public void setTitle(String title) {
+        this.title = title != null ? title : "";
+    }
+
+    @PrePersist
+    void assignBranch() {
+        if (branchId == null) {
+            branchId = BranchContextFilter.currentBranchIdOrDefault();
+        }
+    }
+
 }
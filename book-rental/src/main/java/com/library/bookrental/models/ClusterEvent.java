@@ -0,0 +1,34 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "cluster_events")
+public class ClusterEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "origin_node", length = 100)
+    private String originNode;
+
+    @Column(name = "topic", length = 100)
+    private String topic;
+
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+}
@@ -0,0 +1,27 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "cluster_leases")
+public class ClusterLease {
+
+    @Id
+    @Column(name = "lease_name", length = 100)
+    private String leaseName;
+
+    @Column(name = "owner", length = 100)
+    private String owner;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+}
@@ -0,0 +1,39 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 400)
+    private String idempotencyKey;
+
+    @Column(name = "fingerprint", length = 64)
+    private String fingerprint;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Column(name = "content_type", length = 200)
+    private String contentType;
+
+    @Column(name = "response_body", length = 1048576)
+    private byte[] responseBody;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+}
@@ -0,0 +1,47 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "late_fees", indexes = @Index(name = "idx_late_fees_branch", columnList = "branch_id, rental_id"))
+public class LateFee {
+
+    @Id
+    @Column(name = "rental_id")
+    private Long rentalId;
+
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
+    @Column(name = "return_date")
+    private LocalDate returnDate;
+
+    @Column(name = "days_late")
+    private int daysLate;
+
+    @Column(name = "amount", precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "computed_for")
+    private LocalDate computedFor;
+
+    @Column(name = "computed_at")
+    private Instant computedAt;
+
+}
@@ -0,0 +1,43 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "late_fee_checkpoints", indexes = @Index(name = "idx_late_fee_checkpoints_run", columnList = "run_date"))
+public class LateFeeCheckpoint {
+
+    @Id
+    @Column(name = "checkpoint_key", length = 100)
+    private String checkpointKey;
+
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    @Column(name = "source_index")
+    private int sourceIndex;
+
+    @Column(name = "upper_bound")
+    private long upperBound;
+
+    @Column(name = "last_rental_id")
+    private long lastRentalId;
+
+    @Column(name = "rentals_processed")
+    private long rentalsProcessed;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+}
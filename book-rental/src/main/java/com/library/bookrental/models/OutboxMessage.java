@@ -0,0 +1,46 @@
+package com.library.bookrental.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_messages", indexes = @Index(name = "idx_outbox_pending", columnList = "dispatched_at, next_attempt_at"))
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "event_type", length = 50)
+    private String eventType;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(name = "payload", length = 2000)
+    private String payload;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "dispatched_at")
+    private Instant dispatchedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+}
@@ -1,9 +1,11 @@
 package com.library.bookrental.models;
 
+import com.library.bookrental.filters.BranchContextFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Filter;
 
 import java.time.LocalDate;
 
@@ -11,7 +13,8 @@ import java.time.LocalDate;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "rentals")
+@Filter(name = Book.BRANCH_FILTER)
+@Table(name = "rentals", indexes = @Index(name = "idx_rentals_branch_book", columnList = "branch_id, book_id"))
 public class Rental {
 
     @Id
@@ -29,10 +32,25 @@ public class Rental {
     @Column(name = "rental_date")
     private LocalDate rentalDate;
 
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
     @Column(name = "return_date")
     private LocalDate returnDate;
 
     @Column(name = "overdue")
     private boolean overdue;
 
-}
\ No newline at end of file
+    @Column(name = "branch_id", updatable = false, columnDefinition = "bigint default 1 not null")
+    private Long branchId;
+
+    @PrePersist
+    void assignBranch() {
+        if (branchId == null) {
+            branchId = book != null && book.getBranchId() != null
+                    ? book.getBranchId()
+                    : BranchContextFilter.currentBranchIdOrDefault();
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+/**
+ * The branch filter is defined for the whole package rather than on one entity, so it is
+ * bound before any of the authors, books and rentals that use it.
+ */
+@FilterDef(name = Book.BRANCH_FILTER, parameters = @ParamDef(name = Book.BRANCH_PARAMETER, type = Long.class),
+        defaultCondition = "branch_id = :" + Book.BRANCH_PARAMETER)
+package com.library.bookrental.models;
+
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
@@ -1,7 +1,28 @@
 package com.library.bookrental.repositories;
 
+import com.library.bookrental.dto.AuthorView;
 import com.library.bookrental.models.Author;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface AuthorRepository extends JpaRepository<Author, Long> {
+
+    String AUTHOR_VIEW = "select new com.library.bookrental.dto.AuthorView(a.authorId, a.name, a.biography) "
+            + "from Author a";
+
+    List<Author> findByNameIn(Collection<String> names);
+
+    @Query(AUTHOR_VIEW + " order by a.authorId")
+    List<AuthorView> findAllViews();
+
+    @Query(AUTHOR_VIEW + " where a.authorId > :afterId order by a.authorId")
+    List<AuthorView> findViewsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query(AUTHOR_VIEW + " where a.authorId in :authorIds")
+    List<AuthorView> findViewsByAuthorIdIn(@Param("authorIds") Collection<Long> authorIds);
 }
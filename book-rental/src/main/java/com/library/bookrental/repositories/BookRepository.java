@@ -1,16 +1,69 @@
 package com.library.bookrental.repositories;
 
-import com.library.bookrental.models.Author;
+import com.library.bookrental.dto.BookView;
 import com.library.bookrental.models.Book;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
 
-    List<Book> findByAvailableTrue();
+    String BOOK_VIEW = "select new com.library.bookrental.dto.BookView(b.bookId, b.title, b.isbn, "
+            + "b.publicationYear, b.author.authorId, b.available) from Book b";
 
-    List<Book> findByAuthor(Author author);
+    @Query(BOOK_VIEW + " order by b.bookId")
+    List<BookView> findAllViews();
 
-    List<Book> findByAvailableFalse();
+    @Query(BOOK_VIEW + " where b.bookId > :afterId order by b.bookId")
+    List<BookView> findViewsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query(BOOK_VIEW + " where b.bookId in :bookIds")
+    List<BookView> findViewsByBookIdIn(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query(BOOK_VIEW + " where b.author.authorId in :authorIds order by b.bookId")
+    List<BookView> findViewsByAuthorIdIn(@Param("authorIds") Collection<Long> authorIds);
+
+    @Query(BOOK_VIEW + " where b.available = :available order by b.bookId")
+    List<BookView> findViewsByAvailable(@Param("available") boolean available);
+
+    /**
+     * Cached in the query cache, which drops the results whenever the books table is written.
+     * The region is shared by all branches: the branch filter's parameter is bound into the
+     * statement, so it is part of every cache key and branches never see each other's
+     * results.
+     */
+    @Query(BOOK_VIEW + " where b.author.authorId = :authorId order by b.bookId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "books-by-author")
+    })
+    List<BookView> findViewsByAuthorId(@Param("authorId") Long authorId);
+
+    /**
+     * Locks the author's books the way a rent does, so no rent can start or finish on them
+     * until the caller's transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.author.authorId = :authorId")
+    List<Book> findByAuthorIdForUpdate(@Param("authorId") Long authorId);
+
+    @Modifying
+    @Query("delete from Book b where b.author.authorId = :authorId")
+    int deleteByAuthorId(@Param("authorId") Long authorId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.bookId = :bookId")
+    Optional<Book> findByIdForUpdate(@Param("bookId") Long bookId);
 }
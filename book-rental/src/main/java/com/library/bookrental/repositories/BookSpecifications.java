@@ -0,0 +1,106 @@
+package com.library.bookrental.repositories;
+
+import com.library.bookrental.models.Book;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.SqmExpressible;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Composable filters for {@link BookRepository}. Each one maps to a sargable predicate on
+ * an indexed column, and a null argument means "no filter".
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> hasAuthor(Long authorId) {
+        return (root, query, cb) -> authorId == null ? null : cb.equal(root.get("author").get("authorId"), authorId);
+    }
+
+    public static Specification<Book> isAvailable(Boolean available) {
+        return (root, query, cb) -> available == null ? null : cb.equal(root.get("available"), available);
+    }
+
+    public static Specification<Book> publishedFrom(Integer minYear) {
+        return (root, query, cb) -> minYear == null ? null : cb.greaterThanOrEqualTo(root.get("publicationYear"), minYear);
+    }
+
+    public static Specification<Book> publishedUntil(Integer maxYear) {
+        return (root, query, cb) -> maxYear == null ? null : cb.lessThanOrEqualTo(root.get("publicationYear"), maxYear);
+    }
+
+    public static Specification<Book> titleStartsWith(String prefix) {
+        return (root, query, cb) -> prefix == null || prefix.isEmpty()
+                ? null
+                : cb.like(root.get("title"), escapeLike(prefix) + "%", '\\');
+    }
+
+    /**
+     * Orders by {@code field} and then the book id. The sort columns are never null, so the
+     * order matches a plain index on (field, book id) and {@link #after} can seek on it.
+     */
+    public static Specification<Book> orderedBy(String field, boolean ascending) {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                List<Order> orders = new ArrayList<>(2);
+                if (!"bookId".equals(field)) {
+                    orders.add(ascending ? cb.asc(root.get(field)) : cb.desc(root.get(field)));
+                }
+                orders.add(ascending ? cb.asc(root.get("bookId")) : cb.desc(root.get("bookId")));
+                query.orderBy(orders);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Keyset predicate: rows strictly after ({@code lastValue}, {@code lastId}) in the order
+     * given by {@link #orderedBy}, as a single row-value comparison
+     * {@code (field, book_id) > (?, ?)} that the database can answer with a range scan.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Comparable<? super T>> Specification<Book> after(String field, T lastValue, Long lastId,
+                                                                          boolean ascending) {
+        return (root, query, cb) -> {
+            if (lastId == null) {
+                return null;
+            }
+            if ("bookId".equals(field)) {
+                return ascending
+                        ? cb.greaterThan(root.get("bookId"), lastId)
+                        : cb.lessThan(root.get("bookId"), lastId);
+            }
+            // JPA has no row values; Hibernate's query tree does.
+            NodeBuilder builder = (NodeBuilder) cb;
+            Expression key = builder.tuple((SqmExpressible<Object>) null, (SqmExpression<?>) root.get(field),
+                    (SqmExpression<?>) root.get("bookId"));
+            Expression last = builder.tuple((SqmExpressible<Object>) null, (SqmExpression<?>) builder.value(lastValue),
+                    (SqmExpression<?>) builder.value(lastId));
+            return ascending ? builder.greaterThan(key, last) : builder.lessThan(key, last);
+        };
+    }
+
+    /**
+     * Loads the author in the same statement, so mapping to DTOs needs no extra queries.
+     */
+    public static Specification<Book> fetchAuthor() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("author", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
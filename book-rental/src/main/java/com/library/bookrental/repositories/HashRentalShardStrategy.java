@@ -0,0 +1,30 @@
+package com.library.bookrental.repositories;
+
+/**
+ * Spreads books evenly over the shards by a mixed hash of the book id.
+ */
+public class HashRentalShardStrategy implements RentalShardStrategy {
+
+    private final int shardCount;
+
+    public HashRentalShardStrategy(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public int shardFor(long bookId) {
+        // Murmur3 finalizer, so sequential ids do not map onto shards round-robin.
+        long h = bookId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) shardCount);
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+}
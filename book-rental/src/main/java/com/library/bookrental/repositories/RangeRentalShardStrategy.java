@@ -0,0 +1,33 @@
+package com.library.bookrental.repositories;
+
+import java.util.Arrays;
+
+/**
+ * Assigns contiguous book id ranges to shards. Shard {@code i} holds book ids below
+ * {@code upperBounds[i]}, and the last shard holds everything from the last bound upwards.
+ */
+public class RangeRentalShardStrategy implements RentalShardStrategy {
+
+    private final long[] upperBounds;
+
+    public RangeRentalShardStrategy(long[] upperBounds) {
+        long[] sorted = upperBounds.clone();
+        Arrays.sort(sorted);
+        if (!Arrays.equals(sorted, upperBounds)) {
+            throw new IllegalArgumentException("Range upper bounds must be ascending: " + Arrays.toString(upperBounds));
+        }
+        this.upperBounds = sorted;
+    }
+
+    @Override
+    public int shardFor(long bookId) {
+        int index = Arrays.binarySearch(upperBounds, bookId);
+        // An id equal to a bound belongs to the next shard; otherwise use the insertion point.
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @Override
+    public int shardCount() {
+        return upperBounds.length + 1;
+    }
+}
@@ -1,10 +1,23 @@
 package com.library.bookrental.repositories;
 
 import com.library.bookrental.models.Rental;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.Repository;
 
-import java.util.Optional;
+import java.time.LocalDate;
 
-public interface RentalRepository extends JpaRepository<Rental, Long> {
-    Optional<Object> findFirstByBookBookIdAndReturnDateIsNull(Long bookId);
+/**
+ * Rental storage. Every method is implemented in {@link RentalRepositoryCustomImpl}, which
+ * keeps it on the primary database or routes it across the rental shards when sharding is
+ * enabled. The repository deliberately does not extend {@code JpaRepository}: its inherited
+ * methods would always go to the primary and miss the rentals on the shards.
+ */
+public interface RentalRepository extends Repository<Rental, Long>, RentalRepositoryCustom {
+
+    interface ActiveRentalDueDate {
+        Long getRentalId();
+
+        LocalDate getRentalDate();
+
+        LocalDate getDueDate();
+    }
 }
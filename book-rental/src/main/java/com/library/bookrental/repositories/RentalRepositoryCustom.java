@@ -0,0 +1,66 @@
+package com.library.bookrental.repositories;
+
+import com.library.bookrental.dto.RentalView;
+import com.library.bookrental.models.Rental;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface RentalRepositoryCustom {
+
+    <S extends Rental> S save(S rental);
+
+    Optional<Rental> findById(Long rentalId);
+
+    <S extends Rental> List<S> saveAll(Iterable<S> rentals);
+
+    List<Rental> findAll();
+
+    /**
+     * Rentals with the given ids, ordered by id, read with one IN query per shard and chunk.
+     */
+    List<Rental> findAllById(Iterable<Long> rentalIds);
+
+    long count();
+
+    /**
+     * Deletes the rental from whichever shard holds it. Does nothing if it does not exist.
+     */
+    void deleteById(Long rentalId);
+
+    Optional<Object> findFirstByBookBookIdAndReturnDateIsNull(Long bookId);
+
+    Stream<RentalRepository.ActiveRentalDueDate> streamActiveDueDates();
+
+    List<Long> findActiveRentalIdsDueOn(LocalDate dueDate);
+
+    /**
+     * Flags the given rentals as overdue and returns those that were still active and not
+     * yet overdue, i.e. the ones whose state actually changed.
+     */
+    List<Rental> markOverdue(Collection<Long> rentalIds);
+
+    /**
+     * Flags up to {@code limit} active rentals due before the given date as overdue (up to
+     * {@code limit} per shard when sharded) and returns the ones whose state changed. Call
+     * it again, each time in a transaction of its own, until it returns nothing.
+     */
+    List<Rental> markOverdueDueBefore(LocalDate currentDate, int limit);
+
+    int deleteByBookAuthorId(Long authorId);
+
+    /**
+     * Whether any book of the author has ever been rented, on any shard.
+     */
+    boolean existsByBookAuthorId(Long authorId);
+
+    List<RentalView> findViewsAfter(long afterId, int limit);
+
+    /**
+     * Rentals of the given books, oldest first, read with one IN query per shard and chunk.
+     */
+    List<RentalView> findViewsByBookIds(Collection<Long> bookIds);
+}
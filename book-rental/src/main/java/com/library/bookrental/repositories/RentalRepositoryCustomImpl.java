@@ -0,0 +1,568 @@
+package com.library.bookrental.repositories;
+
+import com.library.bookrental.dto.RentalView;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.models.Book;
+import com.library.bookrental.models.Rental;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the rental queries through JPA on the primary database, or, when
+ * {@link RentalShards} are configured, through JDBC on the shard that owns the book.
+ * Listings without a book id fan out to every shard and merge the results. Shard writes
+ * commit on their own, and {@link #save} undoes them if the caller's primary-database
+ * transaction rolls back.
+ * The Hibernate branch filter does not reach shard statements, so listings there add the
+ * current branch themselves.
+ */
+@Slf4j
+public class RentalRepositoryCustomImpl implements RentalRepositoryCustom {
+
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private static final String SELECT_RENTAL = "select rental_id, book_id, renter_name, rental_date, due_date, "
+            + "return_date, overdue, branch_id from rentals";
+
+    private static final RowMapper<Object[]> RENTAL_ROW = (rs, rowNum) -> new Object[]{
+            rs.getLong("rental_id"),
+            rs.getLong("book_id"),
+            rs.getString("renter_name"),
+            rs.getObject("rental_date", LocalDate.class),
+            rs.getObject("due_date", LocalDate.class),
+            rs.getObject("return_date", LocalDate.class),
+            rs.getBoolean("overdue"),
+            rs.getLong("branch_id")
+    };
+
+    private static final String RENTAL_VIEW = "select new com.library.bookrental.dto.RentalView(r.rentalId, "
+            + "r.book.bookId, r.renterName, r.rentalDate, r.dueDate, r.returnDate, r.overdue) from Rental r";
+
+    private static final RowMapper<RentalView> RENTAL_VIEW_ROW = (rs, rowNum) -> new RentalView(
+            rs.getLong("rental_id"),
+            rs.getLong("book_id"),
+            rs.getString("renter_name"),
+            rs.getObject("rental_date", LocalDate.class),
+            rs.getObject("due_date", LocalDate.class),
+            rs.getObject("return_date", LocalDate.class),
+            rs.getBoolean("overdue"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectProvider<RentalShards> rentalShards;
+
+    public RentalRepositoryCustomImpl(ObjectProvider<RentalShards> rentalShards) {
+        this.rentalShards = rentalShards;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Rental> S save(S rental) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            if (rental.getRentalId() == null) {
+                entityManager.persist(rental);
+                return rental;
+            }
+            return entityManager.merge(rental);
+        }
+
+        long bookId = rental.getBook().getBookId();
+        if (rental.getRentalId() == null) {
+            rental.setRentalId(shards.nextRentalId());
+            if (rental.getBranchId() == null) {
+                Long bookBranchId = rental.getBook().getBranchId();
+                rental.setBranchId(bookBranchId != null
+                        ? bookBranchId
+                        : BranchContextFilter.currentBranchIdOrDefault());
+            }
+            JdbcTemplate shard = shards.shardFor(bookId);
+            Long rentalId = rental.getRentalId();
+            shard.update("insert into rentals (rental_id, book_id, renter_name, rental_date, "
+                            + "due_date, return_date, overdue, branch_id) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                    rentalId, bookId, rental.getRenterName(), rental.getRentalDate(),
+                    rental.getDueDate(), rental.getReturnDate(), rental.isOverdue(), rental.getBranchId());
+            onRollback(() -> shard.update("delete from rentals where rental_id = ?", rentalId));
+            return rental;
+        }
+        Optional<Rental> previous = findById(rental.getRentalId());
+        if (update(shards, bookId, rental) > 0) {
+            previous.ifPresent(old -> onRollback(() -> update(shards, bookId, old)));
+        }
+        return rental;
+    }
+
+    private static int update(RentalShards shards, long bookId, Rental rental) {
+        Function<JdbcTemplate, Integer> update = shard -> shard.update("update rentals set renter_name = ?, "
+                        + "rental_date = ?, due_date = ?, return_date = ?, overdue = ? where rental_id = ?",
+                rental.getRenterName(), rental.getRentalDate(), rental.getDueDate(), rental.getReturnDate(),
+                rental.isOverdue(), rental.getRentalId());
+        int updated = update.apply(shards.shardFor(bookId));
+        if (updated == 0) {
+            // The row has not been moved to its new shard by the rebalancer yet.
+            updated = shards.fanOutUpdate(update);
+        }
+        return updated;
+    }
+
+    /**
+     * Shard writes commit on their own. When the caller's transaction on the primary rolls
+     * back, this undoes them, so that a rent or return that failed leaves no trace on the
+     * shard. A compensation that fails is logged; the shard row then needs fixing by hand.
+     */
+    private static void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    try {
+                        compensation.run();
+                    } catch (RuntimeException e) {
+                        log.error("Could not undo a rental shard write after a rollback.", e);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public <S extends Rental> List<S> saveAll(Iterable<S> rentals) {
+        List<S> saved = new ArrayList<>();
+        for (S rental : rentals) {
+            saved.add(save(rental));
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Rental> findById(Long rentalId) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            // Loads by id are not filtered by branch.
+            return Optional.ofNullable(entityManager.find(Rental.class, rentalId))
+                    .filter(rental -> BranchContextFilter.isVisible(rental.getBranchId()));
+        }
+        List<Object[]> rows = shards.fanOut(shard -> shard.query(SELECT_RENTAL + " where rental_id = ?",
+                RENTAL_ROW, rentalId));
+        return toRentals(rows).stream().filter(rental -> BranchContextFilter.isVisible(rental.getBranchId()))
+                .findFirst();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Rental> findAll() {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("select r from Rental r left join fetch r.book b left join fetch b.author",
+                    Rental.class).getResultList();
+        }
+        Long branchId = BranchContextFilter.currentBranchId();
+        String sql = branchId == null ? SELECT_RENTAL : SELECT_RENTAL + " where branch_id = ?";
+        List<Rental> rentals = toRentals(shards.fanOut(shard -> shard.query(sql, RENTAL_ROW,
+                branchArgs(branchId))));
+        rentals.sort(Comparator.comparing(Rental::getRentalId));
+        return rentals;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Rental> findAllById(Iterable<Long> rentalIds) {
+        List<Long> ids = new ArrayList<>();
+        rentalIds.forEach(ids::add);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        RentalShards shards = rentalShards.getIfAvailable();
+        List<Rental> rentals = new ArrayList<>(ids.size());
+        if (shards == null) {
+            for (List<Long> chunk : chunks(ids)) {
+                rentals.addAll(entityManager.createQuery("select r from Rental r where r.rentalId in :rentalIds",
+                                Rental.class)
+                        .setParameter("rentalIds", chunk)
+                        .getResultList());
+            }
+        } else {
+            Long branchId = BranchContextFilter.currentBranchId();
+            for (List<Long> chunk : chunks(ids)) {
+                String sql = SELECT_RENTAL + " where rental_id in (" + placeholders(chunk.size()) + ")"
+                        + (branchId == null ? "" : " and branch_id = ?");
+                rentals.addAll(toRentals(shards.fanOut(shard -> shard.query(sql, RENTAL_ROW,
+                        branchArgs(branchId, chunk.toArray())))));
+            }
+        }
+        rentals.sort(Comparator.comparing(Rental::getRentalId));
+        return rentals;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("select count(r) from Rental r", Long.class).getSingleResult();
+        }
+        Long branchId = BranchContextFilter.currentBranchId();
+        String sql = "select count(*) from rentals" + (branchId == null ? "" : " where branch_id = ?");
+        return shards.fanOut(shard -> List.of(shard.queryForObject(sql, Long.class, branchArgs(branchId))))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long rentalId) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            Rental rental = entityManager.find(Rental.class, rentalId);
+            if (rental != null && BranchContextFilter.isVisible(rental.getBranchId())) {
+                entityManager.remove(rental);
+            }
+            return;
+        }
+        Long branchId = BranchContextFilter.currentBranchId();
+        String sql = "delete from rentals where rental_id = ?" + (branchId == null ? "" : " and branch_id = ?");
+        shards.fanOutUpdate(shard -> shard.update(sql, branchArgs(branchId, rentalId)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Object> findFirstByBookBookIdAndReturnDateIsNull(Long bookId) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("select r from Rental r where r.book.bookId = :bookId "
+                            + "and r.returnDate is null", Rental.class)
+                    .setParameter("bookId", bookId)
+                    .setMaxResults(1)
+                    .getResultStream()
+                    .findFirst()
+                    .map(Object.class::cast);
+        }
+        String sql = SELECT_RENTAL + " where book_id = ? and return_date is null fetch first 1 rows only";
+        List<Object[]> rows = shards.shardFor(bookId).query(sql, RENTAL_ROW, bookId);
+        if (rows.isEmpty()) {
+            rows = shards.fanOut(shard -> shard.query(sql, RENTAL_ROW, bookId));
+        }
+        return toRentals(rows).stream().findFirst().map(Object.class::cast);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<RentalRepository.ActiveRentalDueDate> streamActiveDueDates() {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("select r.rentalId, r.rentalDate, r.dueDate from Rental r "
+                            + "where r.returnDate is null and r.overdue = false", Object[].class)
+                    .getResultStream()
+                    .map(row -> new ActiveRental((Long) row[0], (LocalDate) row[1], (LocalDate) row[2]));
+        }
+        // Shards are streamed one after the other, so memory stays flat however many rentals are active.
+        return IntStream.range(0, shards.size()).boxed().flatMap(index -> shards.shard(index).queryForStream(
+                "select rental_id, rental_date, due_date from rentals where return_date is null and overdue = false",
+                (rs, rowNum) -> new ActiveRental(rs.getLong("rental_id"), rs.getObject("rental_date", LocalDate.class),
+                        rs.getObject("due_date", LocalDate.class))));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findActiveRentalIdsDueOn(LocalDate dueDate) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("select r.rentalId from Rental r where r.returnDate is null "
+                            + "and r.dueDate = :dueDate", Long.class)
+                    .setParameter("dueDate", dueDate)
+                    .getResultList();
+        }
+        return shards.fanOut(shard -> shard.queryForList(
+                "select rental_id from rentals where return_date is null and due_date = ?", Long.class, dueDate));
+    }
+
+    @Override
+    @Transactional
+    public List<Rental> markOverdue(Collection<Long> rentalIds) {
+        if (rentalIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            List<Rental> marked = new ArrayList<>();
+            for (List<Long> chunk : chunks(new ArrayList<>(rentalIds))) {
+                marked.addAll(markOverdue(entityManager.createQuery("select r from Rental r join fetch r.book "
+                                + "where r.rentalId in :rentalIds and r.returnDate is null and r.overdue = false",
+                                Rental.class)
+                        .setParameter("rentalIds", chunk)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .getResultList()));
+            }
+            return marked;
+        }
+        List<Object[]> marked = new ArrayList<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(rentalIds))) {
+            String sql = SELECT_RENTAL + " where return_date is null and overdue = false and rental_id in ("
+                    + placeholders(chunk.size()) + ") for update";
+            marked.addAll(shards.fanOutInTransaction(shard ->
+                    markOverdue(shard, shard.query(sql, RENTAL_ROW, chunk.toArray()))));
+        }
+        return toRentals(marked);
+    }
+
+    @Override
+    @Transactional
+    public List<Rental> markOverdueDueBefore(LocalDate currentDate, int limit) {
+        int batch = Math.min(limit, IN_CLAUSE_CHUNK);
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return markOverdue(entityManager.createQuery("select r from Rental r join fetch r.book "
+                            + "where r.returnDate is null and r.overdue = false and r.dueDate < :currentDate "
+                            + "order by r.rentalId", Rental.class)
+                    .setParameter("currentDate", currentDate)
+                    .setMaxResults(batch)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList());
+        }
+        Long branchId = BranchContextFilter.currentBranchId();
+        String sql = SELECT_RENTAL + " where return_date is null and overdue = false and due_date < ?"
+                + (branchId == null ? "" : " and branch_id = ?") + " order by rental_id fetch first "
+                + batch + " rows only for update";
+        return toRentals(shards.fanOutInTransaction(shard -> markOverdue(shard, shard.query(sql, RENTAL_ROW,
+                branchArgs(branchId, currentDate)))));
+    }
+
+    /**
+     * Flags locked rentals with one bulk update. The update repeats the selection's guard,
+     * so a rental another sweep flagged first is never reported twice. The loaded entities
+     * are detached and updated in memory so the persistence context does not write them a
+     * second time.
+     */
+    private List<Rental> markOverdue(List<Rental> rentals) {
+        if (rentals.isEmpty()) {
+            return rentals;
+        }
+        entityManager.createQuery("update Rental r set r.overdue = true where r.rentalId in :rentalIds "
+                        + "and r.returnDate is null and r.overdue = false")
+                .setParameter("rentalIds", rentals.stream().map(Rental::getRentalId).toList())
+                .executeUpdate();
+        for (Rental rental : rentals) {
+            entityManager.detach(rental);
+            rental.setOverdue(true);
+        }
+        return rentals;
+    }
+
+    /**
+     * Shard counterpart of {@link #markOverdue(List)}; the rows were selected for update in
+     * the shard transaction the caller runs in.
+     */
+    private List<Object[]> markOverdue(JdbcTemplate shard, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Object[] rentalIds = rows.stream().map(row -> row[0]).toArray();
+        shard.update("update rentals set overdue = true where return_date is null and overdue = false "
+                + "and rental_id in (" + placeholders(rentalIds.length) + ")", rentalIds);
+        for (Object[] row : rows) {
+            row[6] = true;
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existsByBookAuthorId(Long authorId) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return !entityManager.createQuery("select r.rentalId from Rental r where r.book.author.authorId = :authorId",
+                            Long.class)
+                    .setParameter("authorId", authorId)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
+        }
+        List<Long> bookIds = entityManager.createQuery("select b.bookId from Book b where b.author.authorId = :authorId",
+                        Long.class)
+                .setParameter("authorId", authorId)
+                .getResultList();
+        if (bookIds.isEmpty()) {
+            return false;
+        }
+        for (List<Long> chunk : chunks(bookIds)) {
+            // Every shard is asked, since the rebalancer may not have moved a book's rentals yet.
+            List<Integer> found = shards.fanOut(shard -> shard.queryForList("select 1 from rentals where book_id in ("
+                    + placeholders(chunk.size()) + ") limit 1", Integer.class, chunk.toArray()));
+            if (!found.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public int deleteByBookAuthorId(Long authorId) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery("delete from Rental r where r.book.bookId in "
+                            + "(select b.bookId from Book b where b.author.authorId = :authorId)")
+                    .setParameter("authorId", authorId)
+                    .executeUpdate();
+        }
+        List<Long> bookIds = entityManager.createQuery("select b.bookId from Book b where b.author.authorId = :authorId",
+                        Long.class)
+                .setParameter("authorId", authorId)
+                .getResultList();
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        int deleted = 0;
+        for (List<Long> chunk : chunks(bookIds)) {
+            // Every shard is asked, since the rebalancer may not have moved a book's rentals yet.
+            String sql = "delete from rentals where book_id in (" + placeholders(chunk.size()) + ")";
+            deleted += shards.fanOutUpdate(shard -> shard.update(sql, chunk.toArray()));
+        }
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RentalView> findViewsAfter(long afterId, int limit) {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return entityManager.createQuery(RENTAL_VIEW + " where r.rentalId > :afterId order by r.rentalId",
+                            RentalView.class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        Long branchId = BranchContextFilter.currentBranchId();
+        String sql = SELECT_RENTAL + " where rental_id > ?" + (branchId == null ? "" : " and branch_id = ?")
+                + " order by rental_id fetch first " + limit + " rows only";
+        List<RentalView> rentals = new ArrayList<>(shards.fanOut(shard -> shard.query(sql, RENTAL_VIEW_ROW,
+                branchArgs(branchId, afterId))));
+        rentals.sort(Comparator.comparingLong(RentalView::rentalId));
+        return rentals.size() > limit ? new ArrayList<>(rentals.subList(0, limit)) : rentals;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RentalView> findViewsByBookIds(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        RentalShards shards = rentalShards.getIfAvailable();
+        List<RentalView> rentals = new ArrayList<>();
+        if (shards == null) {
+            for (List<Long> chunk : chunks(new ArrayList<>(bookIds))) {
+                rentals.addAll(entityManager.createQuery(RENTAL_VIEW + " where r.book.bookId in :bookIds",
+                                RentalView.class)
+                        .setParameter("bookIds", chunk)
+                        .getResultList());
+            }
+        } else {
+            // Rows the rebalancer has not moved yet are still on their old shard, so every shard is asked.
+            for (List<Long> chunk : chunks(new ArrayList<>(bookIds))) {
+                String sql = SELECT_RENTAL + " where book_id in (" + placeholders(chunk.size()) + ")";
+                rentals.addAll(shards.fanOut(shard -> shard.query(sql, RENTAL_VIEW_ROW, chunk.toArray())));
+            }
+        }
+        rentals.sort(Comparator.comparingLong(RentalView::rentalId));
+        return rentals;
+    }
+
+    /**
+     * Builds rentals from shard rows, loading their books from the primary in batches.
+     */
+    private List<Rental> toRentals(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> bookIds = rows.stream().map(row -> (Long) row[1]).collect(Collectors.toSet());
+        Map<Long, Book> books = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(bookIds))) {
+            entityManager.createQuery("select b from Book b left join fetch b.author where b.bookId in :bookIds",
+                            Book.class)
+                    .setParameter("bookIds", chunk)
+                    .getResultList()
+                    .forEach(book -> books.put(book.getBookId(), book));
+        }
+        List<Rental> rentals = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            rentals.add(new Rental((Long) row[0], books.get((Long) row[1]), (String) row[2], (LocalDate) row[3],
+                    (LocalDate) row[4], (LocalDate) row[5], (Boolean) row[6], (Long) row[7]));
+        }
+        return rentals;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> values) {
+        if (values.size() <= IN_CLAUSE_CHUNK) {
+            return Collections.singletonList(values);
+        }
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += IN_CLAUSE_CHUNK) {
+            chunks.add(values.subList(from, Math.min(from + IN_CLAUSE_CHUNK, values.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * The statement arguments followed by the branch id, if a branch is bound.
+     */
+    private static Object[] branchArgs(Long branchId, Object... args) {
+        if (branchId == null) {
+            return args;
+        }
+        Object[] withBranch = Arrays.copyOf(args, args.length + 1);
+        withBranch[args.length] = branchId;
+        return withBranch;
+    }
+
+    private record ActiveRental(Long rentalId, LocalDate rentalDate, LocalDate dueDate)
+            implements RentalRepository.ActiveRentalDueDate {
+
+        @Override
+        public Long getRentalId() {
+            return rentalId;
+        }
+
+        @Override
+        public LocalDate getRentalDate() {
+            return rentalDate;
+        }
+
+        @Override
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+    }
+}
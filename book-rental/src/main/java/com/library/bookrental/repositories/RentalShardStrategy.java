@@ -0,0 +1,11 @@
+package com.library.bookrental.repositories;
+
+/**
+ * Decides which rental shard owns the rentals of a book.
+ */
+public interface RentalShardStrategy {
+
+    int shardFor(long bookId);
+
+    int shardCount();
+}
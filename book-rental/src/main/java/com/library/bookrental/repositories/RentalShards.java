@@ -0,0 +1,243 @@
+package com.library.bookrental.repositories;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * The rental shard DataSources together with the routing strategy. Rental ids stay unique
+ * across shards by allocating them in hi/lo blocks from a counter row on the primary
+ * database. Blocks are allocated through a pool of their own, so a request thread that
+ * already holds a primary connection never waits on the primary pool for an id.
+ */
+public class RentalShards implements AutoCloseable {
+
+    private static final String[] SHARD_SCHEMA = {
+            "create table if not exists rentals (rental_id bigint primary key, book_id bigint not null, " +
+                    "renter_name varchar(255), rental_date date, due_date date, return_date date, " +
+                    "overdue boolean default false not null, branch_id bigint default 1 not null)",
+            // Shards created before branches existed.
+            "alter table rentals add column if not exists branch_id bigint default 1 not null",
+            "create index if not exists idx_rentals_book on rentals (book_id, return_date)",
+            "create index if not exists idx_rentals_branch on rentals (branch_id, rental_id)",
+            "create index if not exists idx_rentals_due on rentals (return_date, due_date)"
+    };
+
+    private final List<HikariDataSource> dataSources;
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<TransactionTemplate> shardTransactions = new ArrayList<>();
+    private final RentalShardStrategy strategy;
+    private final HikariDataSource idDataSource;
+    private final JdbcTemplate primary;
+    private final TransactionTemplate allocationTransaction;
+    private final int idBlockSize;
+    private final ExecutorService fanOutExecutor;
+
+    private long nextId;
+    private long blockEnd;
+
+    public RentalShards(List<HikariDataSource> dataSources, RentalShardStrategy strategy,
+                        HikariDataSource idDataSource, int idBlockSize) {
+        if (dataSources.size() != strategy.shardCount()) {
+            throw new IllegalArgumentException("Strategy expects " + strategy.shardCount()
+                    + " shards but " + dataSources.size() + " are configured.");
+        }
+        this.dataSources = dataSources;
+        this.strategy = strategy;
+        this.idDataSource = idDataSource;
+        this.primary = new JdbcTemplate(idDataSource);
+        this.allocationTransaction = new TransactionTemplate(new DataSourceTransactionManager(idDataSource));
+        this.allocationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.idBlockSize = idBlockSize;
+        this.fanOutExecutor = Executors.newFixedThreadPool(dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable, "rental-shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (HikariDataSource dataSource : dataSources) {
+            JdbcTemplate shard = new JdbcTemplate(dataSource);
+            for (String ddl : SHARD_SCHEMA) {
+                shard.execute(ddl);
+            }
+            shards.add(shard);
+            shardTransactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        primary.execute("create table if not exists rental_id_blocks (id int primary key, next_block bigint not null)");
+    }
+
+    public RentalShardStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public JdbcTemplate shard(int index) {
+        return shards.get(index);
+    }
+
+    public int shardIndexFor(long bookId) {
+        return strategy.shardFor(bookId);
+    }
+
+    public JdbcTemplate shardFor(long bookId) {
+        return shards.get(strategy.shardFor(bookId));
+    }
+
+    public synchronized long nextRentalId() {
+        if (nextId >= blockEnd) {
+            long block = allocateBlock();
+            nextId = block * idBlockSize + 1;
+            blockEnd = nextId + idBlockSize;
+        }
+        return nextId++;
+    }
+
+    /**
+     * Moves the id counter past rentals that were written with explicit ids, e.g. by a
+     * snapshot restore, so later allocations cannot collide with them.
+     */
+    public synchronized void reserveIdsThrough(long rentalId) {
+        long nextBlock = (rentalId - 1) / idBlockSize + 1;
+        allocationTransaction.executeWithoutResult(status -> {
+            if (primary.update("update rental_id_blocks set next_block = greatest(next_block, ?) where id = 1",
+                    nextBlock) == 0) {
+                primary.update("insert into rental_id_blocks (id, next_block) values (1, ?)", nextBlock);
+            }
+        });
+        blockEnd = nextId;
+    }
+
+    /**
+     * Runs a query on every shard in parallel and concatenates the results in shard order.
+     */
+    public <T> List<T> fanOut(Function<JdbcTemplate, List<T>> query) {
+        List<CompletableFuture<List<T>>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), fanOutExecutor))
+                .toList();
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+
+    /**
+     * Like {@link #fanOut}, but runs the work on each shard inside a transaction of its own
+     * on that shard, so row locks taken by the work hold until it returns.
+     */
+    public <T> List<T> fanOutInTransaction(Function<JdbcTemplate, List<T>> work) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            JdbcTemplate shard = shards.get(i);
+            TransactionTemplate transaction = shardTransactions.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> transaction.execute(status -> work.apply(shard)),
+                    fanOutExecutor));
+        }
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+
+    /**
+     * Streams {@code sql} from every shard at once and passes the rows to {@code handler}
+     * merged by their first column, a long that each shard's query must return in ascending
+     * order. Only one row per shard is held at a time. Each shard reads inside a read-only
+     * transaction of its own, because drivers such as PostgreSQL ignore the fetch size under
+     * auto-commit and would load the whole result first.
+     */
+    public void streamMerged(String sql, int fetchSize, RowCallbackHandler handler, Object... args) {
+        List<Connection> connections = new ArrayList<>(dataSources.size());
+        try {
+            PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Comparator.comparingLong(ShardCursor::key));
+            for (HikariDataSource dataSource : dataSources) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                ResultSet rows = statement.executeQuery();
+                if (rows.next()) {
+                    cursors.add(new ShardCursor(rows, rows.getLong(1)));
+                }
+            }
+            ShardCursor cursor;
+            while ((cursor = cursors.poll()) != null) {
+                handler.processRow(cursor.rows());
+                if (cursor.rows().next()) {
+                    cursors.add(new ShardCursor(cursor.rows(), cursor.rows().getLong(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw shards.get(0).getExceptionTranslator().translate("streamMerged", sql, e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.rollback();
+                    connection.setReadOnly(false);
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    // The connection is closed below either way; the pool discards broken ones.
+                }
+                JdbcUtils.closeConnection(connection);
+            }
+        }
+    }
+
+    private record ShardCursor(ResultSet rows, long key) {
+    }
+
+    public int fanOutUpdate(Function<JdbcTemplate, Integer> update) {
+        return fanOut(shard -> List.of(update.apply(shard))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private long allocateBlock() {
+        while (true) {
+            try {
+                Long block = allocationTransaction.execute(status -> {
+                    if (primary.update("update rental_id_blocks set next_block = next_block + 1 where id = 1") == 0) {
+                        primary.update("insert into rental_id_blocks (id, next_block) values (1, 1)");
+                        return 0L;
+                    }
+                    return primary.queryForObject("select next_block - 1 from rental_id_blocks where id = 1", Long.class);
+                });
+                return block;
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the counter row first; take the next block from it.
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        fanOutExecutor.shutdownNow();
+        dataSources.forEach(HikariDataSource::close);
+        idDataSource.close();
+    }
+}
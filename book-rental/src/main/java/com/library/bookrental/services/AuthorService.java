@@ -1,70 +1,198 @@
 package com.library.bookrental.services;
 
 import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.AuthorView;
+import com.library.bookrental.exceptions.AuthorInUseException;
 import com.library.bookrental.exceptions.AuthorNotFoundException;
+import com.library.bookrental.filters.BranchContextFilter;
 import com.library.bookrental.models.Author;
+import com.library.bookrental.models.Book;
 import com.library.bookrental.repositories.AuthorRepository;
+import com.library.bookrental.repositories.BookRepository;
+import com.library.bookrental.repositories.RentalRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 public class AuthorService {
 
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
     @Autowired
     private AuthorRepository authorRepository;
 
-    public List<AuthorDTO> getAllAuthors() {
-        List<Author> authors = authorRepository.findAll();
-        return authors.stream()
-                .map(AuthorDTO::new)
-                .toList();
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookrental.authors.bulk-chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Transactional(readOnly = true)
+    public List<AuthorView> getAllAuthors() {
+        return authorRepository.findAllViews();
+    }
+
+    @Transactional(readOnly = true)
+    public List<AuthorView> getAuthorsAfter(long afterId, int limit) {
+        return authorRepository.findViewsAfter(afterId, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AuthorView> getAuthorsByIds(Collection<Long> authorIds) {
+        return authorIds.isEmpty() ? List.of() : authorRepository.findViewsByAuthorIdIn(authorIds);
     }
 
     public AuthorDTO addAuthor(AuthorDTO authorDTO) {
-        try {
-            Author author = new Author();
-            author.setName(authorDTO.getName());
-            author.setBiography(authorDTO.getBiography());
-            Author savedAuthor = authorRepository.save(author);
-            return new AuthorDTO(savedAuthor);
-        } catch (Exception e) {
-            log.error("An error occurred while adding the author: {}", e.getMessage());
-            throw e;
-        }
+        Author author = new Author();
+        author.setName(authorDTO.getName());
+        author.setBiography(authorDTO.getBiography());
+        Author savedAuthor = authorRepository.save(author);
+        return new AuthorDTO(savedAuthor);
     }
 
     public AuthorDTO updateAuthor(Long id, AuthorDTO authorDTO) {
-        try {
-            Author author = authorRepository.findById(id)
-                    .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + id));
-            author.setName(authorDTO.getName());
-            author.setBiography(authorDTO.getBiography());
-            Author updatedAuthor = authorRepository.save(author);
-            return new AuthorDTO(updatedAuthor);
-        } catch (AuthorNotFoundException e) {
-            log.error("Author not found while updating author: {}", e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("An error occurred while updating the author: {}", e.getMessage());
-            throw e;
+        Author author = authorRepository.findById(id)
+                .filter(existing -> BranchContextFilter.isVisible(existing.getBranchId()))
+                .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + id));
+        author.setName(authorDTO.getName());
+        author.setBiography(authorDTO.getBiography());
+        Author updatedAuthor = authorRepository.save(author);
+        entityCacheService.authorChanged(id);
+        return new AuthorDTO(updatedAuthor);
+    }
+
+    /**
+     * Creates or updates authors matched by name. Each chunk is resolved with one IN query
+     * and written with JDBC batches in its own transaction, so large catalog loads neither
+     * go through the persistence context nor hold one long transaction.
+     */
+    public Map<String, Integer> upsertAuthors(List<AuthorDTO> authorDTOs) {
+        Map<String, AuthorDTO> byName = new LinkedHashMap<>();
+        for (AuthorDTO authorDTO : authorDTOs) {
+            if (authorDTO.getName() != null) {
+                byName.put(authorDTO.getName(), authorDTO);
+            }
+        }
+        List<AuthorDTO> unique = new ArrayList<>(byName.values());
+
+        int inserted = 0;
+        int updated = 0;
+        for (int from = 0; from < unique.size(); from += bulkChunkSize) {
+            List<AuthorDTO> chunk = unique.subList(from, Math.min(from + bulkChunkSize, unique.size()));
+            int[] counts = upsertChunkWithRetry(chunk);
+            inserted += counts[0];
+            updated += counts[1];
+        }
+        if (updated > 0) {
+            entityCacheService.authorsRewritten();
+        }
+        log.info("Bulk upsert of authors finished: {} inserted, {} updated.", inserted, updated);
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("inserted", inserted);
+        result.put("updated", updated);
+        return result;
+    }
+
+    /**
+     * A concurrent upsert can insert one of the chunk's names between the lookup and the
+     * insert. The unique (branch_id, name) constraint rejects the duplicate and the chunk is
+     * run again, this time finding the other upsert's row and updating it.
+     */
+    private int[] upsertChunkWithRetry(List<AuthorDTO> chunk) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> upsertChunk(chunk));
+            } catch (DuplicateKeyException e) {
+                if (attempt >= MAX_UPSERT_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Bulk upsert chunk raced another upsert, retrying (attempt {}).", attempt + 1);
+            }
         }
     }
 
-    public void deleteAuthor(Long id) {
-        try {
-            Author author = authorRepository.findById(id)
-                    .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + id));
-            authorRepository.delete(author);
-        } catch (AuthorNotFoundException e) {
-            log.error("Author not found while deleting author: {}", e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("An error occurred while deleting the author: {}", e.getMessage());
-            throw e;
+    private int[] upsertChunk(List<AuthorDTO> chunk) {
+        // Names are matched within the branch: the lookup below goes through the branch filter.
+        long branchId = BranchContextFilter.currentBranchIdOrDefault();
+        Map<String, Long> existingIds = new LinkedHashMap<>();
+        for (Author author : authorRepository.findByNameIn(chunk.stream().map(AuthorDTO::getName).toList())) {
+            existingIds.putIfAbsent(author.getName(), author.getAuthorId());
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (AuthorDTO authorDTO : chunk) {
+            Long existingId = existingIds.get(authorDTO.getName());
+            if (existingId == null) {
+                inserts.add(new Object[]{authorDTO.getName(), authorDTO.getBiography(), branchId});
+            } else {
+                updates.add(new Object[]{authorDTO.getBiography(), existingId});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into authors (name, biography, branch_id) values (?, ?, ?)", inserts);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update authors set biography = ? where author_id = ?", updates);
+        }
+        return new int[]{inserts.size(), updates.size()};
+    }
+
+    /**
+     * Deletes an author together with their books, using one bulk statement per table. The
+     * author's books are locked first, so a rent racing the delete either finishes before
+     * the check or finds the book gone. Authors with a book currently rented out are
+     * refused, and so are authors whose books have rental history unless the caller asks
+     * for that history to be purged as well.
+     */
+    @Transactional
+    public void deleteAuthor(Long id, boolean purgeRentalHistory) {
+        // Loads by id and the bulk deletes below are not filtered by branch.
+        authorRepository.findById(id)
+                .filter(existing -> BranchContextFilter.isVisible(existing.getBranchId()))
+                .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + id));
+        List<Book> books = bookRepository.findByAuthorIdForUpdate(id);
+        if (books.stream().anyMatch(book -> !book.isAvailable())) {
+            throw new AuthorInUseException("Author with ID " + id + " has books that are currently rented.");
+        }
+        if (!purgeRentalHistory && rentalRepository.existsByBookAuthorId(id)) {
+            throw new AuthorInUseException("Author with ID " + id + " has books with rental history.");
         }
+        int rentals = purgeRentalHistory ? rentalRepository.deleteByBookAuthorId(id) : 0;
+        int deleted = bookRepository.deleteByAuthorId(id);
+        authorRepository.deleteById(id);
+        bookService.onCatalogChanged();
+        entityCacheService.authorChanged(id);
+        log.info("Author {} deleted with {} books and {} rentals.", id, deleted, rentals);
     }
 }
@@ -0,0 +1,100 @@
+package com.library.bookrental.services;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A renter waiting in a book's hold queue. The status only moves forward through CAS,
+ * so a hold can be claimed by a return or cancelled by its renter, never both. The
+ * fulfilment future completes once the hold is settled, fulfilled or cancelled.
+ */
+public class BookHold {
+
+    public enum Status {
+        WAITING,
+        CLAIMED,
+        FULFILLED,
+        CANCELLED
+    }
+
+    private final long holdId;
+    private final Long bookId;
+    private final Long branchId;
+    private final String renterName;
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.WAITING);
+    private final CompletableFuture<BookHold> fulfilment = new CompletableFuture<>();
+    private volatile Long rentalId;
+    private volatile Instant settledAt;
+
+    BookHold(long holdId, Long bookId, Long branchId, String renterName) {
+        this.holdId = holdId;
+        this.bookId = bookId;
+        this.branchId = branchId;
+        this.renterName = renterName;
+    }
+
+    boolean claim() {
+        return status.compareAndSet(Status.WAITING, Status.CLAIMED);
+    }
+
+    boolean release() {
+        return status.compareAndSet(Status.CLAIMED, Status.WAITING);
+    }
+
+    boolean cancel() {
+        if (!status.compareAndSet(Status.WAITING, Status.CANCELLED)) {
+            return false;
+        }
+        settledAt = Instant.now();
+        fulfilment.complete(this);
+        return true;
+    }
+
+    void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+
+    void fulfil(Long rentalId) {
+        this.rentalId = rentalId;
+        if (status.compareAndSet(Status.CLAIMED, Status.FULFILLED)) {
+            settledAt = Instant.now();
+            fulfilment.complete(this);
+        }
+    }
+
+    public long getHoldId() {
+        return holdId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getBranchId() {
+        return branchId;
+    }
+
+    public String getRenterName() {
+        return renterName;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    /**
+     * When the hold was fulfilled or cancelled, or null while it is still queued.
+     */
+    Instant getSettledAt() {
+        return settledAt;
+    }
+
+    public CompletableFuture<BookHold> getFulfilment() {
+        return fulfilment;
+    }
+}
@@ -0,0 +1,195 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.exceptions.BookNotFoundException;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.models.Book;
+import com.library.bookrental.repositories.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * First-come, first-served hold queues for rented books. Queues are lock-free deques,
+ * so placing, cancelling and claiming a hold are all O(1); cancelled holds are skipped
+ * lazily when the next holder is claimed. Holds are placed under the book's row lock,
+ * the same lock rents and returns take, so a hold can never be queued on a book that
+ * a concurrent return is putting back on the shelf. Settled holds nobody came back for
+ * are purged after a retention period.
+ * <p>
+ * The queues live in this node's memory only, so holds are refused in cluster mode, where
+ * the return that should hand the book over may be served by another node.
+ */
+@Service
+@Slf4j
+public class BookHoldService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final Map<Long, Deque<BookHold>> queuesByBook = new ConcurrentHashMap<>();
+    private final Map<Long, BookHold> holdsById = new ConcurrentHashMap<>();
+    private final AtomicLong holdSequence = new AtomicLong();
+
+    @Value("${bookrental.holds.settled-retention-seconds:3600}")
+    private long settledRetentionSeconds;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    /**
+     * Whether holds can be placed on this node, which is not the case in cluster mode.
+     */
+    public boolean isEnabled() {
+        return !clusterEnabled;
+    }
+
+    /**
+     * Queues a renter for a rented book. A book on the shelf cannot be held, it should be
+     * rented instead, so an empty result is returned for it.
+     */
+    @Transactional
+    public Optional<BookHold> placeHold(Long bookId, String renterName) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Holds are not available in cluster mode.");
+        }
+        Book book = bookRepository.findByIdForUpdate(bookId)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+        if (book.isAvailable()) {
+            return Optional.empty();
+        }
+        BookHold hold = new BookHold(holdSequence.incrementAndGet(), bookId, book.getBranchId(), renterName);
+        holdsById.put(hold.getHoldId(), hold);
+        queuesByBook.compute(bookId, (id, queue) -> {
+            Deque<BookHold> target = queue != null ? queue : new ConcurrentLinkedDeque<>();
+            target.offerLast(hold);
+            return target;
+        });
+        log.info("Hold {} placed on book {} for {}.", hold.getHoldId(), bookId, renterName);
+        return Optional.of(hold);
+    }
+
+    /**
+     * Finds a hold on a book, as long as the book belongs to the caller's branch.
+     */
+    public Optional<BookHold> findHold(Long bookId, long holdId) {
+        BookHold hold = holdsById.get(holdId);
+        return hold != null && hold.getBookId().equals(bookId) && BranchContextFilter.isVisible(hold.getBranchId())
+                ? Optional.of(hold) : Optional.empty();
+    }
+
+    public boolean cancelHold(Long bookId, long holdId) {
+        Optional<BookHold> hold = findHold(bookId, holdId);
+        if (hold.isPresent() && hold.get().cancel()) {
+            holdsById.remove(holdId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets a fulfilled hold once its renter has seen the outcome.
+     */
+    public void acknowledge(BookHold hold) {
+        if (hold.getStatus() == BookHold.Status.FULFILLED) {
+            holdsById.remove(hold.getHoldId());
+        }
+    }
+
+    /**
+     * Claims the next waiting holder of a book. Must be called inside the transaction that
+     * hands the book over: the holder is only notified once that transaction commits, and
+     * goes back to the head of the queue if it rolls back.
+     */
+    public Optional<BookHold> claimNext(Long bookId) {
+        Deque<BookHold> queue = queuesByBook.get(bookId);
+        if (queue == null) {
+            return Optional.empty();
+        }
+        BookHold hold;
+        while ((hold = queue.pollFirst()) != null) {
+            if (hold.claim()) {
+                registerCompletion(queue, hold);
+                return Optional.of(hold);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Forgets holds settled longer than the retention period ago, and drops cancelled
+     * holds and empty queues left behind by books nobody is waiting for any more.
+     */
+    @Scheduled(fixedDelayString = "${bookrental.holds.purge-interval-ms:600000}")
+    public void purgeSettled() {
+        int purged = purgeSettledBefore(Instant.now().minusSeconds(settledRetentionSeconds));
+        if (purged > 0) {
+            log.info("Purged {} settled holds.", purged);
+        }
+    }
+
+    int purgeSettledBefore(Instant cutoff) {
+        int purged = 0;
+        for (BookHold hold : holdsById.values()) {
+            Instant settledAt = hold.getSettledAt();
+            if (settledAt != null && settledAt.isBefore(cutoff) && holdsById.remove(hold.getHoldId(), hold)) {
+                purged++;
+            }
+        }
+        for (Long bookId : queuesByBook.keySet()) {
+            queuesByBook.computeIfPresent(bookId, (id, queue) -> {
+                queue.removeIf(hold -> hold.getStatus() == BookHold.Status.CANCELLED);
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+        return purged;
+    }
+
+    int queuedHolds(Long bookId) {
+        Deque<BookHold> queue = queuesByBook.get(bookId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    int trackedHolds() {
+        return holdsById.size();
+    }
+
+    private void registerCompletion(Deque<BookHold> queue, BookHold hold) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    hold.fulfil(hold.getRentalId());
+                } else if (hold.release()) {
+                    queuesByBook.compute(hold.getBookId(), (id, current) -> {
+                        Deque<BookHold> target = current != null ? current : queue;
+                        target.offerFirst(hold);
+                        return target;
+                    });
+                }
+            }
+        });
+    }
+
+    public void assignRental(BookHold hold, Long rentalId) {
+        hold.setRentalId(rentalId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            hold.fulfil(rentalId);
+        }
+    }
+}
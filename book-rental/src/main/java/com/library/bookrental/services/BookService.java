@@ -1,30 +1,52 @@
 package com.library.bookrental.services;
 
+import com.library.bookrental.config.ReadYourWritesTracker;
+import com.library.bookrental.dto.BookColumns;
 import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.BookPageDTO;
+import com.library.bookrental.dto.BookSearchCriteria;
+import com.library.bookrental.dto.BookView;
 import com.library.bookrental.exceptions.AuthorNotFoundException;
 import com.library.bookrental.exceptions.BookNotFoundException;
-import com.library.bookrental.exceptions.RentalNotFoundException;
+import com.library.bookrental.filters.BranchContextFilter;
 import com.library.bookrental.models.Author;
 import com.library.bookrental.models.Book;
 import com.library.bookrental.models.Rental;
 import com.library.bookrental.repositories.AuthorRepository;
 import com.library.bookrental.repositories.BookRepository;
+import com.library.bookrental.repositories.BookSpecifications;
 import com.library.bookrental.repositories.RentalRepository;
+import com.library.bookrental.utils.SingleFlight;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Service
 @Slf4j
 public class BookService {
 
-    private static final int RENTAL_PERIOD_DAYS = 14;
-
     @Autowired
     private BookRepository bookRepository;
 
@@ -34,13 +56,124 @@ public class BookService {
     @Autowired
     private RentalRepository rentalRepository;
 
-    public List<BookDTO> getAllBooks() {
-        List<Book> books = bookRepository.findAll();
-        return books.stream().map(BookDTO::new).toList();
+    @Autowired
+    private RentalDueDateScheduler rentalDueDateScheduler;
+
+    @Autowired
+    private BookHoldService bookHoldService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RentalIntervalService rentalIntervalService;
+
+    @Autowired
+    private ObjectProvider<ReadYourWritesTracker> readYourWritesTracker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookrental.rental.overdue-sweep-batch-size:500}")
+    private int overdueSweepBatchSize;
+
+    @Value("${bookrental.coalescing.available-for-rent:true}")
+    private boolean coalesceAvailableForRent;
+
+    @Value("${bookrental.coalescing.books-by-author:true}")
+    private boolean coalesceBooksByAuthor;
+
+    /**
+     * Bumped after every catalog write. Coalescing keys include it, so a read that starts
+     * after a write never joins a query that was issued before it.
+     */
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    private final SingleFlight<String, List<BookView>> listingFlights = new SingleFlight<>();
+
+    /** Rent and return requests by {@link RentalOutcome}, indexed by ordinal. */
+    private final AtomicLongArray rentalOutcomes = new AtomicLongArray(RentalOutcome.values().length);
+
+    private static final int MAX_SEARCH_LIMIT = 500;
+
+    /** Starts the sort value in a search cursor. */
+    private static final char CURSOR_VALUE_MARKER = '=';
+
+    private static final int MAX_COLUMNS_LIMIT = 100_000;
+
+    private static final String CATALOG_TOPIC = "catalog";
+
+    private static final String BOOK_PREFIX = "book:";
+
+    @PostConstruct
+    public void subscribeToCatalogChanges() {
+        clusterEventBus.subscribe(CATALOG_TOPIC, payload -> {
+            catalogVersion.incrementAndGet();
+            if (payload.startsWith(BOOK_PREFIX)) {
+                entityCacheService.evictBook(Long.valueOf(payload.substring(BOOK_PREFIX.length())));
+            } else {
+                entityCacheService.evictBooks();
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> getAllBooks() {
+        return bookRepository.findAllViews();
+    }
+
+    /**
+     * Returns up to {@code limit} books with ids above {@code afterId} as a columnar page.
+     * Rows are copied from the result set straight into the column arrays, so no per-row
+     * object is created besides the strings.
+     */
+    @Transactional(readOnly = true)
+    public BookColumns getBookColumns(long afterId, int limit) {
+        int capacity = Math.max(1, Math.min(limit, MAX_COLUMNS_LIMIT));
+        long[] bookIds = new long[capacity];
+        String[] titles = new String[capacity];
+        String[] isbns = new String[capacity];
+        int[] publicationYears = new int[capacity];
+        long[] authorIds = new long[capacity];
+        boolean[] available = new boolean[capacity];
+        int[] size = new int[1];
+
+        // Plain JDBC is not covered by the Hibernate branch filter.
+        jdbcTemplate.query("select book_id, title, isbn, publication_year, author_id, available from books "
+                + "where branch_id = ? and book_id > ? order by book_id fetch first ? rows only", rs -> {
+            int row = size[0]++;
+            bookIds[row] = rs.getLong(1);
+            titles[row] = rs.getString(2);
+            isbns[row] = rs.getString(3);
+            publicationYears[row] = rs.getInt(4);
+            authorIds[row] = rs.getLong(5);
+            available[row] = rs.getBoolean(6);
+        }, BranchContextFilter.currentBranchIdOrDefault(), afterId, capacity);
+
+        int rows = size[0];
+        Long nextAfterId = rows == capacity ? bookIds[rows - 1] : null;
+        if (rows < capacity) {
+            return new BookColumns(rows, Arrays.copyOf(bookIds, rows), Arrays.copyOf(titles, rows),
+                    Arrays.copyOf(isbns, rows), Arrays.copyOf(publicationYears, rows), Arrays.copyOf(authorIds, rows),
+                    Arrays.copyOf(available, rows), nextAfterId);
+        }
+        return new BookColumns(rows, bookIds, titles, isbns, publicationYears, authorIds, available, nextAfterId);
     }
 
     public BookDTO addBook(BookDTO bookDTO) {
-        Author author = authorRepository.findById(bookDTO.getAuthorId())
+        Author author = findAuthorInBranch(bookDTO.getAuthorId())
                 .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + bookDTO.getAuthorId()));
 
         Book book = new Book();
@@ -50,24 +183,27 @@ public class BookService {
         book.setAuthor(author);
 
         Book savedBook = bookRepository.save(book);
+        catalogChanged(savedBook.getBookId());
         log.info("Book added: {}", savedBook);
         return new BookDTO(savedBook);
     }
 
     public BookDTO updateBook(Long id, BookDTO bookDTO) {
-        Optional<Book> optionalBook = bookRepository.findById(id);
+        Optional<Book> optionalBook = bookRepository.findById(id)
+                .filter(book -> BranchContextFilter.isVisible(book.getBranchId()));
         if (optionalBook.isPresent()) {
             Book book = optionalBook.get();
             book.setTitle(bookDTO.getTitle());
             book.setIsbn(bookDTO.getIsbn());
             book.setPublicationYear(bookDTO.getPublicationYear());
 
-            Author author = authorRepository.findById(bookDTO.getAuthorId())
+            Author author = findAuthorInBranch(bookDTO.getAuthorId())
                     .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + bookDTO.getAuthorId()));
 
             book.setAuthor(author);
 
             Book updatedBook = bookRepository.save(book);
+            catalogChanged(id);
             log.info("Book updated: {}", updatedBook);
             return new BookDTO(updatedBook);
         } else {
@@ -76,80 +212,315 @@ public class BookService {
     }
 
     public void deleteBook(Long id) {
-        if (bookRepository.existsById(id)) {
-            bookRepository.deleteById(id);
-        } else {
-            throw new BookNotFoundException("Book not found with ID: " + id);
-        }
+        // Loads by id are not filtered by branch.
+        Book book = bookRepository.findById(id)
+                .filter(existing -> BranchContextFilter.isVisible(existing.getBranchId()))
+                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + id));
+        bookRepository.delete(book);
+        catalogChanged(id);
         log.info("Book deleted with ID: {}", id);
     }
 
-    public List<BookDTO> getBooksByAuthor(Long authorId) {
-        Author author = authorRepository.findById(authorId)
-                .orElseThrow(() -> new AuthorNotFoundException("Author not found with ID: " + authorId));
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksByAuthor(Long authorId) {
+        if (!coalesceBooksByAuthor || pinnedToPrimary()) {
+            return loadBooksByAuthor(authorId);
+        }
+        return listingFlights.execute(branchKey() + "byAuthor:" + authorId + "@" + catalogVersion.get(),
+                () -> loadBooksByAuthor(authorId));
+    }
 
-        List<Book> books = bookRepository.findByAuthor(author);
-        return books.stream().map(BookDTO::new).toList();
+    private List<BookView> loadBooksByAuthor(Long authorId) {
+        // findById rather than existsById, which always queries: authors are in the second-level cache.
+        if (findAuthorInBranch(authorId).isEmpty()) {
+            throw new AuthorNotFoundException("Author not found with ID: " + authorId);
+        }
+        return bookRepository.findViewsByAuthorId(authorId);
     }
 
-    public List<BookDTO> getBooksAvailableForRent() {
-        List<Book> availableBooks = bookRepository.findByAvailableTrue();
-        return availableBooks.stream().map(BookDTO::new).toList();
+    /**
+     * Loads by id skip the branch filter, so the author's branch is checked here.
+     */
+    private Optional<Author> findAuthorInBranch(Long authorId) {
+        return authorRepository.findById(authorId)
+                .filter(author -> BranchContextFilter.isVisible(author.getBranchId()));
     }
 
-    public List<BookDTO> getBooksCurrentlyRented() {
-        List<Book> rentedBooks = bookRepository.findByAvailableFalse();
-        return rentedBooks.stream().map(BookDTO::new).toList();
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksAvailableForRent() {
+        if (!coalesceAvailableForRent || pinnedToPrimary()) {
+            return loadBooksAvailableForRent();
+        }
+        return listingFlights.execute(branchKey() + "availableForRent@" + catalogVersion.get(),
+                this::loadBooksAvailableForRent);
     }
 
-    public void rentBook(Long bookId, String renterName) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+    private List<BookView> loadBooksAvailableForRent() {
+        return bookRepository.findViewsByAvailable(true);
+    }
 
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksCurrentlyRented() {
+        return bookRepository.findViewsByAvailable(false);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksAfter(long afterId, int limit) {
+        return bookRepository.findViewsAfter(afterId, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksByIds(Collection<Long> bookIds) {
+        return bookIds.isEmpty() ? List.of() : bookRepository.findViewsByBookIdIn(bookIds);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksByAuthorIds(Collection<Long> authorIds) {
+        return authorIds.isEmpty() ? List.of() : bookRepository.findViewsByAuthorIdIn(authorIds);
+    }
+
+    /**
+     * Filters, sorts and pages books in a single query. Paging is keyset based: the cursor
+     * holds the sort value and id of the last row returned, so deep pages cost the same as
+     * the first one. Untitled books have an empty title and come first in ascending order.
+     */
+    @Transactional(readOnly = true)
+    public BookPageDTO searchBooks(BookSearchCriteria criteria) {
+        String sortField = switch (criteria.getSort()) {
+            case "title", "publicationYear", "bookId" -> criteria.getSort();
+            default -> throw new IllegalArgumentException("Unsupported sort field: " + criteria.getSort());
+        };
+        boolean ascending = !"desc".equalsIgnoreCase(criteria.getDirection());
+        int limit = Math.max(1, Math.min(criteria.getLimit(), MAX_SEARCH_LIMIT));
+
+        Specification<Book> specification = Specification.where(BookSpecifications.fetchAuthor())
+                .and(BookSpecifications.hasAuthor(criteria.getAuthorId()))
+                .and(BookSpecifications.isAvailable(criteria.getAvailable()))
+                .and(BookSpecifications.publishedFrom(criteria.getMinYear()))
+                .and(BookSpecifications.publishedUntil(criteria.getMaxYear()))
+                .and(BookSpecifications.titleStartsWith(criteria.getTitlePrefix()))
+                .and(afterCursor(sortField, criteria.getCursor(), ascending))
+                .and(BookSpecifications.orderedBy(sortField, ascending));
+
+        List<Book> books = bookRepository.findBy(specification, query -> query.limit(limit + 1).all());
+        boolean hasMore = books.size() > limit;
+        List<Book> page = hasMore ? books.subList(0, limit) : books;
+        String nextCursor = hasMore ? encodeCursor(sortField, page.get(page.size() - 1)) : null;
+        return new BookPageDTO(page.stream().map(BookDTO::new).toList(), nextCursor);
+    }
+
+    private static Specification<Book> afterCursor(String sortField, String cursor, boolean ascending) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        int separator = decoded.lastIndexOf('|');
+        if (separator <= 0 || decoded.charAt(0) != CURSOR_VALUE_MARKER) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        String value = decoded.substring(1, separator);
+        Long lastId = Long.valueOf(decoded.substring(separator + 1));
+        return switch (sortField) {
+            case "title" -> BookSpecifications.after(sortField, value, lastId, ascending);
+            case "publicationYear" -> BookSpecifications.after(sortField, Integer.valueOf(value), lastId, ascending);
+            default -> BookSpecifications.after(sortField, lastId, lastId, ascending);
+        };
+    }
+
+    private static String encodeCursor(String sortField, Book last) {
+        Object value = switch (sortField) {
+            case "title" -> last.getTitle();
+            case "publicationYear" -> last.getPublicationYear();
+            default -> last.getBookId();
+        };
+        String raw = CURSOR_VALUE_MARKER + value.toString() + "|" + last.getBookId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Rents a book if it is available. Both failures are decided before anything is written,
+     * so they leave the transaction clean. Renters holding the book come first: if one is
+     * still waiting, the book goes to them and the walk-in renter is turned away.
+     */
+    @Transactional
+    public RentalOutcome rentBook(Long bookId, String renterName) {
+        Optional<Book> found = bookRepository.findByIdForUpdate(bookId);
+        if (found.isEmpty()) {
+            return outcome(RentalOutcome.BOOK_NOT_FOUND);
+        }
+        Book book = found.get();
         if (!book.isAvailable()) {
-            throw new RuntimeException("Book is already rented.");
+            return outcome(RentalOutcome.ALREADY_RENTED);
+        }
+
+        Optional<BookHold> nextHold = bookHoldService.claimNext(bookId);
+        if (nextHold.isPresent()) {
+            handOver(book, nextHold.get());
+        } else {
+            createRental(book, renterName);
+        }
+
+        book.setAvailable(false);
+        bookRepository.save(book);
+        catalogChanged(bookId);
+        return outcome(nextHold.isPresent() ? RentalOutcome.ALREADY_RENTED : RentalOutcome.RENTED);
+    }
+
+    /**
+     * Closes the active rental of a book. If renters are holding the book it is handed
+     * straight to the first of them within the same transaction and stays unavailable.
+     */
+    @Transactional
+    public RentalOutcome returnBook(Long bookId) {
+        Optional<Book> found = bookRepository.findByIdForUpdate(bookId);
+        if (found.isEmpty()) {
+            return outcome(RentalOutcome.BOOK_NOT_FOUND);
+        }
+        Book book = found.get();
+        Optional<Object> active = rentalRepository.findFirstByBookBookIdAndReturnDateIsNull(bookId);
+        if (active.isEmpty()) {
+            return outcome(RentalOutcome.NOT_RENTED);
+        }
+        Rental rental = (Rental) active.get();
+
+        rental.setReturnDate(LocalDate.now());
+        rentalRepository.save(rental);
+        outboxService.recordBookReturned(rental);
+        rentalDueDateScheduler.cancel(rental.getRentalId());
+        rentalIntervalService.rentalEnded(rental);
+
+        Optional<BookHold> nextHold = bookHoldService.claimNext(bookId);
+        if (nextHold.isPresent()) {
+            handOver(book, nextHold.get());
+        } else {
+            book.setAvailable(true);
+            bookRepository.save(book);
         }
+        catalogChanged(bookId);
+        return outcome(RentalOutcome.RETURNED);
+    }
+
+    private void handOver(Book book, BookHold hold) {
+        Rental handoff = createRental(book, hold.getRenterName());
+        bookHoldService.assignRental(hold, handoff.getRentalId());
+        log.info("Book {} handed over to hold {}.", book.getBookId(), hold.getHoldId());
+    }
 
+    private Rental createRental(Book book, String renterName) {
         Rental rental = new Rental();
         rental.setBook(book);
         rental.setRenterName(renterName);
         rental.setRentalDate(LocalDate.now());
+        rental.setDueDate(rentalDueDateScheduler.dueDateFor(rental.getRentalDate()));
 
-        rentalRepository.save(rental);
-
-        book.setAvailable(false);
-        bookRepository.save(book);
+        Rental savedRental = rentalRepository.save(rental);
+        rentalDueDateScheduler.schedule(savedRental);
+        recommendationService.recordRental(book.getBookId(), savedRental.getBranchId(), renterName);
+        rentalIntervalService.rentalStarted(savedRental);
+        return savedRental;
     }
 
-    public void returnBook(Long bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+    /**
+     * Called by writers outside this service that change the book catalog.
+     */
+    public void onCatalogChanged() {
+        catalogChanged();
+    }
 
-        Rental rental = (Rental) rentalRepository.findFirstByBookBookIdAndReturnDateIsNull(bookId)
-                .orElseThrow(() -> new RentalNotFoundException("No active rental found for book with ID: " + bookId));
+    /**
+     * A client that just wrote reads from the primary until the replica has caught up. A
+     * flight led by another client may have read the replica, so such a client must not
+     * join one and loads on its own instead.
+     */
+    private boolean pinnedToPrimary() {
+        ReadYourWritesTracker tracker = readYourWritesTracker.getIfAvailable();
+        return tracker != null && tracker.mustReadFromPrimary();
+    }
 
-        rental.setReturnDate(LocalDate.now());
-        rentalRepository.save(rental);
+    /**
+     * Coalesced reads run with the branch of the caller that issued them, so only callers
+     * of the same branch may share one.
+     */
+    private static String branchKey() {
+        return "branch:" + BranchContextFilter.currentBranchId() + "/";
+    }
 
-        book.setAvailable(true);
-        bookRepository.save(book);
+    private void catalogChanged() {
+        catalogChanged("");
     }
 
-    public void checkForOverdueRentals() {
-        List<Rental> rentals = rentalRepository.findAll();
-        LocalDate currentDate = LocalDate.now();
+    /**
+     * A write to a single book. Other nodes only drop that book and the by-author listings
+     * instead of every cached book.
+     */
+    private void catalogChanged(Long bookId) {
+        catalogChanged(BOOK_PREFIX + bookId);
+    }
 
-        for (Rental rental : rentals) {
-            LocalDate rentalDate = rental.getRentalDate();
-            LocalDate dueDate = rentalDate.plusDays(RENTAL_PERIOD_DAYS);
+    /**
+     * Moves listings to a new catalog version before the write commits and again after it,
+     * then tells the other nodes. A flight that started before the commit may have read the
+     * old rows, so callers arriving after the commit must not join it.
+     */
+    private void catalogChanged(String payload) {
+        catalogVersion.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    catalogVersion.incrementAndGet();
+                    clusterEventBus.publish(CATALOG_TOPIC, payload);
+                }
+            });
+        } else {
+            clusterEventBus.publish(CATALOG_TOPIC, payload);
+        }
+    }
 
-            if (currentDate.isAfter(dueDate)) {
-                // Mark the rental as overdue
-                rental.setOverdue(true);
-                rentalRepository.save(rental);
+    private RentalOutcome outcome(RentalOutcome outcome) {
+        rentalOutcomes.incrementAndGet(outcome.ordinal());
+        return outcome;
+    }
 
-            }
+    public Map<String, Long> getRentalOutcomeMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        for (RentalOutcome outcome : RentalOutcome.values()) {
+            metrics.put(outcome.name(), rentalOutcomes.get(outcome.ordinal()));
         }
+        return metrics;
+    }
+
+    public Map<String, Long> getCoalescingMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("executions", listingFlights.getExecutions());
+        metrics.put("shared", listingFlights.getShared());
+        metrics.put("catalogVersion", catalogVersion.get());
+        return metrics;
+    }
+
+    /**
+     * Sweeps every active rental past its due date, one batch per transaction so neither
+     * the rows nor their locks pile up. Overdue transitions normally come from
+     * {@link RentalDueDateScheduler}; this remains as a manual catch-up.
+     */
+    public void checkForOverdueRentals() {
+        LocalDate today = LocalDate.now();
+        int marked = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<Rental> overdue = rentalRepository.markOverdueDueBefore(today, overdueSweepBatchSize);
+                outboxService.recordRentalsOverdue(overdue);
+                return overdue.size();
+            });
+            marked += batch;
+        } while (batch > 0);
+        log.info("Marked {} rentals as overdue.", marked);
     }
 
 }
@@ -0,0 +1,126 @@
+package com.library.bookrental.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations between nodes through the shared database. Events are
+ * appended to {@code cluster_events} and every node polls for new ids, skipping its own.
+ * Identity values can commit out of order, so the polling floor only moves past events
+ * older than a grace period and ids above it are de-duplicated in memory.
+ * Without cluster mode publishing is a no-op.
+ */
+@Service
+@Slf4j
+public class ClusterEventBus {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${bookrental.cluster.event-retention-ms:600000}")
+    private long eventRetentionMillis;
+
+    @Value("${bookrental.cluster.event-grace-ms:5000}")
+    private long eventGraceMillis;
+
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Long> dispatchedAboveFloor = ConcurrentHashMap.newKeySet();
+    private volatile long floorEventId = -1;
+
+    public boolean isClusterEnabled() {
+        return clusterEnabled;
+    }
+
+    public void subscribe(String topic, Consumer<String> listener) {
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void publish(String topic, String payload) {
+        if (!clusterEnabled) {
+            return;
+        }
+        jdbcTemplate.update("insert into cluster_events (origin_node, topic, payload, created_at) values (?, ?, ?, ?)",
+                clusterLeaseService.getNodeId(), topic, payload, Timestamp.from(Instant.now()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (clusterEnabled) {
+            Long maxId = jdbcTemplate.queryForObject("select max(event_id) from cluster_events", Long.class);
+            floorEventId = maxId != null ? maxId : 0;
+            log.info("Cluster mode enabled on node {}.", clusterLeaseService.getNodeId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.cluster.event-poll-interval-ms:500}")
+    public void poll() {
+        if (!clusterEnabled || floorEventId < 0) {
+            return;
+        }
+        Instant graceCutoff = Instant.now().minusMillis(eventGraceMillis);
+        long[] newFloor = {floorEventId};
+        boolean[] contiguous = {true};
+        try {
+            jdbcTemplate.query("select event_id, origin_node, topic, payload, created_at from cluster_events " +
+                            "where event_id > ? order by event_id",
+                    rs -> {
+                        long eventId = rs.getLong("event_id");
+                        if (dispatchedAboveFloor.add(eventId)
+                                && !clusterLeaseService.getNodeId().equals(rs.getString("origin_node"))) {
+                            dispatch(rs.getString("topic"), rs.getString("payload"));
+                        }
+                        contiguous[0] &= rs.getTimestamp("created_at").toInstant().isBefore(graceCutoff);
+                        if (contiguous[0]) {
+                            newFloor[0] = eventId;
+                        }
+                    },
+                    floorEventId);
+            floorEventId = newFloor[0];
+            dispatchedAboveFloor.removeIf(eventId -> eventId <= newFloor[0]);
+        } catch (Exception e) {
+            log.error("An error occurred while polling cluster events.", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.cluster.event-retention-ms:600000}")
+    public void purge() {
+        if (!clusterEnabled || !clusterLeaseService.tryAcquire("cluster-event-purge", Duration.ofMillis(eventRetentionMillis / 2))) {
+            return;
+        }
+        int purged = jdbcTemplate.update("delete from cluster_events where created_at < ?",
+                Timestamp.from(Instant.now().minusMillis(eventRetentionMillis)));
+        log.info("Purged {} cluster events.", purged);
+    }
+
+    private void dispatch(String topic, String payload) {
+        for (Consumer<String> listener : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                listener.accept(payload);
+            } catch (Exception e) {
+                log.error("Cluster event listener for topic {} failed.", topic, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.library.bookrental.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * ShedLock-style named leases stored in the shared database, so that a job scheduled on
+ * every node only runs on one of them at a time. A lease is taken with a single
+ * conditional UPDATE (or INSERT for a new name) and simply expires; it is not released
+ * early, which keeps other nodes from re-running the job within the same period. The
+ * holder renews its own lease by acquiring it again.
+ * <p>
+ * Work that must happen once, such as a day's reminders, uses a claim instead: an INSERT
+ * that only the first caller wins, the holder included, kept until it is purged.
+ */
+@Service
+@Slf4j
+public class ClusterLeaseService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String nodeId;
+
+    public ClusterLeaseService(@Value("${bookrental.cluster.node-id:}") String nodeId) {
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean tryAcquire(String leaseName, Duration duration) {
+        Instant now = Instant.now();
+        Timestamp lockedUntil = Timestamp.from(now.plus(duration));
+        int updated = jdbcTemplate.update(
+                "update cluster_leases set owner = ?, locked_until = ? " +
+                        "where lease_name = ? and (locked_until < ? or owner = ?)",
+                nodeId, lockedUntil, leaseName, Timestamp.from(now), nodeId);
+        if (updated == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("insert into cluster_leases (lease_name, owner, locked_until) values (?, ?, ?)",
+                    leaseName, nodeId, lockedUntil);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Lease {} is held by another node.", leaseName);
+            return false;
+        }
+    }
+
+    /**
+     * Claims a piece of one-shot work. Only the first call for a name returns true, on any
+     * node; the claim is kept for {@code retention} and then left to {@link #purgeExpired}.
+     */
+    public boolean tryClaimOnce(String claimName, Duration retention) {
+        try {
+            jdbcTemplate.update("insert into cluster_leases (lease_name, owner, locked_until) values (?, ?, ?)",
+                    claimName, nodeId, Timestamp.from(Instant.now().plus(retention)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("{} was already claimed.", claimName);
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the expired leases and claims whose name starts with the prefix.
+     */
+    public int purgeExpired(String namePrefix) {
+        return jdbcTemplate.update("delete from cluster_leases where lease_name like ? escape '\\' and locked_until < ?",
+                escapeLike(namePrefix) + "%", Timestamp.from(Instant.now()));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,253 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.BookRecommendation;
+import com.library.bookrental.utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * In-memory "rented together" index. Every renter keeps a window of the last distinct
+ * books they rented; a rental of a book that is not in the window counts one co-rental
+ * between it and each book in the window, in both directions.
+ * <p>
+ * Memory is bounded on both sides: each book keeps at most {@code maxNeighbours} partners,
+ * with new partners replacing the weakest in the manner of the space-saving algorithm
+ * (Metwally et al.), and only the {@code maxRenters} most recently active renters keep a
+ * window.
+ */
+public class CoRentalIndex {
+
+    private final int maxNeighbours;
+    private final int historyLength;
+    private final int maxRenters;
+    private final ConcurrentHashMap<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, long[]> windows;
+
+    public CoRentalIndex(int maxNeighbours, int historyLength, int maxRenters) {
+        this.maxNeighbours = maxNeighbours;
+        this.historyLength = historyLength;
+        this.maxRenters = maxRenters;
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > CoRentalIndex.this.maxRenters;
+            }
+        };
+    }
+
+    /**
+     * Counts a rental of {@code bookId} by {@code renter} against the renter's window.
+     */
+    public void record(String renter, long bookId) {
+        long[] partners;
+        synchronized (windows) {
+            long[] window = windows.getOrDefault(renter, new long[0]);
+            partners = contains(window, bookId) ? new long[0] : window;
+            windows.put(renter, advance(window, bookId, historyLength));
+        }
+        for (long partner : partners) {
+            increment(bookId, partner);
+            increment(partner, bookId);
+        }
+    }
+
+    /**
+     * The books most often rented together with the given one, strongest first.
+     */
+    public List<BookRecommendation> top(long bookId, int limit) {
+        Neighbours partners = neighbours.get(bookId);
+        if (partners == null || limit <= 0) {
+            return List.of();
+        }
+        synchronized (partners) {
+            return partners.top(limit);
+        }
+    }
+
+    public int getBookCount() {
+        return neighbours.size();
+    }
+
+    public int getRenterCount() {
+        synchronized (windows) {
+            return windows.size();
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the partner counts in bytes.
+     */
+    public long getFootprintBytes() {
+        long bytes = 0;
+        for (Neighbours partners : neighbours.values()) {
+            synchronized (partners) {
+                bytes += partners.counts.footprintBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds an index from complete renter histories, each in rental order. Books are split
+     * into as many partitions as there are tasks; every task replays all histories but only
+     * counts pairs for the books of its own partition, so the counts need no locking and
+     * come out exact before being pruned to the strongest partners.
+     *
+     * @param histories renter histories, least recently active renter first
+     */
+    public static CoRentalIndex build(Map<String, long[]> histories, int maxNeighbours, int historyLength,
+                                      int maxRenters, ExecutorService executor, int partitions)
+            throws InterruptedException {
+        CoRentalIndex index = new CoRentalIndex(maxNeighbours, historyLength, maxRenters);
+        List<Future<Map<Long, Neighbours>>> futures = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            int owned = partition;
+            futures.add(executor.submit(() -> index.countPartition(histories.values(), owned, partitions)));
+        }
+        try {
+            for (Future<Map<Long, Neighbours>> future : futures) {
+                index.neighbours.putAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build the co-rental index.", e.getCause());
+        }
+        histories.forEach((renter, history) -> {
+            long[] window = new long[0];
+            for (long bookId : history) {
+                window = advance(window, bookId, historyLength);
+            }
+            index.windows.put(renter, window);
+        });
+        return index;
+    }
+
+    private Map<Long, Neighbours> countPartition(Iterable<long[]> histories, int owned, int partitions) {
+        Map<Long, LongIntHashMap> counts = new HashMap<>();
+        for (long[] history : histories) {
+            long[] window = new long[0];
+            for (long bookId : history) {
+                if (!contains(window, bookId)) {
+                    boolean ownsBook = partitionOf(bookId, partitions) == owned;
+                    for (long partner : window) {
+                        if (ownsBook) {
+                            counts.computeIfAbsent(bookId, key -> new LongIntHashMap(8)).addTo(partner, 1);
+                        }
+                        if (partitionOf(partner, partitions) == owned) {
+                            counts.computeIfAbsent(partner, key -> new LongIntHashMap(8)).addTo(bookId, 1);
+                        }
+                    }
+                }
+                window = advance(window, bookId, historyLength);
+            }
+        }
+        Map<Long, Neighbours> pruned = new HashMap<>(counts.size() * 2);
+        counts.forEach((bookId, partners) -> pruned.put(bookId, Neighbours.strongest(partners, maxNeighbours)));
+        return pruned;
+    }
+
+    private void increment(long bookId, long partner) {
+        Neighbours partners = neighbours.computeIfAbsent(bookId, key -> new Neighbours(maxNeighbours));
+        synchronized (partners) {
+            partners.increment(partner);
+        }
+    }
+
+    private static int partitionOf(long bookId, int partitions) {
+        return (int) Math.floorMod(bookId * 0x9E3779B97F4A7C15L >>> 32, (long) partitions);
+    }
+
+    private static boolean contains(long[] window, long bookId) {
+        for (long entry : window) {
+            if (entry == bookId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the window with the book moved or appended to the most recent end, dropping
+     * the oldest entry when it is full.
+     */
+    static long[] advance(long[] window, long bookId, int historyLength) {
+        int others = contains(window, bookId) ? window.length - 1 : window.length;
+        int drop = Math.max(0, others + 1 - historyLength);
+        long[] next = new long[others - drop + 1];
+        int size = 0;
+        for (long entry : window) {
+            if (entry == bookId) {
+                continue;
+            }
+            if (drop > 0) {
+                drop--;
+                continue;
+            }
+            next[size++] = entry;
+        }
+        next[size] = bookId;
+        return next;
+    }
+
+    /**
+     * Partner counts of one book, bounded to a fixed number of partners.
+     */
+    static class Neighbours {
+
+        private final int capacity;
+        private final LongIntHashMap counts;
+
+        Neighbours(int capacity) {
+            this.capacity = capacity;
+            this.counts = new LongIntHashMap(capacity);
+        }
+
+        static Neighbours strongest(LongIntHashMap all, int capacity) {
+            Neighbours neighbours = new Neighbours(capacity);
+            for (BookRecommendation partner : sorted(all, capacity)) {
+                neighbours.counts.put(partner.bookId(), partner.coRentals());
+            }
+            return neighbours;
+        }
+
+        void increment(long partner) {
+            if (counts.containsKey(partner) || counts.size() < capacity) {
+                counts.addTo(partner, 1);
+                return;
+            }
+            // Space-saving: the newcomer inherits the weakest count, so its estimate is an
+            // upper bound and a genuinely frequent partner cannot be crowded out for good.
+            long[] weakest = {0, Integer.MAX_VALUE};
+            counts.forEach((key, value) -> {
+                if (value < weakest[1]) {
+                    weakest[0] = key;
+                    weakest[1] = value;
+                }
+            });
+            counts.remove(weakest[0]);
+            counts.put(partner, (int) weakest[1] + 1);
+        }
+
+        List<BookRecommendation> top(int limit) {
+            return sorted(counts, limit);
+        }
+
+        private static List<BookRecommendation> sorted(LongIntHashMap counts, int limit) {
+            BookRecommendation[] all = new BookRecommendation[counts.size()];
+            int[] size = new int[1];
+            counts.forEach((key, value) -> all[size[0]++] = new BookRecommendation(key, value));
+            Arrays.sort(all, Comparator.comparingInt(BookRecommendation::coRentals).reversed()
+                    .thenComparingLong(BookRecommendation::bookId));
+            return List.of(Arrays.copyOf(all, Math.min(limit, all.length)));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.Author;
+import com.library.bookrental.models.Book;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the Hibernate second-level cache in step with writes it does not see: JDBC batch
+ * writes on this node and entity writes on other nodes of the cluster, whose caches are
+ * separate. Writes made through Hibernate on this node maintain the cache by themselves.
+ */
+@Service
+@Slf4j
+public class EntityCacheService {
+
+    public static final String AUTHORS_REGION = "authors";
+    public static final String BOOKS_REGION = "books";
+    public static final String BOOKS_BY_AUTHOR_REGION = "books-by-author";
+
+    private static final String TOPIC = "entity-cache";
+    private static final String ALL_AUTHORS = "authors";
+    private static final String AUTHOR_PREFIX = "author:";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    private SessionFactory sessionFactory;
+
+    @PostConstruct
+    public void init() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        clusterEventBus.subscribe(TOPIC, this::onRemoteChange);
+    }
+
+    /**
+     * Called after an author was updated or deleted, so that other nodes drop their copy.
+     */
+    public void authorChanged(Long authorId) {
+        clusterEventBus.publish(TOPIC, AUTHOR_PREFIX + authorId);
+    }
+
+    /**
+     * Called after authors were written with JDBC, which bypasses the cache on every node.
+     */
+    public void authorsRewritten() {
+        evictAuthors();
+        clusterEventBus.publish(TOPIC, ALL_AUTHORS);
+    }
+
+    /**
+     * Drops one book changed on another node, and the cached by-author listings, which
+     * carry the book's availability. The query cache cannot evict by author, so the
+     * listings of every author go; other books stay cached.
+     */
+    public void evictBook(Long bookId) {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Book.class, bookId);
+        cache.evictQueryRegion(BOOKS_BY_AUTHOR_REGION);
+    }
+
+    /**
+     * Drops cached books and the book listings of every branch. Used when another node
+     * changed the catalog in a way the message does not pin to one book.
+     */
+    public void evictBooks() {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Book.class);
+        cache.evictQueryRegions();
+    }
+
+    public void evictAll() {
+        evictAuthors();
+        evictBooks();
+    }
+
+    private void evictAuthors() {
+        sessionFactory.getCache().evictEntityData(Author.class);
+    }
+
+    private void onRemoteChange(String payload) {
+        if (payload.startsWith(AUTHOR_PREFIX)) {
+            Long authorId = Long.valueOf(payload.substring(AUTHOR_PREFIX.length()));
+            sessionFactory.getCache().evictEntityData(Author.class, authorId);
+        } else if (ALL_AUTHORS.equals(payload)) {
+            evictAuthors();
+        } else {
+            log.warn("Ignoring unknown entity cache event: {}", payload);
+        }
+    }
+
+    /**
+     * Hits, misses and puts per cache region since startup. Counting needs {@code hibernate.generate_statistics}; without it every
+     * counter stays at zero.
+     */
+    public Map<String, Object> getMetrics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        for (String region : List.of(AUTHORS_REGION, BOOKS_REGION, BOOKS_BY_AUTHOR_REGION)) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                metrics.put(region, regionMetrics(regionStatistics));
+            }
+        }
+        return metrics;
+    }
+
+    private static Map<String, Object> regionMetrics(CacheRegionStatistics statistics) {
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("puts", statistics.getPutCount());
+        metrics.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        metrics.put("entriesInMemory", statistics.getElementCountInMemory());
+        return metrics;
+    }
+}
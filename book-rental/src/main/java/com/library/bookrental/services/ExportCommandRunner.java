@@ -0,0 +1,59 @@
+package com.library.bookrental.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Command line export, e.g.
+ * {@code java -jar book-rental.jar --spring.main.web-application-type=none --export=rentals,books --export.dir=/tmp/out}.
+ * Writes one CSV file per dataset and shuts the application down afterwards.
+ */
+@Component
+@Slf4j
+public class ExportCommandRunner implements ApplicationRunner {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("export")) {
+            return;
+        }
+        List<String> dirOption = args.getOptionValues("export.dir");
+        Path directory = Path.of(dirOption != null && !dirOption.isEmpty() ? dirOption.get(0) : ".");
+        Files.createDirectories(directory);
+
+        int exitCode = 0;
+        for (String datasets : args.getOptionValues("export")) {
+            for (String dataset : datasets.split(",")) {
+                Path target = directory.resolve(dataset.trim() + ".csv");
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    // Run from the command line by an operator, so every branch is exported.
+                    long rows = exportService.export(dataset.trim(), null, channel);
+                    log.info("Wrote {} rows to {}.", rows, target);
+                } catch (IllegalArgumentException e) {
+                    log.error("Export failed: {}", e.getMessage());
+                    exitCode = 1;
+                }
+            }
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.repositories.RentalShards;
+import com.library.bookrental.utils.CsvChannelWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Exports the catalog and rental history as CSV. Rows are read through a forward-only
+ * cursor with a fixed fetch size and written to the channel as they arrive, so no result
+ * set or entity graph is ever held in memory.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    public static final List<String> DATASETS = List.of("authors", "books", "rentals");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Value("${bookrental.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${bookrental.export.buffer-size:65536}")
+    private int bufferSize;
+
+    /**
+     * Exports the rows of one branch, or of every branch when {@code branchId} is null.
+     * Callers pass the branch explicitly because a streamed response is written on another
+     * thread than the one the request's branch is bound to.
+     * <p>
+     * Runs in a read-only transaction: drivers such as PostgreSQL only stream with a fetch
+     * size when auto-commit is off, and with a replica configured the export is served there.
+     */
+    @Transactional(readOnly = true)
+    public long export(String dataset, Long branchId, WritableByteChannel channel) {
+        String branchClause = branchId == null ? "" : " where branch_id = ?";
+        Object[] args = branchId == null ? new Object[0] : new Object[]{branchId};
+        try (CsvChannelWriter writer = new CsvChannelWriter(channel, bufferSize)) {
+            switch (dataset) {
+                case "authors" -> {
+                    writer.writeRow("author_id", "name", "biography", "branch_id");
+                    stream(jdbcTemplate, "select author_id, name, biography, branch_id from authors" + branchClause
+                                    + " order by author_id",
+                            rs -> writer.writeRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)),
+                            args);
+                }
+                case "books" -> {
+                    writer.writeRow("book_id", "title", "isbn", "publication_year", "author_id", "available",
+                            "branch_id");
+                    stream(jdbcTemplate, "select book_id, title, isbn, publication_year, author_id, available, "
+                                    + "branch_id from books" + branchClause + " order by book_id",
+                            rs -> writer.writeRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                                    rs.getObject(5), rs.getBoolean(6), rs.getLong(7)),
+                            args);
+                }
+                case "rentals" -> {
+                    writer.writeRow("rental_id", "book_id", "renter_name", "rental_date", "due_date", "return_date",
+                            "overdue", "branch_id");
+                    RowCallbackHandler rentalRow = rs -> writer.writeRow(rs.getLong(1), rs.getLong(2), rs.getString(3),
+                            rs.getDate(4), rs.getDate(5), rs.getDate(6), rs.getBoolean(7), rs.getLong(8));
+                    String sql = "select rental_id, book_id, renter_name, rental_date, due_date, return_date, overdue, "
+                            + "branch_id from rentals" + branchClause + " order by rental_id";
+                    RentalShards shards = rentalShards.getIfAvailable();
+                    if (shards == null) {
+                        stream(jdbcTemplate, sql, rentalRow, args);
+                    } else {
+                        shards.streamMerged(sql, fetchSize, rentalRow, args);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown export dataset: " + dataset);
+            }
+            log.info("Exported {} rows of {}{}.", writer.getRowsWritten() - 1, dataset,
+                    branchId == null ? "" : " in branch " + branchId);
+            return writer.getRowsWritten() - 1;
+        }
+    }
+
+    private void stream(JdbcTemplate source, String sql, RowCallbackHandler handler, Object... args) {
+        source.query(connection -> {
+            var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        }, handler);
+    }
+}
@@ -0,0 +1,87 @@
+package com.library.bookrental.services;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Daily late-fee rates by how many days a rental is late, with an optional cap. A schedule
+ * is written as comma-separated {@code day:rate} steps, each applying from that day late
+ * on, plus {@code cap:amount}: {@code "2:0.25,8:0.50,cap:15.00"} charges nothing for the
+ * first day late, 0.25 a day up to the seventh, 0.50 a day after that and never more than
+ * 15.00 in total. Amounts are kept in cents.
+ */
+public class FeeSchedule {
+
+    private static final String CAP = "cap";
+
+    private final int[] fromDays;
+    private final long[] dailyCents;
+    private final long capCents;
+
+    private FeeSchedule(int[] fromDays, long[] dailyCents, long capCents) {
+        this.fromDays = fromDays;
+        this.dailyCents = dailyCents;
+        this.capCents = capCents;
+    }
+
+    public static FeeSchedule parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("A fee schedule needs at least one day:rate step.");
+        }
+        String[] parts = spec.split(",");
+        int[] fromDays = new int[parts.length];
+        long[] dailyCents = new long[parts.length];
+        long capCents = Long.MAX_VALUE;
+        int steps = 0;
+        for (String part : parts) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid fee schedule step '" + part.trim() + "' in: " + spec);
+            }
+            long cents = toCents(pair[1].trim(), spec);
+            if (CAP.equals(pair[0].trim())) {
+                capCents = cents;
+                continue;
+            }
+            int fromDay;
+            try {
+                fromDay = Integer.parseInt(pair[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid fee schedule day '" + pair[0].trim() + "' in: " + spec);
+            }
+            if (fromDay < 1 || (steps > 0 && fromDay <= fromDays[steps - 1])) {
+                throw new IllegalArgumentException("Fee schedule days must be positive and ascending: " + spec);
+            }
+            fromDays[steps] = fromDay;
+            dailyCents[steps] = cents;
+            steps++;
+        }
+        if (steps == 0) {
+            throw new IllegalArgumentException("A fee schedule needs at least one day:rate step: " + spec);
+        }
+        return new FeeSchedule(Arrays.copyOf(fromDays, steps), Arrays.copyOf(dailyCents, steps), capCents);
+    }
+
+    /**
+     * The fee in cents for a rental that is {@code daysLate} days past its due date.
+     */
+    public long feeCents(long daysLate) {
+        long total = 0;
+        for (int step = 0; step < fromDays.length && fromDays[step] <= daysLate; step++) {
+            long lastDay = step + 1 < fromDays.length ? Math.min(daysLate, fromDays[step + 1] - 1L) : daysLate;
+            total += (lastDay - fromDays[step] + 1) * dailyCents[step];
+            if (total >= capCents) {
+                return capCents;
+            }
+        }
+        return total;
+    }
+
+    private static long toCents(String amount, String spec) {
+        try {
+            return new BigDecimal(amount).movePointRight(2).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid fee schedule amount '" + amount + "' in: " + spec);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each batch to a file as JSON lines. Meant as a local stand-in for a real
+ * downstream system.
+ */
+@Component
+@ConditionalOnProperty(name = "bookrental.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    @Value("${bookrental.outbox.file.path:./data/outbox.jsonl}")
+    private Path path;
+
+    @Override
+    public synchronized void deliver(List<OutboxMessage> messages) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxMessage message : messages) {
+            lines.append("{\"messageId\":").append(message.getMessageId())
+                    .append(",\"payload\":").append(message.getPayload())
+                    .append("}\n");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Files.writeString(path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+    }
+}
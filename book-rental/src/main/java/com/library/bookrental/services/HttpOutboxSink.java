@@ -0,0 +1,51 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Posts each batch as a JSON array of {@code {"messageId":..,"payload":{..}}} objects.
+ * Any non-2xx response fails the batch. Receivers can de-duplicate on the message id.
+ */
+@Component
+@ConditionalOnProperty(name = "bookrental.outbox.sink", havingValue = "http")
+public class HttpOutboxSink implements OutboxSink {
+
+    private final HttpClient client;
+    private final URI url;
+    private final Duration timeout;
+
+    public HttpOutboxSink(@Value("${bookrental.outbox.http.url}") URI url,
+                          @Value("${bookrental.outbox.http.timeout-ms:5000}") long timeoutMillis) {
+        this.url = url;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) throws IOException, InterruptedException {
+        String body = messages.stream()
+                .map(message -> "{\"messageId\":" + message.getMessageId() + ",\"payload\":" + message.getPayload() + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Outbox endpoint " + url + " answered with status " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.library.bookrental.services;
+
+/**
+ * Remembers the responses of requests sent with an {@code Idempotency-Key} so that a
+ * retried request can be answered without running the write again. Entries expire after
+ * a fixed time and the number kept is bounded.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a request with the given fingerprint. Returns {@code null} when
+     * the key was free and is now held by the caller, who must then either
+     * {@link #complete complete} or {@link #release release} it; otherwise returns what is
+     * already recorded under the key, with a {@code null} response while the first request
+     * is still running.
+     */
+    IdempotentResponse.Entry claim(String key, String fingerprint);
+
+    void complete(String key, String fingerprint, IdempotentResponse response);
+
+    /**
+     * Forgets a claimed key whose request failed, so that a retry runs it again.
+     */
+    void release(String key);
+
+    long size();
+
+}
@@ -0,0 +1,14 @@
+package com.library.bookrental.services;
+
+/**
+ * The status, content type and body of the first response to an idempotent request.
+ */
+public record IdempotentResponse(int status, String contentType, byte[] body) {
+
+    /**
+     * What an {@link IdempotencyStore} holds for a key: the fingerprint of the request that
+     * claimed it and, once that request finished, its response.
+     */
+    public record Entry(String fingerprint, IdempotentResponse response) {
+    }
+}
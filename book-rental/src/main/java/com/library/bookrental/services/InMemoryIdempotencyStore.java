@@ -0,0 +1,128 @@
+package com.library.bookrental.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Idempotency store for a single node. Every entry lives for the same time from its claim,
+ * so insertion order is also expiry order: expired entries are dropped from the head of a
+ * {@link LinkedHashMap} on each claim, and the eldest entry goes when the map is full.
+ */
+@Component
+@ConditionalOnProperty(name = "bookrental.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, StoredEntry> entries;
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${bookrental.idempotency.max-entries:100000}") int maxEntries,
+                                    @Value("${bookrental.idempotency.ttl-ms:86400000}") long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    public InMemoryIdempotencyStore(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredEntry> eldest) {
+                return size() > InMemoryIdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public IdempotentResponse.Entry claim(String key, String fingerprint) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            purgeExpired(now);
+            StoredEntry existing = entries.get(key);
+            if (existing != null && existing.expiresAt > now) {
+                return new IdempotentResponse.Entry(existing.fingerprint, existing.response);
+            }
+            entries.put(key, new StoredEntry(fingerprint, now + ttlMillis));
+            return null;
+        }
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, IdempotentResponse response) {
+        synchronized (entries) {
+            StoredEntry entry = entries.get(key);
+            if (entry != null) {
+                entry.response = response;
+            }
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public long size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns what is recorded under the key if its request completed and it has not expired.
+     */
+    IdempotentResponse.Entry completed(String key) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            StoredEntry entry = entries.get(key);
+            return entry != null && entry.response != null && entry.expiresAt > now
+                    ? new IdempotentResponse.Entry(entry.fingerprint, entry.response)
+                    : null;
+        }
+    }
+
+    /**
+     * Records an already completed response, e.g. one read back from the database.
+     */
+    void remember(String key, String fingerprint, IdempotentResponse response, long expiresAt) {
+        synchronized (entries) {
+            StoredEntry entry = new StoredEntry(fingerprint, expiresAt);
+            entry.response = response;
+            entries.put(key, entry);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<StoredEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt > now) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static class StoredEntry {
+
+        private final String fingerprint;
+        private final long expiresAt;
+        private IdempotentResponse response;
+
+        StoredEntry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.bookrental.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Idempotency store shared by all nodes through the {@code idempotency_keys} table. A key is
+ * claimed with a single INSERT, whose primary key settles races between nodes; completed
+ * responses are also kept in memory, so a retry that reaches the node that served the
+ * first attempt is answered without a query. A claim whose node died before completing it
+ * can be taken over once it is older than the in-flight timeout.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "bookrental.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final long ttlMillis;
+    private final long inFlightTimeoutMillis;
+    private final InMemoryIdempotencyStore completed;
+
+    public JdbcIdempotencyStore(@Value("${bookrental.idempotency.max-entries:100000}") int maxEntries,
+                                @Value("${bookrental.idempotency.ttl-ms:86400000}") long ttlMillis,
+                                @Value("${bookrental.idempotency.in-flight-timeout-ms:60000}") long inFlightTimeoutMillis) {
+        this.ttlMillis = ttlMillis;
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+        this.completed = new InMemoryIdempotencyStore(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    @Override
+    public IdempotentResponse.Entry claim(String key, String fingerprint) {
+        IdempotentResponse.Entry cached = completed.completed(key);
+        if (cached != null) {
+            return cached;
+        }
+        Instant now = Instant.now();
+        if (tryInsert(key, fingerprint, now)) {
+            return null;
+        }
+        List<StoredRow> rows = jdbcTemplate.query(
+                "select fingerprint, status_code, content_type, response_body, created_at, expires_at " +
+                        "from idempotency_keys where idempotency_key = ?",
+                (rs, rowNum) -> new StoredRow(rs.getString(1), (Integer) rs.getObject(2), rs.getString(3),
+                        rs.getBytes(4), rs.getTimestamp(5).toInstant(), rs.getTimestamp(6).toInstant()),
+                key);
+        if (rows.isEmpty()) {
+            // Released between our insert and select; claim it now.
+            return tryInsert(key, fingerprint, now) ? null : new IdempotentResponse.Entry(fingerprint, null);
+        }
+        StoredRow row = rows.get(0);
+        if (row.expiresAt().isBefore(now) || (row.statusCode() == null
+                && row.createdAt().isBefore(now.minusMillis(inFlightTimeoutMillis)))) {
+            int taken = jdbcTemplate.update(
+                    "update idempotency_keys set fingerprint = ?, status_code = null, content_type = null, " +
+                            "response_body = null, created_at = ?, expires_at = ? " +
+                            "where idempotency_key = ? and created_at = ?",
+                    fingerprint, Timestamp.from(now), Timestamp.from(now.plusMillis(ttlMillis)), key,
+                    Timestamp.from(row.createdAt()));
+            if (taken == 1) {
+                log.debug("Took over stale idempotency key {}.", key);
+                return null;
+            }
+            return new IdempotentResponse.Entry(fingerprint, null);
+        }
+        if (row.statusCode() == null) {
+            return new IdempotentResponse.Entry(row.fingerprint(), null);
+        }
+        IdempotentResponse response = new IdempotentResponse(row.statusCode(), row.contentType(), row.responseBody());
+        completed.remember(key, row.fingerprint(), response, row.expiresAt().toEpochMilli());
+        return new IdempotentResponse.Entry(row.fingerprint(), response);
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, IdempotentResponse response) {
+        jdbcTemplate.update("update idempotency_keys set status_code = ?, content_type = ?, response_body = ? " +
+                "where idempotency_key = ?", response.status(), response.contentType(), response.body(), key);
+        completed.remember(key, fingerprint, response, System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("delete from idempotency_keys where idempotency_key = ? and status_code is null", key);
+    }
+
+    @Override
+    public long size() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from idempotency_keys", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update("delete from idempotency_keys where expires_at < ?", Timestamp.from(Instant.now()));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys.", purged);
+        }
+    }
+
+    private boolean tryInsert(String key, String fingerprint, Instant now) {
+        try {
+            jdbcTemplate.update("insert into idempotency_keys (idempotency_key, fingerprint, created_at, expires_at) " +
+                    "values (?, ?, ?, ?)", key, fingerprint, Timestamp.from(now), Timestamp.from(now.plusMillis(ttlMillis)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private record StoredRow(String fingerprint, Integer statusCode, String contentType, byte[] responseBody,
+                             Instant createdAt, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,463 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.LateFeeView;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.repositories.RentalShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes the late fees accrued by open rentals past their due date and by rentals
+ * returned late within the look-back window, and writes them to {@code late_fees}. A run
+ * splits the rental ids of each source (the rentals table, or every shard) into partitions
+ * that are processed in parallel, chunk by chunk. Each chunk's fees are written with JDBC
+ * batches in the same transaction that advances the partition's checkpoint, so a run that
+ * stops part way resumes where it left off when started again for the same day.
+ * <p>
+ * Fees follow the default {@link FeeSchedule} or the one configured for the rental's branch.
+ */
+@Service
+@Slf4j
+public class LateFeeService {
+
+    private static final String LEASE_NAME = "late-fees";
+
+    private static final String SELECT_CANDIDATES = "select rental_id, book_id, branch_id, due_date, return_date "
+            + "from rentals where rental_id > ? and rental_id <= ? and due_date < ? "
+            + "and (return_date is null or (return_date > due_date and return_date >= ?)) order by rental_id";
+
+    // Fees are replaced by deleting and re-inserting them in one transaction, which every
+    // database runs the same way, unlike the vendor-specific MERGE and ON CONFLICT forms.
+    private static final String DELETE_FEE = "delete from late_fees where rental_id = ?";
+
+    private static final String INSERT_FEE = "insert into late_fees (rental_id, book_id, branch_id, due_date, "
+            + "return_date, days_late, amount, computed_for, computed_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${bookrental.fees.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookrental.fees.schedule:2:0.25,8:0.50,cap:15.00}")
+    private String defaultScheduleSpec;
+
+    @Value("${bookrental.fees.closed-lookback-days:30}")
+    private int closedLookbackDays;
+
+    @Value("${bookrental.fees.threads:0}")
+    private int threads;
+
+    @Value("${bookrental.fees.partitions-per-source:0}")
+    private int partitionsPerSource;
+
+    @Value("${bookrental.fees.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${bookrental.fees.checkpoint-retention-days:7}")
+    private int checkpointRetentionDays;
+
+    @Value("${bookrental.fees.lease-ms:600000}")
+    private long leaseMillis;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    private final Map<Long, FeeSchedule> schedulesByBranch = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runTrigger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "late-fee-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FeeSchedule defaultSchedule;
+    private volatile RunProgress lastRun;
+
+    @PostConstruct
+    public void init() {
+        defaultSchedule = FeeSchedule.parse(defaultScheduleSpec);
+    }
+
+    /**
+     * Starts the nightly run on its own thread, so that it does not hold up the scheduler.
+     */
+    @Scheduled(cron = "${bookrental.fees.cron:0 30 2 * * *}")
+    public void runNightly() {
+        if (enabled) {
+            LocalDate today = LocalDate.now();
+            runTrigger.execute(() -> runQuietly(today));
+        }
+    }
+
+    /**
+     * Resumes a run of today or yesterday that a stopped node left unfinished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Date unfinished = jdbcTemplate.queryForObject(
+                "select max(run_date) from late_fee_checkpoints where completed_at is null", Date.class);
+        if (unfinished != null && !unfinished.toLocalDate().isBefore(LocalDate.now().minusDays(1))) {
+            log.info("Resuming the unfinished late-fee run for {}.", unfinished);
+            runTrigger.execute(() -> runQuietly(unfinished.toLocalDate()));
+        }
+    }
+
+    /**
+     * Computes fees as of the given day, continuing from the checkpoints of an earlier run
+     * for that day unless {@code restart} is set. Fails if a run is already going on here,
+     * or in cluster mode on another node.
+     */
+    public Map<String, Object> run(LocalDate asOf, boolean restart) throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A late-fee run is already running.");
+        }
+        ExecutorService workers = null;
+        try {
+            if (clusterEnabled && !clusterLeaseService.tryAcquire(LEASE_NAME, Duration.ofMillis(leaseMillis))) {
+                throw new IllegalStateException("A late-fee run is already running on another node.");
+            }
+            jdbcTemplate.update("delete from late_fee_checkpoints where run_date < ?",
+                    Date.valueOf(asOf.minusDays(checkpointRetentionDays)));
+            if (restart) {
+                jdbcTemplate.update("delete from late_fee_checkpoints where run_date = ?", Date.valueOf(asOf));
+            }
+            List<JdbcTemplate> sources = sources();
+            List<Partition> partitions = loadOrCreatePartitions(asOf, sources);
+            List<Partition> pending = partitions.stream().filter(partition -> !partition.completed).toList();
+            RunProgress run = new RunProgress(asOf, partitions.size(), partitions.size() - pending.size());
+            lastRun = run;
+
+            int threadCount = threadCount();
+            AtomicInteger workerCount = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+                Thread thread = new Thread(runnable, "late-fee-" + workerCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (Partition partition : pending) {
+                JdbcTemplate source = sources.get(partition.sourceIndex);
+                futures.add(workers.submit(() -> processPartition(partition, source, asOf, run)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    run.partitionsFailed.incrementAndGet();
+                    log.error("A late-fee partition failed; it resumes from its checkpoint on the next run.",
+                            e.getCause());
+                }
+            }
+            run.finish();
+            log.info("Late-fee run for {} finished: {} rentals in {} of {} partitions, {} in fees, {} ms on {} threads.",
+                    asOf, run.rentals.sum(), run.partitionsCompleted.get(), run.partitions,
+                    BigDecimal.valueOf(run.feeCents.sum(), 2), run.elapsedMillis, threadCount);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+                awaitWorkers(workers);
+            }
+            running.set(false);
+        }
+        return getMetrics();
+    }
+
+    /**
+     * The fee last computed for a rental, if it was ever late and belongs to the current branch.
+     */
+    public Optional<LateFeeView> getFee(long rentalId) {
+        return jdbcTemplate.query("select rental_id, book_id, branch_id, due_date, return_date, days_late, amount, "
+                        + "computed_for from late_fees where rental_id = ?",
+                (rs, rowNum) -> BranchContextFilter.isVisible(rs.getLong(3))
+                        ? new LateFeeView(rs.getLong(1), rs.getLong(2), rs.getDate(4).toLocalDate(),
+                        rs.getDate(5) != null ? rs.getDate(5).toLocalDate() : null, rs.getInt(6),
+                        rs.getBigDecimal(7), rs.getDate(8).toLocalDate())
+                        : null,
+                rentalId).stream().filter(Objects::nonNull).findFirst();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("running", running.get());
+        metrics.put("schedule", defaultScheduleSpec);
+        RunProgress run = lastRun;
+        if (run != null) {
+            metrics.put("lastRun", run.snapshot());
+        }
+        return metrics;
+    }
+
+    @PreDestroy
+    public void stop() {
+        runTrigger.shutdownNow();
+    }
+
+    /**
+     * Works through a partition in chunks of rental ids. Returns when the partition is done;
+     * an interrupt stops it after the current chunk, leaving the checkpoint to resume from.
+     */
+    private Void processPartition(Partition partition, JdbcTemplate source, LocalDate asOf, RunProgress run) {
+        Date asOfDate = Date.valueOf(asOf);
+        Date closedSince = Date.valueOf(asOf.minusDays(closedLookbackDays));
+        while (!Thread.currentThread().isInterrupted()) {
+            if (clusterEnabled && !clusterLeaseService.tryAcquire(LEASE_NAME, Duration.ofMillis(leaseMillis))) {
+                throw new IllegalStateException("Lost the late-fee lease to another node.");
+            }
+            Timestamp now = Timestamp.from(Instant.now());
+            List<Object[]> fees = new ArrayList<>(chunkSize);
+            long[] chunkCents = new long[1];
+            source.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_CANDIDATES);
+                statement.setLong(1, partition.lastRentalId);
+                statement.setLong(2, partition.upperBound);
+                statement.setDate(3, asOfDate);
+                statement.setDate(4, closedSince);
+                statement.setMaxRows(chunkSize);
+                return statement;
+            }, rs -> {
+                long branchId = rs.getLong(3);
+                Date dueDate = rs.getDate(4);
+                Date returnDate = rs.getDate(5);
+                long daysLate = ChronoUnit.DAYS.between(dueDate.toLocalDate(),
+                        returnDate != null ? returnDate.toLocalDate() : asOf);
+                long cents = scheduleFor(branchId).feeCents(daysLate);
+                chunkCents[0] += cents;
+                fees.add(new Object[]{rs.getLong(1), rs.getLong(2), branchId, dueDate, returnDate, (int) daysLate,
+                        BigDecimal.valueOf(cents, 2), asOfDate, now});
+            });
+
+            boolean finished = fees.size() < chunkSize;
+            long lastRentalId = fees.isEmpty() ? partition.lastRentalId : (Long) fees.get(fees.size() - 1)[0];
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!fees.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_FEE, fees.stream().map(fee -> new Object[]{fee[0]}).toList());
+                    jdbcTemplate.batchUpdate(INSERT_FEE, fees);
+                }
+                jdbcTemplate.update("update late_fee_checkpoints set last_rental_id = ?, "
+                                + "rentals_processed = rentals_processed + ?, updated_at = ?, completed_at = ? "
+                                + "where checkpoint_key = ?",
+                        lastRentalId, fees.size(), now, finished ? now : null, partition.key);
+            });
+            partition.lastRentalId = lastRentalId;
+            run.rentals.add(fees.size());
+            run.feeCents.add(chunkCents[0]);
+            if (finished) {
+                run.partitionsCompleted.incrementAndGet();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The checkpoints of an earlier run for the day, or new ones that split the rental ids
+     * of each source into equal ranges. The last range of a source is open-ended, so rentals
+     * created during the run are covered too.
+     */
+    private List<Partition> loadOrCreatePartitions(LocalDate asOf, List<JdbcTemplate> sources) {
+        List<Partition> existing = jdbcTemplate.query("select checkpoint_key, source_index, last_rental_id, "
+                        + "upper_bound, completed_at from late_fee_checkpoints where run_date = ? "
+                        + "order by source_index, last_rental_id",
+                (rs, rowNum) -> new Partition(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.getLong(4),
+                        rs.getTimestamp(5) != null),
+                Date.valueOf(asOf));
+        if (!existing.isEmpty()) {
+            log.info("Resuming the late-fee run for {} from {} checkpoints.", asOf, existing.size());
+            return existing;
+        }
+
+        List<Partition> partitions = new ArrayList<>();
+        int perSource = partitionsPerSource > 0 ? partitionsPerSource : threadCount() * 4;
+        for (int source = 0; source < sources.size(); source++) {
+            Map<String, Object> range = sources.get(source).queryForMap(
+                    "select min(rental_id) as low, max(rental_id) as high from rentals");
+            long low = range.get("low") != null ? ((Number) range.get("low")).longValue() - 1 : 0;
+            long high = range.get("high") != null ? ((Number) range.get("high")).longValue() : 0;
+            long span = Math.max(1, (high - low + perSource - 1) / perSource);
+            for (int index = 0; index < perSource; index++) {
+                long lower = low + index * span;
+                boolean last = index == perSource - 1 || lower + span >= high;
+                partitions.add(new Partition(asOf + "/" + source + "/" + index, source, lower,
+                        last ? Long.MAX_VALUE : lower + span, false));
+                if (last) {
+                    break;
+                }
+            }
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("insert into late_fee_checkpoints (checkpoint_key, run_date, source_index, "
+                        + "upper_bound, last_rental_id, rentals_processed, updated_at) values (?, ?, ?, ?, ?, 0, ?)",
+                partitions.stream().map(partition -> new Object[]{partition.key, Date.valueOf(asOf),
+                        partition.sourceIndex, partition.upperBound, partition.lastRentalId, now}).toList());
+        return partitions;
+    }
+
+    private FeeSchedule scheduleFor(long branchId) {
+        return schedulesByBranch.computeIfAbsent(branchId, id -> {
+            String spec = environment.getProperty("bookrental.fees.schedule.branch-" + id);
+            return spec != null ? FeeSchedule.parse(spec) : defaultSchedule;
+        });
+    }
+
+    private List<JdbcTemplate> sources() {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            return List.of(jdbcTemplate);
+        }
+        List<JdbcTemplate> sources = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            sources.add(shards.shard(i));
+        }
+        return sources;
+    }
+
+    /**
+     * Waits for interrupted workers to finish their current chunk, so that a run started
+     * right after this one cannot write a partition the old workers are still writing.
+     */
+    private static void awaitWorkers(ExecutorService workers) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    if (workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                        return;
+                    }
+                    log.warn("Still waiting for late-fee workers to stop.");
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int threadCount() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private void runQuietly(LocalDate asOf) {
+        try {
+            run(asOf, false);
+        } catch (IllegalStateException e) {
+            log.info(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("The late-fee run for {} failed.", asOf, e);
+        }
+    }
+
+    /**
+     * A range of rental ids {@code (lastRentalId, upperBound]} of one source; {@code lastRentalId}
+     * advances as chunks are written.
+     */
+    private static class Partition {
+
+        private final String key;
+        private final int sourceIndex;
+        private final long upperBound;
+        private final boolean completed;
+        private long lastRentalId;
+
+        Partition(String key, int sourceIndex, long lastRentalId, long upperBound, boolean completed) {
+            this.key = key;
+            this.sourceIndex = sourceIndex;
+            this.lastRentalId = lastRentalId;
+            this.upperBound = upperBound;
+            this.completed = completed;
+        }
+    }
+
+    private static class RunProgress {
+
+        private final LocalDate asOf;
+        private final int partitions;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger partitionsCompleted;
+        private final AtomicInteger partitionsFailed = new AtomicInteger();
+        private final LongAdder rentals = new LongAdder();
+        private final LongAdder feeCents = new LongAdder();
+        private volatile long elapsedMillis = -1;
+
+        RunProgress(LocalDate asOf, int partitions, int partitionsCompleted) {
+            this.asOf = asOf;
+            this.partitions = partitions;
+            this.partitionsCompleted = new AtomicInteger(partitionsCompleted);
+        }
+
+        void finish() {
+            elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("asOf", asOf.toString());
+            snapshot.put("startedAt", startedAt.toString());
+            snapshot.put("finished", elapsedMillis >= 0);
+            snapshot.put("elapsedMillis",
+                    elapsedMillis >= 0 ? elapsedMillis : (System.nanoTime() - startNanos) / 1_000_000);
+            snapshot.put("partitions", partitions);
+            snapshot.put("partitionsCompleted", partitionsCompleted.get());
+            snapshot.put("partitionsFailed", partitionsFailed.get());
+            snapshot.put("rentalsProcessed", rentals.sum());
+            snapshot.put("feesComputed", BigDecimal.valueOf(feeCents.sum(), 2));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "bookrental.outbox.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingOutboxSink implements OutboxSink {
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) {
+        for (OutboxMessage message : messages) {
+            log.info("Outbox message {} {}: {}", message.getMessageId(), message.getEventType(), message.getPayload());
+        }
+    }
+}
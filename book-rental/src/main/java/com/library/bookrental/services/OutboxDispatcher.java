@@ -0,0 +1,197 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code outbox_messages} into the configured {@link OutboxSink} in batches, in id
+ * order. A failed batch is retried with exponential backoff until {@code max-attempts} is
+ * reached, after which its messages stay in the table as dead letters. Delivery is at least
+ * once. In cluster mode a lease keeps the dispatcher on a single node.
+ */
+@Service
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final RowMapper<OutboxMessage> MESSAGE_ROW = (rs, rowNum) -> new OutboxMessage(
+            rs.getLong("message_id"),
+            rs.getString("event_type"),
+            rs.getLong("aggregate_id"),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getInt("attempts"),
+            rs.getTimestamp("next_attempt_at").toInstant(),
+            null,
+            rs.getString("last_error"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxSink outboxSink;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Value("${bookrental.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${bookrental.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${bookrental.outbox.max-batches-per-poll:50}")
+    private int maxBatchesPerPoll;
+
+    @Value("${bookrental.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${bookrental.outbox.retry-base-ms:1000}")
+    private long retryBaseMillis;
+
+    @Value("${bookrental.outbox.retry-max-ms:300000}")
+    private long retryMaxMillis;
+
+    @Value("${bookrental.outbox.retention-ms:86400000}")
+    private long retentionMillis;
+
+    @Value("${bookrental.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile double lastRunMessagesPerSecond;
+
+    @Scheduled(fixedDelayString = "${bookrental.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        if (clusterEnabled && !clusterLeaseService.tryAcquire("outbox-dispatcher",
+                Duration.ofMillis(Math.max(pollIntervalMillis * 5, 5000)))) {
+            return;
+        }
+        long started = System.nanoTime();
+        int delivered = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerPoll; batch++) {
+                List<OutboxMessage> messages = jdbcTemplate.query("select message_id, event_type, aggregate_id, "
+                                + "payload, created_at, attempts, next_attempt_at, last_error from outbox_messages "
+                                + "where dispatched_at is null and attempts < ? and next_attempt_at <= ? "
+                                + "order by message_id fetch first ? rows only",
+                        MESSAGE_ROW, maxAttempts, Timestamp.from(Instant.now()), batchSize);
+                if (messages.isEmpty() || !deliver(messages)) {
+                    break;
+                }
+                delivered += messages.size();
+                if (messages.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("An error occurred while dispatching outbox messages.", e);
+        }
+        if (delivered > 0) {
+            long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+            lastRunMessagesPerSecond = delivered * 1_000_000_000.0 / elapsedNanos;
+            log.debug("Dispatched {} outbox messages.", delivered);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.outbox.purge-interval-ms:600000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        int purged = jdbcTemplate.update("delete from outbox_messages where dispatched_at < ?",
+                Timestamp.from(Instant.now().minusMillis(retentionMillis)));
+        if (purged > 0) {
+            log.info("Purged {} dispatched outbox messages.", purged);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sink", outboxSink.getClass().getSimpleName());
+        metrics.put("dispatched", dispatched.get());
+        metrics.put("failedBatches", failedBatches.get());
+        metrics.put("deadLettered", deadLettered.get());
+        metrics.put("lastRunMessagesPerSecond", Math.round(lastRunMessagesPerSecond));
+        metrics.put("lastLagMillis", lastLagMillis);
+        metrics.put("maxLagMillis", maxLagMillis);
+        Map<String, Object> backlog = jdbcTemplate.queryForMap("select count(*) as pending, min(created_at) as oldest "
+                + "from outbox_messages where dispatched_at is null and attempts < ?", maxAttempts);
+        metrics.put("pending", ((Number) backlog.get("PENDING")).longValue());
+        Timestamp oldest = (Timestamp) backlog.get("OLDEST");
+        metrics.put("oldestPendingAgeMillis", oldest == null ? 0 : Instant.now().toEpochMilli() - oldest.getTime());
+        return metrics;
+    }
+
+    private boolean deliver(List<OutboxMessage> messages) {
+        try {
+            outboxSink.deliver(messages);
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            recordFailure(messages, e);
+            return false;
+        }
+
+        Instant now = Instant.now();
+        Timestamp dispatchedAt = Timestamp.from(now);
+        jdbcTemplate.batchUpdate("update outbox_messages set dispatched_at = ?, attempts = attempts + 1 "
+                + "where message_id = ?", messages.stream()
+                .map(message -> new Object[]{dispatchedAt, message.getMessageId()})
+                .toList());
+        dispatched.addAndGet(messages.size());
+
+        long lag = 0;
+        for (OutboxMessage message : messages) {
+            lag = Math.max(lag, now.toEpochMilli() - message.getCreatedAt().toEpochMilli());
+        }
+        lastLagMillis = lag;
+        maxLagMillis = Math.max(maxLagMillis, lag);
+        return true;
+    }
+
+    private void recordFailure(List<OutboxMessage> messages, Exception e) {
+        String error = String.valueOf(e.getMessage());
+        if (error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+        Instant now = Instant.now();
+        List<Object[]> updates = new ArrayList<>(messages.size());
+        int exhausted = 0;
+        for (OutboxMessage message : messages) {
+            int attempts = message.getAttempts() + 1;
+            long backoff = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+            updates.add(new Object[]{attempts, Timestamp.from(now.plusMillis(backoff)), error, message.getMessageId()});
+            if (attempts >= maxAttempts) {
+                exhausted++;
+            }
+        }
+        jdbcTemplate.batchUpdate("update outbox_messages set attempts = ?, next_attempt_at = ?, last_error = ? "
+                + "where message_id = ?", updates);
+        deadLettered.addAndGet(exhausted);
+        log.warn("Outbox delivery of {} messages failed, will retry: {}", messages.size(), error);
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.bookrental.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.bookrental.models.Rental;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes notification events to the {@code outbox_messages} table. The rows are inserted
+ * through the caller's transaction, so an event exists exactly when the rental change that
+ * caused it commits; {@link OutboxDispatcher} delivers them afterwards.
+ * <p>
+ * With rental sharding the rental rows live on the shards while the outbox stays on the
+ * primary database, so there the event commits after the shard write rather than with it.
+ */
+@Service
+@Slf4j
+public class OutboxService {
+
+    public static final String RENTAL_OVERDUE = "RENTAL_OVERDUE";
+    public static final String BOOK_RETURNED = "BOOK_RETURNED";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRentalsOverdue(List<Rental> rentals) {
+        record(RENTAL_OVERDUE, rentals);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBookReturned(Rental rental) {
+        record(BOOK_RETURNED, List.of(rental));
+    }
+
+    private void record(String eventType, List<Rental> rentals) {
+        if (rentals.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(rentals.size());
+        for (Rental rental : rentals) {
+            rows.add(new Object[]{eventType, rental.getRentalId(), payload(eventType, rental), now, now});
+        }
+        jdbcTemplate.batchUpdate("insert into outbox_messages (event_type, aggregate_id, payload, created_at, "
+                + "next_attempt_at, attempts) values (?, ?, ?, ?, ?, 0)", rows);
+        log.debug("Recorded {} {} outbox messages.", rows.size(), eventType);
+    }
+
+    private String payload(String eventType, Rental rental) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", eventType);
+        payload.put("rentalId", rental.getRentalId());
+        payload.put("bookId", rental.getBook() != null ? rental.getBook().getBookId() : null);
+        payload.put("renterName", rental.getRenterName());
+        payload.put("rentalDate", rental.getRentalDate());
+        payload.put("dueDate", rental.getDueDate());
+        payload.put("returnDate", rental.getReturnDate());
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialise outbox payload for rental " + rental.getRentalId(), e);
+        }
+    }
+}
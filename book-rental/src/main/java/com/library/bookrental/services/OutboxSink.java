@@ -0,0 +1,15 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Destination for outbox messages. A batch either succeeds as a whole or throws, in which
+ * case every message in it is retried; sinks therefore have to tolerate redelivery.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxMessage> messages) throws Exception;
+
+}
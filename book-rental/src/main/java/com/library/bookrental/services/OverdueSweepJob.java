@@ -0,0 +1,66 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.repositories.RentalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * In cluster mode the per-node timer wheel is off and overdue transitions come from this
+ * periodic sweep instead. It is scheduled on every node but guarded by a lease, so each
+ * period exactly one node runs it. Reminders are sent once per day by whichever node first
+ * claims that day's reminders; claims of past days are purged once they expire.
+ */
+@Service
+@Slf4j
+public class OverdueSweepJob {
+
+    private static final String REMINDERS_CLAIM_PREFIX = "rental-reminders-";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private RentalDueDateScheduler rentalDueDateScheduler;
+
+    @Autowired
+    private ClusterLeaseService clusterLeaseService;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${bookrental.cluster.overdue-sweep-lease-ms:55000}")
+    private long sweepLeaseMillis;
+
+    @Scheduled(fixedDelayString = "${bookrental.cluster.overdue-sweep-interval-ms:60000}")
+    public void sweep() {
+        if (!clusterEnabled || !clusterLeaseService.tryAcquire("overdue-sweep", Duration.ofMillis(sweepLeaseMillis))) {
+            return;
+        }
+        try {
+            bookService.checkForOverdueRentals();
+            sendRemindersOnce(LocalDate.now());
+        } catch (Exception e) {
+            log.error("An error occurred during the overdue sweep.", e);
+        }
+    }
+
+    private void sendRemindersOnce(LocalDate today) {
+        if (!clusterLeaseService.tryClaimOnce(REMINDERS_CLAIM_PREFIX + today, Duration.ofDays(2))) {
+            return;
+        }
+        clusterLeaseService.purgeExpired(REMINDERS_CLAIM_PREFIX);
+        LocalDate dueDate = today.plusDays(rentalDueDateScheduler.getReminderDaysBeforeDue());
+        for (Long rentalId : rentalRepository.findActiveRentalIdsDueOn(dueDate)) {
+            rentalDueDateScheduler.sendReminder(rentalId, dueDate);
+        }
+    }
+}
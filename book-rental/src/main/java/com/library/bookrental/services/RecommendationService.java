@@ -0,0 +1,360 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.BookRecommendation;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.repositories.BookRepository;
+import com.library.bookrental.repositories.RentalShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves "renters of this book also rented" from a {@link CoRentalIndex} held in memory.
+ * Every committed rental updates the index and, in cluster mode, is passed on to the other
+ * nodes through the {@link ClusterEventBus}. A full rebuild from the rental history runs
+ * at startup and periodically, which also brings back in line a node that missed events.
+ * <p>
+ * A renter's history is kept per branch, so books are only ever paired with books of
+ * their own branch, and a book's recommendations are only served within its branch.
+ */
+@Service
+@Slf4j
+public class RecommendationService {
+
+    private static final String RENTAL_TOPIC = "co-rentals";
+
+    private static final String HISTORY_SQL =
+            "select renter_name, book_id, rental_id, branch_id from rentals where renter_name is not null "
+                    + "order by rental_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @Value("${bookrental.recommendations.max-neighbours:32}")
+    private int maxNeighbours;
+
+    @Value("${bookrental.recommendations.history-length:20}")
+    private int historyLength;
+
+    @Value("${bookrental.recommendations.max-renters:100000}")
+    private int maxRenters;
+
+    @Value("${bookrental.recommendations.max-results:50}")
+    private int maxResults;
+
+    @Value("${bookrental.recommendations.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${bookrental.recommendations.rebuild-threads:0}")
+    private int rebuildThreads;
+
+    @Value("${bookrental.recommendations.fetch-size:1000}")
+    private int fetchSize;
+
+    private final Object indexLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong recordedRentals = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final ExecutorService rebuildTrigger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile CoRentalIndex index;
+    /** Rentals recorded while a rebuild is reading the history, replayed onto its result. */
+    private List<PendingRental> pendingDuringRebuild;
+    private volatile long lastRebuildMillis = -1;
+    private volatile long lastRebuildRentals;
+
+    /**
+     * Books most often rented together with the given one, or none if the book is unknown or
+     * belongs to another branch than the caller's.
+     */
+    public List<BookRecommendation> getRecommendations(long bookId, int limit) {
+        if (BranchContextFilter.currentBranchId() != null && bookRepository.findById(bookId)
+                .filter(book -> BranchContextFilter.isVisible(book.getBranchId())).isEmpty()) {
+            return List.of();
+        }
+        CoRentalIndex current = index();
+        return current.top(bookId, Math.min(limit, maxResults));
+    }
+
+    @PostConstruct
+    public void subscribeToRentals() {
+        clusterEventBus.subscribe(RENTAL_TOPIC, payload -> {
+            int separator = payload.indexOf(' ');
+            apply(Long.parseLong(payload.substring(0, separator)), payload.substring(separator + 1));
+        });
+    }
+
+    /**
+     * Counts a rental once its transaction commits, or straight away outside a transaction.
+     */
+    public void recordRental(long bookId, Long branchId, String renterName) {
+        if (renterName == null) {
+            return;
+        }
+        String renter = renterKey(branchId, renterName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recorded(bookId, renter);
+                }
+            });
+        } else {
+            recorded(bookId, renter);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuildTrigger.execute(this::rebuildQuietly);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.recommendations.rebuild-interval-ms:21600000}",
+            initialDelayString = "${bookrental.recommendations.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        rebuildTrigger.execute(this::rebuildQuietly);
+    }
+
+    /**
+     * Rebuilds the index from the whole rental history, counting pairs on all cores, and
+     * swaps it in. Fails if a rebuild is already running.
+     */
+    public Map<String, Object> rebuild() throws InterruptedException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A recommendation rebuild is already running.");
+        }
+        int threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-rebuild-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long start = System.nanoTime();
+            synchronized (indexLock) {
+                pendingDuringRebuild = new ArrayList<>();
+            }
+            AtomicInteger rentals = new AtomicInteger();
+            Map<String, long[]> histories = loadHistories(rentals);
+            long loaded = System.nanoTime();
+            CoRentalIndex built = CoRentalIndex.build(histories, maxNeighbours, historyLength, maxRenters, workers,
+                    threads);
+            synchronized (indexLock) {
+                for (PendingRental rental : pendingDuringRebuild) {
+                    built.record(rental.renterName(), rental.bookId());
+                }
+                pendingDuringRebuild = null;
+                index = built;
+            }
+            rebuilds.incrementAndGet();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+            lastRebuildRentals = rentals.get();
+            log.info("Rebuilt recommendations from {} rentals of {} renters in {} ms ({} ms reading, {} threads).",
+                    rentals.get(), histories.size(), lastRebuildMillis, (loaded - start) / 1_000_000, threads);
+        } finally {
+            synchronized (indexLock) {
+                pendingDuringRebuild = null;
+            }
+            workers.shutdownNow();
+            rebuilding.set(false);
+        }
+        return getMetrics();
+    }
+
+    public Map<String, Object> getMetrics() {
+        CoRentalIndex current = index();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("books", current.getBookCount());
+        metrics.put("renters", current.getRenterCount());
+        metrics.put("footprintBytes", current.getFootprintBytes());
+        metrics.put("recordedRentals", recordedRentals.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("rebuilding", rebuilding.get());
+        metrics.put("lastRebuildMillis", lastRebuildMillis);
+        metrics.put("lastRebuildRentals", lastRebuildRentals);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuildTrigger.shutdownNow();
+    }
+
+    private void recorded(long bookId, String renter) {
+        apply(bookId, renter);
+        clusterEventBus.publish(RENTAL_TOPIC, bookId + " " + renter);
+    }
+
+    private void apply(long bookId, String renterName) {
+        synchronized (indexLock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(new PendingRental(renterName, bookId));
+            }
+            index().record(renterName, bookId);
+        }
+        recordedRentals.incrementAndGet();
+    }
+
+    private CoRentalIndex index() {
+        CoRentalIndex current = index;
+        if (current == null) {
+            synchronized (indexLock) {
+                if (index == null) {
+                    index = new CoRentalIndex(maxNeighbours, historyLength, maxRenters);
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (IllegalStateException e) {
+            log.info(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild recommendations.", e);
+        }
+    }
+
+    /**
+     * Reads every renter's rentals in rental id order, from all shards when rentals are
+     * sharded, and returns the histories ordered by their latest rental.
+     */
+    private Map<String, long[]> loadHistories(AtomicInteger rentals) {
+        Map<String, History> histories = new HashMap<>();
+        RentalShards shards = rentalShards.getIfAvailable();
+        List<JdbcTemplate> sources = new ArrayList<>();
+        if (shards == null) {
+            sources.add(jdbcTemplate);
+        } else {
+            for (int i = 0; i < shards.size(); i++) {
+                sources.add(shards.shard(i));
+            }
+        }
+        for (JdbcTemplate source : sources) {
+            source.query(connection -> {
+                var statement = connection.prepareStatement(HISTORY_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, rs -> {
+                histories.computeIfAbsent(renterKey(rs.getLong(4), rs.getString(1)), renter -> new History())
+                        .add(rs.getLong(3), rs.getLong(2));
+                rentals.incrementAndGet();
+            });
+        }
+
+        if (sources.size() > 1) {
+            histories.values().forEach(History::sortByRentalId);
+        }
+        List<Map.Entry<String, History>> entries = new ArrayList<>(histories.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastRentalId()));
+        Map<String, long[]> ordered = new LinkedHashMap<>(entries.size() * 2);
+        for (Map.Entry<String, History> entry : entries) {
+            ordered.put(entry.getKey(), entry.getValue().bookIds());
+        }
+        return ordered;
+    }
+
+    /**
+     * The same renter in two branches has two histories, so no pair spans branches.
+     */
+    private static String renterKey(Long branchId, String renterName) {
+        return (branchId != null ? branchId : BranchContextFilter.DEFAULT_BRANCH_ID) + "/" + renterName;
+    }
+
+    private record PendingRental(String renterName, long bookId) {
+    }
+
+    /**
+     * Rentals of one renter as parallel arrays of rental id and book id.
+     */
+    private static class History {
+
+        private long[] rentalIds = new long[4];
+        private long[] bookIds = new long[4];
+        private int size;
+
+        void add(long rentalId, long bookId) {
+            if (size == rentalIds.length) {
+                rentalIds = Arrays.copyOf(rentalIds, size * 2);
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+            }
+            rentalIds[size] = rentalId;
+            bookIds[size] = bookId;
+            size++;
+        }
+
+        long lastRentalId() {
+            return rentalIds[size - 1];
+        }
+
+        long[] bookIds() {
+            return Arrays.copyOf(bookIds, size);
+        }
+
+        /**
+         * Rows from several shards arrive in per-shard order; sorting by rental id restores
+         * the order the renter rented in.
+         */
+        void sortByRentalId() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> rentalIds[i]));
+            long[] sortedRentals = new long[size];
+            long[] sortedBooks = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedRentals[i] = rentalIds[order[i]];
+                sortedBooks[i] = bookIds[order[i]];
+            }
+            rentalIds = sortedRentals;
+            bookIds = sortedBooks;
+        }
+    }
+}
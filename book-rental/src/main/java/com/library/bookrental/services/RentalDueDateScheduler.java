@@ -0,0 +1,191 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.Rental;
+import com.library.bookrental.repositories.RentalRepository;
+import com.library.bookrental.utils.HashedTimerWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Fires overdue transitions and due-date reminders for active rentals from an in-process
+ * timer wheel, instead of scanning the rentals table. The wheel is rebuilt from the active
+ * rentals when the application starts.
+ */
+@Service
+@Slf4j
+public class RentalDueDateScheduler {
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookrental.rental.period-days:14}")
+    private int rentalPeriodDays;
+
+    @Value("${bookrental.rental.reminder-days-before-due:2}")
+    private int reminderDaysBeforeDue;
+
+    @Value("${bookrental.scheduler.tick-millis:60000}")
+    private long tickMillis;
+
+    @Value("${bookrental.scheduler.wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${bookrental.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Long, List<HashedTimerWheel.Timeout<RentalTimer>>> timersByRental = new ConcurrentHashMap<>();
+    private final AtomicLong overdueFired = new AtomicLong();
+    private final AtomicLong remindersFired = new AtomicLong();
+
+    private HashedTimerWheel<RentalTimer> wheel;
+    private ScheduledExecutorService ticker;
+
+    public LocalDate dueDateFor(LocalDate rentalDate) {
+        return rentalDate.plusDays(rentalPeriodDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void start() {
+        if (clusterEnabled) {
+            // Timers only know the rentals created on their own node; OverdueSweepJob takes over.
+            log.info("Cluster mode enabled, rental due-date wheel not started.");
+            return;
+        }
+        wheel = new HashedTimerWheel<>(tickMillis, wheelSize, System.currentTimeMillis(), this::onExpired);
+        try (Stream<RentalRepository.ActiveRentalDueDate> active = rentalRepository.streamActiveDueDates()) {
+            active.forEach(rental -> schedule(rental.getRentalId(),
+                    rental.getDueDate() != null ? rental.getDueDate() : dueDateFor(rental.getRentalDate())));
+        }
+        log.info("Rental due-date scheduler started with {} active rentals.", timersByRental.size());
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rental-due-date-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public void schedule(Rental rental) {
+        schedule(rental.getRentalId(), rental.getDueDate());
+    }
+
+    public void cancel(Long rentalId) {
+        List<HashedTimerWheel.Timeout<RentalTimer>> timers = timersByRental.remove(rentalId);
+        if (timers != null) {
+            timers.forEach(HashedTimerWheel.Timeout::cancel);
+        }
+    }
+
+    public int getReminderDaysBeforeDue() {
+        return reminderDaysBeforeDue;
+    }
+
+    public int getPendingRentals() {
+        return timersByRental.size();
+    }
+
+    public long getOverdueFired() {
+        return overdueFired.get();
+    }
+
+    public long getRemindersFired() {
+        return remindersFired.get();
+    }
+
+    private void schedule(Long rentalId, LocalDate dueDate) {
+        if (wheel == null || dueDate == null) {
+            // Rentals created before startup completes are picked up by the rebuild.
+            return;
+        }
+        List<HashedTimerWheel.Timeout<RentalTimer>> timers = new ArrayList<>(2);
+        long now = System.currentTimeMillis();
+        long reminderAt = toMillis(dueDate.minusDays(reminderDaysBeforeDue));
+        if (reminderAt > now) {
+            timers.add(wheel.schedule(new RentalTimer(rentalId, dueDate, TimerType.REMINDER), reminderAt));
+        }
+        // A rental becomes overdue once the due date itself has passed.
+        timers.add(wheel.schedule(new RentalTimer(rentalId, dueDate, TimerType.OVERDUE), toMillis(dueDate.plusDays(1))));
+        timersByRental.put(rentalId, timers);
+    }
+
+    private void tick() {
+        try {
+            wheel.advance(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("An error occurred while advancing the rental due-date wheel.", e);
+        }
+    }
+
+    private void onExpired(List<RentalTimer> expired) {
+        List<Long> overdueRentalIds = new ArrayList<>();
+        for (RentalTimer timer : expired) {
+            if (timer.type() == TimerType.OVERDUE) {
+                overdueRentalIds.add(timer.rentalId());
+                timersByRental.remove(timer.rentalId());
+            } else {
+                sendReminder(timer.rentalId(), timer.dueDate());
+            }
+        }
+        if (!overdueRentalIds.isEmpty()) {
+            int updated = transactionTemplate.execute(status -> {
+                List<Rental> overdue = rentalRepository.markOverdue(overdueRentalIds);
+                outboxService.recordRentalsOverdue(overdue);
+                return overdue.size();
+            });
+            overdueFired.addAndGet(updated);
+            log.info("Marked {} rentals as overdue.", updated);
+        }
+    }
+
+    public void sendReminder(Long rentalId, LocalDate dueDate) {
+        remindersFired.incrementAndGet();
+        log.info("Reminder: rental {} is due on {}.", rentalId, dueDate);
+    }
+
+    private long toMillis(LocalDate date) {
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private enum TimerType {
+        REMINDER,
+        OVERDUE
+    }
+
+    private record RentalTimer(Long rentalId, LocalDate dueDate, TimerType type) {
+    }
+}
@@ -0,0 +1,228 @@
+package com.library.bookrental.services;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable index of closed rental periods, answering "was this book out on a day" and
+ * "which books were out at some point between two days". Days are epoch days and both ends
+ * of a period are inclusive, since a book is out on the day it is returned.
+ * <p>
+ * Every period is held twice in primitive arrays. Grouped by book and ordered by start,
+ * with the latest end seen so far within the book, a point lookup is two binary searches.
+ * Ordered by start alone, with the latest end of every block of {@value #BLOCK_SIZE}
+ * periods kept in an implicit max-tree, a range lookup skips each subtree whose periods all
+ * ended before the range began, so it costs O(log n) plus the blocks that hold a match.
+ */
+public class RentalIntervalIndex {
+
+    static final int BLOCK_SIZE = 64;
+
+    private static final RentalIntervalIndex EMPTY = build(new long[0], new long[0], new int[0], new int[0], 0);
+
+    /** Distinct books in ascending order, with the branch each belongs to. */
+    private final long[] bookIds;
+    private final long[] bookBranches;
+    /** Periods of {@code bookIds[i]} are at {@code [bookOffsets[i], bookOffsets[i + 1])} of the book arrays. */
+    private final int[] bookOffsets;
+    private final int[] bookStarts;
+    private final int[] bookReach;
+
+    /** All periods ordered by start, with the index of their book. */
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] bookIndexes;
+    /** Latest end per node of a complete binary tree over the blocks; leaves start at {@code leafBase}. */
+    private final int[] blockReach;
+    private final int leafBase;
+
+    private RentalIntervalIndex(long[] bookIds, long[] bookBranches, int[] bookOffsets, int[] bookStarts,
+                                int[] bookReach, int[] starts, int[] ends, int[] bookIndexes) {
+        this.bookIds = bookIds;
+        this.bookBranches = bookBranches;
+        this.bookOffsets = bookOffsets;
+        this.bookStarts = bookStarts;
+        this.bookReach = bookReach;
+        this.starts = starts;
+        this.ends = ends;
+        this.bookIndexes = bookIndexes;
+
+        int blocks = Math.max(1, (starts.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        this.leafBase = Integer.highestOneBit(blocks) == blocks ? blocks : Integer.highestOneBit(blocks) << 1;
+        this.blockReach = new int[2 * leafBase];
+        Arrays.fill(blockReach, Integer.MIN_VALUE);
+        for (int i = 0; i < ends.length; i++) {
+            int leaf = leafBase + i / BLOCK_SIZE;
+            blockReach[leaf] = Math.max(blockReach[leaf], ends[i]);
+        }
+        for (int node = leafBase - 1; node > 0; node--) {
+            blockReach[node] = Math.max(blockReach[2 * node], blockReach[2 * node + 1]);
+        }
+    }
+
+    public static RentalIntervalIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds an index over the first {@code size} periods of the given arrays. Periods of
+     * one book may overlap; the arrays are not modified.
+     */
+    public static RentalIntervalIndex build(long[] bookIds, long[] branchIds, int[] starts, int[] ends, int size) {
+        // Sort by start through packed (start, position) keys, which avoids boxing.
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) starts[i] << 32) | i;
+        }
+        Arrays.parallelSort(keys);
+
+        long[] distinct = Arrays.copyOf(bookIds, size);
+        Arrays.parallelSort(distinct);
+        int books = 0;
+        for (int i = 0; i < size; i++) {
+            if (books == 0 || distinct[books - 1] != distinct[i]) {
+                distinct[books++] = distinct[i];
+            }
+        }
+        distinct = Arrays.copyOf(distinct, books);
+
+        long[] bookBranches = new long[books];
+        int[] bookOffsets = new int[books + 1];
+        int[] sortedStarts = new int[size];
+        int[] sortedEnds = new int[size];
+        int[] sortedBooks = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            int i = (int) keys[rank];
+            int book = Arrays.binarySearch(distinct, bookIds[i]);
+            sortedStarts[rank] = starts[i];
+            sortedEnds[rank] = ends[i];
+            sortedBooks[rank] = book;
+            bookBranches[book] = branchIds[i];
+            bookOffsets[book + 1]++;
+        }
+
+        // Group by book with a counting sort, which keeps each book's periods ordered by start.
+        for (int book = 0; book < books; book++) {
+            bookOffsets[book + 1] += bookOffsets[book];
+        }
+        int[] next = Arrays.copyOf(bookOffsets, books);
+        int[] bookStarts = new int[size];
+        int[] bookReach = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            int position = next[sortedBooks[rank]]++;
+            bookStarts[position] = sortedStarts[rank];
+            bookReach[position] = sortedEnds[rank];
+        }
+        for (int book = 0; book < books; book++) {
+            for (int position = bookOffsets[book] + 1; position < bookOffsets[book + 1]; position++) {
+                bookReach[position] = Math.max(bookReach[position], bookReach[position - 1]);
+            }
+        }
+        return new RentalIntervalIndex(distinct, bookBranches, bookOffsets, bookStarts, bookReach, sortedStarts,
+                sortedEnds, sortedBooks);
+    }
+
+    /**
+     * A new index holding the periods of this one and the first {@code size} given periods.
+     */
+    public RentalIntervalIndex merge(long[] bookIds, long[] branchIds, int[] starts, int[] ends, int size) {
+        int total = this.starts.length + size;
+        long[] allBooks = new long[total];
+        long[] allBranches = new long[total];
+        int[] allStarts = Arrays.copyOf(this.starts, total);
+        int[] allEnds = Arrays.copyOf(this.ends, total);
+        for (int i = 0; i < this.starts.length; i++) {
+            allBooks[i] = this.bookIds[bookIndexes[i]];
+            allBranches[i] = bookBranches[bookIndexes[i]];
+        }
+        System.arraycopy(bookIds, 0, allBooks, this.starts.length, size);
+        System.arraycopy(branchIds, 0, allBranches, this.starts.length, size);
+        System.arraycopy(starts, 0, allStarts, this.starts.length, size);
+        System.arraycopy(ends, 0, allEnds, this.starts.length, size);
+        return build(allBooks, allBranches, allStarts, allEnds, total);
+    }
+
+    /**
+     * Whether a period of the book covers the day. With a branch given, books of other
+     * branches are never out.
+     */
+    public boolean isRented(long bookId, int day, Long branchId) {
+        int book = Arrays.binarySearch(bookIds, bookId);
+        if (book < 0 || (branchId != null && bookBranches[book] != branchId)) {
+            return false;
+        }
+        int first = bookOffsets[book];
+        int last = upperBound(bookStarts, first, bookOffsets[book + 1], day) - 1;
+        return last >= first && bookReach[last] >= day;
+    }
+
+    /**
+     * Books with a period overlapping {@code [from, to]}, in ascending order, limited to one
+     * branch when it is given.
+     */
+    public long[] booksRented(int from, int to, Long branchId) {
+        BitSet found = new BitSet(bookIds.length);
+        int limit = upperBound(starts, 0, starts.length, to);
+        collect(1, 0, leafBase, limit, from, found);
+
+        long[] result = new long[found.cardinality()];
+        int count = 0;
+        for (int book = found.nextSetBit(0); book >= 0; book = found.nextSetBit(book + 1)) {
+            if (branchId == null || bookBranches[book] == branchId) {
+                result[count++] = bookIds[book];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public int getBookCount() {
+        return bookIds.length;
+    }
+
+    public long getFootprintBytes() {
+        return 16L * bookIds.length + 4L * bookOffsets.length + 20L * starts.length + 4L * blockReach.length;
+    }
+
+    /**
+     * Marks the books of periods among the first {@code limit} by start that end on or after
+     * {@code from}, descending only into subtrees of blocks that reach that far.
+     */
+    private void collect(int node, int firstBlock, int blockCount, int limit, int from, BitSet found) {
+        if ((long) firstBlock * BLOCK_SIZE >= limit || blockReach[node] < from) {
+            return;
+        }
+        if (node >= leafBase) {
+            int end = Math.min(limit, (firstBlock + 1) * BLOCK_SIZE);
+            for (int i = firstBlock * BLOCK_SIZE; i < end; i++) {
+                if (ends[i] >= from) {
+                    found.set(bookIndexes[i]);
+                }
+            }
+            return;
+        }
+        int half = blockCount / 2;
+        collect(2 * node, firstBlock, half, limit, from, found);
+        collect(2 * node + 1, firstBlock + half, half, limit, from, found);
+    }
+
+    /**
+     * The first position in {@code [from, to)} whose value is greater than {@code key}.
+     */
+    private static int upperBound(int[] values, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,554 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.RentedBooks;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.models.Rental;
+import com.library.bookrental.repositories.RentalShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Answers "was this book out on a day" and "which books were out during a period" without
+ * scanning the rentals table. Closed rentals live in an immutable {@link RentalIntervalIndex};
+ * open rentals and rentals returned since that index was built are held beside it and
+ * updated as rentals commit. In cluster mode every committed start and return is also passed
+ * on to the other nodes through the {@link ClusterEventBus}, so they see it within a poll
+ * interval. Once enough returns have gathered they are merged into a new index in the
+ * background. A full rebuild from the rental history runs at startup and periodically,
+ * which also drops deleted rentals and brings back in line a node that missed events.
+ */
+@Service
+@Slf4j
+public class RentalIntervalService {
+
+    private static final String INTERVAL_TOPIC = "rental-intervals";
+    private static final String STARTED = "started";
+    private static final String ENDED = "ended";
+
+    private static final String HISTORY_SQL = "select rental_id, book_id, branch_id, rental_date, return_date "
+            + "from rentals where rental_date is not null and book_id is not null";
+
+    /** End of a period that has not closed yet. */
+    private static final int OPEN = Integer.MAX_VALUE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @Value("${bookrental.rental-intervals.merge-threshold:10000}")
+    private int mergeThreshold;
+
+    @Value("${bookrental.rental-intervals.max-results:10000}")
+    private int maxResults;
+
+    @Value("${bookrental.rental-intervals.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${bookrental.rental-intervals.fetch-size:1000}")
+    private int fetchSize;
+
+    /** Guards the live rentals, the index reference and the pending events. */
+    private final Object indexLock = new Object();
+    /** Held while an index is built, so that merges and rebuilds do not overlap. */
+    private final Object buildLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean mergeQueued = new AtomicBoolean();
+    private final AtomicLong recordedEvents = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rental-interval-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile RentalIntervalIndex index = RentalIntervalIndex.empty();
+    private LiveRentals live = new LiveRentals();
+    /** Events recorded while a rebuild is reading the history, replayed onto its result. */
+    private List<Consumer<LiveRentals>> pendingDuringRebuild;
+    private volatile long lastRebuildMillis = -1;
+
+    /**
+     * Whether the book was out on the given day, limited to the current branch.
+     */
+    public boolean isRented(long bookId, LocalDate date) {
+        int day = toDay(date);
+        Long branchId = BranchContextFilter.currentBranchId();
+        synchronized (indexLock) {
+            if (live.isRented(bookId, day, branchId)) {
+                return true;
+            }
+        }
+        return index.isRented(bookId, day, branchId);
+    }
+
+    /**
+     * Books of the current branch that were out on at least one day between {@code from} and
+     * {@code to}, both inclusive, in ascending id order and cut off at the configured maximum.
+     */
+    public RentedBooks getBooksRented(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to.");
+        }
+        int fromDay = toDay(from);
+        int toDay = toDay(to);
+        Long branchId = BranchContextFilter.currentBranchId();
+
+        TreeSet<Long> recent = new TreeSet<>();
+        RentalIntervalIndex current;
+        synchronized (indexLock) {
+            live.collect(fromDay, toDay, branchId, recent);
+            current = index;
+        }
+        long[] indexed = current.booksRented(fromDay, toDay, branchId);
+        long[] recentIds = recent.stream().mapToLong(Long::longValue).toArray();
+
+        long[] merged = new long[Math.min(maxResults, indexed.length + recentIds.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while ((i < indexed.length || j < recentIds.length) && count < merged.length) {
+            if (j == recentIds.length || (i < indexed.length && indexed[i] <= recentIds[j])) {
+                if (j < recentIds.length && recentIds[j] == indexed[i]) {
+                    j++;
+                }
+                merged[count++] = indexed[i++];
+            } else {
+                merged[count++] = recentIds[j++];
+            }
+        }
+        boolean truncated = i < indexed.length || j < recentIds.length;
+        return new RentedBooks(from, to, Arrays.copyOf(merged, count), truncated);
+    }
+
+    /**
+     * Records a new rental once its transaction commits, or straight away outside a transaction.
+     */
+    public void rentalStarted(Rental rental) {
+        if (!isIndexable(rental)) {
+            return;
+        }
+        OpenRental open = new OpenRental(rental.getRentalId(), rental.getBook().getBookId(), branchOf(rental),
+                toDay(rental.getRentalDate()));
+        afterCommit(liveRentals -> liveRentals.open(open), String.join(" ", STARTED,
+                Long.toString(open.rentalId()), Long.toString(open.bookId()), Long.toString(open.branchId()),
+                Integer.toString(open.start())));
+    }
+
+    /**
+     * Records a returned rental once its transaction commits, or straight away outside a transaction.
+     */
+    public void rentalEnded(Rental rental) {
+        if (!isIndexable(rental) || rental.getReturnDate() == null) {
+            return;
+        }
+        long rentalId = rental.getRentalId();
+        ClosedRental closed = new ClosedRental(rental.getBook().getBookId(), branchOf(rental),
+                toDay(rental.getRentalDate()), toDay(rental.getReturnDate()));
+        afterCommit(liveRentals -> liveRentals.close(rentalId, closed), String.join(" ", ENDED,
+                Long.toString(rentalId), Long.toString(closed.bookId()), Long.toString(closed.branchId()),
+                Integer.toString(closed.start()), Integer.toString(closed.end())));
+    }
+
+    @PostConstruct
+    public void subscribeToRentals() {
+        clusterEventBus.subscribe(INTERVAL_TOPIC, payload -> {
+            String[] fields = payload.split(" ");
+            long rentalId = Long.parseLong(fields[1]);
+            long bookId = Long.parseLong(fields[2]);
+            long branchId = Long.parseLong(fields[3]);
+            int start = Integer.parseInt(fields[4]);
+            if (STARTED.equals(fields[0])) {
+                apply(liveRentals -> liveRentals.open(new OpenRental(rentalId, bookId, branchId, start)));
+            } else {
+                ClosedRental closed = new ClosedRental(bookId, branchId, start, Integer.parseInt(fields[5]));
+                apply(liveRentals -> liveRentals.close(rentalId, closed));
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            requestRebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookrental.rental-intervals.rebuild-interval-ms:21600000}",
+            initialDelayString = "${bookrental.rental-intervals.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    /**
+     * Queues a rebuild, for writers that replaced the rental history wholesale.
+     */
+    public void requestRebuild() {
+        background.execute(this::rebuildQuietly);
+    }
+
+    /**
+     * Rebuilds the index from the whole rental history, from all shards when rentals are
+     * sharded, and swaps it in. Fails if a rebuild is already running.
+     */
+    public Map<String, Object> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rental interval rebuild is already running.");
+        }
+        try {
+            synchronized (buildLock) {
+                long start = System.nanoTime();
+                synchronized (indexLock) {
+                    pendingDuringRebuild = new ArrayList<>();
+                }
+                History history = loadHistory();
+                RentalIntervalIndex built = RentalIntervalIndex.build(history.bookIds, history.branchIds,
+                        history.starts, history.ends, history.size);
+                synchronized (indexLock) {
+                    for (Consumer<LiveRentals> event : pendingDuringRebuild) {
+                        event.accept(history.live);
+                    }
+                    pendingDuringRebuild = null;
+                    index = built;
+                    live = history.live;
+                }
+                rebuilds.incrementAndGet();
+                lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+                log.info("Rebuilt rental intervals from {} closed and {} open rentals in {} ms.",
+                        history.size, history.live.openCount(), lastRebuildMillis);
+            }
+        } finally {
+            synchronized (indexLock) {
+                pendingDuringRebuild = null;
+            }
+            rebuilding.set(false);
+        }
+        return getMetrics();
+    }
+
+    public Map<String, Object> getMetrics() {
+        RentalIntervalIndex current;
+        int open;
+        int recent;
+        synchronized (indexLock) {
+            current = index;
+            open = live.openCount();
+            recent = live.closedCount();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("indexedRentals", current.size());
+        metrics.put("indexedBooks", current.getBookCount());
+        metrics.put("footprintBytes", current.getFootprintBytes());
+        metrics.put("openRentals", open);
+        metrics.put("recentlyReturned", recent);
+        metrics.put("recordedEvents", recordedEvents.get());
+        metrics.put("merges", merges.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("rebuilding", rebuilding.get());
+        metrics.put("lastRebuildMillis", lastRebuildMillis);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void stop() {
+        background.shutdownNow();
+    }
+
+    private void afterCommit(Consumer<LiveRentals> event, String clusterPayload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(event);
+                    clusterEventBus.publish(INTERVAL_TOPIC, clusterPayload);
+                }
+            });
+        } else {
+            apply(event);
+            clusterEventBus.publish(INTERVAL_TOPIC, clusterPayload);
+        }
+    }
+
+    private void apply(Consumer<LiveRentals> event) {
+        boolean merge;
+        synchronized (indexLock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+            event.accept(live);
+            merge = live.closedCount() >= mergeThreshold;
+        }
+        recordedEvents.incrementAndGet();
+        if (merge && mergeQueued.compareAndSet(false, true)) {
+            background.execute(this::mergeReturned);
+        }
+    }
+
+    /**
+     * Moves the rentals returned since the index was built into a new index. Until the new
+     * index is swapped in they stay visible to lookups.
+     */
+    private void mergeReturned() {
+        try {
+            synchronized (buildLock) {
+                RentalIntervalIndex current;
+                List<ClosedRental> returned;
+                synchronized (indexLock) {
+                    mergeQueued.set(false);
+                    current = index;
+                    returned = live.startMerge();
+                }
+                int size = returned.size();
+                long[] bookIds = new long[size];
+                long[] branchIds = new long[size];
+                int[] starts = new int[size];
+                int[] ends = new int[size];
+                for (int i = 0; i < size; i++) {
+                    ClosedRental rental = returned.get(i);
+                    bookIds[i] = rental.bookId();
+                    branchIds[i] = rental.branchId();
+                    starts[i] = rental.start();
+                    ends[i] = rental.end();
+                }
+                RentalIntervalIndex merged = current.merge(bookIds, branchIds, starts, ends, size);
+                synchronized (indexLock) {
+                    index = merged;
+                    live.finishMerge();
+                }
+                merges.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to merge returned rentals into the interval index.", e);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (IllegalStateException e) {
+            log.info(e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild rental intervals.", e);
+        }
+    }
+
+    private History loadHistory() {
+        History history = new History();
+        RentalShards shards = rentalShards.getIfAvailable();
+        List<JdbcTemplate> sources = new ArrayList<>();
+        if (shards == null) {
+            sources.add(jdbcTemplate);
+        } else {
+            for (int i = 0; i < shards.size(); i++) {
+                sources.add(shards.shard(i));
+            }
+        }
+        for (JdbcTemplate source : sources) {
+            source.query(connection -> {
+                var statement = connection.prepareStatement(HISTORY_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, rs -> {
+                int start = toDay(rs.getDate(4).toLocalDate());
+                Date returned = rs.getDate(5);
+                if (returned == null) {
+                    history.live.open(new OpenRental(rs.getLong(1), rs.getLong(2), rs.getLong(3), start));
+                } else {
+                    history.add(rs.getLong(2), rs.getLong(3), start, toDay(returned.toLocalDate()));
+                }
+            });
+        }
+        return history;
+    }
+
+    private static boolean isIndexable(Rental rental) {
+        return rental.getRentalId() != null && rental.getRentalDate() != null && rental.getBook() != null
+                && rental.getBook().getBookId() != null;
+    }
+
+    /**
+     * Epoch day of a date, clamped below {@link #OPEN} so that far-off dates stay comparable.
+     */
+    private static int toDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(OPEN - 1, date.toEpochDay()));
+    }
+
+    private static long branchOf(Rental rental) {
+        if (rental.getBranchId() != null) {
+            return rental.getBranchId();
+        }
+        Long bookBranch = rental.getBook().getBranchId();
+        return bookBranch != null ? bookBranch : BranchContextFilter.DEFAULT_BRANCH_ID;
+    }
+
+    private record OpenRental(long rentalId, long bookId, long branchId, int start) {
+    }
+
+    private record ClosedRental(long bookId, long branchId, int start, int end) {
+    }
+
+    /**
+     * Open rentals and rentals returned since the index was built. Open rentals are kept by
+     * book for point lookups and by start day for range lookups, where every open rental that
+     * started by the end of the range is a match. Returned rentals are few, bounded by the
+     * merge threshold, and are scanned.
+     */
+    private static class LiveRentals {
+
+        private final Map<Long, OpenRental> openById = new HashMap<>();
+        private final Map<Long, List<OpenRental>> openByBook = new HashMap<>();
+        private final TreeMap<Integer, Map<Long, OpenRental>> openByStart = new TreeMap<>();
+        private List<ClosedRental> returned = new ArrayList<>();
+        private List<ClosedRental> merging = List.of();
+
+        void open(OpenRental rental) {
+            if (openById.putIfAbsent(rental.rentalId(), rental) != null) {
+                return;
+            }
+            openByBook.computeIfAbsent(rental.bookId(), bookId -> new ArrayList<>(1)).add(rental);
+            openByStart.computeIfAbsent(rental.start(), start -> new HashMap<>()).put(rental.rentalId(), rental);
+        }
+
+        /**
+         * Closes an open rental. The returned period is kept even if the rental was never
+         * seen open, since it may have been opened before the index knew of it; a period that
+         * the index already holds is harmless when counted twice.
+         */
+        void close(long rentalId, ClosedRental closed) {
+            OpenRental rental = openById.remove(rentalId);
+            if (rental != null) {
+                List<OpenRental> ofBook = openByBook.get(rental.bookId());
+                ofBook.remove(rental);
+                if (ofBook.isEmpty()) {
+                    openByBook.remove(rental.bookId());
+                }
+                Map<Long, OpenRental> ofDay = openByStart.get(rental.start());
+                ofDay.remove(rentalId);
+                if (ofDay.isEmpty()) {
+                    openByStart.remove(rental.start());
+                }
+            }
+            returned.add(closed);
+        }
+
+        boolean isRented(long bookId, int day, Long branchId) {
+            for (OpenRental rental : openByBook.getOrDefault(bookId, List.of())) {
+                if (rental.start() <= day && (branchId == null || rental.branchId() == branchId)) {
+                    return true;
+                }
+            }
+            return covers(returned, bookId, day, branchId) || covers(merging, bookId, day, branchId);
+        }
+
+        void collect(int from, int to, Long branchId, TreeSet<Long> bookIds) {
+            for (Map<Long, OpenRental> ofDay : openByStart.headMap(to, true).values()) {
+                for (OpenRental rental : ofDay.values()) {
+                    if (branchId == null || rental.branchId() == branchId) {
+                        bookIds.add(rental.bookId());
+                    }
+                }
+            }
+            collect(returned, from, to, branchId, bookIds);
+            collect(merging, from, to, branchId, bookIds);
+        }
+
+        List<ClosedRental> startMerge() {
+            merging = returned;
+            returned = new ArrayList<>();
+            return merging;
+        }
+
+        void finishMerge() {
+            merging = List.of();
+        }
+
+        int openCount() {
+            return openById.size();
+        }
+
+        int closedCount() {
+            return returned.size();
+        }
+
+        private static boolean covers(List<ClosedRental> rentals, long bookId, int day, Long branchId) {
+            for (ClosedRental rental : rentals) {
+                if (rental.bookId() == bookId && rental.start() <= day && rental.end() >= day
+                        && (branchId == null || rental.branchId() == branchId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void collect(List<ClosedRental> rentals, int from, int to, Long branchId,
+                                    TreeSet<Long> bookIds) {
+            for (ClosedRental rental : rentals) {
+                if (rental.start() <= to && rental.end() >= from
+                        && (branchId == null || rental.branchId() == branchId)) {
+                    bookIds.add(rental.bookId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closed rentals read from the history as parallel arrays, and the open ones.
+     */
+    private static class History {
+
+        private long[] bookIds = new long[1024];
+        private long[] branchIds = new long[1024];
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private int size;
+        private final LiveRentals live = new LiveRentals();
+
+        void add(long bookId, long branchId, int start, int end) {
+            if (size == starts.length) {
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+                branchIds = Arrays.copyOf(branchIds, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            bookIds[size] = bookId;
+            branchIds[size] = branchId;
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.library.bookrental.services;
+
+/**
+ * What became of a request to rent or return a book. Losing a race for a popular book is
+ * routine under load, so the expected failures are returned rather than thrown and the
+ * caller decides how to report them.
+ */
+public enum RentalOutcome {
+    RENTED,
+    RETURNED,
+    BOOK_NOT_FOUND,
+    ALREADY_RENTED,
+    NOT_RENTED;
+
+    public boolean isSuccess() {
+        return this == RENTED || this == RETURNED;
+    }
+}
@@ -1,16 +1,19 @@
 package com.library.bookrental.services;
 
 import com.library.bookrental.dto.RentalDTO;
-import com.library.bookrental.exceptions.RentalNotFoundException;
+import com.library.bookrental.dto.RentalView;
 import com.library.bookrental.models.Rental;
 import com.library.bookrental.repositories.BookRepository;
 import com.library.bookrental.repositories.RentalRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -22,20 +25,50 @@ public class RentalService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private RentalDueDateScheduler rentalDueDateScheduler;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RentalIntervalService rentalIntervalService;
+
+    @Transactional(readOnly = true)
     public List<RentalDTO> getAllRentals() {
         List<Rental> rentals = rentalRepository.findAll();
         return rentals.stream()
                 .map(RentalDTO::new).toList();
     }
 
+    @Transactional(readOnly = true)
+    public List<RentalView> getRentalsAfter(long afterId, int limit) {
+        return rentalRepository.findViewsAfter(afterId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RentalView> getRentalsByBookIds(Collection<Long> bookIds) {
+        return rentalRepository.findViewsByBookIds(bookIds);
+    }
+
     public RentalDTO rentBook(RentalDTO rentalDTO) {
         try {
             Rental rental = new Rental();
             rental.setBook(rentalDTO.getBook());
             rental.setRenterName(rentalDTO.getRenterName());
             rental.setRentalDate(LocalDate.now());
+            rental.setDueDate(rentalDueDateScheduler.dueDateFor(rental.getRentalDate()));
 
             Rental savedRental = rentalRepository.save(rental);
+            rentalDueDateScheduler.schedule(savedRental);
+            if (savedRental.getBook() != null && savedRental.getBook().getBookId() != null) {
+                recommendationService.recordRental(savedRental.getBook().getBookId(), savedRental.getBranchId(),
+                        savedRental.getRenterName());
+            }
+            rentalIntervalService.rentalStarted(savedRental);
             return new RentalDTO(savedRental);
         } catch (Exception e) {
             log.error("Error occurred while renting the book.", e);
@@ -43,21 +76,28 @@ public class RentalService {
         }
     }
 
-    public RentalDTO returnBook(Long rentalId) {
-        try {
-            Rental rental = rentalRepository.findById(rentalId)
-                    .orElseThrow(() -> new RentalNotFoundException("Rental not found with ID: " + rentalId));
-
-            rental.setReturnDate(LocalDate.now());
-            Rental savedRental = rentalRepository.save(rental);
-
-            return new RentalDTO(savedRental);
-        } catch (RentalNotFoundException e) {
-            log.warn("Rental not found while returning book: {}", e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("An error occurred while returning the book.", e);
-            throw e;
+    /**
+     * Closes a rental, or returns nothing when there is no rental with the ID. A rental that
+     * is already closed is returned unchanged, so a retried return does not notify twice.
+     */
+    @Transactional
+    public Optional<RentalDTO> returnBook(Long rentalId) {
+        Optional<Rental> found = rentalRepository.findById(rentalId);
+        if (found.isEmpty()) {
+            log.warn("Rental not found while returning book: {}", rentalId);
+            return Optional.empty();
         }
+        Rental rental = found.get();
+        if (rental.getReturnDate() != null) {
+            log.info("Rental {} was already returned on {}.", rentalId, rental.getReturnDate());
+            return Optional.of(new RentalDTO(rental));
+        }
+        rental.setReturnDate(LocalDate.now());
+        Rental savedRental = rentalRepository.save(rental);
+        outboxService.recordBookReturned(savedRental);
+        rentalDueDateScheduler.cancel(rentalId);
+        rentalIntervalService.rentalEnded(savedRental);
+
+        return Optional.of(new RentalDTO(savedRental));
     }
 }
@@ -0,0 +1,96 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.repositories.RentalShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves rentals that live on a shard other than the one the current strategy assigns to
+ * their book, e.g. after adding a shard or changing the range bounds. Rows are copied to
+ * their new shard before being deleted from the old one, in batches, so lookups that fall
+ * back to all shards find every rental while the move is in progress.
+ */
+@Service
+@Slf4j
+public class RentalShardRebalancer {
+
+    private static final String SELECT_COLUMNS = "rental_id, book_id, renter_name, rental_date, due_date, return_date, "
+            + "overdue, branch_id";
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Value("${bookrental.sharding.rebalance-batch-size:500}")
+    private int batchSize;
+
+    public Map<String, Long> getShardSizes() {
+        RentalShards shards = requireShards();
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            sizes.put("shard-" + i, shards.shard(i).queryForObject("select count(*) from rentals", Long.class));
+        }
+        return sizes;
+    }
+
+    public Map<String, Long> rebalance() {
+        RentalShards shards = requireShards();
+        Map<String, Long> moved = new LinkedHashMap<>();
+        for (int source = 0; source < shards.size(); source++) {
+            moved.put("shard-" + source, moveMisplacedRows(shards, source));
+        }
+        log.info("Rental shard rebalance finished, rows moved per source shard: {}", moved);
+        return moved;
+    }
+
+    private long moveMisplacedRows(RentalShards shards, int source) {
+        JdbcTemplate sourceShard = shards.shard(source);
+        long moved = 0;
+        long lastRentalId = 0;
+        while (true) {
+            List<Object[]> batch = sourceShard.query("select " + SELECT_COLUMNS + " from rentals where rental_id > ? "
+                            + "order by rental_id fetch first " + batchSize + " rows only",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getObject(4),
+                            rs.getObject(5), rs.getObject(6), rs.getBoolean(7), rs.getLong(8)},
+                    lastRentalId);
+            if (batch.isEmpty()) {
+                return moved;
+            }
+            lastRentalId = (Long) batch.get(batch.size() - 1)[0];
+
+            Map<Integer, List<Object[]>> byTarget = new LinkedHashMap<>();
+            for (Object[] row : batch) {
+                int target = shards.shardIndexFor((Long) row[1]);
+                if (target != source) {
+                    byTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(row);
+                }
+            }
+            for (Map.Entry<Integer, List<Object[]>> entry : byTarget.entrySet()) {
+                List<Object[]> rows = entry.getValue();
+                shards.shard(entry.getKey()).batchUpdate("insert into rentals (" + SELECT_COLUMNS
+                        + ") values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                List<Object> ids = rows.stream().map(row -> row[0]).toList();
+                sourceShard.update("delete from rentals where rental_id in ("
+                        + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", ids.toArray());
+                moved += rows.size();
+            }
+        }
+    }
+
+    private RentalShards requireShards() {
+        RentalShards shards = rentalShards.getIfAvailable();
+        if (shards == null) {
+            throw new IllegalStateException("Rental sharding is not enabled.");
+        }
+        return shards;
+    }
+}
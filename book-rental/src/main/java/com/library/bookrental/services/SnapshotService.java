@@ -0,0 +1,371 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.repositories.RentalShards;
+import com.library.bookrental.utils.SnapshotReader;
+import com.library.bookrental.utils.SnapshotWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Dumps authors, books and rentals into a compact binary snapshot and loads it back.
+ * <p>
+ * A snapshot is the header followed by one section per table. Each section starts with a
+ * tag byte and holds rows prefixed with {@code 1}, terminated by a {@code 0}. Ids are kept,
+ * so restoring recreates the catalog exactly and moves the identity columns past them.
+ */
+@Service
+@Slf4j
+public class SnapshotService {
+
+    private static final byte AUTHORS = 'A';
+    private static final byte BOOKS = 'B';
+    private static final byte RENTALS = 'R';
+
+    private static final String INSERT_AUTHOR = "insert into authors (author_id, name, biography, branch_id) "
+            + "values (?, ?, ?, ?)";
+    private static final int[] AUTHOR_TYPES = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT};
+    private static final String INSERT_BOOK = "insert into books (book_id, title, isbn, publication_year, author_id, "
+            + "available, branch_id) values (?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] BOOK_TYPES = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.BIGINT,
+            Types.BOOLEAN, Types.BIGINT};
+    private static final String INSERT_RENTAL = "insert into rentals (rental_id, book_id, renter_name, rental_date, "
+            + "due_date, return_date, overdue, branch_id) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] RENTAL_TYPES = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.DATE, Types.DATE,
+            Types.DATE, Types.BOOLEAN, Types.BIGINT};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectProvider<RentalShards> rentalShards;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private RentalIntervalService rentalIntervalService;
+
+    @Value("${bookrental.snapshot.path:./data/catalog.snapshot}")
+    private Path snapshotPath;
+
+    @Value("${bookrental.snapshot.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${bookrental.snapshot.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${bookrental.snapshot.buffer-size:262144}")
+    private int bufferSize;
+
+    @Value("${bookrental.snapshot.map-window-bytes:268435456}")
+    private long mapWindowBytes;
+
+    private volatile Map<String, Object> lastDump = Map.of();
+    private volatile Map<String, Object> lastRestore = Map.of();
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and moves it into place
+     * once complete. The tables are read in one repeatable-read transaction, which the MVCC
+     * storage serves from a consistent version without locking out concurrent writers.
+     * Rentals on separate shards are read shard by shard.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> dump() {
+        long started = System.nanoTime();
+        Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        long[] counts = new long[3];
+        long bytes;
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 SnapshotWriter writer = new SnapshotWriter(channel, bufferSize)) {
+                writer.writeByte(AUTHORS);
+                stream(jdbcTemplate, "select author_id, name, biography, branch_id from authors "
+                        + "order by author_id", rs -> {
+                    writer.writeByte(1);
+                    writer.writeLong(rs.getLong(1));
+                    writer.writeString(rs.getString(2));
+                    writer.writeString(rs.getString(3));
+                    writer.writeLong(rs.getLong(4));
+                    counts[0]++;
+                });
+                writer.writeByte(0);
+
+                writer.writeByte(BOOKS);
+                stream(jdbcTemplate, "select book_id, title, isbn, publication_year, author_id, available, branch_id "
+                        + "from books order by book_id", rs -> {
+                    writer.writeByte(1);
+                    writer.writeLong(rs.getLong(1));
+                    writer.writeString(rs.getString(2));
+                    writer.writeString(rs.getString(3));
+                    writer.writeInt(rs.getInt(4));
+                    long authorId = rs.getLong(5);
+                    writer.writeLong(rs.wasNull() ? 0 : authorId);
+                    writer.writeBoolean(rs.getBoolean(6));
+                    writer.writeLong(rs.getLong(7));
+                    counts[1]++;
+                });
+                writer.writeByte(0);
+
+                writer.writeByte(RENTALS);
+                RowCallbackHandler rentalRow = rs -> {
+                    writer.writeByte(1);
+                    writer.writeLong(rs.getLong(1));
+                    writer.writeLong(rs.getLong(2));
+                    writer.writeString(rs.getString(3));
+                    writer.writeDate(toLocalDate(rs.getDate(4)));
+                    writer.writeDate(toLocalDate(rs.getDate(5)));
+                    writer.writeDate(toLocalDate(rs.getDate(6)));
+                    writer.writeBoolean(rs.getBoolean(7));
+                    writer.writeLong(rs.getLong(8));
+                    counts[2]++;
+                };
+                String rentalSql = "select rental_id, book_id, renter_name, rental_date, due_date, return_date, overdue, "
+                        + "branch_id from rentals order by rental_id";
+                RentalShards shards = rentalShards.getIfAvailable();
+                if (shards == null) {
+                    stream(jdbcTemplate, rentalSql, rentalRow);
+                } else {
+                    for (int i = 0; i < shards.size(); i++) {
+                        stream(shards.shard(i), rentalSql, rentalRow);
+                    }
+                }
+                writer.writeByte(0);
+                writer.flush();
+                channel.force(true);
+                bytes = writer.getBytesWritten();
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, Object> result = stats(counts, bytes, started);
+        log.info("Catalog snapshot written to {}: {}", snapshotPath, result);
+        lastDump = result;
+        return result;
+    }
+
+    /**
+     * Loads a snapshot into empty tables with JDBC batches, one transaction per batch, and
+     * advances the identity columns past the restored ids.
+     *
+     * @throws IllegalStateException if the catalog already contains data
+     */
+    public Map<String, Object> restore(Path path) {
+        long started = System.nanoTime();
+        Long existing = jdbcTemplate.queryForObject("select count(*) from authors", Long.class);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("Catalog already contains " + existing + " authors.");
+        }
+
+        long[] counts = new long[3];
+        long bytes;
+        try (SnapshotReader reader = new SnapshotReader(path, mapWindowBytes)) {
+            bytes = reader.getSize();
+            // Snapshots of version 1 predate branches; their rows belong to the default branch.
+            boolean hasBranches = reader.getVersion() >= 2;
+            RentalShards shards = rentalShards.getIfAvailable();
+
+            expectSection(reader, AUTHORS);
+            Batch authors = new Batch(jdbcTemplate, INSERT_AUTHOR, AUTHOR_TYPES, true);
+            while (reader.readByte() != 0) {
+                authors.add(new Object[]{reader.readLong(), reader.readString(), reader.readString(),
+                        readBranchId(reader, hasBranches)});
+            }
+            counts[0] = authors.finish();
+            log.info("Restored {} authors after {} ms.", counts[0], (System.nanoTime() - started) / 1_000_000);
+
+            expectSection(reader, BOOKS);
+            Batch books = new Batch(jdbcTemplate, INSERT_BOOK, BOOK_TYPES, true);
+            while (reader.readByte() != 0) {
+                long bookId = reader.readLong();
+                // Snapshots taken before titles became non-null may hold untitled books.
+                String title = Objects.requireNonNullElse(reader.readString(), "");
+                String isbn = reader.readString();
+                int publicationYear = reader.readInt();
+                long authorId = reader.readLong();
+                boolean available = reader.readBoolean();
+                books.add(new Object[]{bookId, title, isbn, publicationYear, authorId == 0 ? null : authorId,
+                        available, readBranchId(reader, hasBranches)});
+            }
+            counts[1] = books.finish();
+            log.info("Restored {} books after {} ms.", counts[1], (System.nanoTime() - started) / 1_000_000);
+
+            expectSection(reader, RENTALS);
+            List<Batch> rentals = new ArrayList<>();
+            if (shards == null) {
+                rentals.add(new Batch(jdbcTemplate, INSERT_RENTAL, RENTAL_TYPES, true));
+            } else {
+                for (int i = 0; i < shards.size(); i++) {
+                    rentals.add(new Batch(shards.shard(i), INSERT_RENTAL, RENTAL_TYPES, false));
+                }
+            }
+            long maxRentalId = 0;
+            while (reader.readByte() != 0) {
+                long rentalId = reader.readLong();
+                long bookId = reader.readLong();
+                Object[] row = {rentalId, bookId, reader.readString(), toSqlDate(reader.readDate()),
+                        toSqlDate(reader.readDate()), toSqlDate(reader.readDate()), reader.readBoolean(),
+                        readBranchId(reader, hasBranches)};
+                rentals.get(shards == null ? 0 : shards.shardIndexFor(bookId)).add(row);
+                maxRentalId = Math.max(maxRentalId, rentalId);
+            }
+            for (Batch batch : rentals) {
+                counts[2] += batch.finish();
+            }
+
+            restartIdentity("authors", "author_id");
+            restartIdentity("books", "book_id");
+            if (shards == null) {
+                restartIdentity("rentals", "rental_id");
+            } else if (maxRentalId > 0) {
+                shards.reserveIdsThrough(maxRentalId);
+            }
+        }
+        entityCacheService.evictAll();
+        bookService.onCatalogChanged();
+        rentalIntervalService.requestRebuild();
+
+        Map<String, Object> result = stats(counts, bytes, started);
+        log.info("Catalog snapshot restored from {}: {}", path, result);
+        lastRestore = result;
+        return result;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("path", snapshotPath.toString());
+        metrics.put("lastDump", lastDump);
+        metrics.put("lastRestore", lastRestore);
+        return metrics;
+    }
+
+    private void stream(JdbcTemplate source, String sql, RowCallbackHandler handler) {
+        source.query(connection -> {
+            var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+
+    private void expectSection(SnapshotReader reader, byte tag) {
+        int found = reader.readByte();
+        if (found != tag) {
+            throw new IllegalStateException("Expected snapshot section '" + (char) tag + "' but found " + found + ".");
+        }
+    }
+
+    private void restartIdentity(String table, String column) {
+        Long next = jdbcTemplate.queryForObject("select coalesce(max(" + column + "), 0) + 1 from " + table, Long.class);
+        jdbcTemplate.execute("alter table " + table + " alter column " + column + " restart with " + next);
+    }
+
+    private Map<String, Object> stats(long[] counts, long bytes, long started) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("authors", counts[0]);
+        result.put("books", counts[1]);
+        result.put("rentals", counts[2]);
+        result.put("bytes", bytes);
+        result.put("millis", (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private static long readBranchId(SnapshotReader reader, boolean hasBranches) {
+        return hasBranches ? reader.readLong() : BranchContextFilter.DEFAULT_BRANCH_ID;
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+
+    /**
+     * Accumulates rows for one insert statement and writes them as a JDBC batch once full.
+     */
+    private class Batch {
+
+        private final JdbcTemplate target;
+        private final String sql;
+        private final int[] types;
+        private final boolean transactional;
+        private final List<Object[]> rows;
+        private long written;
+
+        Batch(JdbcTemplate target, String sql, int[] types, boolean transactional) {
+            this.target = target;
+            this.sql = sql;
+            this.types = types;
+            this.transactional = transactional;
+            this.rows = new ArrayList<>(batchSize);
+        }
+
+        void add(Object[] row) {
+            rows.add(row);
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        long finish() {
+            flush();
+            return written;
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            if (transactional) {
+                transactionTemplate.executeWithoutResult(status -> target.batchUpdate(sql, rows, types));
+            } else {
+                target.batchUpdate(sql, rows, types);
+            }
+            written += rows.size();
+            rows.clear();
+        }
+    }
+}
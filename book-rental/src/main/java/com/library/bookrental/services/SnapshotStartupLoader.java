@@ -0,0 +1,43 @@
+package com.library.bookrental.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Restores the catalog snapshot once all beans (and so the schema) are ready, but before
+ * the web server starts taking requests and before the due-date scheduler rebuilds its
+ * timers from the rentals table.
+ */
+@Component
+@Slf4j
+public class SnapshotStartupLoader implements SmartInitializingSingleton {
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Value("${bookrental.snapshot.restore-on-startup:false}")
+    private boolean restoreOnStartup;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!restoreOnStartup) {
+            return;
+        }
+        Path path = snapshotService.getSnapshotPath();
+        if (!Files.isRegularFile(path)) {
+            log.info("No catalog snapshot at {}, starting with the current database.", path);
+            return;
+        }
+        try {
+            snapshotService.restore(path);
+        } catch (IllegalStateException e) {
+            log.warn("Catalog snapshot not restored: {}", e.getMessage());
+        }
+    }
+}
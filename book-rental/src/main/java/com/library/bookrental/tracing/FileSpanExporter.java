@@ -0,0 +1,100 @@
+package com.library.bookrental.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes spans as JSON lines from a background thread. Request threads only enqueue; when
+ * the queue is full spans are dropped and counted rather than slowing requests down.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "bookrental.tracing.exporter", havingValue = "file")
+public class FileSpanExporter implements SpanExporter {
+
+    private final BlockingQueue<Span> queue;
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+    public FileSpanExporter(@Value("${bookrental.tracing.file.path:./data/spans.jsonl}") Path path,
+                            @Value("${bookrental.tracing.file.queue-capacity:65536}") int queueCapacity,
+                            ObjectMapper objectMapper) {
+        this.path = path;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.objectMapper = objectMapper;
+        this.writer = new Thread(this::writeLoop, "span-file-exporter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void export(Span span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.interrupt();
+        writer.join(5000);
+    }
+
+    private void writeLoop() {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                List<Span> batch = new ArrayList<>();
+                boolean running = true;
+                while (running) {
+                    try {
+                        Span first = queue.poll(1, TimeUnit.SECONDS);
+                        if (first != null) {
+                            batch.add(first);
+                        }
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                    queue.drainTo(batch);
+                    for (Span span : batch) {
+                        out.write(objectMapper.writeValueAsString(span.toMap()));
+                        out.newLine();
+                    }
+                    if (!batch.isEmpty()) {
+                        out.flush();
+                        batch.clear();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Span file exporter stopped: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.library.bookrental.tracing;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Registered with Hibernate through {@code hibernate.session.events.auto}, so it is
+ * created per session by Hibernate rather than by Spring. Wraps each flush of a traced
+ * request in a span, which makes the statements Hibernate issues at flush time show up
+ * separately from those run by the service code.
+ */
+public class HibernateFlushSpanListener implements SessionEventListener {
+
+    private Span flushSpan;
+
+    @Override
+    public void flushStart() {
+        Span current = Tracer.currentSpan();
+        flushSpan = current != null ? current.getTracer().startSpan("hibernate.flush", "INTERNAL") : null;
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        if (flushSpan != null) {
+            flushSpan.setAttribute("hibernate.entities", numberOfEntities);
+            flushSpan.setAttribute("hibernate.collections", numberOfCollections);
+            flushSpan.end();
+            flushSpan = null;
+        }
+    }
+}
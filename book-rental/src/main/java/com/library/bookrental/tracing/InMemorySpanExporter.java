@@ -0,0 +1,63 @@
+package com.library.bookrental.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent spans in a bounded buffer, for tests and for inspecting traces
+ * through the admin endpoints.
+ */
+@Component
+@ConditionalOnProperty(name = "bookrental.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final Deque<Span> spans = new ArrayDeque<>();
+    private final int capacity;
+
+    public InMemorySpanExporter(@Value("${bookrental.tracing.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        if (spans.size() == capacity) {
+            spans.removeFirst();
+        }
+        spans.addLast(span);
+    }
+
+    public synchronized List<Span> getTrace(String traceId) {
+        List<Span> trace = new ArrayList<>();
+        for (Span span : spans) {
+            if (span.getTraceId().equals(traceId)) {
+                trace.add(span);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Root spans of the most recent traces, newest first.
+     */
+    public synchronized List<Span> getRecentRoots(int limit) {
+        List<Span> roots = new ArrayList<>();
+        var iterator = spans.descendingIterator();
+        while (iterator.hasNext() && roots.size() < limit) {
+            Span span = iterator.next();
+            if (span.getParent() == null) {
+                roots.add(span);
+            }
+        }
+        return roots;
+    }
+
+    public synchronized void clear() {
+        spans.clear();
+    }
+}
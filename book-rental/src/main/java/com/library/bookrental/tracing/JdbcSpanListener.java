@@ -0,0 +1,35 @@
+package com.library.bookrental.tracing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns every JDBC statement run inside a traced request into a CLIENT span with the
+ * statement text and the number of rows read or written. Bind values are not recorded.
+ */
+@Component
+@ConditionalOnProperty(name = "bookrental.tracing.enabled", havingValue = "true")
+public class JdbcSpanListener implements StatementListener {
+
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    public void onStatement(StatementExecution execution) {
+        if (Tracer.currentSpan() == null) {
+            return;
+        }
+        String operation = execution.operation();
+        Span span = tracer.recordSpan("jdbc " + operation, "CLIENT", execution.startNanos(), execution.endNanos());
+        span.setAttribute("db.operation", operation);
+        span.setAttribute("db.statement", execution.sql());
+        span.setAttribute("db.rows", execution.rows());
+        if (execution.batchSize() > 0) {
+            span.setAttribute("db.batch_size", execution.batchSize());
+        }
+        if (execution.error() != null) {
+            span.setError(execution.error());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.library.bookrental.tracing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a DataSource so that every statement executed on its connections is reported to
+ * the {@link StatementListener}s: its SQL, bind parameters, timing and row count. Only
+ * {@code execute*} calls and result set iteration are intercepted; everything else goes
+ * straight to the driver objects.
+ */
+public class ObservedDataSource extends DelegatingDataSource {
+
+    private final Supplier<List<StatementListener>> listeners;
+
+    public ObservedDataSource(DataSource target, Supplier<List<StatementListener>> listeners) {
+        super(target);
+        this.listeners = listeners;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ObservedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private void notify(StatementExecution execution) {
+        for (StatementListener listener : listeners.get()) {
+            listener.onStatement(execution);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ObservedDataSource.invoke(connection, method, args);
+            String name = method.getName();
+            if (result instanceof Statement statement
+                    && (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(ObservedDataSource.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private String sql;
+        private final List<Object> parameters = new ArrayList<>();
+        private List<Object> firstBatchParameters;
+        private int batchSize;
+
+        private long pendingStart = -1;
+        private long pendingRows;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index
+                    && method.getDeclaringClass() != Statement.class) {
+                setParameter(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                if (args != null && args.length == 1) {
+                    sql = sql == null ? (String) args[0] : sql + "; " + args[0];
+                }
+                if (firstBatchParameters == null) {
+                    firstBatchParameters = new ArrayList<>(parameters);
+                }
+                batchSize++;
+            } else if (name.equals("close")) {
+                completePending();
+            }
+
+            if (!name.startsWith("execute")) {
+                Object result = ObservedDataSource.invoke(statement, method, args);
+                if (result instanceof ResultSet resultSet && name.equals("getResultSet") && pendingStart >= 0) {
+                    return wrapResultSet(resultSet);
+                }
+                return result;
+            }
+
+            completePending();
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            boolean batch = name.startsWith("executeBatch") || name.startsWith("executeLargeBatch");
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = ObservedDataSource.invoke(statement, method, args);
+            } catch (Throwable e) {
+                report(executedSql, start, System.nanoTime(), -1, batch, e);
+                throw e;
+            }
+            long end = System.nanoTime();
+
+            if (result instanceof ResultSet resultSet) {
+                sql = executedSql;
+                pendingStart = start;
+                pendingRows = 0;
+                return wrapResultSet(resultSet);
+            }
+            if (result instanceof Boolean isResultSet && isResultSet) {
+                sql = executedSql;
+                pendingStart = start;
+                pendingRows = 0;
+                return result;
+            }
+            long rows;
+            if (result instanceof Number count) {
+                rows = count.longValue();
+            } else if (result instanceof int[] counts) {
+                rows = Arrays.stream(counts).filter(count -> count > 0).asLongStream().sum();
+            } else if (result instanceof long[] counts) {
+                rows = Arrays.stream(counts).filter(count -> count > 0).sum();
+            } else {
+                rows = statement.getUpdateCount();
+            }
+            report(executedSql, start, end, rows, batch, null);
+            return result;
+        }
+
+        private void setParameter(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(ObservedDataSource.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("close")) {
+                            try {
+                                return ObservedDataSource.invoke(resultSet, method, args);
+                            } finally {
+                                completePending();
+                            }
+                        }
+                        Object result = ObservedDataSource.invoke(resultSet, method, args);
+                        if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                            pendingRows++;
+                        }
+                        return result;
+                    });
+        }
+
+        private void completePending() {
+            if (pendingStart < 0) {
+                return;
+            }
+            long start = pendingStart;
+            pendingStart = -1;
+            report(sql, start, System.nanoTime(), pendingRows, false, null);
+        }
+
+        private void report(String executedSql, long start, long end, long rows, boolean batch, Throwable error) {
+            List<Object> bound = batch && firstBatchParameters != null ? firstBatchParameters : new ArrayList<>(parameters);
+            int size = batch ? batchSize : 0;
+            if (batch) {
+                firstBatchParameters = null;
+                batchSize = 0;
+            }
+            ObservedDataSource.this.notify(new StatementExecution(executedSql != null ? executedSql : "", bound,
+                    start, end, rows, size, error));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.library.bookrental.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates executed statements by shape (the SQL with literals and IN lists collapsed),
+ * logs statements slower than a threshold together with their bind values, and flags
+ * requests that run one shape more than {@code n-plus-one-threshold} times, which is the
+ * signature of lazy loading in a loop.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "bookrental.query-log.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryStatistics implements StatementListener {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<RequestStatements> CURRENT_REQUEST = new ThreadLocal<>();
+
+    @Value("${bookrental.query-log.slow-threshold-ms:100}")
+    private long slowThresholdMillis;
+
+    @Value("${bookrental.query-log.n-plus-one-threshold:10}")
+    private int nPlusOneThreshold;
+
+    @Value("${bookrental.query-log.max-tracked-shapes:1000}")
+    private int maxTrackedShapes;
+
+    @Value("${bookrental.query-log.max-parameter-length:200}")
+    private int maxParameterLength;
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<String, String> shapeCache = new ConcurrentHashMap<>();
+    private final LongAdder untrackedStatements = new LongAdder();
+    private final LongAdder slowStatements = new LongAdder();
+    private final Deque<Map<String, Object>> nPlusOneFindings = new ArrayDeque<>();
+
+    /**
+     * Starts collecting the statements of a request on the current thread.
+     */
+    public void beginRequest(String endpoint) {
+        CURRENT_REQUEST.set(new RequestStatements(endpoint));
+    }
+
+    /**
+     * Ends the current request and reports any statement shape it repeated too often.
+     */
+    public void endRequest() {
+        RequestStatements request = CURRENT_REQUEST.get();
+        CURRENT_REQUEST.remove();
+        if (request == null) {
+            return;
+        }
+        for (Map.Entry<String, int[]> entry : request.counts.entrySet()) {
+            int executions = entry.getValue()[0];
+            if (executions > nPlusOneThreshold) {
+                log.warn("Possible N+1 in {}: {} executions of {}", request.endpoint, executions, entry.getKey());
+                Map<String, Object> finding = new LinkedHashMap<>();
+                finding.put("endpoint", request.endpoint);
+                finding.put("shape", entry.getKey());
+                finding.put("executions", executions);
+                finding.put("statementsInRequest", request.total);
+                finding.put("detectedAt", Instant.now().toString());
+                synchronized (nPlusOneFindings) {
+                    if (nPlusOneFindings.size() == 100) {
+                        nPlusOneFindings.removeLast();
+                    }
+                    nPlusOneFindings.addFirst(finding);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onStatement(StatementExecution execution) {
+        String shape = shapeOf(execution.sql());
+        long elapsed = execution.elapsedNanos();
+
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null && shapes.size() < maxTrackedShapes) {
+            stats = shapes.computeIfAbsent(shape, ShapeStats::new);
+        }
+        if (stats != null) {
+            stats.record(elapsed, execution.rows());
+        } else {
+            untrackedStatements.increment();
+        }
+
+        RequestStatements request = CURRENT_REQUEST.get();
+        if (request != null) {
+            request.counts.computeIfAbsent(shape, s -> new int[1])[0]++;
+            request.total++;
+        }
+
+        if (elapsed >= slowThresholdMillis * 1_000_000) {
+            slowStatements.increment();
+            log.warn("Slow statement ({} ms, {} rows{}): {} parameters {}", elapsed / 1_000_000, execution.rows(),
+                    request != null ? ", " + request.endpoint : "", execution.sql(), describe(execution.parameters()));
+        }
+    }
+
+    /**
+     * The tracked statement shapes ordered by the given measure, highest first.
+     */
+    public List<Map<String, Object>> getTopShapes(int limit, String orderBy) {
+        Comparator<ShapeStats> order = switch (orderBy) {
+            case "total" -> Comparator.comparingLong(ShapeStats::totalNanos);
+            case "mean" -> Comparator.comparingDouble(ShapeStats::meanNanos);
+            case "count" -> Comparator.comparingLong(ShapeStats::count);
+            case "max" -> Comparator.comparingLong(ShapeStats::maxNanos);
+            default -> throw new IllegalArgumentException("Unknown ordering: " + orderBy);
+        };
+        List<ShapeStats> sorted = new ArrayList<>(shapes.values());
+        sorted.sort(order.reversed());
+        return sorted.stream().limit(limit).map(ShapeStats::toMap).toList();
+    }
+
+    public List<Map<String, Object>> getNPlusOneFindings() {
+        synchronized (nPlusOneFindings) {
+            return new ArrayList<>(nPlusOneFindings);
+        }
+    }
+
+    public Map<String, Object> getSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("trackedShapes", shapes.size());
+        summary.put("untrackedStatements", untrackedStatements.sum());
+        summary.put("slowStatements", slowStatements.sum());
+        summary.put("slowThresholdMillis", slowThresholdMillis);
+        summary.put("nPlusOneThreshold", nPlusOneThreshold);
+        return summary;
+    }
+
+    public void reset() {
+        shapes.clear();
+        untrackedStatements.reset();
+        slowStatements.reset();
+        synchronized (nPlusOneFindings) {
+            nPlusOneFindings.clear();
+        }
+    }
+
+    String shapeOf(String sql) {
+        String cached = shapeCache.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        if (shapeCache.size() < maxTrackedShapes * 4) {
+            shapeCache.put(sql, shape);
+        }
+        return shape;
+    }
+
+    private String describe(List<Object> parameters) {
+        List<String> values = new ArrayList<>(parameters.size());
+        for (Object parameter : parameters) {
+            String value = String.valueOf(parameter);
+            values.add(value.length() > maxParameterLength ? value.substring(0, maxParameterLength) + "..." : value);
+        }
+        return values.toString();
+    }
+
+    private static final class RequestStatements {
+
+        private final String endpoint;
+        private final Map<String, int[]> counts = new HashMap<>();
+        private int total;
+
+        private RequestStatements(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static final class ShapeStats {
+
+        private final String shape;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long rows;
+
+        private ShapeStats(String shape) {
+            this.shape = shape;
+        }
+
+        synchronized void record(long elapsedNanos, long rowCount) {
+            count++;
+            totalNanos += elapsedNanos;
+            maxNanos = Math.max(maxNanos, elapsedNanos);
+            if (rowCount > 0) {
+                rows += rowCount;
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized long totalNanos() {
+            return totalNanos;
+        }
+
+        synchronized long maxNanos() {
+            return maxNanos;
+        }
+
+        synchronized double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("shape", shape);
+            map.put("count", count);
+            map.put("totalMillis", totalNanos / 1_000_000.0);
+            map.put("meanMillis", count == 0 ? 0 : totalNanos / 1_000_000.0 / count);
+            map.put("maxMillis", maxNanos / 1_000_000.0);
+            map.put("rows", rows);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.library.bookrental.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One timed operation within a trace, with W3C-sized trace and span ids. A span becomes
+ * the thread's current span when started and hands that role back to its parent when it
+ * ends, at which point it is passed to the exporter.
+ */
+public class Span {
+
+    private final Tracer tracer;
+    private final String traceId;
+    private final String spanId;
+    private final Span parent;
+    private final String name;
+    private final String kind;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private long durationNanos = -1;
+    private String error;
+
+    Span(Tracer tracer, String traceId, String spanId, Span parent, String name, String kind,
+         long startEpochNanos, long startNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochNanos = startEpochNanos;
+        this.startNanos = startNanos;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    public Span setError(Throwable throwable) {
+        this.error = throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+        return this;
+    }
+
+    public void end() {
+        end(System.nanoTime());
+    }
+
+    void end(long endNanos) {
+        if (durationNanos >= 0) {
+            return;
+        }
+        durationNanos = endNanos - startNanos;
+        tracer.finish(this);
+    }
+
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public Span getParent() {
+        return parent;
+    }
+
+    public String getParentSpanId() {
+        return parent != null ? parent.spanId : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The W3C {@code traceparent} value identifying this span to a downstream service.
+     */
+    public String toTraceParent() {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+
+    /**
+     * The span as a JSON-friendly map, loosely following the OTLP field names.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", traceId);
+        json.put("spanId", spanId);
+        json.put("parentSpanId", getParentSpanId());
+        json.put("name", name);
+        json.put("kind", kind);
+        json.put("startTimeUnixNano", startEpochNanos);
+        json.put("durationNanos", durationNanos);
+        json.put("attributes", attributes);
+        if (error != null) {
+            json.put("error", error);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,10 @@
+package com.library.bookrental.tracing;
+
+/**
+ * Receives finished spans. Called on the request thread, so implementations must not block.
+ */
+public interface SpanExporter {
+
+    void export(Span span);
+
+}
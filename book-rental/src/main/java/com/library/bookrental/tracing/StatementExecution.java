@@ -0,0 +1,32 @@
+package com.library.bookrental.tracing;
+
+import java.util.List;
+
+/**
+ * One JDBC statement execution as seen by {@link ObservedDataSource}. For queries the
+ * execution lasts until the result set is closed and {@code rows} counts the rows read;
+ * for updates it is the update count, summed over a batch. {@code parameters} holds the
+ * bind values of a prepared statement (of the first entry for a batch).
+ */
+public record StatementExecution(String sql, List<Object> parameters, long startNanos, long endNanos, long rows,
+                                 int batchSize, Throwable error) {
+
+    public long elapsedNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * The leading SQL keyword, e.g. {@code SELECT}.
+     */
+    public String operation() {
+        int start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(start, end).toUpperCase();
+    }
+}
@@ -0,0 +1,11 @@
+package com.library.bookrental.tracing;
+
+/**
+ * Notified on the executing thread after every JDBC statement that runs through
+ * {@link ObservedDataSource}.
+ */
+public interface StatementListener {
+
+    void onStatement(StatementExecution execution);
+
+}
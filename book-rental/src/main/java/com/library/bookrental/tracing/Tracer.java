@@ -0,0 +1,135 @@
+package com.library.bookrental.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small in-process tracer in the OpenTelemetry model: a request starts a root span,
+ * everything it calls on the same thread opens child spans, and finished spans go to the
+ * configured {@link SpanExporter}. The current span is kept per thread; code that is not
+ * inside a sampled request does not record spans at all.
+ */
+@Component
+public class Tracer {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final SpanExporter exporter;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final LongAdder exported = new LongAdder();
+
+    public Tracer(SpanExporter exporter,
+                  @Value("${bookrental.tracing.enabled:false}") boolean enabled,
+                  @Value("${bookrental.tracing.sample-rate:1.0}") double sampleRate) {
+        this.exporter = exporter;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    public static Span currentSpan() {
+        return CURRENT.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getExported() {
+        return exported.sum();
+    }
+
+    /**
+     * Starts the root span of a request. An incoming W3C {@code traceparent} continues the
+     * caller's trace and sampling decision; otherwise the sample rate decides. Returns
+     * {@code null} when the request is not traced.
+     */
+    public Span startRootSpan(String name, String traceParent) {
+        if (!enabled) {
+            return null;
+        }
+        String traceId = null;
+        String parentSpanId = null;
+        if (traceParent != null && traceParent.length() == 55 && traceParent.startsWith("00-")) {
+            if (!traceParent.endsWith("-01")) {
+                return null;
+            }
+            traceId = traceParent.substring(3, 35);
+            parentSpanId = traceParent.substring(36, 52);
+        } else if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        Span span = new Span(this, traceId != null ? traceId : randomHex(32), randomHex(16), null, name, "SERVER",
+                epochNanos(), System.nanoTime());
+        if (parentSpanId != null) {
+            span.setAttribute("parent.remote_span_id", parentSpanId);
+        }
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Starts a child of the current span, or returns {@code null} outside a traced request.
+     */
+    public Span startSpan(String name, String kind) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return null;
+        }
+        Span span = new Span(this, parent.getTraceId(), randomHex(16), parent, name, kind,
+                parent.getStartEpochNanos() + (System.nanoTime() - parent.getStartNanos()), System.nanoTime());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Records an already finished child of the current span, for operations that are only
+     * observed once they complete, such as JDBC statements.
+     */
+    public Span recordSpan(String name, String kind, long startNanos, long endNanos) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return null;
+        }
+        Span span = new Span(this, parent.getTraceId(), randomHex(16), parent, name, kind,
+                parent.getStartEpochNanos() + (startNanos - parent.getStartNanos()), startNanos);
+        span.end(endNanos);
+        return span;
+    }
+
+    void finish(Span span) {
+        // Hand the thread back to the parent if this span, or a child left open by an
+        // exception, is current.
+        for (Span current = CURRENT.get(); current != null; current = current.getParent()) {
+            if (current == span) {
+                if (span.getParent() != null) {
+                    CURRENT.set(span.getParent());
+                } else {
+                    CURRENT.remove();
+                }
+                break;
+            }
+        }
+        exporter.export(span);
+        exported.increment();
+    }
+
+    private static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private static String randomHex(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(length);
+        while (hex.length() < length) {
+            String part = Long.toHexString(random.nextLong());
+            hex.append("0".repeat(16 - part.length())).append(part);
+        }
+        return hex.substring(0, length);
+    }
+}
@@ -0,0 +1,52 @@
+package com.library.bookrental.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens a span around every public controller and service method called inside a traced
+ * request. It is ordered ahead of the transaction advice, so a service span includes the
+ * Hibernate flush and commit of the transaction it started.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "bookrental.tracing.enabled", havingValue = "true")
+public class TracingAspect {
+
+    @Autowired
+    private Tracer tracer;
+
+    @Around("within(@org.springframework.web.bind.annotation.RestController *) && execution(public * *(..))")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "INTERNAL", "controller");
+    }
+
+    @Around("within(@org.springframework.stereotype.Service *) && execution(public * *(..))")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "INTERNAL", "service");
+    }
+
+    private Object trace(ProceedingJoinPoint joinPoint, String kind, String layer) throws Throwable {
+        if (Tracer.currentSpan() == null) {
+            return joinPoint.proceed();
+        }
+        Span span = tracer.startSpan(joinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                + joinPoint.getSignature().getName(), kind);
+        span.setAttribute("code.layer", layer);
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.library.bookrental.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes RFC 4180 CSV rows straight into a channel through one reusable direct buffer,
+ * so the amount of memory used does not depend on how many rows are exported.
+ */
+public class CsvChannelWriter implements AutoCloseable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder row = new StringBuilder(256);
+    private long rowsWritten;
+
+    public CsvChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public void writeRow(Object... values) {
+        row.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            appendField(values[i]);
+        }
+        row.append("\r\n");
+        encode(CharBuffer.wrap(row));
+        rowsWritten++;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void appendField(Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(text);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    private void encode(CharBuffer chars) {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                throw new IllegalArgumentException("Unable to encode CSV row: " + result);
+            }
+        }
+    }
+}
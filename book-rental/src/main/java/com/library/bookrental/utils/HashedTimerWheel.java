@@ -0,0 +1,120 @@
+package com.library.bookrental.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel in the style of Varghese and Lauck. Each slot holds the timers whose
+ * deadline hashes onto it together with the number of full wheel rotations still to wait,
+ * so every tick only touches one slot no matter how many timers are pending.
+ * <p>
+ * Timers may be added and cancelled from any thread. {@link #advance(long)} must only be
+ * driven by a single thread, which is also the thread the expiry handler runs on.
+ */
+public class HashedTimerWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timeout<T>>[] slots;
+    private final Queue<Timeout<T>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> expiryHandler;
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickMillis, int wheelSize, long startMillis, Consumer<List<T>> expiryHandler) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.slots = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+        this.expiryHandler = expiryHandler;
+    }
+
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(payload, deadlineMillis);
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis} and hands expired payloads to the handler,
+     * one batch per tick.
+     */
+    public void advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick <= targetTick) {
+            transferPendingAdds();
+            List<T> expired = expireSlot(slots[(int) (currentTick & mask)], currentTick);
+            if (!expired.isEmpty()) {
+                expiryHandler.accept(expired);
+            }
+            currentTick++;
+        }
+    }
+
+    private void transferPendingAdds() {
+        Timeout<T> timeout;
+        while ((timeout = pendingAdds.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // Timers already in the past land on the current tick and fire immediately.
+            long deadlineTick = Math.max(timeout.deadlineMillis / tickMillis, currentTick);
+            timeout.remainingRounds = (deadlineTick - currentTick) / slots.length;
+            slots[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private List<T> expireSlot(List<Timeout<T>> slot, long tick) {
+        List<T> expired = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            Timeout<T> timeout = slot.get(i);
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.remainingRounds <= 0 && timeout.deadlineMillis / tickMillis <= tick) {
+                expired.add(timeout.payload);
+                continue;
+            }
+            timeout.remainingRounds--;
+            slot.set(kept++, timeout);
+        }
+        slot.subList(kept, slot.size()).clear();
+        return expired;
+    }
+
+    public static final class Timeout<T> {
+
+        private final T payload;
+        private final long deadlineMillis;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(T payload, long deadlineMillis) {
+            this.payload = payload;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+}
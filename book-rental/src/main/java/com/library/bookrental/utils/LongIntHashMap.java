@@ -0,0 +1,140 @@
+package com.library.bookrental.utils;
+
+/**
+ * Open-addressing hash map from non-zero long keys to int values, stored in two primitive
+ * arrays. A boxed {@code HashMap<Long, Integer>} spends around 60 bytes per entry; this map
+ * spends 12 bytes per slot at a load factor of at most one half. Not thread-safe.
+ */
+public class LongIntHashMap {
+
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of the key, or 0 if it is absent.
+     */
+    public int get(long key) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    public boolean containsKey(long key) {
+        return key != 0 && keys[find(key)] == key;
+    }
+
+    public void put(long key, int value) {
+        int slot = slotFor(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Adds delta to the value of the key, treating an absent key as 0, and returns the sum.
+     */
+    public int addTo(long key, int delta) {
+        int slot = slotFor(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public boolean remove(long key) {
+        if (key == 0) {
+            return false;
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        // Backward shift deletion keeps every probe chain unbroken without tombstones.
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        size--;
+        return true;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the backing arrays in bytes.
+     */
+    public long footprintBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int slotFor(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots.");
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
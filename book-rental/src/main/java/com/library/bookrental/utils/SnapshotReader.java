@@ -0,0 +1,123 @@
+package com.library.bookrental.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter} through memory-mapped windows of the
+ * file. A window is remapped further along the file whenever a value would cross its end,
+ * so snapshots larger than a single mapping (2 GB) are read the same way.
+ */
+public class SnapshotReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private final short version;
+
+    public SnapshotReader(Path path, long windowSize) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.windowSize = windowSize;
+        map(0);
+
+        byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+        ensure(magic.length + Short.BYTES);
+        window.get(magic);
+        version = window.getShort();
+        if (!Arrays.equals(magic, SnapshotWriter.MAGIC) || version < SnapshotWriter.MIN_READABLE_VERSION
+                || version > SnapshotWriter.VERSION) {
+            close();
+            throw new IllegalArgumentException("Not a catalog snapshot of version " + SnapshotWriter.MIN_READABLE_VERSION
+                    + " to " + SnapshotWriter.VERSION + ": " + path);
+        }
+    }
+
+    public short getVersion() {
+        return version;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int readByte() {
+        ensure(1);
+        return window.get();
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readInt() {
+        ensure(Integer.BYTES);
+        return window.getInt();
+    }
+
+    public long readLong() {
+        ensure(Long.BYTES);
+        return window.getLong();
+    }
+
+    public LocalDate readDate() {
+        long epochDay = readLong();
+        return epochDay == SnapshotWriter.NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length == SnapshotWriter.NULL_LENGTH) {
+            return null;
+        }
+        if (length > windowSize) {
+            throw new IllegalStateException("String of " + length + " bytes does not fit the mapping window.");
+        }
+        ensure(length);
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        long position = windowStart + window.position();
+        if (position + bytes > size) {
+            throw new IllegalStateException("Snapshot is truncated at byte " + position + ".");
+        }
+        map(position);
+    }
+
+    private void map(long position) {
+        try {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.bookrental.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes the binary catalog snapshot format read by {@link SnapshotReader}: fixed-width
+ * big-endian numbers, length-prefixed UTF-8 strings and epoch-day dates, staged in one
+ * reusable direct buffer.
+ */
+public class SnapshotWriter implements AutoCloseable {
+
+    public static final byte[] MAGIC = {'B', 'R', 'S', 'N', 'A', 'P'};
+    /**
+     * Version 2 added the branch id to every author, book and rental.
+     */
+    public static final short VERSION = 2;
+    public static final short MIN_READABLE_VERSION = 1;
+
+    static final int NULL_LENGTH = -1;
+    static final long NULL_DATE = Long.MIN_VALUE;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long bytesWritten;
+
+    public SnapshotWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        ensure(MAGIC.length + Short.BYTES);
+        buffer.put(MAGIC).putShort(VERSION);
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void writeLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    public void writeDate(LocalDate value) {
+        writeLong(value == null ? NULL_DATE : value.toEpochDay());
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
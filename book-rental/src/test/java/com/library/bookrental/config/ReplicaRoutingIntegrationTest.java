@@ -0,0 +1,77 @@
+package com.library.bookrental.config;
+
+import com.library.bookrental.repositories.BookRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"bookrental.datasource.replica.enabled=true",
+		"bookrental.datasource.replica.max-lag-ms=0"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingIntegrationTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void writeAfterAReadInTheSameRequestGoesToThePrimary() throws Exception {
+		mockMvc.perform(post("/test/read-then-write"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("replica connections held during the write: 0"));
+	}
+
+	@TestConfiguration
+	static class ReadThenWriteConfig {
+
+		@Bean
+		ReadThenWriteController readThenWriteController(BookRepository bookRepository,
+														PlatformTransactionManager transactionManager,
+														@Qualifier("replicaDataSource") HikariDataSource replica) {
+			return new ReadThenWriteController(bookRepository, transactionManager, replica);
+		}
+	}
+
+	@RestController
+	static class ReadThenWriteController {
+
+		private final BookRepository bookRepository;
+		private final TransactionTemplate readOnly;
+		private final TransactionTemplate readWrite;
+		private final HikariDataSource replica;
+
+		ReadThenWriteController(BookRepository bookRepository, PlatformTransactionManager transactionManager,
+								HikariDataSource replica) {
+			this.bookRepository = bookRepository;
+			this.readOnly = new TransactionTemplate(transactionManager);
+			this.readOnly.setReadOnly(true);
+			this.readWrite = new TransactionTemplate(transactionManager);
+			this.replica = replica;
+		}
+
+		@PostMapping("/test/read-then-write")
+		String readThenWrite() {
+			readOnly.executeWithoutResult(status -> bookRepository.count());
+			int held = readWrite.execute(status -> {
+				bookRepository.count();
+				return replica.getHikariPoolMXBean().getActiveConnections();
+			});
+			return "replica connections held during the write: " + held;
+		}
+	}
+}
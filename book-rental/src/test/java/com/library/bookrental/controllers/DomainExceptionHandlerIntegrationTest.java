@@ -0,0 +1,91 @@
+package com.library.bookrental.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DomainExceptionHandlerIntegrationTest {
+
+	private static final long MISSING_ID = 987_654_321L;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void rentalOutcomesMapToStatuses() throws Exception {
+		long bookId = addBook("Outcome Book", addAuthor("Outcome Author"));
+		String rent = "/api/books/" + bookId + "/rent";
+		String giveBack = "/api/books/" + bookId + "/return";
+
+		mockMvc.perform(post(giveBack)).andExpect(status().isConflict());
+		mockMvc.perform(post(rent).param("renterName", "First")).andExpect(status().isOk());
+		mockMvc.perform(post(rent).param("renterName", "Second")).andExpect(status().isConflict())
+				.andExpect(content().string("Book is already rented."));
+		mockMvc.perform(post(giveBack)).andExpect(status().isOk());
+		mockMvc.perform(post("/api/books/" + MISSING_ID + "/rent").param("renterName", "Nobody"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(post("/api/books/" + MISSING_ID + "/return")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void missingEntitiesAreNotFound() throws Exception {
+		mockMvc.perform(put("/api/authors/" + MISSING_ID).contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\": \"Ghost\"}"))
+				.andExpect(status().isNotFound())
+				.andExpect(content().string("Author not found with ID: " + MISSING_ID));
+		mockMvc.perform(delete("/api/authors/" + MISSING_ID)).andExpect(status().isNotFound());
+		mockMvc.perform(delete("/api/books/" + MISSING_ID)).andExpect(status().isNotFound());
+		mockMvc.perform(get("/api/books/byAuthor/" + MISSING_ID)).andExpect(status().isNotFound());
+		mockMvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("title", "Orphan", "isbn", "978-0-00-000000-0",
+								"publicationYear", 2020, "authorId", MISSING_ID))))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void authorsInUseAreConflicts() throws Exception {
+		long authorId = addAuthor("Busy Author");
+		long bookId = addBook("Busy Book", authorId);
+		mockMvc.perform(post("/api/books/" + bookId + "/rent").param("renterName", "Reader"))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(delete("/api/authors/" + authorId)).andExpect(status().isConflict())
+				.andExpect(content().string("Author with ID " + authorId + " has books that are currently rented."));
+	}
+
+	private long addAuthor(String name) throws Exception {
+		String author = mockMvc.perform(post("/api/authors").contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("name", name))))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(author).get("authorId").asLong();
+	}
+
+	private long addBook(String title, long authorId) throws Exception {
+		mockMvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("title", title, "isbn", "978-0-00-000000-0",
+								"publicationYear", 2020, "authorId", authorId))))
+				.andExpect(status().isCreated());
+		String books = mockMvc.perform(get("/api/books/byAuthor/" + authorId)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(books).get(0).get("bookId").asLong();
+	}
+}
@@ -0,0 +1,180 @@
+package com.library.bookrental.filters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BranchScopingIntegrationTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void booksOfABranchAreHiddenFromOtherBranches() throws Exception {
+		long bookId = addBook(7, "Branch Seven Only");
+
+		assertTrue(titles(7).contains("\"Branch Seven Only\""));
+		assertFalse(titles(8).contains("\"Branch Seven Only\""));
+		mockMvc.perform(inBranch(post("/api/books/" + bookId + "/rent").param("renterName", "Elsewhere"), 8))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(inBranch(post("/api/books/" + bookId + "/rent").param("renterName", "Local"), 7))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void booksAndAuthorsCannotBeDeletedFromAnotherBranch() throws Exception {
+		long authorId = addAuthor(13, "Undeletable Elsewhere");
+		long bookId = addBook(13, "Kept In Branch Thirteen", authorId);
+
+		mockMvc.perform(inBranch(delete("/api/books/" + bookId), 14)).andExpect(status().isNotFound());
+		mockMvc.perform(inBranch(delete("/api/authors/" + authorId), 14)).andExpect(status().isNotFound());
+		assertTrue(titles(13).contains("\"Kept In Branch Thirteen\""));
+
+		mockMvc.perform(inBranch(delete("/api/books/" + bookId), 13)).andExpect(status().isOk());
+		mockMvc.perform(inBranch(delete("/api/authors/" + authorId), 13)).andExpect(status().isOk());
+	}
+
+	@Test
+	void exportsOnlyContainTheCallersBranch() throws Exception {
+		addBook(15, "Exported From Fifteen");
+		addBook(16, "Exported From Sixteen");
+
+		MvcResult export = mockMvc.perform(inBranch(get("/api/export/books.csv"), 15))
+				.andExpect(request().asyncStarted()).andReturn();
+		String csv = mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertTrue(csv.contains("Exported From Fifteen"));
+		assertFalse(csv.contains("Exported From Sixteen"));
+	}
+
+	@Test
+	void holdsCannotBeSeenOrCancelledFromAnotherBranch() throws Exception {
+		long bookId = addBook(17, "Held In Branch Seventeen");
+		rent(17, bookId, "First Renter");
+		String hold = mockMvc.perform(inBranch(post("/api/books/" + bookId + "/holds").param("renterName", "Holder"), 17))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		String holdPath = "/api/books/" + bookId + "/holds/" + objectMapper.readTree(hold).get("holdId").asLong();
+
+		MvcResult poll = mockMvc.perform(inBranch(get(holdPath).param("timeoutSeconds", "0"), 18)).andReturn();
+		mockMvc.perform(asyncDispatch(poll)).andExpect(status().isNotFound());
+		mockMvc.perform(inBranch(delete(holdPath), 18)).andExpect(status().isNotFound());
+
+		mockMvc.perform(inBranch(delete(holdPath), 17)).andExpect(status().isOk());
+	}
+
+	@Test
+	void requestsWithoutABranchUseTheDefaultBranch() throws Exception {
+		addBook(BranchContextFilter.DEFAULT_BRANCH_ID, "Default Branch Book");
+
+		String books = mockMvc.perform(get("/api/books")).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertTrue(books.contains("\"Default Branch Book\""));
+	}
+
+	@Test
+	void invalidBranchIdsAreRejected() throws Exception {
+		mockMvc.perform(get("/api/books").header(BranchContextFilter.BRANCH_ID_HEADER, "-3"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void listingsByAuthorStayInTheAuthorsBranch() throws Exception {
+		long authorId = addAuthor(9, "Cached Branch Author");
+		addBook(9, "Cached In Branch Nine", authorId);
+		String byAuthor = "/api/books/byAuthor/" + authorId;
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals(1, objectMapper.readTree(body(inBranch(get(byAuthor), 9))).size());
+		}
+		mockMvc.perform(inBranch(get(byAuthor), 10)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void recommendationsOnlyPairBooksOfOneBranch() throws Exception {
+		long first = addBook(11, "Recommended First");
+		long second = addBook(11, "Recommended Second");
+		long elsewhere = addBook(12, "Recommended Elsewhere");
+		rent(11, first, "Two Branch Renter");
+		rent(11, second, "Two Branch Renter");
+		rent(12, elsewhere, "Two Branch Renter");
+
+		JsonNode inBranch = objectMapper.readTree(body(inBranch(get("/api/books/" + first + "/recommendations"), 11)));
+		assertEquals(1, inBranch.size());
+		assertEquals(second, inBranch.get(0).get("bookId").asLong());
+		assertEquals(0, objectMapper.readTree(body(inBranch(get("/api/books/" + first + "/recommendations"), 12))).size());
+		assertEquals(0, objectMapper.readTree(body(inBranch(get("/api/books/" + elsewhere + "/recommendations"), 12)))
+				.size());
+	}
+
+	private void rent(long branchId, long bookId, String renterName) throws Exception {
+		mockMvc.perform(inBranch(post("/api/books/" + bookId + "/rent").param("renterName", renterName), branchId))
+				.andExpect(status().isOk());
+	}
+
+	private long addBook(long branchId, String title) throws Exception {
+		return addBook(branchId, title, addAuthor(branchId, "Author of " + title));
+	}
+
+	private long addAuthor(long branchId, String name) throws Exception {
+		String author = mockMvc.perform(inBranch(post("/api/authors"), branchId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("name", name))))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(author).get("authorId").asLong();
+	}
+
+	private long addBook(long branchId, String title, long authorId) throws Exception {
+		mockMvc.perform(inBranch(post("/api/books"), branchId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("title", title, "isbn", "978-0-00-000000-0",
+								"publicationYear", 2020, "authorId", authorId))))
+				.andExpect(status().isCreated());
+
+		for (JsonNode book : objectMapper.readTree(titles(branchId))) {
+			if (title.equals(book.get("title").asText())) {
+				return book.get("bookId").asLong();
+			}
+		}
+		throw new AssertionError("Book not listed in its branch: " + title);
+	}
+
+	private String titles(long branchId) throws Exception {
+		return body(inBranch(get("/api/books"), branchId));
+	}
+
+	private String body(MockHttpServletRequestBuilder request) throws Exception {
+		return mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+	}
+
+	private static MockHttpServletRequestBuilder inBranch(MockHttpServletRequestBuilder request, long branchId) {
+		return request.header(BranchContextFilter.BRANCH_ID_HEADER, Long.toString(branchId));
+	}
+}
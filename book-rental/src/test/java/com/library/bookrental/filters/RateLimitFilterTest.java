@@ -0,0 +1,56 @@
+package com.library.bookrental.filters;
+
+import com.library.bookrental.config.ReadYourWritesTracker;
+import com.library.bookrental.config.ReplicaRoutingDataSource;
+import com.library.bookrental.tracing.ObservedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateLimitFilterTest {
+
+	@Test
+	void findsThePrimaryPoolBehindTheReplicaRouting() {
+		HikariDataSource primary = new HikariDataSource();
+		HikariDataSource replica = new HikariDataSource();
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(new ReadYourWritesTracker(1000));
+		routing.setTargetDataSources(Map.of(
+				ReplicaRoutingDataSource.Route.PRIMARY, primary,
+				ReplicaRoutingDataSource.Route.REPLICA, replica));
+		routing.setDefaultTargetDataSource(primary);
+		routing.afterPropertiesSet();
+		DataSource dataSource = new ObservedDataSource(new LazyConnectionDataSourceProxy(routing), List::of);
+
+		// Inside a read-only transaction the router itself would pick the replica.
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		try {
+			assertSame(primary, RateLimitFilter.primaryPool(dataSource));
+		} finally {
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+	}
+
+	@Test
+	void findsAPlainHikariPool() {
+		HikariDataSource pool = new HikariDataSource();
+
+		assertSame(pool, RateLimitFilter.primaryPool(pool));
+		assertSame(pool, RateLimitFilter.primaryPool(new ObservedDataSource(pool, List::of)));
+	}
+
+	@Test
+	void findsNothingWithoutAHikariPool() {
+		assertNull(RateLimitFilter.primaryPool(new JdbcDataSource()));
+	}
+}
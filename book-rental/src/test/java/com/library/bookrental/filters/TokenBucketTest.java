@@ -0,0 +1,41 @@
+package com.library.bookrental.filters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void allowsBurstThenRefillsAtConfiguredRate() {
+		TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+		assertTrue(bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(0));
+		assertFalse(bucket.tryAcquire(0));
+
+		assertTrue(bucket.tryAcquire(SECOND / 10));
+		assertFalse(bucket.tryAcquire(SECOND / 10));
+	}
+
+	@Test
+	void becomesIdleOnceFullyRefilled() {
+		TokenBucket bucket = new TokenBucket(10, 2, 0);
+		bucket.tryAcquire(0);
+		bucket.tryAcquire(0);
+
+		assertFalse(bucket.isIdle(SECOND / 10));
+		assertTrue(bucket.isIdle(SECOND / 5));
+	}
+
+	@Test
+	void normalizesNumericPathSegments() {
+		assertEquals("/api/books/{id}/rent", RateLimitFilter.normalizePath("/api/books/42/rent"));
+		assertEquals("/api/books/overdue", RateLimitFilter.normalizePath("/api/books/overdue"));
+	}
+}
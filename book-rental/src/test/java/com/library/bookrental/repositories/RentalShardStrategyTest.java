@@ -0,0 +1,34 @@
+package com.library.bookrental.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RentalShardStrategyTest {
+
+	@Test
+	void rangeStrategyAssignsBoundsToTheNextShard() {
+		RangeRentalShardStrategy strategy = new RangeRentalShardStrategy(new long[]{100, 200});
+
+		assertEquals(3, strategy.shardCount());
+		assertEquals(0, strategy.shardFor(1));
+		assertEquals(0, strategy.shardFor(99));
+		assertEquals(1, strategy.shardFor(100));
+		assertEquals(1, strategy.shardFor(199));
+		assertEquals(2, strategy.shardFor(200));
+		assertEquals(2, strategy.shardFor(1_000_000));
+	}
+
+	@Test
+	void hashStrategySpreadsSequentialIdsOverAllShards() {
+		HashRentalShardStrategy strategy = new HashRentalShardStrategy(4);
+		int[] counts = new int[4];
+		for (long bookId = 1; bookId <= 10_000; bookId++) {
+			counts[strategy.shardFor(bookId)]++;
+		}
+		for (int count : counts) {
+			assertTrue(count > 2_000 && count < 3_000, "Unbalanced shard size: " + count);
+		}
+	}
+}
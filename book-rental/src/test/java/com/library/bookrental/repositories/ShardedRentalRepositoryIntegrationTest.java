@@ -0,0 +1,231 @@
+package com.library.bookrental.repositories;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.RentalView;
+import com.library.bookrental.models.Book;
+import com.library.bookrental.models.Rental;
+import com.library.bookrental.services.AuthorService;
+import com.library.bookrental.services.BookService;
+import com.library.bookrental.services.ExportService;
+import com.library.bookrental.services.OutboxService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"bookrental.sharding.enabled=true",
+		"bookrental.sharding.urls=jdbc:h2:mem:test-rentals0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:test-rentals1;DB_CLOSE_DELAY=-1",
+		"bookrental.rental.overdue-sweep-batch-size=2"
+})
+class ShardedRentalRepositoryIntegrationTest {
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private RentalRepository rentalRepository;
+
+	@Autowired
+	private RentalShards rentalShards;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ExportService exportService;
+
+	@Test
+	void concurrentSweepsRecordEachOverdueRentalOnce() {
+		List<Long> bookIds = addRentedBooks("Sharded Overdue", 6);
+		for (int shard = 0; shard < rentalShards.size(); shard++) {
+			for (Long bookId : bookIds) {
+				rentalShards.shard(shard).update("update rentals set due_date = ? where book_id = ?",
+						LocalDate.now().minusDays(1), bookId);
+			}
+		}
+
+		List<CompletableFuture<Void>> sweeps = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			sweeps.add(CompletableFuture.runAsync(bookService::checkForOverdueRentals));
+		}
+		sweeps.forEach(CompletableFuture::join);
+		bookService.checkForOverdueRentals();
+
+		List<RentalView> rentals = rentalRepository.findViewsByBookIds(bookIds);
+		assertEquals(bookIds.size(), rentals.size());
+		for (RentalView rental : rentals) {
+			assertTrue(rental.overdue());
+			assertEquals(1, jdbcTemplate.queryForObject("select count(*) from outbox_messages "
+					+ "where aggregate_id = ? and event_type = ?", Integer.class, rental.rentalId(),
+					OutboxService.RENTAL_OVERDUE));
+		}
+	}
+
+	@Test
+	void rentalExportIsOrderedByIdAcrossShards() {
+		List<Long> bookIds = addRentedBooks("Sharded Export", 8);
+		int rentals = 0;
+		for (int shard = 0; shard < rentalShards.size(); shard++) {
+			int onShard = rentalShards.shard(shard).queryForObject("select count(*) from rentals", Integer.class);
+			assertTrue(onShard > 0, "every shard should hold rentals");
+			rentals += onShard;
+		}
+		assertTrue(rentals >= bookIds.size());
+
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		assertEquals(rentals, exportService.export("rentals", null, Channels.newChannel(csv)));
+
+		String[] lines = csv.toString(StandardCharsets.UTF_8).split("\\R");
+		assertEquals(rentals + 1, lines.length);
+		long previous = 0;
+		for (int i = 1; i < lines.length; i++) {
+			long rentalId = Long.parseLong(lines[i].substring(0, lines[i].indexOf(',')));
+			assertTrue(rentalId > previous, "rental ids out of order at line " + i);
+			previous = rentalId;
+		}
+	}
+
+	@Test
+	void deletingAnAuthorsRentalsReachesRowsNotYetRebalanced() {
+		List<Long> bookIds = addRentedBooks("Sharded Unmoved", 2);
+		Long movedBookId = bookIds.get(0);
+		moveToOtherShard(movedBookId);
+		Long authorId = jdbcTemplate.queryForObject("select author_id from books where book_id = ?", Long.class,
+				movedBookId);
+
+		assertEquals(2, rentalRepository.deleteByBookAuthorId(authorId));
+		assertTrue(rentalRepository.findViewsByBookIds(bookIds).isEmpty());
+	}
+
+	@Test
+	void crudMethodsSpanAllShards() {
+		List<Long> bookIds = addRentedBooks("Sharded Crud", 4);
+		moveToOtherShard(bookIds.get(0));
+		List<Long> rentalIds = rentalRepository.findViewsByBookIds(bookIds).stream().map(RentalView::rentalId)
+				.toList();
+		assertEquals(4, rentalIds.size());
+		long count = rentalRepository.count();
+		assertTrue(count >= 4);
+
+		assertEquals(rentalIds, rentalRepository.findAllById(rentalIds).stream().map(Rental::getRentalId).toList());
+
+		for (Long rentalId : rentalIds.subList(0, 2)) {
+			rentalRepository.deleteById(rentalId);
+			assertTrue(rentalRepository.findById(rentalId).isEmpty());
+		}
+		assertEquals(count - 2, rentalRepository.count());
+
+		Book book = bookRepository.findById(bookIds.get(0)).orElseThrow();
+		List<Rental> restored = rentalRepository.saveAll(List.of(new Rental(null, book, "Restored Reader",
+				LocalDate.now(), LocalDate.now().plusDays(14), null, false, null)));
+		assertEquals(count - 1, rentalRepository.count());
+		assertTrue(rentalRepository.findById(restored.get(0).getRentalId()).isPresent());
+	}
+
+	@Test
+	void rentalIdsAreAllocatedWhileThePrimaryPoolIsExhausted() throws Exception {
+		long before = rentalShards.nextRentalId();
+		// Forces the next call to allocate a fresh block.
+		rentalShards.reserveIdsThrough(before);
+		HikariDataSource primary = dataSource.unwrap(HikariDataSource.class);
+		List<Connection> held = new ArrayList<>();
+		try {
+			for (int i = 0; i < primary.getMaximumPoolSize(); i++) {
+				held.add(primary.getConnection());
+			}
+			long next = CompletableFuture.supplyAsync(rentalShards::nextRentalId).get(10, TimeUnit.SECONDS);
+			assertTrue(next > before);
+		} finally {
+			for (Connection connection : held) {
+				connection.close();
+			}
+		}
+	}
+
+	@Test
+	void rolledBackRentsAndReturnsLeaveTheShardUntouched() {
+		Long bookId = addRentedBooks("Sharded Rollback", 1).get(0);
+		bookService.returnBook(bookId);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			bookService.rentBook(bookId, "Rolled Back Reader");
+			status.setRollbackOnly();
+		});
+		assertTrue(rentalRepository.findFirstByBookBookIdAndReturnDateIsNull(bookId).isEmpty());
+		assertEquals(1, rentalRepository.findViewsByBookIds(List.of(bookId)).size());
+
+		bookService.rentBook(bookId, "Committed Reader");
+		transactionTemplate.executeWithoutResult(status -> {
+			bookService.returnBook(bookId);
+			status.setRollbackOnly();
+		});
+		assertTrue(rentalRepository.findFirstByBookBookIdAndReturnDateIsNull(bookId).isPresent());
+		assertFalse(bookRepository.findById(bookId).orElseThrow().isAvailable());
+	}
+
+	/**
+	 * Leaves a book's rentals on the shard that does not own the book, as before the
+	 * rebalancer has moved them.
+	 */
+	private void moveToOtherShard(Long bookId) {
+		JdbcTemplate home = rentalShards.shardFor(bookId);
+		JdbcTemplate other = rentalShards.shard((rentalShards.shardIndexFor(bookId) + 1) % rentalShards.size());
+		for (Map<String, Object> row : home.queryForList("select * from rentals where book_id = ?", bookId)) {
+			other.update("insert into rentals (rental_id, book_id, renter_name, rental_date, due_date, return_date, "
+							+ "overdue, branch_id) values (?, ?, ?, ?, ?, ?, ?, ?)",
+					row.get("RENTAL_ID"), row.get("BOOK_ID"), row.get("RENTER_NAME"), row.get("RENTAL_DATE"),
+					row.get("DUE_DATE"), row.get("RETURN_DATE"), row.get("OVERDUE"), row.get("BRANCH_ID"));
+		}
+		home.update("delete from rentals where book_id = ?", bookId);
+	}
+
+	private List<Long> addRentedBooks(String prefix, int count) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName(prefix + " Author");
+		Long authorId = authorService.addAuthor(author).getAuthorId();
+		List<Long> bookIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			BookDTO book = new BookDTO();
+			book.setTitle(prefix + " Book " + i);
+			book.setIsbn("978-0-00-000000-0");
+			book.setPublicationYear(2020);
+			book.setAuthorId(authorId);
+			Long bookId = bookService.addBook(book).getBookId();
+			bookService.rentBook(bookId, prefix + " Reader");
+			bookIds.add(bookId);
+		}
+		return bookIds;
+	}
+}
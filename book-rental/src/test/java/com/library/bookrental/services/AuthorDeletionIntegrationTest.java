@@ -0,0 +1,156 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.exceptions.AuthorInUseException;
+import com.library.bookrental.filters.BranchContextFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthorDeletionIntegrationTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void authorNamesAreUniqueWithinABranch() throws Exception {
+		authorService.addAuthor(author("Only Once"));
+
+		assertThrows(DataIntegrityViolationException.class, () -> authorService.addAuthor(author("Only Once")));
+		mockMvc.perform(post("/api/authors").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\": \"Only Once\"}"))
+				.andExpect(status().isConflict());
+		mockMvc.perform(post("/api/authors").header(BranchContextFilter.BRANCH_ID_HEADER, "5")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\": \"Only Once\"}"))
+				.andExpect(status().isCreated());
+	}
+
+	@Test
+	void concurrentUpsertsOfTheSameNamesInsertEachOnce() throws Exception {
+		List<AuthorDTO> authors = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			authors.add(author("Concurrent Upsert " + i));
+		}
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Map<String, Integer>>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return authorService.upsertAuthors(authors);
+				}));
+			}
+			start.countDown();
+			int inserted = 0;
+			for (Future<Map<String, Integer>> result : results) {
+				inserted += result.get().get("inserted");
+			}
+			assertEquals(200, inserted);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(200, jdbcTemplate.queryForObject(
+				"select count(*) from authors where name like 'Concurrent Upsert %'", Integer.class));
+	}
+
+	@Test
+	void authorsWithRentedBooksAreNotDeleted() throws Exception {
+		Long authorId = authorService.addAuthor(author("Currently Lent")).getAuthorId();
+		Long bookId = addBook("Lent Out", authorId);
+		bookService.rentBook(bookId, "Reader");
+
+		mockMvc.perform(delete("/api/authors/" + authorId)).andExpect(status().isConflict());
+	}
+
+	@Test
+	void rentalHistoryIsOnlyDeletedOnRequest() {
+		Long authorId = authorService.addAuthor(author("With History")).getAuthorId();
+		Long bookId = addBook("Once Lent", authorId);
+		bookService.rentBook(bookId, "Reader");
+		bookService.returnBook(bookId);
+
+		assertThrows(AuthorInUseException.class, () -> authorService.deleteAuthor(authorId, false));
+		assertEquals(1, rentalsOf(bookId));
+
+		authorService.deleteAuthor(authorId, true);
+		assertEquals(0, rentalsOf(bookId));
+	}
+
+	@Test
+	void rentsRacingADeleteNeverFail() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			Long authorId = authorService.addAuthor(author("Racing Author " + i)).getAuthorId();
+			Long bookId = addBook("Racing Book " + i, authorId);
+			CompletableFuture<RentalOutcome> rent = CompletableFuture.supplyAsync(
+					() -> bookService.rentBook(bookId, "Racer"));
+			CompletableFuture<Boolean> deleted = CompletableFuture.supplyAsync(() -> {
+				try {
+					authorService.deleteAuthor(authorId, false);
+					return true;
+				} catch (AuthorInUseException e) {
+					return false;
+				}
+			});
+
+			if (deleted.get()) {
+				assertEquals(RentalOutcome.BOOK_NOT_FOUND, rent.get());
+			} else {
+				assertEquals(RentalOutcome.RENTED, rent.get());
+			}
+		}
+	}
+
+	private int rentalsOf(Long bookId) {
+		return jdbcTemplate.queryForObject("select count(*) from rentals where book_id = ?", Integer.class, bookId);
+	}
+
+	private Long addBook(String title, Long authorId) {
+		BookDTO book = new BookDTO();
+		book.setTitle(title);
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorId);
+		return bookService.addBook(book).getBookId();
+	}
+
+	private static AuthorDTO author(String name) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName(name);
+		return author;
+	}
+}
@@ -0,0 +1,165 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.models.Book;
+import com.library.bookrental.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookHoldIntegrationTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookHoldService bookHoldService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void returnedBooksGoToHoldersInOrder() {
+		Long bookId = addBook("Queued Book");
+		assertEquals(RentalOutcome.RENTED, bookService.rentBook(bookId, "First Renter"));
+		BookHold second = bookHoldService.placeHold(bookId, "Second Renter").orElseThrow();
+		BookHold third = bookHoldService.placeHold(bookId, "Third Renter").orElseThrow();
+
+		assertEquals(RentalOutcome.RETURNED, bookService.returnBook(bookId));
+		assertEquals(BookHold.Status.FULFILLED, second.getStatus());
+		assertNotNull(second.getRentalId());
+		assertEquals(BookHold.Status.WAITING, third.getStatus());
+		assertFalse(isAvailable(bookId));
+
+		assertEquals(RentalOutcome.RETURNED, bookService.returnBook(bookId));
+		assertEquals(BookHold.Status.FULFILLED, third.getStatus());
+
+		assertEquals(RentalOutcome.RETURNED, bookService.returnBook(bookId));
+		assertTrue(isAvailable(bookId));
+		assertEquals(RentalOutcome.RENTED, bookService.rentBook(bookId, "Walk-in Renter"));
+	}
+
+	@Test
+	void availableBooksCannotBeHeld() {
+		Long bookId = addBook("Shelved Book");
+
+		assertTrue(bookHoldService.placeHold(bookId, "Early Renter").isEmpty());
+		assertEquals(0, bookHoldService.queuedHolds(bookId));
+	}
+
+	@Test
+	void walkInRentersDoNotJumpTheQueue() {
+		Long bookId = addBook("Contested Book");
+		bookService.rentBook(bookId, "First Renter");
+		BookHold holder = bookHoldService.placeHold(bookId, "Waiting Renter").orElseThrow();
+		// A book back on the shelf while a renter is still waiting, as after a failed handover.
+		transactionTemplate.executeWithoutResult(status -> {
+			Book book = bookRepository.findById(bookId).orElseThrow();
+			book.setAvailable(true);
+			bookRepository.save(book);
+		});
+
+		assertEquals(RentalOutcome.ALREADY_RENTED, bookService.rentBook(bookId, "Walk-in Renter"));
+		assertEquals(BookHold.Status.FULFILLED, holder.getStatus());
+		assertFalse(isAvailable(bookId));
+	}
+
+	@Test
+	void cancellingAHoldEndsItsLongPoll() throws Exception {
+		Long bookId = addBook("Cancelled Hold Book");
+		bookService.rentBook(bookId, "First Renter");
+		BookHold hold = bookHoldService.placeHold(bookId, "Impatient Renter").orElseThrow();
+		String holdPath = "/api/books/" + bookId + "/holds/" + hold.getHoldId();
+
+		MvcResult poll = mockMvc.perform(get(holdPath)).andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(delete(holdPath)).andExpect(status().isOk());
+
+		mockMvc.perform(asyncDispatch(poll)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void zeroTimeoutPollsAnswerAtOnce() throws Exception {
+		Long bookId = addBook("Polled Hold Book");
+		bookService.rentBook(bookId, "First Renter");
+		BookHold hold = bookHoldService.placeHold(bookId, "Polling Renter").orElseThrow();
+		String holdPath = "/api/books/" + bookId + "/holds/" + hold.getHoldId();
+
+		MvcResult waiting = mockMvc.perform(get(holdPath).param("timeoutSeconds", "0")).andReturn();
+		mockMvc.perform(asyncDispatch(waiting)).andExpect(status().isAccepted());
+
+		bookService.returnBook(bookId);
+		MvcResult fulfilled = mockMvc.perform(get(holdPath).param("timeoutSeconds", "0")).andReturn();
+		mockMvc.perform(asyncDispatch(fulfilled)).andExpect(status().isOk());
+	}
+
+	@Test
+	void holdsOnAvailableBooksAreRejectedOverHttp() throws Exception {
+		Long bookId = addBook("Rent Me Instead");
+
+		mockMvc.perform(post("/api/books/" + bookId + "/holds").param("renterName", "Early Renter"))
+				.andExpect(status().isConflict());
+	}
+
+	@Test
+	void settledHoldsAreForgottenAfterRetention() {
+		Long bookId = addBook("Forgotten Hold Book");
+		bookService.rentBook(bookId, "First Renter");
+		BookHold fulfilled = bookHoldService.placeHold(bookId, "Absent Renter").orElseThrow();
+		BookHold cancelled = bookHoldService.placeHold(bookId, "Cancelling Renter").orElseThrow();
+		bookService.returnBook(bookId);
+		bookHoldService.cancelHold(bookId, cancelled.getHoldId());
+		assertTrue(bookHoldService.findHold(bookId, fulfilled.getHoldId()).isPresent());
+		assertEquals(1, bookHoldService.queuedHolds(bookId));
+
+		bookHoldService.purgeSettledBefore(Instant.now().plusSeconds(1));
+
+		assertTrue(bookHoldService.findHold(bookId, fulfilled.getHoldId()).isEmpty());
+		assertEquals(0, bookHoldService.queuedHolds(bookId));
+	}
+
+	private boolean isAvailable(Long bookId) {
+		return bookRepository.findById(bookId).orElseThrow().isAvailable();
+	}
+
+	private Long addBook(String title) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Author of " + title);
+		Long authorId = authorService.addAuthor(author).getAuthorId();
+
+		BookDTO book = new BookDTO();
+		book.setTitle(title);
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorId);
+		return bookService.addBook(book).getBookId();
+	}
+}
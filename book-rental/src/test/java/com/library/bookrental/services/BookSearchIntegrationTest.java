@@ -0,0 +1,99 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.BookPageDTO;
+import com.library.bookrental.dto.BookSearchCriteria;
+import com.library.bookrental.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class BookSearchIntegrationTest {
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Test
+	void pagesByTitleTreatUntitledBooksAsEmptyTitles() {
+		Long authorId = addAuthor("Keyset Titles");
+		Long b1 = addBook(authorId, "Beta", 2001);
+		Long untitled1 = addBook(authorId, null, 2002);
+		Long a = addBook(authorId, "Alpha", 2003);
+		Long b2 = addBook(authorId, "Beta", 2004);
+		Long untitled2 = addBook(authorId, null, 2005);
+		Long untitled3 = addBook(authorId, null, 2006);
+
+		assertEquals(List.of(untitled1, untitled2, untitled3, a, b1, b2), pageThrough(authorId, "title", "asc", 2));
+		assertEquals(List.of(b2, b1, a, untitled3, untitled2, untitled1), pageThrough(authorId, "title", "desc", 2));
+		assertEquals(List.of(untitled1, untitled2, untitled3, a, b1, b2), pageThrough(authorId, "title", "asc", 1));
+		assertEquals("", bookRepository.findById(untitled1).orElseThrow().getTitle());
+	}
+
+	@Test
+	void pagesByYearBreakTiesById() {
+		Long authorId = addAuthor("Keyset Years");
+		Long first = addBook(authorId, "First", 1999);
+		Long second = addBook(authorId, "Second", 1990);
+		Long third = addBook(authorId, "Third", 1999);
+		Long fourth = addBook(authorId, "Fourth", 2010);
+
+		assertEquals(List.of(second, first, third, fourth), pageThrough(authorId, "publicationYear", "asc", 2));
+		assertEquals(List.of(fourth, third, first, second), pageThrough(authorId, "publicationYear", "desc", 3));
+	}
+
+	@Test
+	void cursorsThatWereNotIssuedAreRejected() {
+		BookSearchCriteria criteria = new BookSearchCriteria();
+		criteria.setCursor(Base64.getUrlEncoder().encodeToString("null|1".getBytes(StandardCharsets.UTF_8)));
+
+		assertThrows(IllegalArgumentException.class, () -> bookService.searchBooks(criteria));
+	}
+
+	private List<Long> pageThrough(Long authorId, String sort, String direction, int limit) {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			BookSearchCriteria criteria = new BookSearchCriteria();
+			criteria.setAuthorId(authorId);
+			criteria.setSort(sort);
+			criteria.setDirection(direction);
+			criteria.setLimit(limit);
+			criteria.setCursor(cursor);
+			BookPageDTO page = bookService.searchBooks(criteria);
+			page.getItems().forEach(book -> ids.add(book.getBookId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null && ids.size() < 100);
+		return ids;
+	}
+
+	private Long addAuthor(String name) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName(name);
+		return authorService.addAuthor(author).getAuthorId();
+	}
+
+	private Long addBook(Long authorId, String title, int year) {
+		BookDTO book = new BookDTO();
+		book.setTitle(title);
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(year);
+		book.setAuthorId(authorId);
+		return bookService.addBook(book).getBookId();
+	}
+}
@@ -0,0 +1,67 @@
+package com.library.bookrental.services;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterLeaseServiceTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private ClusterLeaseService first;
+	private ClusterLeaseService second;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:leases;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists cluster_leases");
+		jdbcTemplate.execute("create table cluster_leases (lease_name varchar(100) primary key, owner varchar(100), "
+				+ "locked_until timestamp(6) with time zone)");
+		first = node("first");
+		second = node("second");
+	}
+
+	@Test
+	void leaseIsHeldByOneNodeAndRenewedByItsHolder() {
+		assertTrue(first.tryAcquire("sweep", Duration.ofMinutes(1)));
+		assertFalse(second.tryAcquire("sweep", Duration.ofMinutes(1)));
+		assertTrue(first.tryAcquire("sweep", Duration.ofMinutes(1)));
+	}
+
+	@Test
+	void claimIsWonOnceEvenByItsHolder() {
+		assertTrue(first.tryClaimOnce("rental-reminders-2024-03-01", Duration.ofDays(2)));
+		assertFalse(first.tryClaimOnce("rental-reminders-2024-03-01", Duration.ofDays(2)));
+		assertFalse(second.tryClaimOnce("rental-reminders-2024-03-01", Duration.ofDays(2)));
+		assertTrue(second.tryClaimOnce("rental-reminders-2024-03-02", Duration.ofDays(2)));
+	}
+
+	@Test
+	void purgeDeletesOnlyExpiredRowsWithThePrefix() {
+		first.tryClaimOnce("rental-reminders-2024-03-01", Duration.ofDays(2));
+		first.tryClaimOnce("rental-reminders-2024-03-02", Duration.ofDays(2));
+		first.tryAcquire("rental_other", Duration.ofDays(2));
+		jdbcTemplate.update("update cluster_leases set locked_until = ? where lease_name <> ?",
+				Timestamp.from(Instant.now().minusSeconds(60)), "rental-reminders-2024-03-02");
+
+		assertEquals(1, first.purgeExpired("rental-reminders-"));
+		assertEquals(2, jdbcTemplate.queryForObject("select count(*) from cluster_leases", Integer.class));
+	}
+
+	private ClusterLeaseService node(String nodeId) {
+		ClusterLeaseService service = new ClusterLeaseService(nodeId);
+		ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+		return service;
+	}
+}
@@ -0,0 +1,112 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.BookRecommendation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "bookrental.cluster.enabled=true")
+@AutoConfigureMockMvc
+class ClusterModeIntegrationTest {
+
+	private static final String OTHER_NODE = "other-node";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private RecommendationService recommendationService;
+
+	@Autowired
+	private RentalIntervalService rentalIntervalService;
+
+	@Autowired
+	private ClusterEventBus clusterEventBus;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void holdsAreRefused() throws Exception {
+		Long bookId = addBook("Clustered Hold Book");
+		bookService.rentBook(bookId, "First Renter");
+
+		mockMvc.perform(post("/api/books/" + bookId + "/holds").param("renterName", "Waiting Renter"))
+				.andExpect(status().isNotImplemented());
+	}
+
+	@Test
+	void coRentalsAreSharedWithOtherNodes() {
+		Long first = addBook("Clustered First");
+		Long second = addBook("Clustered Second");
+		bookService.rentBook(first, "Local Renter");
+
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from cluster_events where topic = ? and payload = ?",
+				Integer.class, "co-rentals", first + " 1/Local Renter"));
+
+		receive("co-rentals", first + " 1/Remote Renter");
+		receive("co-rentals", second + " 1/Remote Renter");
+		clusterEventBus.poll();
+
+		assertTrue(recommendationService.getRecommendations(first, 10).contains(new BookRecommendation(second, 1)));
+	}
+
+	@Test
+	void rentalIntervalsFollowRentalsServedByOtherNodes() {
+		Long bookId = addBook("Clustered Interval Book");
+		long today = LocalDate.now().toEpochDay();
+		long yesterday = today - 1;
+
+		receive("rental-intervals", "started 9000001 " + bookId + " 1 " + yesterday);
+		clusterEventBus.poll();
+		assertTrue(rentalIntervalService.isRented(bookId, LocalDate.now()));
+
+		receive("rental-intervals", "ended 9000001 " + bookId + " 1 " + yesterday + " " + yesterday);
+		clusterEventBus.poll();
+		assertFalse(rentalIntervalService.isRented(bookId, LocalDate.now()));
+		assertTrue(rentalIntervalService.isRented(bookId, LocalDate.ofEpochDay(yesterday)));
+
+		bookService.rentBook(bookId, "Local Renter");
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from cluster_events where topic = ? "
+				+ "and payload like ?", Integer.class, "rental-intervals", "started % " + bookId + " 1 " + today));
+	}
+
+	private void receive(String topic, String payload) {
+		jdbcTemplate.update("insert into cluster_events (origin_node, topic, payload, created_at) values (?, ?, ?, ?)",
+				OTHER_NODE, topic, payload, Timestamp.from(Instant.now()));
+	}
+
+	private Long addBook(String title) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Author of " + title);
+		Long authorId = authorService.addAuthor(author).getAuthorId();
+
+		BookDTO book = new BookDTO();
+		book.setTitle(title);
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorId);
+		return bookService.addBook(book).getBookId();
+	}
+}
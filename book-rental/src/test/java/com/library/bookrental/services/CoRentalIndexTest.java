@@ -0,0 +1,87 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.BookRecommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoRentalIndexTest {
+
+	@Test
+	void countsBooksRentedByTheSameRenter() {
+		CoRentalIndex index = new CoRentalIndex(8, 10, 100);
+		index.record("ann", 1);
+		index.record("ann", 2);
+		index.record("bob", 1);
+		index.record("bob", 2);
+		index.record("bob", 3);
+		// Renting a book again while it is still in the window adds nothing.
+		index.record("bob", 1);
+
+		assertEquals(List.of(new BookRecommendation(2, 2), new BookRecommendation(3, 1)), index.top(1, 10));
+		assertEquals(List.of(new BookRecommendation(1, 1)), index.top(3, 1));
+		assertEquals(List.of(), index.top(99, 10));
+	}
+
+	@Test
+	void windowKeepsTheMostRecentDistinctBooks() {
+		long[] window = new long[0];
+		for (long bookId : new long[]{1, 2, 3, 2, 4}) {
+			window = CoRentalIndex.advance(window, bookId, 3);
+		}
+
+		assertArrayEquals(new long[]{3, 2, 4}, window);
+	}
+
+	@Test
+	void boundsPartnersPerBook() {
+		CoRentalIndex index = new CoRentalIndex(2, 10, 100);
+		for (int renter = 0; renter < 5; renter++) {
+			index.record("r" + renter, 1);
+			index.record("r" + renter, 2);
+		}
+		index.record("x", 1);
+		index.record("x", 3);
+		index.record("y", 1);
+		index.record("y", 4);
+
+		List<BookRecommendation> top = index.top(1, 10);
+		assertEquals(2, top.size());
+		assertEquals(new BookRecommendation(2, 5), top.get(0));
+	}
+
+	@Test
+	void parallelBuildMatchesIncrementalCounts() throws Exception {
+		Random random = new Random(3);
+		Map<String, long[]> histories = new LinkedHashMap<>();
+		CoRentalIndex incremental = new CoRentalIndex(1_000, 5, 1_000);
+		for (int renter = 0; renter < 200; renter++) {
+			long[] history = random.longs(1 + random.nextInt(15), 1, 60).toArray();
+			histories.put("renter" + renter, history);
+			for (long bookId : history) {
+				incremental.record("renter" + renter, bookId);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			CoRentalIndex built = CoRentalIndex.build(histories, 1_000, 5, 1_000, executor, 4);
+			for (long bookId = 1; bookId < 60; bookId++) {
+				assertEquals(incremental.top(bookId, 1_000), built.top(bookId, 1_000));
+			}
+			assertTrue(built.getBookCount() > 0);
+			assertEquals(200, built.getRenterCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
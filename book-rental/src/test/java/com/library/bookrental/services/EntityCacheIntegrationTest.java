@@ -0,0 +1,177 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.filters.BranchContextFilter;
+import com.library.bookrental.models.Author;
+import com.library.bookrental.models.Book;
+import com.library.bookrental.repositories.AuthorRepository;
+import com.library.bookrental.repositories.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class EntityCacheIntegrationTest {
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private AuthorRepository authorRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private EntityCacheService entityCacheService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void repeatedAuthorLoadsAreServedFromTheCache() {
+		Long authorId = authorService.addAuthor(author("Cache Reader", "Reads twice")).getAuthorId();
+
+		authorRepository.findById(authorId).orElseThrow();
+		long hits = hits(EntityCacheService.AUTHORS_REGION);
+		authorRepository.findById(authorId).orElseThrow();
+
+		assertTrue(entityManagerFactory.getCache().contains(Author.class, authorId));
+		assertEquals(hits + 1, hits(EntityCacheService.AUTHORS_REGION));
+	}
+
+	@Test
+	void updateAuthorReplacesTheCachedAuthor() {
+		Long authorId = authorService.addAuthor(author("Cache Before", "Old biography")).getAuthorId();
+		Long bookId = bookService.addBook(book("Cached Book", authorId)).getBookId();
+		authorRepository.findById(authorId).orElseThrow();
+		bookRepository.findById(bookId).orElseThrow();
+		assertTrue(entityManagerFactory.getCache().contains(Author.class, authorId));
+		assertTrue(entityManagerFactory.getCache().contains(Book.class, bookId));
+
+		authorService.updateAuthor(authorId, author("Cache After", "New biography"));
+
+		Author reloaded = authorRepository.findById(authorId).orElseThrow();
+		assertEquals("Cache After", reloaded.getName());
+		assertEquals("New biography", reloaded.getBiography());
+		// The book entry only holds the author's id, so the eager author is read afresh.
+		assertEquals("Cache After", bookRepository.findById(bookId).orElseThrow().getAuthor().getName());
+	}
+
+	@Test
+	void bulkUpsertEvictsCachedAuthors() {
+		Long authorId = authorService.addAuthor(author("Cache Bulk", "Before upsert")).getAuthorId();
+		authorRepository.findById(authorId).orElseThrow();
+
+		authorService.upsertAuthors(List.of(author("Cache Bulk", "After upsert")));
+
+		assertEquals("After upsert", authorRepository.findById(authorId).orElseThrow().getBiography());
+	}
+
+	@Test
+	void booksByAuthorIsCachedUntilABookIsWritten() {
+		Long authorId = authorService.addAuthor(author("Cache Listing", null)).getAuthorId();
+		bookService.addBook(book("First Listed", authorId));
+
+		assertEquals(1, bookService.getBooksByAuthor(authorId).size());
+		long hits = hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION);
+		assertEquals(1, bookService.getBooksByAuthor(authorId).size());
+		assertEquals(hits + 1, hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION));
+
+		bookService.addBook(book("Second Listed", authorId));
+
+		assertEquals(2, bookService.getBooksByAuthor(authorId).size());
+	}
+
+	@Test
+	void booksByAuthorResultsAreCachedPerBranch() {
+		Long authorId = authorService.addAuthor(author("Cache Branches", null)).getAuthorId();
+		bookService.addBook(book("Default Branch Listing", authorId));
+
+		assertEquals(1, booksByAuthorInBranch(authorId, BranchContextFilter.DEFAULT_BRANCH_ID));
+		long hits = hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION);
+		assertEquals(1, booksByAuthorInBranch(authorId, BranchContextFilter.DEFAULT_BRANCH_ID));
+		assertEquals(hits + 1, hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION));
+
+		// Same query and author, but the filter parameter differs, so it is a different key.
+		assertEquals(0, booksByAuthorInBranch(authorId, 42L));
+		assertEquals(hits + 1, hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION));
+	}
+
+	@Test
+	void aRemoteBookChangeEvictsOnlyThatBookAndTheListings() {
+		Long authorId = authorService.addAuthor(author("Cache Remote Rent", null)).getAuthorId();
+		Long rented = bookService.addBook(book("Rented Elsewhere", authorId)).getBookId();
+		Long untouched = bookService.addBook(book("Left Alone", authorId)).getBookId();
+		bookRepository.findById(rented).orElseThrow();
+		bookRepository.findById(untouched).orElseThrow();
+		bookService.getBooksByAuthor(authorId);
+
+		entityCacheService.evictBook(rented);
+
+		assertFalse(entityManagerFactory.getCache().contains(Book.class, rented));
+		assertTrue(entityManagerFactory.getCache().contains(Book.class, untouched));
+		long hits = hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION);
+		bookService.getBooksByAuthor(authorId);
+		assertEquals(hits, hits(EntityCacheService.BOOKS_BY_AUTHOR_REGION));
+	}
+
+	private int booksByAuthorInBranch(Long authorId, long branchId) {
+		return transactionTemplate.execute(status -> {
+			entityManager.unwrap(Session.class).enableFilter(Book.BRANCH_FILTER)
+					.setParameter(Book.BRANCH_PARAMETER, branchId);
+			return bookRepository.findViewsByAuthorId(authorId).size();
+		});
+	}
+
+	private long hits(String region) {
+		return statistics.getCacheRegionStatistics(region).getHitCount();
+	}
+
+	private static AuthorDTO author(String name, String biography) {
+		AuthorDTO author = new AuthorDTO();
+		author.setName(name);
+		author.setBiography(biography);
+		return author;
+	}
+
+	private static BookDTO book(String title, Long authorId) {
+		BookDTO book = new BookDTO();
+		book.setTitle(title);
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorId);
+		return book;
+	}
+}
@@ -0,0 +1,40 @@
+package com.library.bookrental.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeeScheduleTest {
+
+	@Test
+	void chargesEachDayAtTheRateOfItsStep() {
+		FeeSchedule schedule = FeeSchedule.parse("2:0.25,8:0.50");
+
+		assertEquals(0, schedule.feeCents(0));
+		assertEquals(0, schedule.feeCents(1));
+		assertEquals(25, schedule.feeCents(2));
+		assertEquals(150, schedule.feeCents(7));
+		assertEquals(200, schedule.feeCents(8));
+		assertEquals(150 + 50 * 93, schedule.feeCents(100));
+	}
+
+	@Test
+	void stopsAtTheCap() {
+		FeeSchedule schedule = FeeSchedule.parse(" 1:1.00 , cap:5.50 ");
+
+		assertEquals(500, schedule.feeCents(5));
+		assertEquals(550, schedule.feeCents(6));
+		assertEquals(550, schedule.feeCents(100_000));
+	}
+
+	@Test
+	void rejectsMalformedSchedules() {
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse(""));
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse("cap:5.00"));
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse("8:0.50,2:0.25"));
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse("0:0.25"));
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse("1:0.255"));
+		assertThrows(IllegalArgumentException.class, () -> FeeSchedule.parse("one:0.25"));
+	}
+}
@@ -0,0 +1,63 @@
+package com.library.bookrental.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryIdempotencyStoreTest {
+
+	private final AtomicLong clock = new AtomicLong(1_000);
+
+	@Test
+	void returnsTheRecordedResponseToLaterClaims() {
+		InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, clock::get);
+		assertNull(store.claim("client|key", "abc"));
+
+		IdempotentResponse.Entry running = store.claim("client|key", "abc");
+		assertEquals("abc", running.fingerprint());
+		assertNull(running.response());
+
+		store.complete("client|key", "abc", new IdempotentResponse(200, "application/json", new byte[]{1, 2}));
+		IdempotentResponse.Entry done = store.claim("client|key", "abc");
+		assertEquals(200, done.response().status());
+		assertArrayEquals(new byte[]{1, 2}, done.response().body());
+	}
+
+	@Test
+	void releasedKeysCanBeClaimedAgain() {
+		InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, clock::get);
+		store.claim("key", "abc");
+		store.release("key");
+
+		assertNull(store.claim("key", "abc"));
+	}
+
+	@Test
+	void expiresEntriesAfterTheirTimeToLive() {
+		InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, clock::get);
+		store.claim("old", "abc");
+		store.complete("old", "abc", new IdempotentResponse(201, null, new byte[0]));
+		clock.addAndGet(30_000);
+		store.claim("newer", "def");
+
+		clock.addAndGet(30_000);
+		assertNull(store.claim("old", "abc"));
+		assertNotNull(store.claim("newer", "def"));
+	}
+
+	@Test
+	void evictsTheOldestEntryWhenFull() {
+		InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, 60_000, clock::get);
+		store.claim("a", "1");
+		store.claim("b", "2");
+		store.claim("c", "3");
+
+		assertEquals(2, store.size());
+		assertNull(store.claim("a", "1"));
+	}
+}
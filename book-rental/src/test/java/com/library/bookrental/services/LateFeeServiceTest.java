@@ -0,0 +1,128 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.repositories.RentalShards;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LateFeeServiceTest {
+
+	private static final LocalDate AS_OF = LocalDate.of(2024, 3, 1);
+
+	private JdbcTemplate jdbcTemplate;
+	private LateFeeService service;
+	private final AtomicInteger leaseChecks = new AtomicInteger();
+	private int interruptAtLeaseCheck = -1;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:late-fees;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists rentals");
+		jdbcTemplate.execute("drop table if exists late_fees");
+		jdbcTemplate.execute("drop table if exists late_fee_checkpoints");
+		jdbcTemplate.execute("create table rentals (rental_id bigint primary key, book_id bigint, branch_id bigint, "
+				+ "due_date date, return_date date)");
+		jdbcTemplate.execute("create table late_fees (rental_id bigint primary key, book_id bigint, branch_id bigint, "
+				+ "due_date date, return_date date, days_late int, amount numeric(12, 2), computed_for date, "
+				+ "computed_at timestamp(6))");
+		jdbcTemplate.execute("create table late_fee_checkpoints (checkpoint_key varchar(100) primary key, "
+				+ "run_date date, source_index int, upper_bound bigint, last_rental_id bigint, "
+				+ "rentals_processed bigint, updated_at timestamp(6), completed_at timestamp(6))");
+		for (long rentalId = 1; rentalId <= 7; rentalId++) {
+			jdbcTemplate.update("insert into rentals values (?, ?, 1, ?, null)", rentalId, rentalId * 10,
+					Date.valueOf(AS_OF.minusDays(rentalId + 5)));
+		}
+
+		service = new LateFeeService();
+		ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(service, "transactionTemplate",
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+		ReflectionTestUtils.setField(service, "rentalShards",
+				new DefaultListableBeanFactory().getBeanProvider(RentalShards.class));
+		ReflectionTestUtils.setField(service, "clusterLeaseService", new ClusterLeaseService("test-node") {
+			@Override
+			public boolean tryAcquire(String leaseName, Duration duration) {
+				if (leaseChecks.incrementAndGet() == interruptAtLeaseCheck) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		});
+		ReflectionTestUtils.setField(service, "environment", new StandardEnvironment());
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "defaultScheduleSpec", "2:0.25,8:0.50,cap:15.00");
+		ReflectionTestUtils.setField(service, "closedLookbackDays", 30);
+		ReflectionTestUtils.setField(service, "threads", 1);
+		ReflectionTestUtils.setField(service, "partitionsPerSource", 1);
+		ReflectionTestUtils.setField(service, "chunkSize", 2);
+		ReflectionTestUtils.setField(service, "checkpointRetentionDays", 7);
+		ReflectionTestUtils.setField(service, "leaseMillis", 60_000L);
+		ReflectionTestUtils.setField(service, "clusterEnabled", true);
+		service.init();
+	}
+
+	@Test
+	void interruptedRunResumesFromItsCheckpointWithoutRewritingFees() throws Exception {
+		// The first check is the run's own; the third comes before the second chunk, after
+		// which the interrupted worker stops.
+		interruptAtLeaseCheck = 3;
+		service.run(AS_OF, false);
+
+		Map<String, Object> checkpoint = checkpoint();
+		assertEquals(4L, ((Number) checkpoint.get("last_rental_id")).longValue());
+		assertNull(checkpoint.get("completed_at"));
+		List<Timestamp> firstWrites = computedAt();
+		assertEquals(4, firstWrites.size());
+
+		interruptAtLeaseCheck = -1;
+		service.run(AS_OF, false);
+
+		checkpoint = checkpoint();
+		assertNotNull(checkpoint.get("completed_at"));
+		assertEquals(7L, ((Number) checkpoint.get("rentals_processed")).longValue());
+		List<Timestamp> allWrites = computedAt();
+		assertEquals(7, allWrites.size());
+		assertEquals(firstWrites, allWrites.subList(0, 4));
+	}
+
+	@Test
+	void restartedRunReplacesEarlierFees() throws Exception {
+		service.run(AS_OF, false);
+		jdbcTemplate.update("update late_fees set amount = 0");
+
+		service.run(AS_OF, true);
+
+		assertEquals(7, jdbcTemplate.queryForObject("select count(*) from late_fees", Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from late_fees where amount = 0",
+				Integer.class));
+	}
+
+	private Map<String, Object> checkpoint() {
+		return jdbcTemplate.queryForMap("select last_rental_id, rentals_processed, completed_at "
+				+ "from late_fee_checkpoints where run_date = ?", Date.valueOf(AS_OF));
+	}
+
+	private List<Timestamp> computedAt() {
+		return jdbcTemplate.queryForList("select computed_at from late_fees order by rental_id", Timestamp.class);
+	}
+}
@@ -0,0 +1,95 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.config.ReadYourWritesTracker;
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.filters.ClientContextFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ListingCoalescingIntegrationTest {
+
+	@TestConfiguration
+	static class ReadYourWritesConfig {
+
+		@Bean
+		ReadYourWritesTracker readYourWritesTracker() {
+			return new ReadYourWritesTracker(60_000);
+		}
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private ReadYourWritesTracker readYourWritesTracker;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void clientsPinnedToThePrimaryDoNotJoinFlights() throws Exception {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Coalesced Author");
+		String byAuthor = "/api/books/byAuthor/" + authorService.addAuthor(author).getAuthorId();
+		readYourWritesTracker.recordWrite("recent-writer");
+
+		long executions = executions();
+		mockMvc.perform(get(byAuthor).header(ClientContextFilter.CLIENT_ID_HEADER, "recent-writer"))
+				.andExpect(status().isOk());
+		assertEquals(executions, executions());
+
+		mockMvc.perform(get(byAuthor).header(ClientContextFilter.CLIENT_ID_HEADER, "reader"))
+				.andExpect(status().isOk());
+		assertEquals(executions + 1, executions());
+	}
+
+	@Test
+	void writesMoveListingsToANewVersionOnceTheyCommit() {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Versioned Author");
+		BookDTO book = new BookDTO();
+		book.setTitle("Versioned Book");
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorService.addAuthor(author).getAuthorId());
+		Long bookId = bookService.addBook(book).getBookId();
+
+		long before = catalogVersion();
+		long duringWrite = transactionTemplate.execute(status -> {
+			bookService.rentBook(bookId, "Versioned Reader");
+			return catalogVersion();
+		});
+
+		assertTrue(duringWrite > before);
+		// A flight keyed on the version seen before the commit may have read the old rows.
+		assertTrue(catalogVersion() > duringWrite);
+	}
+
+	private long catalogVersion() {
+		return bookService.getCoalescingMetrics().get("catalogVersion");
+	}
+
+	private long executions() {
+		return bookService.getCoalescingMetrics().get("executions");
+	}
+}
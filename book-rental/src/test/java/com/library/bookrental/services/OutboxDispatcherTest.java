@@ -0,0 +1,105 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.models.OutboxMessage;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboxDispatcherTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private OutboxDispatcher dispatcher;
+	private final List<Long> delivered = new ArrayList<>();
+	private boolean sinkFails;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists outbox_messages");
+		jdbcTemplate.execute("create table outbox_messages (message_id bigint auto_increment primary key, "
+				+ "event_type varchar(50), aggregate_id bigint, payload varchar(2000), created_at timestamp(6), "
+				+ "attempts int not null, next_attempt_at timestamp(6), dispatched_at timestamp(6), "
+				+ "last_error varchar(500))");
+
+		dispatcher = new OutboxDispatcher();
+		ReflectionTestUtils.setField(dispatcher, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(dispatcher, "outboxSink", (OutboxSink) messages -> {
+			if (sinkFails) {
+				throw new IllegalStateException("sink down");
+			}
+			messages.forEach(message -> delivered.add(message.getAggregateId()));
+		});
+		ReflectionTestUtils.setField(dispatcher, "enabled", true);
+		ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+		ReflectionTestUtils.setField(dispatcher, "maxBatchesPerPoll", 10);
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 2);
+		ReflectionTestUtils.setField(dispatcher, "retryBaseMillis", 0L);
+		ReflectionTestUtils.setField(dispatcher, "retryMaxMillis", 0L);
+	}
+
+	@Test
+	void deliversPendingMessagesInOrderOnce() {
+		for (long rentalId = 1; rentalId <= 5; rentalId++) {
+			insertMessage(rentalId);
+		}
+
+		dispatcher.dispatch();
+		dispatcher.dispatch();
+
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L), delivered);
+		assertEquals(0, pending());
+	}
+
+	@Test
+	void failedBatchesAreRetriedUntilTheyBecomeDeadLetters() {
+		insertMessage(7);
+		sinkFails = true;
+
+		dispatcher.dispatch();
+		assertEquals(1, pending());
+		assertEquals("sink down", jdbcTemplate.queryForObject("select last_error from outbox_messages", String.class));
+
+		dispatcher.dispatch();
+		assertEquals(0, pending());
+		assertEquals(1L, dispatcher.getMetrics().get("deadLettered"));
+
+		sinkFails = false;
+		dispatcher.dispatch();
+		assertEquals(List.of(), delivered);
+	}
+
+	@Test
+	void aRecoveredSinkReceivesTheRetriedBatch() {
+		insertMessage(8);
+		sinkFails = true;
+		dispatcher.dispatch();
+
+		sinkFails = false;
+		dispatcher.dispatch();
+
+		assertEquals(List.of(8L), delivered);
+		assertEquals(0, pending());
+	}
+
+	private void insertMessage(long rentalId) {
+		Timestamp now = Timestamp.from(Instant.now());
+		jdbcTemplate.update("insert into outbox_messages (event_type, aggregate_id, payload, created_at, "
+				+ "next_attempt_at, attempts) values (?, ?, '{}', ?, ?, 0)", OutboxService.RENTAL_OVERDUE, rentalId, now, now);
+	}
+
+	private int pending() {
+		return jdbcTemplate.queryForObject("select count(*) from outbox_messages where dispatched_at is null "
+				+ "and attempts < 2", Integer.class);
+	}
+}
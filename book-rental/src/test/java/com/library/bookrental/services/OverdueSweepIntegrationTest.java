@@ -0,0 +1,64 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "bookrental.rental.overdue-sweep-batch-size=2")
+class OverdueSweepIntegrationTest {
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentSweepsRecordEachOverdueRentalOnce() {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Overdue Sweep Author");
+		Long authorId = authorService.addAuthor(author).getAuthorId();
+		List<Long> bookIds = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			BookDTO book = new BookDTO();
+			book.setTitle("Overdue Sweep Book " + i);
+			book.setIsbn("978-0-00-000000-0");
+			book.setPublicationYear(2020);
+			book.setAuthorId(authorId);
+			Long bookId = bookService.addBook(book).getBookId();
+			bookService.rentBook(bookId, "Late Reader");
+			bookIds.add(bookId);
+		}
+		for (Long bookId : bookIds) {
+			jdbcTemplate.update("update rentals set due_date = ? where book_id = ?", LocalDate.now().minusDays(1), bookId);
+		}
+
+		List<CompletableFuture<Void>> sweeps = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			sweeps.add(CompletableFuture.runAsync(bookService::checkForOverdueRentals));
+		}
+		sweeps.forEach(CompletableFuture::join);
+		bookService.checkForOverdueRentals();
+
+		for (Long bookId : bookIds) {
+			assertEquals(1, jdbcTemplate.queryForObject("select count(*) from outbox_messages m "
+					+ "join rentals r on r.rental_id = m.aggregate_id where r.book_id = ? and m.event_type = ?",
+					Integer.class, bookId, OutboxService.RENTAL_OVERDUE));
+			assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+					"select overdue from rentals where book_id = ?", Boolean.class, bookId));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.library.bookrental.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RentalIntervalIndexTest {
+
+	@Test
+	void bookIsOutFromRentalUntilTheDayOfReturn() {
+		RentalIntervalIndex index = RentalIntervalIndex.build(
+				new long[]{7, 7, 9}, new long[]{1, 1, 2}, new int[]{10, 30, 12}, new int[]{20, 30, 15}, 3);
+
+		assertFalse(index.isRented(7, 9, null));
+		assertTrue(index.isRented(7, 10, null));
+		assertTrue(index.isRented(7, 20, null));
+		assertFalse(index.isRented(7, 21, null));
+		assertTrue(index.isRented(7, 30, null));
+		assertFalse(index.isRented(8, 15, null));
+		assertTrue(index.isRented(9, 13, 2L));
+		assertFalse(index.isRented(9, 13, 1L));
+	}
+
+	@Test
+	void overlappingPeriodsOfOneBookAreAllConsidered() {
+		// The second period starts later but ends earlier than the first.
+		RentalIntervalIndex index = RentalIntervalIndex.build(
+				new long[]{1, 1}, new long[]{1, 1}, new int[]{0, 5}, new int[]{100, 6}, 2);
+
+		assertTrue(index.isRented(1, 50, null));
+	}
+
+	@Test
+	void listsBooksOutDuringAPeriodOfTheBranch() {
+		RentalIntervalIndex index = RentalIntervalIndex.build(
+				new long[]{3, 1, 2, 1, 4}, new long[]{1, 1, 1, 1, 2},
+				new int[]{0, 5, 40, 50, 8}, new int[]{4, 12, 45, 60, 9}, 5);
+
+		assertArrayEquals(new long[]{1, 4}, index.booksRented(6, 10, null));
+		assertArrayEquals(new long[]{1}, index.booksRented(6, 10, 1L));
+		assertArrayEquals(new long[]{1, 2}, index.booksRented(30, 55, null));
+		assertArrayEquals(new long[0], index.booksRented(13, 39, null));
+	}
+
+	@Test
+	void emptyIndexFindsNothing() {
+		RentalIntervalIndex index = RentalIntervalIndex.empty();
+
+		assertFalse(index.isRented(1, 0, null));
+		assertArrayEquals(new long[0], index.booksRented(Integer.MIN_VALUE, Integer.MAX_VALUE, null));
+	}
+
+	@Test
+	void matchesAScanOverRandomPeriods() {
+		Random random = new Random(42);
+		int size = 5_000;
+		long[] books = new long[size];
+		long[] branches = new long[size];
+		int[] starts = new int[size];
+		int[] ends = new int[size];
+		for (int i = 0; i < size; i++) {
+			books[i] = random.nextInt(300);
+			branches[i] = books[i] % 3;
+			starts[i] = random.nextInt(10_000);
+			ends[i] = starts[i] + random.nextInt(60);
+		}
+		RentalIntervalIndex index = RentalIntervalIndex.build(books, branches, starts, ends, size / 2)
+				.merge(copyFrom(books, size / 2), copyFrom(branches, size / 2), copyFrom(starts, size / 2),
+						copyFrom(ends, size / 2), size - size / 2);
+
+		assertEquals(size, index.size());
+		for (int query = 0; query < 500; query++) {
+			int from = random.nextInt(10_100);
+			int to = from + random.nextInt(200);
+			long book = random.nextInt(300);
+			TreeSet<Long> expected = new TreeSet<>();
+			boolean expectedRented = false;
+			for (int i = 0; i < size; i++) {
+				if (starts[i] <= to && ends[i] >= from) {
+					expected.add(books[i]);
+				}
+				expectedRented |= books[i] == book && starts[i] <= from && ends[i] >= from;
+			}
+
+			assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), index.booksRented(from, to, null));
+			assertEquals(expectedRented, index.isRented(book, from, null));
+		}
+	}
+
+	private static long[] copyFrom(long[] values, int from) {
+		return Arrays.copyOfRange(values, from, values.length);
+	}
+
+	private static int[] copyFrom(int[] values, int from) {
+		return Arrays.copyOfRange(values, from, values.length);
+	}
+}
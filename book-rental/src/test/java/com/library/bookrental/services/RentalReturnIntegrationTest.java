@@ -0,0 +1,56 @@
+package com.library.bookrental.services;
+
+import com.library.bookrental.dto.AuthorDTO;
+import com.library.bookrental.dto.BookDTO;
+import com.library.bookrental.dto.RentalDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class RentalReturnIntegrationTest {
+
+	@Autowired
+	private AuthorService authorService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private RentalService rentalService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void returningAClosedRentalAgainChangesNothing() {
+		AuthorDTO author = new AuthorDTO();
+		author.setName("Second Return Author");
+		Long authorId = authorService.addAuthor(author).getAuthorId();
+		BookDTO book = new BookDTO();
+		book.setTitle("Second Return Book");
+		book.setIsbn("978-0-00-000000-0");
+		book.setPublicationYear(2020);
+		book.setAuthorId(authorId);
+		Long bookId = bookService.addBook(book).getBookId();
+		bookService.rentBook(bookId, "Returning Reader");
+		Long rentalId = jdbcTemplate.queryForObject("select rental_id from rentals where book_id = ?", Long.class,
+				bookId);
+
+		rentalService.returnBook(rentalId);
+		LocalDate returnedOn = LocalDate.now().minusDays(3);
+		jdbcTemplate.update("update rentals set return_date = ? where rental_id = ?", returnedOn, rentalId);
+		RentalDTO again = rentalService.returnBook(rentalId).orElseThrow();
+
+		assertEquals(returnedOn, again.getReturnDate());
+		assertEquals(returnedOn, jdbcTemplate.queryForObject("select return_date from rentals where rental_id = ?",
+				LocalDate.class, rentalId));
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from outbox_messages "
+				+ "where aggregate_id = ? and event_type = ?", Integer.class, rentalId, OutboxService.BOOK_RETURNED));
+	}
+}
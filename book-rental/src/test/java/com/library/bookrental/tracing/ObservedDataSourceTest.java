@@ -0,0 +1,81 @@
+package com.library.bookrental.tracing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservedDataSourceTest {
+
+	@Test
+	void reportsStatementsWithParametersAndRowCounts() throws Exception {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:observed;DB_CLOSE_DELAY=-1");
+		List<StatementExecution> executions = new ArrayList<>();
+		ObservedDataSource dataSource = new ObservedDataSource(h2, () -> List.of(executions::add));
+
+		try (Connection connection = dataSource.getConnection()) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table books (book_id bigint primary key, title varchar(100))");
+			}
+			try (PreparedStatement insert = connection.prepareStatement("insert into books values (?, ?)")) {
+				for (int i = 1; i <= 3; i++) {
+					insert.setLong(1, i);
+					insert.setString(2, "Title " + i);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			}
+			try (PreparedStatement select = connection.prepareStatement("select title from books where book_id > ?")) {
+				select.setLong(1, 1);
+				try (ResultSet rs = select.executeQuery()) {
+					while (rs.next()) {
+						rs.getString(1);
+					}
+				}
+			}
+		}
+
+		assertEquals(3, executions.size());
+		StatementExecution batch = executions.get(1);
+		assertEquals("INSERT", batch.operation());
+		assertEquals(3, batch.batchSize());
+		assertEquals(3, batch.rows());
+		assertEquals(List.of(1L, "Title 1"), batch.parameters());
+
+		StatementExecution query = executions.get(2);
+		assertEquals("select title from books where book_id > ?", query.sql());
+		assertEquals(List.of(1L), query.parameters());
+		assertEquals(2, query.rows());
+		assertTrue(query.elapsedNanos() > 0);
+	}
+
+	@Test
+	void nestsSpansUnderTheCurrentSpanAndRestoresItOnEnd() {
+		List<Span> exported = new ArrayList<>();
+		Tracer tracer = new Tracer(exported::add, true, 1.0);
+
+		Span root = tracer.startRootSpan("GET /api/books", null);
+		Span child = tracer.startSpan("BookService.getAllBooks", "INTERNAL");
+		Span leftOpen = tracer.startSpan("hibernate.flush", "INTERNAL");
+		assertEquals(leftOpen, Tracer.currentSpan());
+
+		child.end();
+		assertEquals(root, Tracer.currentSpan());
+		root.end();
+
+		assertNull(Tracer.currentSpan());
+		assertEquals(List.of(child, root), exported);
+		assertEquals(root.getSpanId(), child.getParentSpanId());
+		assertEquals(root.getTraceId(), leftOpen.getTraceId());
+	}
+}
@@ -0,0 +1,56 @@
+package com.library.bookrental.tracing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryStatisticsTest {
+
+	private QueryStatistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = new QueryStatistics();
+		ReflectionTestUtils.setField(statistics, "slowThresholdMillis", 1000L);
+		ReflectionTestUtils.setField(statistics, "nPlusOneThreshold", 3);
+		ReflectionTestUtils.setField(statistics, "maxTrackedShapes", 100);
+		ReflectionTestUtils.setField(statistics, "maxParameterLength", 50);
+	}
+
+	@Test
+	void collapsesLiteralsAndInListsIntoOneShape() {
+		assertEquals("select * from books b1_0 where b1_0.book_id in (?) and b1_0.title = ?",
+				statistics.shapeOf("select * from books b1_0 where b1_0.book_id in (?, ?,?) and b1_0.title = 'It''s'"));
+		assertEquals(statistics.shapeOf("update rentals set overdue = true where rental_id = 7"),
+				statistics.shapeOf("update rentals  set overdue = true\n where rental_id = 42"));
+	}
+
+	@Test
+	void flagsRequestsThatRepeatAStatementShape() {
+		statistics.beginRequest("GET /api/books");
+		statistics.onStatement(execution("select * from books", 0));
+		for (long authorId = 1; authorId <= 4; authorId++) {
+			statistics.onStatement(execution("select * from authors where author_id = " + authorId, 1));
+		}
+		statistics.endRequest();
+
+		List<Map<String, Object>> findings = statistics.getNPlusOneFindings();
+		assertEquals(1, findings.size());
+		assertEquals("GET /api/books", findings.get(0).get("endpoint"));
+		assertEquals("select * from authors where author_id = ?", findings.get(0).get("shape"));
+		assertEquals(4, findings.get(0).get("executions"));
+
+		List<Map<String, Object>> top = statistics.getTopShapes(1, "count");
+		assertEquals(4L, top.get(0).get("count"));
+		assertEquals(2, statistics.getTopShapes(10, "max").size());
+	}
+
+	private static StatementExecution execution(String sql, long millis) {
+		return new StatementExecution(sql, List.of(), 0, millis * 1_000_000, 1, 0, null);
+	}
+}
@@ -0,0 +1,46 @@
+package com.library.bookrental.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimerWheelTest {
+
+	@Test
+	void firesTimersOnlyOnceTheirDeadlineIsReached() {
+		List<String> fired = new ArrayList<>();
+		HashedTimerWheel<String> wheel = new HashedTimerWheel<>(10, 8, 0, fired::addAll);
+
+		wheel.schedule("soon", 30);
+		// 250ms is several rotations of an 80ms wheel away.
+		wheel.schedule("later", 250);
+
+		wheel.advance(29);
+		assertTrue(fired.isEmpty());
+
+		wheel.advance(30);
+		assertEquals(List.of("soon"), fired);
+
+		wheel.advance(249);
+		assertEquals(List.of("soon"), fired);
+
+		wheel.advance(250);
+		assertEquals(List.of("soon", "later"), fired);
+	}
+
+	@Test
+	void skipsCancelledTimersAndFiresPastDeadlinesImmediately() {
+		List<String> fired = new ArrayList<>();
+		HashedTimerWheel<String> wheel = new HashedTimerWheel<>(10, 8, 100, fired::addAll);
+
+		wheel.schedule("cancelled", 120).cancel();
+		wheel.schedule("past", 50);
+
+		wheel.advance(200);
+		assertEquals(List.of("past"), fired);
+	}
+}
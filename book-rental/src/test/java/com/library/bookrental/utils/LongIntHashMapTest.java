@@ -0,0 +1,53 @@
+package com.library.bookrental.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTest {
+
+	@Test
+	void matchesHashMapUnderRandomOperations() {
+		LongIntHashMap map = new LongIntHashMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(11);
+		for (int i = 0; i < 50_000; i++) {
+			long key = 1 + random.nextInt(500);
+			if (random.nextInt(4) == 0) {
+				assertEquals(expected.remove(key) != null, map.remove(key));
+			} else {
+				expected.merge(key, 1, Integer::sum);
+				map.addTo(key, 1);
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+		Map<Long, Integer> iterated = new HashMap<>();
+		map.forEach(iterated::put);
+		assertEquals(expected, iterated);
+	}
+
+	@Test
+	void absentKeysReadAsZero() {
+		LongIntHashMap map = new LongIntHashMap(2);
+		map.put(7, 3);
+
+		assertEquals(0, map.get(8));
+		assertFalse(map.containsKey(8));
+		assertTrue(map.containsKey(7));
+		assertFalse(map.remove(8));
+	}
+
+	@Test
+	void rejectsReservedKey() {
+		assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(2).put(0, 1));
+	}
+}
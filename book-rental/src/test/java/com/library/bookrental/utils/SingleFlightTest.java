@@ -0,0 +1,111 @@
+package com.library.bookrental.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+	private static final int WAITERS = 4;
+
+	private final SingleFlight<String, Integer> flights = new SingleFlight<>();
+
+	@Test
+	void concurrentCallersShareOneExecution() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+			loading.countDown();
+			await(release);
+			return loads.incrementAndGet();
+		}));
+		loading.await();
+
+		List<CompletableFuture<Integer>> waiters = joinFlight("key", loads::incrementAndGet);
+		release.countDown();
+
+		assertEquals(1, leader.join());
+		for (CompletableFuture<Integer> waiter : waiters) {
+			assertEquals(1, waiter.join());
+		}
+		assertEquals(1, flights.getExecutions());
+		assertEquals(WAITERS, flights.getShared());
+
+		// Nothing is kept once the flight has landed.
+		assertEquals(2, flights.execute("key", loads::incrementAndGet));
+		assertEquals(2, flights.getExecutions());
+	}
+
+	@Test
+	void waitersReceiveTheLeadersFailure() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("load failed");
+		CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+			loading.countDown();
+			await(release);
+			throw failure;
+		}));
+		loading.await();
+
+		List<CompletableFuture<Integer>> waiters = joinFlight("key", () -> 0);
+		release.countDown();
+
+		assertSame(failure, assertThrows(CompletionException.class, leader::join).getCause());
+		for (CompletableFuture<Integer> waiter : waiters) {
+			assertSame(failure, assertThrows(CompletionException.class, waiter::join).getCause());
+		}
+
+		// A failed flight is not remembered either.
+		assertEquals(7, flights.execute("key", () -> 7));
+	}
+
+	@Test
+	void differentKeysDoNotShare() {
+		assertEquals(1, flights.execute("first", () -> 1));
+		assertEquals(2, flights.execute("second", () -> 2));
+		assertEquals(2, flights.getExecutions());
+		assertEquals(0, flights.getShared());
+	}
+
+	/**
+	 * Starts callers of an in-flight key and returns once all of them are waiting on it.
+	 */
+	private List<CompletableFuture<Integer>> joinFlight(String key, Supplier<Integer> loader)
+			throws InterruptedException {
+		long sharedBefore = flights.getShared();
+		List<CompletableFuture<Integer>> waiters = new ArrayList<>();
+		for (int i = 0; i < WAITERS; i++) {
+			waiters.add(CompletableFuture.supplyAsync(() -> flights.execute(key, loader), newThread()));
+		}
+		while (flights.getShared() < sharedBefore + WAITERS) {
+			Thread.sleep(1);
+		}
+		return waiters;
+	}
+
+	private static Executor newThread() {
+		return command -> new Thread(command).start();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.library.bookrental.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFormatTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsBackWhatWasWrittenAcrossMappingWindows() throws Exception {
+		Path file = directory.resolve("catalog.snapshot");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			 SnapshotWriter writer = new SnapshotWriter(channel, 16)) {
+			for (int i = 0; i < 1000; i++) {
+				writer.writeLong(i);
+				writer.writeString(i % 7 == 0 ? null : "Título " + i);
+				writer.writeDate(i % 5 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i));
+				writer.writeInt(-i);
+				writer.writeBoolean(i % 2 == 0);
+			}
+		}
+
+		// A window far smaller than the file forces values to straddle remaps.
+		try (SnapshotReader reader = new SnapshotReader(file, 64)) {
+			assertEquals(Files.size(file), reader.getSize());
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(i, reader.readLong());
+				String title = reader.readString();
+				if (i % 7 == 0) {
+					assertNull(title);
+				} else {
+					assertEquals("Título " + i, title);
+				}
+				LocalDate date = reader.readDate();
+				assertEquals(i % 5 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i), date);
+				assertEquals(-i, reader.readInt());
+				assertEquals(i % 2 == 0, reader.readBoolean());
+			}
+			assertThrows(IllegalStateException.class, reader::readByte);
+		}
+	}
+
+	@Test
+	void rejectsFilesWithoutTheSnapshotHeader() throws Exception {
+		Path file = directory.resolve("other.bin");
+		Files.writeString(file, "author_id,name,biography\r\n");
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new SnapshotReader(file, 64));
+		assertTrue(e.getMessage().contains("Not a catalog snapshot"));
+	}
+}
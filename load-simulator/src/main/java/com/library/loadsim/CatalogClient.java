@@ -0,0 +1,96 @@
+package com.library.loadsim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Thin HTTP client for the rental API. Every request carries the simulated client's id in
+ * {@code X-Client-Id}, so the application's per-client rate limits see one client per worker.
+ */
+public class CatalogClient {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public CatalogClient(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public record Response(int status, String body, long retryAfterSeconds) {
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+
+        public boolean isRejected() {
+            return status == 429 || status == 503;
+        }
+
+        public boolean isConflict() {
+            return status == 409;
+        }
+
+        public JsonNode json() {
+            try {
+                return MAPPER.readTree(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unexpected response body: " + body, e);
+            }
+        }
+    }
+
+    public Response get(String path, String clientId) throws IOException, InterruptedException {
+        return send(request(path, clientId).GET().build());
+    }
+
+    public Response post(String path, Object body, String clientId) throws IOException, InterruptedException {
+        return send(request(path, clientId).POST(bodyOf(body)).build());
+    }
+
+    public Response put(String path, Object body, String clientId) throws IOException, InterruptedException {
+        return send(request(path, clientId).PUT(bodyOf(body)).build());
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private HttpRequest.Builder request(String path, String clientId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header(CLIENT_ID_HEADER, clientId)
+                .header("Content-Type", "application/json");
+    }
+
+    private static HttpRequest.BodyPublisher bodyOf(Object body) throws IOException {
+        return body == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body));
+    }
+
+    private Response send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        String retryAfter = response.headers().firstValue("Retry-After").orElse("");
+        return new Response(response.statusCode(), response.body(),
+                retryAfter.chars().allMatch(Character::isDigit) && !retryAfter.isEmpty() ? Long.parseLong(retryAfter) : 0);
+    }
+}
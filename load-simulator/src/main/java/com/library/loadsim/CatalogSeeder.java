@@ -0,0 +1,142 @@
+package com.library.loadsim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seeds a catalog of the configured size: authors in bulk, then books and a rental history
+ * in parallel, one simulated client per seeding thread. Requests the application rejects
+ * with 429 or 503 are retried after the Retry-After it sends.
+ */
+public class CatalogSeeder {
+
+    private static final int AUTHOR_BATCH_SIZE = 500;
+    private static final int MAX_ATTEMPTS = 30;
+
+    private static final String[] TITLE_WORDS = {
+            "Silent", "River", "Winter", "Garden", "Shadow", "Empire", "Glass", "Harbor", "Iron", "Journey",
+            "Kingdom", "Lantern", "Mountain", "Night", "Orchard", "Paper", "Quiet", "Road", "Stone", "Tide"
+    };
+
+    private final CatalogClient client;
+    private final SimulatorConfig config;
+
+    public CatalogSeeder(CatalogClient client, SimulatorConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    public CatalogState seed() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        seedAuthors();
+        List<CatalogState.Author> authors = CatalogState.loadAuthors(client);
+        seedBooks(authors);
+        CatalogState state = CatalogState.load(client, config.getHotBookSkew(), config.getRandomSeed());
+        seedRentals(state);
+        System.err.printf("Seeded %d authors, %d books and %d rentals in %.1f s.%n", config.getSeedAuthors(),
+                config.getSeedBooks(), config.getSeedRentals(), (System.nanoTime() - start) / 1e9);
+        return state;
+    }
+
+    private void seedAuthors() throws IOException, InterruptedException {
+        List<Map<String, String>> batch = new ArrayList<>();
+        for (int i = 1; i <= config.getSeedAuthors(); i++) {
+            batch.add(Map.of("name", String.format("Author %05d", i), "biography", "Seeded by the load simulator."));
+            if (batch.size() == AUTHOR_BATCH_SIZE || i == config.getSeedAuthors()) {
+                List<Map<String, String>> authors = batch;
+                send(() -> client.post("/api/authors/bulk", authors, LoadSimulator.SEED_CLIENT_ID));
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    private void seedBooks(List<CatalogState.Author> authors) throws InterruptedException {
+        parallel(config.getSeedBooks(), (clientId, i, random) -> {
+            String title = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                    + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + i;
+            Map<String, Object> book = Map.of(
+                    "title", title,
+                    "isbn", String.format("978%010d", i),
+                    "publicationYear", 1950 + random.nextInt(75),
+                    "authorId", authors.get(random.nextInt(authors.size())).authorId());
+            send(() -> client.post("/api/books", book, clientId));
+        });
+    }
+
+    /**
+     * Rents and returns popular books to build a history, leaving the configured share of
+     * the last rentals open.
+     */
+    private void seedRentals(CatalogState state) throws InterruptedException {
+        int closed = (int) Math.round(config.getSeedRentals() * (1 - config.getSeedOpenRentalRatio()));
+        parallel(config.getSeedRentals(), (clientId, i, random) -> {
+            long bookId = state.claimBookToRent(random);
+            if (bookId < 0) {
+                return;
+            }
+            send(() -> client.post("/api/books/" + bookId + "/rent?renterName="
+                    + CatalogClient.encode("Seed Renter " + random.nextInt(1000)), null, clientId));
+            if (i < closed) {
+                send(() -> client.post("/api/books/" + bookId + "/return", null, clientId));
+                state.release(bookId);
+            } else {
+                state.rentSucceeded(bookId);
+            }
+        });
+    }
+
+    private interface Task {
+        void run(String clientId, int index, SplittableRandom random) throws IOException, InterruptedException;
+    }
+
+    private interface Call {
+        CatalogClient.Response send() throws IOException, InterruptedException;
+    }
+
+    private void parallel(int count, Task task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getSeedThreads());
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < config.getSeedThreads(); t++) {
+            String clientId = LoadSimulator.SEED_CLIENT_ID + "-" + t;
+            SplittableRandom random = new SplittableRandom(config.getRandomSeed() + t);
+            futures.add(executor.submit(() -> {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    task.run(clientId, i, random);
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Seeding failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void send(Call call) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            CatalogClient.Response response = call.send();
+            if (!response.isRejected() || attempt == MAX_ATTEMPTS) {
+                CatalogState.expectSuccess(response);
+                return;
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(Math.max(1, response.retryAfterSeconds())));
+        }
+    }
+}
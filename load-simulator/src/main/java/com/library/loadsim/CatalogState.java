@@ -0,0 +1,159 @@
+package com.library.loadsim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.random.RandomGenerator;
+
+/**
+ * What the simulator knows about the catalog: the author and book ids, which books its
+ * renters currently hold, and how popular each book is. Renters claim a book here before
+ * renting it, so concurrent workers do not race each other for the same copy.
+ */
+public class CatalogState {
+
+    public record Author(long authorId, String name) {
+    }
+
+    private static final int COLUMN_PAGE_SIZE = 10_000;
+
+    private final List<Author> authors;
+    private final long[] booksByPopularity;
+    private final ZipfSampler popularity;
+    private final Set<Long> rented = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> held = new ConcurrentLinkedQueue<>();
+
+    CatalogState(List<Author> authors, long[] booksByPopularity, double skew) {
+        if (authors.isEmpty() || booksByPopularity.length == 0) {
+            throw new IllegalStateException("The catalog has no authors or no books; enable seeding or seed it first.");
+        }
+        this.authors = authors;
+        this.booksByPopularity = booksByPopularity;
+        this.popularity = new ZipfSampler(booksByPopularity.length, skew);
+    }
+
+    /**
+     * Reads the current catalog from the application. Books that are already rented are
+     * taken as held by the simulator, so they are returned over the course of the run.
+     */
+    public static CatalogState load(CatalogClient client, double skew, long randomSeed)
+            throws IOException, InterruptedException {
+        List<Author> authors = loadAuthors(client);
+        List<Long> bookIds = new ArrayList<>();
+        List<Long> unavailable = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            JsonNode page = expectSuccess(client.get("/api/books/columns?afterId=" + afterId + "&limit=" + COLUMN_PAGE_SIZE,
+                    LoadSimulator.SEED_CLIENT_ID)).json();
+            JsonNode ids = page.get("bookId");
+            JsonNode available = page.get("available");
+            for (int i = 0; i < ids.size(); i++) {
+                bookIds.add(ids.get(i).asLong());
+                if (!available.get(i).asBoolean()) {
+                    unavailable.add(ids.get(i).asLong());
+                }
+            }
+            if (page.get("nextAfterId").isNull()) {
+                break;
+            }
+            afterId = page.get("nextAfterId").asLong();
+        }
+
+        // Popularity is independent of insertion order.
+        Collections.shuffle(bookIds, new Random(randomSeed));
+        CatalogState state = new CatalogState(authors, bookIds.stream().mapToLong(Long::longValue).toArray(), skew);
+        for (Long bookId : unavailable) {
+            state.rented.add(bookId);
+            state.held.add(bookId);
+        }
+        return state;
+    }
+
+    public static List<Author> loadAuthors(CatalogClient client) throws IOException, InterruptedException {
+        List<Author> authors = new ArrayList<>();
+        for (JsonNode author : expectSuccess(client.get("/api/authors", LoadSimulator.SEED_CLIENT_ID)).json()) {
+            authors.add(new Author(author.get("authorId").asLong(), author.get("name").asText()));
+        }
+        return authors;
+    }
+
+    public int getAuthorCount() {
+        return authors.size();
+    }
+
+    public int getBookCount() {
+        return booksByPopularity.length;
+    }
+
+    public int getHeldCount() {
+        return held.size();
+    }
+
+    /**
+     * The ids of the most popular books, most popular first.
+     */
+    public long[] getMostPopularBooks(int count) {
+        return Arrays.copyOf(booksByPopularity, Math.min(count, booksByPopularity.length));
+    }
+
+    public Author randomAuthor(RandomGenerator random) {
+        return authors.get(random.nextInt(authors.size()));
+    }
+
+    /**
+     * Claims a popular book that is not rented, or returns -1 if a few attempts only found
+     * rented ones.
+     */
+    public long claimBookToRent(RandomGenerator random) {
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long bookId = booksByPopularity[popularity.sample(random)];
+            if (rented.add(bookId)) {
+                return bookId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Takes the longest held book for returning, or returns -1 if no book is held.
+     */
+    public long claimBookToReturn() {
+        Long bookId = held.poll();
+        return bookId == null ? -1 : bookId;
+    }
+
+    public void rentSucceeded(long bookId) {
+        held.add(bookId);
+    }
+
+    /**
+     * Marks a book as free to rent again, after it was returned or after a request about it
+     * failed in a way that leaves its state unknown.
+     */
+    public void release(long bookId) {
+        rented.remove(bookId);
+    }
+
+    /**
+     * Puts a held book back in line for returning after its return was rejected.
+     */
+    public void requeueReturn(long bookId) {
+        held.add(bookId);
+    }
+
+    static CatalogClient.Response expectSuccess(CatalogClient.Response response) {
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Request failed with status " + response.status() + ": " + response.body());
+        }
+        return response;
+    }
+}
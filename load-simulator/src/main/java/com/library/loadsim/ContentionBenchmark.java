@@ -0,0 +1,163 @@
+package com.library.loadsim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.library.loadsim.CatalogState.expectSuccess;
+
+/**
+ * Many renters racing for the same few books: every worker keeps renting one of the most
+ * popular books and returns it straight away when it wins, so nearly every rent loses to
+ * another worker and is answered with 409. Reports the latency of won and lost rents and,
+ * from {@code /api/admin/rental-outcomes}, how much CPU the application spent per rent or
+ * return in the measured window, which shows what a rejected request costs the server.
+ */
+public class ContentionBenchmark {
+
+    static final String CLIENT_ID = LoadSimulator.CLIENT_ID_PREFIX + "contention-benchmark";
+
+    private static final String CPU_MILLIS = "processCpuMillis";
+
+    private final CatalogClient client;
+    private final SimulatorConfig config;
+    private final long[] hotBooks;
+
+    private final LatencyHistogram won = new LatencyHistogram();
+    private final LatencyHistogram lost = new LatencyHistogram();
+    private final LongAdder failed = new LongAdder();
+
+    private long measureFromNanos;
+    private long endNanos;
+
+    public ContentionBenchmark(CatalogClient client, SimulatorConfig config, CatalogState state) {
+        this.client = client;
+        this.config = config;
+        this.hotBooks = state.getMostPopularBooks(config.getContentionHotBooks());
+    }
+
+    private record Snapshot(long requests, long cpuMillis) {
+    }
+
+    public void run(PrintStream out) throws IOException, InterruptedException {
+        // Start with every contended book on the shelf; a 409 means it already was.
+        for (long bookId : hotBooks) {
+            client.post("/api/books/" + bookId + "/return", null, CLIENT_ID);
+        }
+        System.err.printf("Racing %d workers for %d books: %d s warm-up, %d s measured.%n",
+                config.getContentionWorkers(), hotBooks.length, config.getContentionWarmupSeconds(),
+                config.getContentionDurationSeconds());
+
+        long startNanos = System.nanoTime();
+        measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getContentionWarmupSeconds());
+        endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(config.getContentionDurationSeconds());
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < config.getContentionWorkers(); i++) {
+            String clientId = CLIENT_ID + "-" + i;
+            SplittableRandom random = new SplittableRandom(config.getRandomSeed() * 31 + i);
+            Thread worker = new Thread(() -> work(clientId, random), "contention-benchmark-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        sleepUntil(measureFromNanos);
+        Snapshot before = snapshot();
+        sleepUntil(endNanos);
+        Snapshot after = snapshot();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        double seconds = config.getContentionDurationSeconds();
+        out.printf("%-7s %9s %9s %8s %8s %8s%n", "rent", "requests", "per s", "mean ms", "p50 ms", "p99 ms");
+        print(out, "won", won, seconds);
+        print(out, "lost", lost, seconds);
+        out.printf("%-7s %9d%n", "failed", failed.sum());
+        out.println();
+        long rents = won.getCount() + lost.getCount();
+        out.printf("%.1f%% of rents lost the race.%n", rents == 0 ? 0 : 100.0 * lost.getCount() / rents);
+        long requests = after.requests() - before.requests();
+        if (before.cpuMillis() < 0 || requests <= 0) {
+            out.println("The application did not report its CPU time.");
+        } else {
+            out.printf("The application handled %d rents and returns using %d ms of CPU, %.1f microseconds per request.%n",
+                    requests, after.cpuMillis() - before.cpuMillis(),
+                    1000.0 * (after.cpuMillis() - before.cpuMillis()) / requests);
+        }
+    }
+
+    private void work(String clientId, SplittableRandom random) {
+        String renter = CatalogClient.encode("Renter " + clientId);
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= endNanos) {
+                return;
+            }
+            long bookId = hotBooks[random.nextInt(hotBooks.length)];
+            try {
+                CatalogClient.Response response = client.post("/api/books/" + bookId + "/rent?renterName=" + renter,
+                        null, clientId);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                boolean measured = start >= measureFromNanos;
+                if (response.isSuccess()) {
+                    if (measured) {
+                        won.record(micros);
+                    }
+                    client.post("/api/books/" + bookId + "/return", null, clientId);
+                } else if (response.isConflict()) {
+                    if (measured) {
+                        lost.record(micros);
+                    }
+                } else if (measured) {
+                    failed.increment();
+                }
+            } catch (IOException e) {
+                if (start >= measureFromNanos) {
+                    failed.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rent and return requests the application has answered so far and the CPU time it has
+     * used, or -1 when it does not report CPU time.
+     */
+    private Snapshot snapshot() throws IOException, InterruptedException {
+        JsonNode metrics = expectSuccess(client.get("/api/admin/rental-outcomes", CLIENT_ID)).json();
+        long requests = 0;
+        Iterator<Map.Entry<String, JsonNode>> fields = metrics.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!CPU_MILLIS.equals(field.getKey())) {
+                requests += field.getValue().asLong();
+            }
+        }
+        return new Snapshot(requests, metrics.path(CPU_MILLIS).asLong(-1));
+    }
+
+    private static void sleepUntil(long nanos) {
+        long wait;
+        while ((wait = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static void print(PrintStream out, String outcome, LatencyHistogram latency, double seconds) {
+        out.printf("%-7s %9d %9.1f %8.2f %8.2f %8.2f%n", outcome, latency.getCount(), latency.getCount() / seconds,
+                latency.getMean() / 1000, latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0);
+    }
+}
@@ -0,0 +1,133 @@
+package com.library.loadsim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.library.loadsim.CatalogState.expectSuccess;
+
+/**
+ * Compares one GraphQL query for a page of books with their authors and rentals against
+ * the REST calls a client makes today to show the same page: a book search page, the full
+ * author list and the full rental list, joined on the client. Both variants run one after
+ * the other from a single client, so the numbers are request latency without queueing.
+ */
+public class GraphQlBenchmark {
+
+    static final String CLIENT_ID = LoadSimulator.CLIENT_ID_PREFIX + "graphql-benchmark";
+
+    private static final String QUERY = "query($first: Int) { books(first: $first) { bookId title isbn available "
+            + "author { authorId name } rentals { rentalId renterName rentalDate dueDate returnDate overdue } } }";
+
+    private final CatalogClient client;
+    private final int pageSize;
+    private final int iterations;
+    private final int warmupIterations;
+
+    public GraphQlBenchmark(CatalogClient client, SimulatorConfig config) {
+        this.client = client;
+        this.pageSize = config.getBenchmarkPageSize();
+        this.iterations = config.getBenchmarkIterations();
+        this.warmupIterations = config.getBenchmarkWarmupIterations();
+    }
+
+    private record Page(int books, int rentals, long bytes) {
+    }
+
+    private interface Variant {
+        Page fetch() throws IOException, InterruptedException;
+    }
+
+    public void run(PrintStream out) throws IOException, InterruptedException {
+        Page rest = rest();
+        Page graphQl = graphQl();
+        if (rest.books() != graphQl.books() || rest.rentals() != graphQl.rentals()) {
+            throw new IllegalStateException(String.format("The variants disagree: REST returned %d books and %d "
+                    + "rentals, GraphQL %d books and %d rentals.", rest.books(), rest.rentals(), graphQl.books(),
+                    graphQl.rentals()));
+        }
+        System.err.printf("Benchmarking a page of %d books with %d rentals: %d warm-up and %d measured iterations.%n",
+                rest.books(), rest.rentals(), warmupIterations, iterations);
+
+        LatencyHistogram restLatency = measure(this::rest);
+        LatencyHistogram graphQlLatency = measure(this::graphQl);
+
+        out.printf("%-8s %8s %10s %8s %8s %8s %8s%n", "variant", "requests", "bytes", "mean ms", "p50 ms", "p90 ms",
+                "p99 ms");
+        print(out, "rest", 3, rest.bytes(), restLatency);
+        print(out, "graphql", 1, graphQl.bytes(), graphQlLatency);
+        out.println();
+        out.printf("GraphQL transfers %.1fx fewer bytes; its p50 latency is %.1fx that of REST.%n",
+                (double) rest.bytes() / graphQl.bytes(),
+                (double) graphQlLatency.getPercentile(50) / Math.max(1, restLatency.getPercentile(50)));
+    }
+
+    private LatencyHistogram measure(Variant variant) throws IOException, InterruptedException {
+        for (int i = 0; i < warmupIterations; i++) {
+            variant.fetch();
+        }
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            variant.fetch();
+            latency.record((System.nanoTime() - start) / 1000);
+        }
+        return latency;
+    }
+
+    private Page rest() throws IOException, InterruptedException {
+        CatalogClient.Response books = expectSuccess(client.get("/api/books/search?sort=bookId&limit=" + pageSize,
+                CLIENT_ID));
+        CatalogClient.Response authors = expectSuccess(client.get("/api/authors", CLIENT_ID));
+        CatalogClient.Response rentals = expectSuccess(client.get("/api/rentals", CLIENT_ID));
+
+        Map<Long, String> authorNames = new HashMap<>();
+        for (JsonNode author : authors.json()) {
+            authorNames.put(author.get("authorId").asLong(), author.get("name").asText());
+        }
+        Set<Long> pageBookIds = new HashSet<>();
+        for (JsonNode book : books.json().get("items")) {
+            if (authorNames.containsKey(book.get("authorId").asLong())) {
+                pageBookIds.add(book.get("bookId").asLong());
+            }
+        }
+        int pageRentals = 0;
+        for (JsonNode rental : rentals.json()) {
+            if (pageBookIds.contains(rental.get("book").get("bookId").asLong())) {
+                pageRentals++;
+            }
+        }
+        return new Page(pageBookIds.size(), pageRentals, bytes(books) + bytes(authors) + bytes(rentals));
+    }
+
+    private Page graphQl() throws IOException, InterruptedException {
+        CatalogClient.Response response = expectSuccess(client.post("/graphql",
+                Map.of("query", QUERY, "variables", Map.of("first", pageSize)), CLIENT_ID));
+        JsonNode result = response.json();
+        if (result.has("errors")) {
+            throw new IllegalStateException("GraphQL query failed: " + result.get("errors"));
+        }
+        int rentals = 0;
+        JsonNode books = result.get("data").get("books");
+        for (JsonNode book : books) {
+            rentals += book.get("rentals").size();
+        }
+        return new Page(books.size(), rentals, bytes(response));
+    }
+
+    private static void print(PrintStream out, String variant, int requests, long bytes, LatencyHistogram latency) {
+        out.printf("%-8s %8d %10d %8.2f %8.2f %8.2f %8.2f%n", variant, requests, bytes, latency.getMean() / 1000,
+                latency.getPercentile(50) / 1000.0, latency.getPercentile(90) / 1000.0,
+                latency.getPercentile(99) / 1000.0);
+    }
+
+    private static long bytes(CatalogClient.Response response) {
+        return response.body().getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,61 @@
+package com.library.loadsim;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Command line entry point: seeds the catalog, replays the traffic mix against the running
+ * application and exits with 0 when every SLO was met, 1 when one was missed and 2 when
+ * the run could not be carried out. With {@code --mode=graphql-benchmark} it compares the
+ * GraphQL and REST reads of a page of books instead, and with
+ * {@code --mode=contention-benchmark} it measures concurrent renters racing for a few books.
+ * <p>
+ * {@code java -jar load-simulator.jar --base-url=http://localhost:8080 --duration-seconds=120}
+ */
+public class LoadSimulator {
+
+    static final String SEED_CLIENT_ID = "load-simulator-seed";
+    static final String CLIENT_ID_PREFIX = "load-simulator-";
+
+    public static void main(String[] args) {
+        int status;
+        try {
+            status = run(SimulatorConfig.fromArgs(args));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 2;
+        } catch (Exception e) {
+            System.err.println("Load simulation failed: " + e.getMessage());
+            status = 2;
+        }
+        System.exit(status);
+    }
+
+    static int run(SimulatorConfig config) throws Exception {
+        CatalogClient client = new CatalogClient(config.getBaseUrl(),
+                Duration.ofMillis(config.getRequestTimeoutMillis()));
+        CatalogState state = config.isSeedEnabled()
+                ? new CatalogSeeder(client, config).seed()
+                : CatalogState.load(client, config.getHotBookSkew(), config.getRandomSeed());
+        if ("graphql-benchmark".equals(config.getMode())) {
+            new GraphQlBenchmark(client, config).run(System.out);
+            return 0;
+        }
+        if ("contention-benchmark".equals(config.getMode())) {
+            new ContentionBenchmark(client, config, state).run(System.out);
+            return 0;
+        }
+
+        System.err.printf("Running %s against %s with %d workers: %d s warm-up, %d s measured; catalog of %d authors, "
+                        + "%d books, %d open rentals.%n",
+                config.getRate() > 0 ? config.getRate() + " requests/s" : "a closed loop", config.getBaseUrl(),
+                config.getWorkers(), config.getWarmupSeconds(), config.getDurationSeconds(), state.getAuthorCount(),
+                state.getBookCount(), state.getHeldCount());
+        Map<Operation, OperationStats> stats = new WorkloadRunner(client, config, state).run();
+
+        SimulationReport report = new SimulationReport(stats, config.getP99Slos(), config.getMaxErrorRate(),
+                config.getDurationSeconds());
+        report.print(System.out);
+        return report.isPassed() ? 0 : 1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.loadsim;
+
+/**
+ * The kinds of request in the simulated traffic mix. The key names the operation in the
+ * configuration ({@code mix.<key>}, {@code slo.p99.<key>}) and in the report.
+ */
+public enum Operation {
+
+    BOOK_SEARCH("book-search"),
+    BOOKS_BY_AUTHOR("books-by-author"),
+    AVAILABLE_BOOKS("available-books"),
+    RENT("rent"),
+    RETURN("return"),
+    OVERDUE_SWEEP("overdue-sweep"),
+    AUTHOR_EDIT("author-edit");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
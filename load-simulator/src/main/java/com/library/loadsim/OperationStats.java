@@ -0,0 +1,51 @@
+package com.library.loadsim;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counts and latency distribution of one operation over the measured window.
+ */
+public class OperationStats {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    void record(long micros, Outcome outcome) {
+        latency.record(micros);
+        switch (outcome) {
+            case SUCCEEDED -> succeeded.increment();
+            case REJECTED -> rejected.increment();
+            case FAILED -> failed.increment();
+        }
+    }
+
+    public enum Outcome {
+        SUCCEEDED,
+        /** Turned away by the application's rate limiting or load shedding (429, 503). */
+        REJECTED,
+        /** Any other error status, or no response at all. */
+        FAILED
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+}
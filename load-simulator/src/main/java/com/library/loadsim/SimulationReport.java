@@ -0,0 +1,94 @@
+package com.library.loadsim;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints throughput and latency percentiles per operation and checks them against the
+ * p99 SLOs and the allowed error rate.
+ */
+public class SimulationReport {
+
+    private final Map<Operation, OperationStats> stats;
+    private final Map<Operation, Long> p99Slos;
+    private final double maxErrorRate;
+    private final double seconds;
+    private final List<String> violations = new ArrayList<>();
+
+    public SimulationReport(Map<Operation, OperationStats> stats, Map<Operation, Long> p99Slos, double maxErrorRate,
+                            double seconds) {
+        this.stats = stats;
+        this.p99Slos = p99Slos;
+        this.maxErrorRate = maxErrorRate;
+        this.seconds = seconds;
+        evaluate();
+    }
+
+    public boolean isPassed() {
+        return violations.isEmpty();
+    }
+
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-16s %8s %8s %7s %7s %8s %8s %8s %8s %8s %8s%n", "operation", "requests", "req/s", "failed",
+                "reject", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "SLO p99");
+        long requests = 0;
+        long failures = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operation = entry.getValue();
+            if (operation.getRequests() == 0) {
+                continue;
+            }
+            LatencyHistogram latency = operation.getLatency();
+            Long slo = p99Slos.get(entry.getKey());
+            out.printf("%-16s %8d %8.1f %7d %7d %8.1f %8.1f %8.1f %8.1f %8.1f %8s%n", entry.getKey().getKey(),
+                    operation.getRequests(), operation.getRequests() / seconds, operation.getFailed(),
+                    operation.getRejected(), millis(latency.getPercentile(50)), millis(latency.getPercentile(90)),
+                    millis(latency.getPercentile(99)), millis(latency.getPercentile(99.9)), millis(latency.getMax()),
+                    slo == null ? "-" : slo);
+            requests += operation.getRequests();
+            failures += operation.getFailed() + operation.getRejected();
+        }
+        out.printf("%-16s %8d %8.1f %7s %7s%n", "total", requests, requests / seconds, failures, "");
+        out.println();
+        if (violations.isEmpty()) {
+            out.println("PASSED: all operations met their SLOs.");
+        } else {
+            out.println("FAILED:");
+            violations.forEach(violation -> out.println("  " + violation));
+        }
+    }
+
+    private void evaluate() {
+        long requests = 0;
+        long failures = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operation = entry.getValue();
+            requests += operation.getRequests();
+            failures += operation.getFailed() + operation.getRejected();
+            Long slo = p99Slos.get(entry.getKey());
+            if (slo == null || operation.getRequests() == 0) {
+                continue;
+            }
+            double p99 = millis(operation.getLatency().getPercentile(99));
+            if (p99 > slo) {
+                violations.add(String.format("%s p99 of %.1f ms exceeds its SLO of %d ms", entry.getKey().getKey(), p99, slo));
+            }
+        }
+        if (requests == 0) {
+            violations.add("no requests were measured");
+        } else if ((double) failures / requests > maxErrorRate) {
+            violations.add(String.format("error rate of %.2f%% exceeds the allowed %.2f%%", 100.0 * failures / requests,
+                    100 * maxErrorRate));
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
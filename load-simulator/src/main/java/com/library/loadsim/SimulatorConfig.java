@@ -0,0 +1,206 @@
+package com.library.loadsim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Simulator settings. Defaults come from {@code simulator.properties} on the class path,
+ * then from the file named by {@code --config=<path>}, then from {@code --key=value}
+ * arguments.
+ */
+public class SimulatorConfig {
+
+    private final Properties properties;
+
+    SimulatorConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static SimulatorConfig fromArgs(String... args) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream defaults = SimulatorConfig.class.getResourceAsStream("/simulator.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        }
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            overrides.setProperty(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        String configFile = overrides.getProperty("config");
+        if (configFile != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(configFile))) {
+                properties.load(reader);
+            }
+        }
+        properties.putAll(overrides);
+        return new SimulatorConfig(properties);
+    }
+
+    /**
+     * "load" replays the traffic mix, "graphql-benchmark" runs {@link GraphQlBenchmark} and
+     * "contention-benchmark" runs {@link ContentionBenchmark}.
+     */
+    public String getMode() {
+        return require("mode");
+    }
+
+    public String getBaseUrl() {
+        String baseUrl = require("base-url");
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return getLong("request-timeout-ms");
+    }
+
+    public boolean isSeedEnabled() {
+        return Boolean.parseBoolean(require("seed.enabled"));
+    }
+
+    public int getSeedAuthors() {
+        return getInt("seed.authors");
+    }
+
+    public int getSeedBooks() {
+        return getInt("seed.books");
+    }
+
+    public int getSeedRentals() {
+        return getInt("seed.rentals");
+    }
+
+    public double getSeedOpenRentalRatio() {
+        return getDouble("seed.open-rental-ratio");
+    }
+
+    public int getSeedThreads() {
+        return Math.max(1, getInt("seed.threads"));
+    }
+
+    public int getWorkers() {
+        return Math.max(1, getInt("workers"));
+    }
+
+    public double getRate() {
+        return getDouble("rate");
+    }
+
+    public long getThinkTimeMillis() {
+        return getLong("think-time-ms");
+    }
+
+    public long getWarmupSeconds() {
+        return getLong("warmup-seconds");
+    }
+
+    public long getDurationSeconds() {
+        return getLong("duration-seconds");
+    }
+
+    public long getRandomSeed() {
+        return getLong("random-seed");
+    }
+
+    public double getHotBookSkew() {
+        return getDouble("hot-book-skew");
+    }
+
+    public int getRentBurstMax() {
+        return Math.max(1, getInt("rent-burst-max"));
+    }
+
+    public int getBenchmarkPageSize() {
+        return Math.max(1, getInt("benchmark.page-size"));
+    }
+
+    public int getBenchmarkIterations() {
+        return Math.max(1, getInt("benchmark.iterations"));
+    }
+
+    public int getBenchmarkWarmupIterations() {
+        return getInt("benchmark.warmup-iterations");
+    }
+
+    public int getContentionHotBooks() {
+        return Math.max(1, getInt("contention.hot-books"));
+    }
+
+    public int getContentionWorkers() {
+        return Math.max(1, getInt("contention.workers"));
+    }
+
+    public long getContentionWarmupSeconds() {
+        return getLong("contention.warmup-seconds");
+    }
+
+    public long getContentionDurationSeconds() {
+        return Math.max(1, getLong("contention.duration-seconds"));
+    }
+
+    public double getMaxErrorRate() {
+        return getDouble("max-error-rate");
+    }
+
+    /**
+     * Relative weight of each operation in the mix; operations without a weight are left out.
+     */
+    public Map<Operation, Integer> getMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            String weight = properties.getProperty("mix." + operation.getKey());
+            if (weight != null && Integer.parseInt(weight.trim()) > 0) {
+                mix.put(operation, Integer.parseInt(weight.trim()));
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The traffic mix has no operation with a positive weight.");
+        }
+        return mix;
+    }
+
+    /**
+     * The p99 latency objective of each operation in milliseconds; operations without one
+     * are reported but never fail the run.
+     */
+    public Map<Operation, Long> getP99Slos() {
+        Map<Operation, Long> slos = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            String slo = properties.getProperty("slo.p99." + operation.getKey());
+            if (slo != null && !slo.isBlank()) {
+                slos.put(operation, Long.parseLong(slo.trim()));
+            }
+        }
+        return slos;
+    }
+
+    private String require(String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing setting: " + key);
+        }
+        return value.trim();
+    }
+
+    private int getInt(String key) {
+        return Integer.parseInt(require(key));
+    }
+
+    private long getLong(String key) {
+        return Long.parseLong(require(key));
+    }
+
+    private double getDouble(String key) {
+        return Double.parseDouble(require(key));
+    }
+}
@@ -0,0 +1,217 @@
+package com.library.loadsim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the configured traffic mix with one thread per simulated client. Requests that
+ * start during the warm-up are sent but not recorded.
+ */
+public class WorkloadRunner {
+
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final String[] TITLE_PREFIXES = {"S", "R", "W", "G", "E", "H", "I", "J", "K", "L", "M", "N", "O",
+            "P", "Q", "T"};
+
+    private final CatalogClient client;
+    private final SimulatorConfig config;
+    private final CatalogState state;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong tickets = new AtomicLong();
+    private final AtomicLong editCounter = new AtomicLong();
+
+    private long startNanos;
+    private long measureFromNanos;
+    private long endNanos;
+
+    public WorkloadRunner(CatalogClient client, SimulatorConfig config, CatalogState state) {
+        this.client = client;
+        this.config = config;
+        this.state = state;
+        Map<Operation, Integer> mix = config.getMix();
+        operations = mix.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Runs the warm-up and the measured window and returns the statistics of the latter.
+     */
+    public Map<Operation, OperationStats> run() throws InterruptedException {
+        startNanos = System.nanoTime();
+        measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < config.getWorkers(); i++) {
+            String clientId = LoadSimulator.CLIENT_ID_PREFIX + i;
+            SplittableRandom random = new SplittableRandom(config.getRandomSeed() * 31 + i);
+            Thread worker = new Thread(() -> work(clientId, random), "load-simulator-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return stats;
+    }
+
+    private void work(String clientId, SplittableRandom random) {
+        double rate = config.getRate();
+        long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        while (true) {
+            long scheduled;
+            if (interval > 0) {
+                // Open loop: latency counts from when the request was due, so a slow
+                // application cannot hide its queueing by delaying our next request.
+                scheduled = startNanos + tickets.getAndIncrement() * interval;
+                if (scheduled >= endNanos) {
+                    return;
+                }
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                scheduled = System.nanoTime();
+                if (scheduled >= endNanos) {
+                    return;
+                }
+            }
+            try {
+                execute(pick(random), clientId, random, scheduled);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (config.getThinkTimeMillis() > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getThinkTimeMillis()));
+            }
+        }
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void execute(Operation operation, String clientId, SplittableRandom random, long scheduled)
+            throws InterruptedException {
+        switch (operation) {
+            case BOOK_SEARCH -> {
+                String query = random.nextBoolean()
+                        ? "titlePrefix=" + TITLE_PREFIXES[random.nextInt(TITLE_PREFIXES.length)]
+                        : "authorId=" + state.randomAuthor(random).authorId() + "&available=true";
+                timed(operation, scheduled, () -> client.get("/api/books/search?" + query + "&limit="
+                        + SEARCH_PAGE_SIZE, clientId));
+            }
+            case BOOKS_BY_AUTHOR -> timed(operation, scheduled, () -> client.get("/api/books/byAuthor/"
+                    + state.randomAuthor(random).authorId(), clientId));
+            case AVAILABLE_BOOKS -> timed(operation, scheduled, () -> client.get("/api/books/availableForRent", clientId));
+            case RENT -> {
+                if (!rentBurst(clientId, random, scheduled) && !returnOne(clientId, scheduled)) {
+                    // Nothing to rent or return; the slot is used for a catalog read instead.
+                    execute(Operation.BOOK_SEARCH, clientId, random, scheduled);
+                }
+            }
+            case RETURN -> {
+                if (!returnOne(clientId, scheduled) && !rentBurst(clientId, random, scheduled)) {
+                    execute(Operation.BOOK_SEARCH, clientId, random, scheduled);
+                }
+            }
+            case OVERDUE_SWEEP -> timed(operation, scheduled, () -> client.get("/api/books/overdue", clientId));
+            case AUTHOR_EDIT -> {
+                CatalogState.Author author = state.randomAuthor(random);
+                Map<String, String> update = Map.of("name", author.name(),
+                        "biography", "Revision " + editCounter.incrementAndGet() + " by the load simulator.");
+                timed(operation, scheduled, () -> client.put("/api/authors/" + author.authorId(), update, clientId));
+            }
+        }
+    }
+
+    /**
+     * One renter rents a few popular books back to back. Only the first rent of the burst
+     * is timed from the scheduled start; the rest follow immediately.
+     */
+    private boolean rentBurst(String clientId, SplittableRandom random, long scheduled) throws InterruptedException {
+        String renter = CatalogClient.encode("Renter " + random.nextInt(100_000));
+        int burst = 1 + random.nextInt(config.getRentBurstMax());
+        boolean rentedAny = false;
+        for (int i = 0; i < burst; i++) {
+            long bookId = state.claimBookToRent(random);
+            if (bookId < 0) {
+                break;
+            }
+            CatalogClient.Response response = timed(Operation.RENT, i == 0 ? scheduled : System.nanoTime(),
+                    () -> client.post("/api/books/" + bookId + "/rent?renterName=" + renter, null, clientId));
+            if (response != null && response.isSuccess()) {
+                state.rentSucceeded(bookId);
+            } else {
+                state.release(bookId);
+            }
+            rentedAny = true;
+        }
+        return rentedAny;
+    }
+
+    private boolean returnOne(String clientId, long scheduled) throws InterruptedException {
+        long bookId = state.claimBookToReturn();
+        if (bookId < 0) {
+            return false;
+        }
+        CatalogClient.Response response = timed(Operation.RETURN, scheduled,
+                () -> client.post("/api/books/" + bookId + "/return", null, clientId));
+        if (response != null && response.isRejected()) {
+            state.requeueReturn(bookId);
+        } else {
+            state.release(bookId);
+        }
+        return true;
+    }
+
+    private interface Call {
+        CatalogClient.Response send() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Sends a request and records its latency from the given start, unless it started
+     * during the warm-up. Returns null if no response arrived.
+     */
+    private CatalogClient.Response timed(Operation operation, long start, Call call) throws InterruptedException {
+        CatalogClient.Response response = null;
+        OperationStats.Outcome outcome;
+        try {
+            response = call.send();
+            outcome = response.isSuccess() ? OperationStats.Outcome.SUCCEEDED
+                    : response.isRejected() ? OperationStats.Outcome.REJECTED : OperationStats.Outcome.FAILED;
+        } catch (IOException e) {
+            outcome = OperationStats.Outcome.FAILED;
+        }
+        if (start >= measureFromNanos && start < endNanos) {
+            stats.get(operation).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), outcome);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.loadsim;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent, which is
+ * how popularity of catalog items tends to be spread: a few hot titles and a long tail.
+ * An exponent of 0 samples uniformly.
+ */
+public class ZipfSampler {
+
+    private final double[] cumulative;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Cannot sample from an empty range.");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    public int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
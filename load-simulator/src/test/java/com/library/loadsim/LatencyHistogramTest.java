@@ -0,0 +1,56 @@
+package com.library.loadsim;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+	@Test
+	void reportsPercentilesWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long micros = 1; micros <= 100_000; micros++) {
+			histogram.record(micros);
+		}
+
+		assertWithinPrecision(50_000, histogram.getPercentile(50));
+		assertWithinPrecision(99_000, histogram.getPercentile(99));
+		assertEquals(100_000, histogram.getPercentile(100));
+		assertEquals(100_000, histogram.getMax());
+		assertEquals(100_000, histogram.getCount());
+	}
+
+	@Test
+	void keepsSmallValuesExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(7);
+		histogram.record(200);
+
+		assertEquals(3, histogram.getPercentile(10));
+		assertEquals(7, histogram.getPercentile(60));
+		assertEquals(200, histogram.getPercentile(99));
+	}
+
+	@Test
+	void bucketBoundsCoverEveryValue() {
+		for (long value : new long[]{255, 256, 257, 1_000, 65_535, 65_536, 12_345_678, 1L << 41}) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(LatencyHistogram.upperBoundOf(index) >= value, "upper bound below " + value);
+			assertTrue(index == 0 || LatencyHistogram.upperBoundOf(index - 1) < value, "lower bound above " + value);
+		}
+	}
+
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getPercentile(99));
+		assertEquals(0, histogram.getMean());
+	}
+
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue(actual >= expected && actual <= expected * 1.008, "expected about " + expected + " but was " + actual);
+	}
+}
@@ -0,0 +1,39 @@
+package com.library.loadsim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipfSamplerTest {
+
+	@Test
+	void favoursLowRanks() {
+		ZipfSampler sampler = new ZipfSampler(1_000, 1.1);
+		SplittableRandom random = new SplittableRandom(7);
+		int[] counts = new int[1_000];
+		for (int i = 0; i < 100_000; i++) {
+			counts[sampler.sample(random)]++;
+		}
+
+		assertTrue(counts[0] > counts[1] && counts[1] > counts[10] && counts[10] > counts[500]);
+		// 1 / (sum of k^-1.1 for k = 1..1000)
+		assertEquals(0.179, counts[0] / 100_000.0, 0.005);
+	}
+
+	@Test
+	void exponentZeroIsUniform() {
+		ZipfSampler sampler = new ZipfSampler(4, 0);
+		SplittableRandom random = new SplittableRandom(7);
+		int[] counts = new int[4];
+		for (int i = 0; i < 40_000; i++) {
+			counts[sampler.sample(random)]++;
+		}
+
+		for (int count : counts) {
+			assertEquals(10_000, count, 500);
+		}
+	}
+}